@@ -0,0 +1,78 @@
+package no.bibsys.aws.cloudformation;
+
+import no.bibsys.aws.git.github.GithubConf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Construction of the naming configurations, which happens several times for every webhook event. The names of a
+ * branch are cached by the {@link NamingRegistry}, so most benchmarks measure the warm path; the cold ones derive the
+ * names on every invocation and measure the normalization of the branch name.
+ */
+@State(Scope.Benchmark)
+public class ConfigurationBenchmark {
+
+    private static final String OWNER = "BIBSYSDEV";
+    private static final String REPOSITORY = "authority-registry-infrastructure";
+
+    @Param({"master", "feature/AUT-1234_add-the-authority-registry--search-endpoint--"})
+    public transient String branch;
+
+    private transient GithubConf githubConf;
+
+    @Setup
+    public void init() {
+        githubConf = new GithubConf(OWNER, REPOSITORY, branch, () -> "token");
+    }
+
+    @Benchmark
+    public Configurable configurable() {
+        return new Configurable(REPOSITORY, branch);
+    }
+
+    @Benchmark
+    public PipelineConfiguration pipelineConfiguration() {
+        return new PipelineConfiguration(REPOSITORY, branch);
+    }
+
+    @Benchmark
+    public CodeBuildConfiguration codeBuildConfiguration() {
+        return new CodeBuildConfiguration(REPOSITORY, branch);
+    }
+
+    @Benchmark
+    public PipelineStackConfiguration pipelineStackConfiguration() {
+        return new PipelineStackConfiguration(githubConf);
+    }
+
+    @Benchmark
+    public PipelineStackConfiguration existingPipelineStackConfiguration() {
+        return new PipelineStackConfiguration(githubConf, "bucket", "role");
+    }
+
+    @Benchmark
+    public BranchNames coldBranchNames() {
+        return new BranchNames(REPOSITORY, branch);
+    }
+
+    @Benchmark
+    public PipelineStackConfiguration coldPipelineStackConfiguration(EmptyRegistry emptyRegistry) {
+        return new PipelineStackConfiguration(githubConf);
+    }
+
+    /**
+     * Empties the {@link NamingRegistry} before every invocation of the benchmarks that use it.
+     */
+    @State(Scope.Thread)
+    public static class EmptyRegistry {
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            NamingRegistry.getInstance().reset();
+        }
+    }
+}
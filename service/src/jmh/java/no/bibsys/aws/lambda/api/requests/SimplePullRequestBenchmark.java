@@ -0,0 +1,37 @@
+package no.bibsys.aws.lambda.api.requests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Optional;
+import no.bibsys.aws.tools.IoUtils;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing of a Github pull request webhook payload of about 35 KB, taken from the test resources. {@link #readTree()}
+ * is the cost of building the whole tree, for comparison with the streaming parser.
+ */
+@State(Scope.Benchmark)
+public class SimplePullRequestBenchmark {
+
+    private transient String payload;
+
+    @Setup
+    public void init() throws IOException {
+        payload = IoUtils.resourceAsString(Paths.get("github", "github_open_pull_request_payload.json"));
+    }
+
+    @Benchmark
+    public Optional<GitEvent> create() throws IOException {
+        return SimplePullRequest.create(payload);
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return ObjectMappers.JSON.readTree(payload);
+    }
+}
@@ -0,0 +1,46 @@
+package no.bibsys.aws.lambda.deploy.handlers.utils;
+
+import com.amazonaws.services.apigateway.AbstractAmazonApiGateway;
+import com.amazonaws.services.apigateway.AmazonApiGateway;
+import com.amazonaws.services.apigateway.model.GetExportRequest;
+import com.amazonaws.services.apigateway.model.GetExportResult;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Optional;
+import no.bibsys.aws.cloudformation.Stage;
+import no.bibsys.aws.tools.IoUtils;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rendering of the OpenAPI specification that is published to SwaggerHub. API Gateway returns the exported
+ * specification immediately, so the parsing of the export and the rendering of the template are measured.
+ */
+@State(Scope.Benchmark)
+public class ApiGatewayApiInfoBenchmark {
+
+    private transient ApiGatewayApiInfo apiInfo;
+
+    @Setup
+    public void init() throws IOException {
+        byte[] export = ObjectMappers.yamlToJson(IoUtils.resourceAsString(Paths.get("openapi", "openapi.yml")))
+            .getBytes(StandardCharsets.UTF_8);
+        AmazonApiGateway apiGateway = new AbstractAmazonApiGateway() {
+            @Override
+            public GetExportResult getExport(GetExportRequest request) {
+                return new GetExportResult().withBody(ByteBuffer.wrap(export));
+            }
+        };
+        apiInfo = new ApiGatewayApiInfo(Stage.TEST, apiGateway, "restApiId");
+    }
+
+    @Benchmark
+    public Optional<String> generateOpenApiNoExtensions() throws IOException {
+        return apiInfo.generateOpenApiNoExtensions();
+    }
+}
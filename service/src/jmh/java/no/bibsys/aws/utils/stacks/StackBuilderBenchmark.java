@@ -0,0 +1,47 @@
+package no.bibsys.aws.utils.stacks;
+
+import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.identitymanagement.AbstractAmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.model.GetRoleRequest;
+import com.amazonaws.services.identitymanagement.model.GetRoleResult;
+import com.amazonaws.services.identitymanagement.model.Role;
+import java.io.IOException;
+import java.util.List;
+import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
+import no.bibsys.aws.git.github.GithubConf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Assembly of the parameters of the pipeline stack. IAM answers immediately, so only the local work is measured.
+ */
+@State(Scope.Benchmark)
+public class StackBuilderBenchmark {
+
+    private static final String ROLE_ARN = "arn:aws:iam::123456789012:role/pipeline/createStackRole";
+
+    private transient PipelineStackConfiguration configuration;
+    private transient StackBuilder stackBuilder;
+
+    @Setup
+    public void init() {
+        GithubConf githubConf = new GithubConf("BIBSYSDEV", "authority-registry-infrastructure",
+            "feature/AUT-1234_search-endpoint", () -> "token");
+        configuration = new PipelineStackConfiguration(githubConf);
+        AmazonIdentityManagement identityManagement = new AbstractAmazonIdentityManagement() {
+            @Override
+            public GetRoleResult getRole(GetRoleRequest request) {
+                return new GetRoleResult().withRole(new Role().withRoleName(request.getRoleName()).withArn(ROLE_ARN));
+            }
+        };
+        stackBuilder = new StackBuilder(null, configuration, null, identityManagement, null);
+    }
+
+    @Benchmark
+    public List<Parameter> templateParameters() throws IOException {
+        return stackBuilder.templateParameters(configuration);
+    }
+}
@@ -1,34 +1,46 @@
 package no.bibsys.aws;
 
-import org.apache.http.impl.client.HttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
-import com.amazonaws.services.cloudformation.AmazonCloudFormationClientBuilder;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
-import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
 import com.amazonaws.services.lambda.AWSLambda;
-import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
 import com.amazonaws.services.logs.AWSLogs;
-import com.amazonaws.services.logs.AWSLogsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.google.common.base.Preconditions;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import java.util.Collections;
 
 import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
 import no.bibsys.aws.git.github.GithubConf;
 import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.roles.TaggedRoleFinder;
 import no.bibsys.aws.secrets.AwsSecretsReader;
 import no.bibsys.aws.secrets.SecretsReader;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+import no.bibsys.aws.utils.fleet.FleetReconciler;
+import no.bibsys.aws.utils.fleet.GithubBranchSource;
+import no.bibsys.aws.utils.fleet.PipelineInventory;
+import no.bibsys.aws.utils.fleet.ReconciliationReport;
+import no.bibsys.aws.utils.fleet.RepositoryRef;
+import no.bibsys.aws.utils.github.GithubPullRequestLister;
 import no.bibsys.aws.utils.github.GithubReader;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import no.bibsys.aws.utils.metrics.MetricsRecorder;
+import no.bibsys.aws.utils.stacks.Deadline;
+import no.bibsys.aws.utils.stacks.PipelineStackUpdater;
 import no.bibsys.aws.utils.stacks.StackBuilder;
-import no.bibsys.aws.utils.stacks.StackWiper;
 import no.bibsys.aws.utils.stacks.StackWiperImpl;
+import no.bibsys.aws.utils.templates.TemplateStore;
+import no.bibsys.aws.utils.templates.TemplateStoreFactory;
+import no.bibsys.aws.utils.tracing.Span;
+import no.bibsys.aws.utils.tracing.SpanExporter;
+import no.bibsys.aws.utils.tracing.SpanExporterFactory;
+import no.bibsys.aws.utils.tracing.Tracer;
 
 public class Application {
 
@@ -37,20 +49,31 @@ public class Application {
     private static final String GITHUB_REPOSITORY_PROPERTY = "repository";
     private static final String GIT_BRANCH_PROPERTY = "branch";
     private static final String CODEPIEPINE_ACTION = "action";
+    private static final String IN_PLACE_UPDATE_PROPERTY = "inPlaceUpdate";
+    private static final String LOG_RETENTION_DAYS_PROPERTY = "logRetentionDays";
+    private static final String TEMPLATE_STORE_PROPERTY = "templateStore";
+    private static final String DRY_RUN_PROPERTY = "dryRun";
+    private static final String TRACE_EXPORT_PROPERTY = "traceExport";
+    private static final String WIPE_STACKS_SPAN = "wipeStacks";
+    private static final String TRACE_MESSAGE = "Trace {} for pipeline {}";
+    private static final String RECONCILE_ACTION = "reconcile";
     private static final String ABSENT_OWNER_ERROR_MEESSAGE = "System property \"owner\" is not set";
     private static final String ABSENT_REPOSITORY_MESSAGE = "System property \"repository\" is not set";
     private static final String ABSENT_BRANCH_ERROR_MESSAGE = "System property \"branch\" is not set";
-    private static final String VALID_VALUES_FOR_ACTION_MESSAGE = "Valid values: create,delete";
+    private static final String VALID_VALUES_FOR_ACTION_MESSAGE = "Valid values: create,delete,reconcile";
     private static final String INVALID_ACTION_VALUE_MESSAGE = "System property \"action\" is not set\n";
     private static final String ABSENT_ACTION_VALUE_MESSAGE1 = INVALID_ACTION_VALUE_MESSAGE;
     private static final String CONFIGURATION_GITHUB_SECRET_NAME = "github.read_from_github_secret_name";
     private static final String CONFIGURATION_GITHUB_SECRET_KEY = "github.read_from_github_secret_key";
-    private final transient StackWiper wiper;
+    private final transient StackWiperImpl wiper;
 
     private final transient String repoName;
     private final transient String branch;
 
     private final transient PipelineStackConfiguration pipelineStackConfiguration;
+    private transient TemplateStore templateStore;
+    private transient Deadline deadline;
+    private final transient Tracer tracer;
 
     private static final Logger logger = LoggerFactory.getLogger(Application.class);
     
@@ -63,6 +86,8 @@ public class Application {
         this.pipelineStackConfiguration = new PipelineStackConfiguration(gitInfo);
         this.repoName = gitInfo.getRepository();
         this.branch = gitInfo.getBranch();
+        this.tracer = Tracer.forBranch(pipelineStackConfiguration.getProjectId(),
+            pipelineStackConfiguration.getNormalizedBranchName());
 
         wiper = new StackWiperImpl(pipelineStackConfiguration, acf, s3Client, lambdaClient, logsClient,
             amazonIdentityManagement);
@@ -78,27 +103,62 @@ public class Application {
         throws Exception {
 
         GithubConf gitInfo = new GithubConf(repoOwner, repository, branch, secretsReader);
-        GithubReader githubReader = new GithubReader(HttpClients.createMinimal())
+        GithubReader githubReader = new GithubReader(SharedHttpClient.getInstance().getHttpClient())
             .setGitHubConf(gitInfo);
 
-        AmazonCloudFormation cloudFormation = AmazonCloudFormationClientBuilder.defaultClient();
-        AmazonS3 s3Client = AmazonS3ClientBuilder.defaultClient();
-        AWSLambda lambdaClient = AWSLambdaClientBuilder.defaultClient();
-        AWSLogs logsClient = AWSLogsClientBuilder.defaultClient();
-        AmazonIdentityManagement amazonIdentityManagement = AmazonIdentityManagementClientBuilder.defaultClient();
+        AwsClientRegistry clientRegistry = AwsClientRegistry.getInstance();
+        AmazonCloudFormation cloudFormation = clientRegistry.get(AmazonCloudFormation.class);
+        AmazonS3 s3Client = clientRegistry.get(AmazonS3.class);
+        AWSLambda lambdaClient = clientRegistry.get(AWSLambda.class);
+        AWSLogs logsClient = clientRegistry.get(AWSLogs.class);
+        AmazonIdentityManagement amazonIdentityManagement = clientRegistry.get(AmazonIdentityManagement.class);
 
 
         Application application = new Application(gitInfo, cloudFormation, s3Client, lambdaClient,
             logsClient, amazonIdentityManagement);
-        if (Action.CREATE.equals(Action.fromString(action))) {
-            application
-                .createStacks(cloudFormation, AmazonIdentityManagementClientBuilder.defaultClient(),
-                    githubReader);
+        String templateStoreLocation = System.getProperty(TEMPLATE_STORE_PROPERTY);
+        if (templateStoreLocation != null) {
+            application.setTemplateStore(TemplateStoreFactory.create(templateStoreLocation));
+        }
+        String traceExport = System.getProperty(TRACE_EXPORT_PROPERTY);
+        if (traceExport != null) {
+            application.setTraceExporter(SpanExporterFactory.create(traceExport));
+        }
+        if (Action.CREATE.equals(Action.fromString(action)) && Boolean.getBoolean(IN_PLACE_UPDATE_PROPERTY)) {
+            application.createOrUpdateStacks(cloudFormation, amazonIdentityManagement, githubReader);
+        } else if (Action.CREATE.equals(Action.fromString(action))) {
+            application.createStacks(cloudFormation, amazonIdentityManagement, githubReader);
         } else if (Action.DELETE.equals(Action.fromString(action))) {
-            application.wipeStacks();
+            application.setLogRetentionDays(Integer.getInteger(LOG_RETENTION_DAYS_PROPERTY)).wipeStacks();
         }
     }
 
+    /**
+     * Creates the missing pipelines and deletes the stale pipelines of a repository, or of all repositories that have
+     * pipelines when no repository is given. With the system property "dryRun" the actions are only reported.
+     */
+    private static void reconcile(String repoOwner, String repository, SecretsReader secretsReader)
+        throws Exception {
+        AwsClientRegistry clientRegistry = AwsClientRegistry.getInstance();
+        PipelineInventory inventory = new PipelineInventory(clientRegistry.get(AmazonCloudFormation.class),
+            clientRegistry.get(AmazonIdentityManagement.class));
+        GithubPullRequestLister lister = new GithubPullRequestLister(SharedHttpClient.getInstance().getHttpClient(),
+            secretsReader);
+        FleetReconciler reconciler = new FleetReconciler(inventory, new GithubBranchSource(lister),
+            (branch, action) -> run(branch.getOwner(), branch.getRepository(), branch.getBranch(),
+                action.toString(), secretsReader));
+
+        boolean dryRun = Boolean.getBoolean(DRY_RUN_PROPERTY);
+        ReconciliationReport report;
+        if (repoOwner != null && repository != null) {
+            report = reconciler.reconcile(Collections.singletonList(new RepositoryRef(repoOwner, repository)),
+                dryRun);
+        } else {
+            report = reconciler.reconcileAll(Collections.emptyList(), dryRun);
+        }
+        logger.info(report.toJson());
+    }
+
     @SuppressWarnings("PMD")
     public static void main(String... args) throws Exception {
 
@@ -107,28 +167,43 @@ public class Application {
         final String readFromGithubSecretKey = config.getString(CONFIGURATION_GITHUB_SECRET_KEY);
 
         String repoOwner = System.getProperty(GITHUB_OWNER_PROPERTY);
-        Preconditions.checkNotNull(repoOwner, ABSENT_OWNER_ERROR_MEESSAGE);
         String repository = System.getProperty(GITHUB_REPOSITORY_PROPERTY);
-        Preconditions.checkNotNull(repository, ABSENT_REPOSITORY_MESSAGE);
         String branch = System.getProperty(GIT_BRANCH_PROPERTY);
-        Preconditions.checkNotNull(branch, ABSENT_BRANCH_ERROR_MESSAGE);
         String action = System.getProperty(CODEPIEPINE_ACTION);
         String awsRegion = System.getProperty(AWS_REGION);
         String message = ABSENT_ACTION_VALUE_MESSAGE1 + VALID_VALUES_FOR_ACTION_MESSAGE;
         Preconditions.checkNotNull(action, message);
+        boolean reconcile = RECONCILE_ACTION.equalsIgnoreCase(action);
+        if (!reconcile) {
+            Preconditions.checkNotNull(repoOwner, ABSENT_OWNER_ERROR_MEESSAGE);
+            Preconditions.checkNotNull(repository, ABSENT_REPOSITORY_MESSAGE);
+            Preconditions.checkNotNull(branch, ABSENT_BRANCH_ERROR_MESSAGE);
+        }
 
         Region region = Region.getRegion(Regions.fromName(awsRegion));
 
         System.out.println(String.format("Secrets key: %s - Secrets name: %s", readFromGithubSecretKey, readFromGithubSecretName));
         SecretsReader secretsReader = new AwsSecretsReader(readFromGithubSecretName,
             readFromGithubSecretKey, region);
-        Application.run(repoOwner, repository, branch, action, secretsReader);
+        try {
+            if (reconcile) {
+                Application.reconcile(repoOwner, repository, secretsReader);
+            } else {
+                Application.run(repoOwner, repository, branch, action, secretsReader);
+            }
+        } finally {
+            MetricsRecorder.getInstance().flush();
+        }
     }
 
     public PipelineStackConfiguration getPipelineStackConfiguration() {
         return pipelineStackConfiguration;
     }
 
+    public Tracer getTracer() {
+        return tracer;
+    }
+
     public void createStacks(AmazonCloudFormation cloudFormation,
         AmazonIdentityManagement amazonIdentityManagement, GithubReader githubReader)
         throws Exception {
@@ -136,14 +211,104 @@ public class Application {
             pipelineStackConfiguration,
             cloudFormation,
             amazonIdentityManagement,
-            githubReader
-        );
+            githubReader,
+            newStackUpdater(cloudFormation)
+        ).setTemplateStore(templateStore).setTracer(tracer);
+        logger.info(TRACE_MESSAGE, tracer.getTraceId(), pipelineStackConfiguration.getPipelineStackName());
         stackBuilder.createStacks();
     }
 
+    /**
+     * Updates the pipeline in place when its stack already exists, otherwise creates it from scratch.
+     */
+    public void createOrUpdateStacks(AmazonCloudFormation cloudFormation,
+        AmazonIdentityManagement amazonIdentityManagement, GithubReader githubReader)
+        throws Exception {
+        StackBuilder stackBuilder = new StackBuilder(wiper,
+            pipelineStackConfiguration,
+            cloudFormation,
+            amazonIdentityManagement,
+            githubReader,
+            newStackUpdater(cloudFormation)
+        ).setTemplateStore(templateStore).setTracer(tracer);
+        logger.info(TRACE_MESSAGE, tracer.getTraceId(), pipelineStackConfiguration.getPipelineStackName());
+        stackBuilder.createOrUpdateStacks();
+    }
+
+    private PipelineStackUpdater newStackUpdater(AmazonCloudFormation cloudFormation) {
+        if (deadline == null) {
+            return new PipelineStackUpdater(cloudFormation);
+        }
+        return new PipelineStackUpdater(cloudFormation, deadline);
+    }
+
+    /**
+     * Makes the deletion of the pipeline set a short retention on its log groups instead of deleting them.
+     *
+     * @param logRetentionDays the retention in days, or null for deleting the log groups
+     * @return this application
+     */
+    public Application setLogRetentionDays(Integer logRetentionDays) {
+        wiper.setLogRetentionDays(logRetentionDays);
+        return this;
+    }
+
+    /**
+     * Sets the deadline of the invocation, which all waits for stacks of this application share.
+     *
+     * @param deadline the deadline, or null for a default timeout for each action
+     * @return this application
+     */
+    public Application setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+        wiper.setDeadline(deadline);
+        return this;
+    }
+
+    /**
+     * Sets the finder of the create-stack roles that are deleted together with the pipeline.
+     *
+     * @param roleFinder the finder
+     * @return this application
+     */
+    public Application setRoleFinder(TaggedRoleFinder roleFinder) {
+        wiper.setRoleFinder(roleFinder);
+        return this;
+    }
+
+    /**
+     * Makes the creation of the pipeline upload its template to a store and pass it to CloudFormation by URL.
+     *
+     * @param templateStore the store for the template, or null for sending the template inline
+     * @return this application
+     */
+    public Application setTemplateStore(TemplateStore templateStore) {
+        this.templateStore = templateStore;
+        return this;
+    }
+
+    /**
+     * Exports the spans of the stack actions of this application. By default they are only logged.
+     *
+     * @param exporter the exporter of the spans
+     * @return this application
+     */
+    public Application setTraceExporter(SpanExporter exporter) {
+        tracer.setExporter(exporter);
+        return this;
+    }
+
     public void wipeStacks() {
         checkNulls();
-        wiper.wipeStacks();
+        logger.info(TRACE_MESSAGE, tracer.getTraceId(), pipelineStackConfiguration.getPipelineStackName());
+        try (Span span = tracer.startSpan(WIPE_STACKS_SPAN)) {
+            try {
+                wiper.wipeStacks();
+            } catch (RuntimeException e) {
+                span.fail(e);
+                throw e;
+            }
+        }
     }
 
     private void checkNulls() {
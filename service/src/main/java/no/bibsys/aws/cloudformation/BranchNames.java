@@ -0,0 +1,161 @@
+package no.bibsys.aws.cloudformation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import no.bibsys.aws.tools.StringUtils;
+
+/**
+ * The names of the resources of the pipeline of a repository and branch, derived once from the two strings. Instances
+ * are immutable and interned by the {@link NamingRegistry}, so they are shared by all configurations of a branch.
+ */
+public final class BranchNames {
+
+    public static final String SERVICE_STACK_SUFFIX = "service-stack";
+    public static final String PIPELINE_STACK_SUFFIX = "pipelineStack";
+    public static final String PIPELINE_ROLE_PREFIX = "PipelineRole";
+    public static final String EXECUTE_TESTS_SUFFIX = "executeTests";
+    public static final String CODE_BUILD_ARTIFACT_SUFFIX = "codeBuildArtifact";
+    private static final int MAX_BRANCH_WORD_LENGTH = 6;
+    private static final String SEPARATOR = "-";
+    private static final String PATH_SEPARATOR = "/";
+    private static final String NO_ALPHANUMERIC_CHARACTERS_MESSAGE = "Branch name has no letters or digits: %s";
+    private static final StringUtils STRING_UTILS = new StringUtils();
+
+    private final transient String repository;
+    private final transient String branchName;
+    private final transient String projectId;
+    private final transient String normalizedBranchName;
+    private final transient String pipelineStackName;
+    private final transient String pipelineRoleName;
+    private final transient String pipelineName;
+    private final transient String sourceOutputArtifactName;
+    private final transient String testServiceStack;
+    private final transient String finalServiceStack;
+    private final transient String initFunctionName;
+    private final transient String destroyFunctionName;
+    private final transient String buildProjectName;
+    private final transient String codeBuildOutputArtifact;
+    private final transient String executeTestsProjectName;
+    private final transient String createStackRolePath;
+
+    BranchNames(String repository, String branchName) {
+        this.repository = repository;
+        this.branchName = branchName;
+        this.projectId = STRING_UTILS.shortNormalizedString(repository, Configurable.MAX_PROJECT_WORD_LENGTH);
+        this.normalizedBranchName = normalizeBranchName(branchName);
+        this.pipelineStackName = join(projectId, normalizedBranchName, PIPELINE_STACK_SUFFIX);
+        this.pipelineRoleName = join(PIPELINE_ROLE_PREFIX, projectId, normalizedBranchName);
+        this.pipelineName = join(projectId, normalizedBranchName, PipelineConfiguration.PIPELINE_NAME_SUFFIX);
+        this.sourceOutputArtifactName = join(projectId, normalizedBranchName,
+            PipelineConfiguration.SOURCE_OUTPUT_SUFFIX);
+        this.testServiceStack = join(projectId, normalizedBranchName, SERVICE_STACK_SUFFIX, Stage.TEST.toString());
+        this.finalServiceStack = join(projectId, normalizedBranchName, SERVICE_STACK_SUFFIX, Stage.FINAL.toString());
+        this.initFunctionName = join(projectId, normalizedBranchName, PipelineConfiguration.INIT_FUNCTION_SUFFIX);
+        this.destroyFunctionName = join(projectId, normalizedBranchName,
+            PipelineConfiguration.DESTROY_FUNCTION_SUFFIX);
+        this.buildProjectName = join(projectId, normalizedBranchName);
+        this.codeBuildOutputArtifact = join(projectId, normalizedBranchName, CODE_BUILD_ARTIFACT_SUFFIX);
+        this.executeTestsProjectName = join(projectId, normalizedBranchName, EXECUTE_TESTS_SUFFIX);
+        this.createStackRolePath = PipelineStackConfiguration.ROLE_PATH_ROOT + projectId + PATH_SEPARATOR
+            + normalizedBranchName + PATH_SEPARATOR;
+    }
+
+    private static String normalizeBranchName(String branchName) {
+        String normalized = STRING_UTILS.shortNormalizedString(branchName, MAX_BRANCH_WORD_LENGTH);
+        int end = Math.min(normalized.length(), Configurable.NORMALIZED_BRANCH_MAX_LENGTH);
+        while (end > 0 && !Character.isAlphabetic(normalized.charAt(end - 1))
+            && !Character.isDigit(normalized.charAt(end - 1))) {
+            end--;
+        }
+        if (end == 0) {
+            throw new IllegalArgumentException(String.format(NO_ALPHANUMERIC_CHARACTERS_MESSAGE, branchName));
+        }
+        return normalized.substring(0, end);
+    }
+
+    private static String join(String... parts) {
+        return String.join(SEPARATOR, parts);
+    }
+
+    /**
+     * Returns the names that are derived from the repository and branch alone. The names of the pipeline bucket and
+     * the create-stack role are random and not included.
+     *
+     * @return the names of the stacks, functions, roles, pipeline and CodeBuild projects and artifacts
+     */
+    public List<String> resourceNames() {
+        return Collections.unmodifiableList(Arrays.asList(pipelineStackName, pipelineRoleName, pipelineName,
+            sourceOutputArtifactName, testServiceStack, finalServiceStack, initFunctionName, destroyFunctionName,
+            buildProjectName, codeBuildOutputArtifact, executeTestsProjectName));
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getBranchName() {
+        return branchName;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getNormalizedBranchName() {
+        return normalizedBranchName;
+    }
+
+    public String getPipelineStackName() {
+        return pipelineStackName;
+    }
+
+    public String getPipelineRoleName() {
+        return pipelineRoleName;
+    }
+
+    public String getPipelineName() {
+        return pipelineName;
+    }
+
+    public String getSourceOutputArtifactName() {
+        return sourceOutputArtifactName;
+    }
+
+    public String getTestServiceStack() {
+        return testServiceStack;
+    }
+
+    public String getFinalServiceStack() {
+        return finalServiceStack;
+    }
+
+    public String getInitFunctionName() {
+        return initFunctionName;
+    }
+
+    public String getDestroyFunctionName() {
+        return destroyFunctionName;
+    }
+
+    public String getBuildProjectName() {
+        return buildProjectName;
+    }
+
+    public String getCodeBuildOutputArtifact() {
+        return codeBuildOutputArtifact;
+    }
+
+    public String getExecuteTestsProjectName() {
+        return executeTestsProjectName;
+    }
+
+    public String getCreateStackRolePath() {
+        return createStackRolePath;
+    }
+
+    @Override
+    public String toString() {
+        return projectId + PATH_SEPARATOR + normalizedBranchName;
+    }
+}
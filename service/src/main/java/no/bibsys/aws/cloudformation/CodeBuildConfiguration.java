@@ -2,30 +2,20 @@ package no.bibsys.aws.cloudformation;
 
 public class CodeBuildConfiguration extends Configurable {
 
-    private static final String EXECUTE_TESTS = "executeTests";
-    private static final String CODE_BUILD_ARTIFACT = "codeBuildArtifact";
     private final String buildProjectName;
     private final String outputArtifact;
     private final String executeTestsProjectName;
 
 
     public CodeBuildConfiguration(String repositoryName, String branchName) {
-        super(repositoryName, branchName);
-        this.buildProjectName = initBuildProjectName();
-        this.outputArtifact = initCodeBuildArtifact();
-        this.executeTestsProjectName = initExecuteTestsProjectName();
+        this(NamingRegistry.getInstance().names(repositoryName, branchName));
     }
 
-    private String initExecuteTestsProjectName() {
-        return format(projectId, normalizedBranchName, EXECUTE_TESTS);
-    }
-
-    private String initCodeBuildArtifact() {
-        return format(projectId, normalizedBranchName, CODE_BUILD_ARTIFACT);
-    }
-
-    private String initBuildProjectName() {
-        return format(projectId, normalizedBranchName);
+    public CodeBuildConfiguration(BranchNames names) {
+        super(names);
+        this.buildProjectName = names.getBuildProjectName();
+        this.outputArtifact = names.getCodeBuildOutputArtifact();
+        this.executeTestsProjectName = names.getExecuteTestsProjectName();
     }
 
     public String getBuildProjectName() {
@@ -0,0 +1,96 @@
+package no.bibsys.aws.cloudformation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide cache of the {@link BranchNames} of each repository and branch, so that the names of a branch are
+ * derived once however many configurations are created for it, and an index from resource names back to the branch
+ * that they belong to. The index holds every derived name, and the random bucket and create-stack role names of the
+ * pipelines that this process has created or adopted.
+ * <p>
+ * Both are bounded, so that fleet-wide operations over many branches do not grow them without limit.
+ * </p>
+ */
+public final class NamingRegistry {
+
+    public static final int MAX_BRANCHES = 10_000;
+    public static final int MAX_RESOURCE_NAMES = 20 * MAX_BRANCHES;
+
+    private static final Logger logger = LoggerFactory.getLogger(NamingRegistry.class);
+    private static final NamingRegistry INSTANCE = new NamingRegistry();
+    private static final String DERIVED_NAMES_MESSAGE = "Derived names {} for repository {} and branch {}";
+
+    private final transient LoadingCache<List<String>, BranchNames> branches = CacheBuilder.newBuilder()
+        .maximumSize(MAX_BRANCHES)
+        .build(CacheLoader.from(this::derive));
+    private final transient Cache<String, BranchNames> resources = CacheBuilder.newBuilder()
+        .maximumSize(MAX_RESOURCE_NAMES)
+        .build();
+
+    private NamingRegistry() {
+    }
+
+    public static NamingRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the names of a branch, deriving them on first use.
+     *
+     * @param repository the name of the repository
+     * @param branch the name of the branch
+     * @return the shared names of the branch
+     */
+    public BranchNames names(String repository, String branch) {
+        try {
+            return branches.getUnchecked(Arrays.asList(repository, branch));
+        } catch (UncheckedExecutionException e) {
+            // e.g. a branch name without letters or digits
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Adds a name that is not derived from the branch, e.g. a random bucket name, to the index.
+     *
+     * @param resourceName the name of the resource
+     * @param names the names of the branch of the resource
+     */
+    public void register(String resourceName, BranchNames names) {
+        resources.put(resourceName, names);
+    }
+
+    /**
+     * Finds the branch of a resource by its name.
+     *
+     * @param resourceName the name of a stack, function, role, bucket or other resource of a pipeline
+     * @return the names of the branch, or empty if the name is not known to this process
+     */
+    public Optional<BranchNames> find(String resourceName) {
+        return Optional.ofNullable(resources.getIfPresent(resourceName));
+    }
+
+    /**
+     * Removes all names. Intended for tests.
+     */
+    public void reset() {
+        branches.invalidateAll();
+        resources.invalidateAll();
+    }
+
+    private BranchNames derive(List<String> key) {
+        BranchNames names = new BranchNames(key.get(0), key.get(1));
+        names.resourceNames().forEach(resourceName -> resources.put(resourceName, names));
+        logger.debug(DERIVED_NAMES_MESSAGE, names, names.getRepository(), names.getBranchName());
+        return names;
+    }
+}
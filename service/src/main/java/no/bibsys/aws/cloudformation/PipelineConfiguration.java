@@ -7,7 +7,6 @@ public class PipelineConfiguration extends Configurable {
     public static final String PIPELINE_NAME_SUFFIX = "pipeline";
     public static final String SOURCE_OUTPUT_SUFFIX = "sourceOutput";
     private static final String INVALID_STAGE = "Invalid Stage:";
-    private static final String SERVICE_STACK_SUFFIX = "service-stack";
 
     private final String sourceOutputArtifactName;
     private final String testServiceStack;
@@ -18,35 +17,19 @@ public class PipelineConfiguration extends Configurable {
 
 
     public PipelineConfiguration(String repositoryName, String branchName) {
-        super(repositoryName, branchName);
-
-        this.sourceOutputArtifactName = initSourceOutputArtifactName();
-        this.testServiceStack = initServiceStack(Stage.TEST);
-        this.finalServiceStack = initServiceStack(Stage.FINAL);
-        this.pipelineName = initializePipelineName();
-
-        initLambdaFunctionName = initInitLambdaFunction();
-        destroyLambdaFunctionName = initDestroyLambdaFunction();
-    }
-
-    private String initDestroyLambdaFunction() {
-        return format(projectId, normalizedBranchName, DESTROY_FUNCTION_SUFFIX);
+        this(NamingRegistry.getInstance().names(repositoryName, branchName));
     }
 
-    private String initInitLambdaFunction() {
-        return format(projectId, normalizedBranchName, INIT_FUNCTION_SUFFIX);
-    }
-
-    private String initializePipelineName() {
-        return format(projectId, normalizedBranchName, PIPELINE_NAME_SUFFIX);
-    }
+    public PipelineConfiguration(BranchNames names) {
+        super(names);
 
-    private String initServiceStack(Stage stage) {
-        return format(projectId, normalizedBranchName, SERVICE_STACK_SUFFIX, stage.toString());
-    }
+        this.sourceOutputArtifactName = names.getSourceOutputArtifactName();
+        this.testServiceStack = names.getTestServiceStack();
+        this.finalServiceStack = names.getFinalServiceStack();
+        this.pipelineName = names.getPipelineName();
 
-    private String initSourceOutputArtifactName() {
-        return format(projectId, normalizedBranchName, SOURCE_OUTPUT_SUFFIX);
+        initLambdaFunctionName = names.getInitFunctionName();
+        destroyLambdaFunctionName = names.getDestroyFunctionName();
     }
 
     public String getInitLambdaFunctionName() {
@@ -1,5 +1,6 @@
 package no.bibsys.aws.cloudformation;
 
+import java.util.Optional;
 import no.bibsys.aws.git.github.GithubConf;
 import no.bibsys.aws.tools.StringUtils;
 
@@ -8,6 +9,7 @@ public class PipelineStackConfiguration extends Configurable {
     public static final String TAG_KEY_BRANCH_NAME = "branch";
     public static final String TAG_KEY_ROLE = "role";
     public static final String TAG_KEY_PROJECT_ID = "projectId";
+    public static final String ROLE_PATH_ROOT = "/pipeline/";
 
     public static final Integer MAX_ROLENAME_SIZE = 64;
     public static final Integer BUCKET_NAME_SIZE = 20;
@@ -15,8 +17,6 @@ public class PipelineStackConfiguration extends Configurable {
     private static final int CREATE_STACK_ROLE_NAME_LENGTH = 10;
 
     private static final String POLICY = "policy";
-    private static final String PIPELINE_STACK = "pipelineStack";
-    private static final String PIPELINE_ROLE = "PipelineRole";
     private final transient String pipelineStackName;
 
     // Role for creating the stack of the pipeline
@@ -35,21 +35,47 @@ public class PipelineStackConfiguration extends Configurable {
     private final transient StringUtils stringUtils = new StringUtils();
 
     public PipelineStackConfiguration(GithubConf gitInfo) {
-        super(gitInfo.getRepository(), gitInfo.getBranch());
+        this(gitInfo, Optional.empty(), Optional.empty());
+    }
+
+    /**
+     * Configuration for a pipeline whose bucket and create-stack role already exist, for example when the pipeline
+     * stack is updated in place.
+     *
+     * @param gitInfo the Github configuration
+     * @param bucketName the name of the existing pipeline bucket
+     * @param createStackRoleName the name of the existing create-stack role
+     */
+    public PipelineStackConfiguration(GithubConf gitInfo, String bucketName, String createStackRoleName) {
+        this(gitInfo, Optional.of(bucketName), Optional.of(createStackRoleName));
+    }
+
+    private PipelineStackConfiguration(GithubConf gitInfo, Optional<String> bucketName,
+        Optional<String> createStackRoleName) {
+        super(NamingRegistry.getInstance().names(gitInfo.getRepository(), gitInfo.getBranch()));
         this.githubConf = gitInfo;
-        this.pipelineStackName = initPipelineStackName();
-        this.bucketName = initBucketName();
-        this.createStackRoleName = initCreateStackRole();
-        this.pipelineRoleName = initPipelineRoleName();
-
-        this.pipelineConfiguration = initPipelineConfiguration(gitInfo.getRepository(),
-            gitInfo.getBranch());
-        this.codeBuildConfiguration = new CodeBuildConfiguration(gitInfo.getRepository(),
-            gitInfo.getBranch());
+        this.pipelineStackName = names.getPipelineStackName();
+        this.bucketName = bucketName.orElseGet(this::initBucketName);
+        this.createStackRoleName = createStackRoleName.orElseGet(this::initCreateStackRole);
+        this.pipelineRoleName = names.getPipelineRoleName();
+
+        // the sub-configurations share the names instead of deriving them again
+        this.pipelineConfiguration = new PipelineConfiguration(names);
+        this.codeBuildConfiguration = new CodeBuildConfiguration(names);
+
+        // the random names of a new pipeline are registered only once its resources exist, see registerResourceNames()
+        bucketName.ifPresent(name -> NamingRegistry.getInstance().register(name, names));
+        createStackRoleName.ifPresent(name -> NamingRegistry.getInstance().register(name, names));
     }
 
-    private PipelineConfiguration initPipelineConfiguration(String repository, String branch) {
-        return new PipelineConfiguration(repository, branch);
+    /**
+     * Adds the bucket and create-stack role names of this configuration to the {@link NamingRegistry}. Called once the
+     * pipeline stack has been created, so that configurations that are only used for naming or never deployed do not
+     * fill the registry with random names.
+     */
+    public void registerResourceNames() {
+        NamingRegistry.getInstance().register(bucketName, names);
+        NamingRegistry.getInstance().register(createStackRoleName, names);
     }
 
     private String initCreateStackRole() {
@@ -68,14 +94,6 @@ public class PipelineStackConfiguration extends Configurable {
         return pipelineStackName;
     }
 
-    private String initPipelineStackName() {
-        return format(projectId, normalizedBranchName, PIPELINE_STACK);
-    }
-
-    private String initPipelineRoleName() {
-        return format(PIPELINE_ROLE, projectId, normalizedBranchName);
-    }
-
     public String getPipelineRoleName() {
         return pipelineRoleName;
     }
@@ -96,6 +114,16 @@ public class PipelineStackConfiguration extends Configurable {
         return githubConf;
     }
 
+    /**
+     * The IAM path of the create-stack role. Listing roles by this path prefix returns only the roles of this project
+     * and branch.
+     *
+     * @return the path "/pipeline/{projectId}/{normalizedBranchName}/"
+     */
+    public String getCreateStackRolePath() {
+        return names.getCreateStackRolePath();
+    }
+
     public String getCreateStackRolePolicyName() {
         return format(createStackRoleName, POLICY);
     }
@@ -30,6 +30,52 @@ public final class EnvironmentConstants {
     public static final String GITHUB_WEBHOOK_SECRET_KEY = "GITHUB_WEBHOOK_SECRET_KEY";
     public static final String ACCESS_SWAGGERHUB_SECRET_NAME = "ACCESS_SWAGGERHUB_SECRET_NAME";
     public static final String ACCESS_SWAGGERHUB_SECRET_KEY = "ACCESS_SWAGGERHUB_SECRET_KEY";
+    /**
+     * When "true", an existing pipeline stack is updated in place with a change set instead of being recreated.
+     */
+    public static final String IN_PLACE_UPDATE = "IN_PLACE_UPDATE";
+    /**
+     * Location of the work queue for webhook events. When set, webhook events are queued and processed
+     * asynchronously.
+     */
+    public static final String WORK_QUEUE_URL = "WORK_QUEUE_URL";
+    /**
+     * DynamoDB table recording processed webhook deliveries. When not set, duplicates are detected in memory only.
+     */
+    public static final String DELIVERY_TABLE_NAME = "DELIVERY_TABLE_NAME";
+    /**
+     * Directory for caching files read from Github, e.g. under /tmp. When not set, files are cached in memory only.
+     */
+    public static final String GITHUB_CACHE_DIR = "GITHUB_CACHE_DIR";
+    /**
+     * When set, the log groups of a deleted pipeline are kept with this retention in days instead of being deleted.
+     */
+    public static final String LOG_RETENTION_DAYS = "LOG_RETENTION_DAYS";
+    /**
+     * S3 bucket (or "file:" URI or "memory:" for local runs) where the pipeline template is uploaded and read by
+     * CloudFormation through a TemplateURL. When not set, the template is sent inline.
+     */
+    public static final String TEMPLATE_STORE = "TEMPLATE_STORE";
+    /**
+     * Comma-separated repositories ("owner/repository") that the fleet reconciler checks in addition to those that
+     * already have pipelines.
+     */
+    public static final String RECONCILE_REPOSITORIES = "RECONCILE_REPOSITORIES";
+    /**
+     * When "true", the fleet reconciler only reports the actions it would take.
+     */
+    public static final String RECONCILE_DRY_RUN = "RECONCILE_DRY_RUN";
+    public static final String PROJECT_ID = "PROJECT_ID";
+    /**
+     * Trace id of the pipeline run. When not set, the deploy-time functions derive a trace id from the project id and
+     * the branch.
+     */
+    public static final String TRACE_ID = "TRACE_ID";
+    /**
+     * Where the tracing spans are exported: "xray:" for the X-Ray daemon, or a "file:" URI or path for a file of JSON
+     * lines. When not set, the spans are only logged.
+     */
+    public static final String TRACE_EXPORT = "TRACE_EXPORT";
 
     private EnvironmentConstants() {
     }
@@ -0,0 +1,30 @@
+package no.bibsys.aws.lambda;
+
+import java.util.Optional;
+import no.bibsys.aws.tools.Environment;
+
+/**
+ * Reads environment variables that do not have to be set. {@link Environment#readEnv(String)} throws an
+ * {@link IllegalStateException} for a variable that is not set; here a missing or empty variable is an empty value.
+ */
+public final class OptionalEnvironment {
+
+    private OptionalEnvironment() {
+    }
+
+    /**
+     * Returns the value of an optional environment variable.
+     *
+     * @param environment the environment
+     * @param variable the name of the variable
+     * @return the value, or empty if the variable is not set or empty
+     */
+    public static Optional<String> read(Environment environment, String variable) {
+        try {
+            return Optional.ofNullable(environment.readEnv(variable)).filter(value -> !value.isEmpty());
+        } catch (IllegalStateException e) {
+            // the variable is not set
+            return Optional.empty();
+        }
+    }
+}
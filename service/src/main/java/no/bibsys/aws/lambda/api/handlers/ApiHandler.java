@@ -9,14 +9,13 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.logs.AWSLogs;
 import com.amazonaws.services.s3.AmazonS3;
 import java.util.Map;
-import no.bibsys.aws.Application;
-import no.bibsys.aws.git.github.GithubConf;
 import no.bibsys.aws.lambda.EnvironmentConstants;
 import no.bibsys.aws.lambda.api.requests.GitEvent;
 import no.bibsys.aws.lambda.handlers.templates.ApiGatewayHandlerTemplate;
 import no.bibsys.aws.secrets.SecretsReader;
 import no.bibsys.aws.tools.Environment;
 import no.bibsys.aws.utils.github.GithubReader;
+import no.bibsys.aws.utils.stacks.Deadline;
 
 public abstract class ApiHandler extends ApiGatewayHandlerTemplate<String, String> {
 
@@ -30,6 +29,8 @@ public abstract class ApiHandler extends ApiGatewayHandlerTemplate<String, Strin
     private final transient GithubReader githubReader;
     protected transient Region region;
     private final transient AmazonIdentityManagement amazonIdentityManagement;
+    private transient GitEventProcessor gitEventProcessor;
+    private transient Deadline deadline;
 
     protected ApiHandler(Environment environment,
         AmazonCloudFormation acf,
@@ -66,24 +67,39 @@ public abstract class ApiHandler extends ApiGatewayHandlerTemplate<String, Strin
         throw new IllegalStateException(OVERRIDE_WARNING);
     }
 
-    protected void deleteStacks(GitEvent event) {
-        GithubConf gitInfo =
-            new GithubConf(event.getOwner(), event.getRepository(), event.getBranch(),
-                readFromGithubSecretReader());
-
-        Application application = new Application(gitInfo, cloudFormation, s3Client, lambdaClient,
-            logsClient, amazonIdentityManagement);
-        application.wipeStacks();
+    protected void deleteStacks(GitEvent event) throws Exception {
+        invocationProcessor().deleteStacks(event);
     }
 
     protected void createStacks(GitEvent event) throws Exception {
-        GithubConf gitInfo =
-            new GithubConf(event.getOwner(), event.getRepository(), event.getBranch(),
-                readFromGithubSecretReader());
-        githubReader.setGitHubConf(gitInfo);
-        Application application = new Application(gitInfo, cloudFormation, s3Client, lambdaClient,
-            logsClient, amazonIdentityManagement);
-        application.createStacks(cloudFormation, amazonIdentityManagement, githubReader);
+        invocationProcessor().createStacks(event);
+    }
+
+    /**
+     * Sets the deadline of the current invocation from the time Lambda leaves it.
+     *
+     * @param context the context of the invocation, or null
+     */
+    protected void startInvocation(Context context) {
+        this.deadline = Deadline.forContext(context);
+    }
+
+    // the processor for the events of the current invocation, whose waits end by the deadline of the invocation
+    protected GitEventProcessor invocationProcessor() {
+        return deadline == null ? gitEventProcessor() : gitEventProcessor().withDeadline(deadline);
+    }
+
+    protected static void invalidateCachedSecret(SecretsReader secretsReader) {
+        GitEventProcessor.invalidateCachedSecret(secretsReader);
+    }
+
+    protected GitEventProcessor gitEventProcessor() {
+        // created lazily because the secrets reader is set by the subclass constructors
+        if (gitEventProcessor == null) {
+            gitEventProcessor = new GitEventProcessor(environment, cloudFormation, s3Client, lambdaClient,
+                logsClient, amazonIdentityManagement, githubReader, readFromGithubSecretReader());
+        }
+        return gitEventProcessor;
     }
 
     protected void setRegionOrReportErrorToLogger() {
@@ -0,0 +1,211 @@
+package no.bibsys.aws.lambda.api.handlers;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.s3.AmazonS3;
+import java.io.IOException;
+import java.util.Optional;
+import no.bibsys.aws.Application;
+import no.bibsys.aws.git.github.GithubConf;
+import no.bibsys.aws.lambda.EnvironmentConstants;
+import no.bibsys.aws.lambda.OptionalEnvironment;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.roles.TaggedRoleFinder;
+import no.bibsys.aws.secrets.SecretsReader;
+import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.coalescing.BranchActionCoalescer;
+import no.bibsys.aws.utils.github.GithubReader;
+import no.bibsys.aws.utils.github.UnauthorizedException;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import no.bibsys.aws.utils.metrics.MetricsRecorder;
+import no.bibsys.aws.utils.secrets.CachingSecretsReader;
+import no.bibsys.aws.utils.stacks.Deadline;
+import no.bibsys.aws.utils.templates.TemplateStore;
+import no.bibsys.aws.utils.templates.TemplateStoreFactory;
+import no.bibsys.aws.utils.tracing.SpanExporterFactory;
+
+/**
+ * Creates or deletes the stacks of the branch of a {@link GitEvent}. Shared by the API handlers, which process
+ * events synchronously, and the work queue handler, which processes queued events.
+ */
+public class GitEventProcessor {
+
+    private final transient Environment environment;
+    private final transient AmazonCloudFormation cloudFormation;
+    private final transient AmazonS3 s3Client;
+    private final transient AWSLambda lambdaClient;
+    private final transient AWSLogs logsClient;
+    private final transient AmazonIdentityManagement amazonIdentityManagement;
+    private final transient GithubReader githubReader;
+    private final transient SecretsReader readFromGithubSecretsReader;
+    private transient BranchActionCoalescer coalescer = BranchActionCoalescer.getInstance();
+    private transient TaggedRoleFinder roleFinder;
+    private transient Deadline deadline;
+
+    //long parameter list
+    @SuppressWarnings("PMD")
+    public GitEventProcessor(Environment environment,
+        AmazonCloudFormation acf,
+        AmazonS3 s3Client,
+        AWSLambda lambdaClient,
+        AWSLogs logsClient,
+        AmazonIdentityManagement amazonIdentityManagement,
+        GithubReader githubReader,
+        SecretsReader readFromGithubSecretsReader
+    ) {
+        this.environment = environment;
+        this.cloudFormation = acf;
+        this.s3Client = s3Client;
+        this.lambdaClient = lambdaClient;
+        this.logsClient = logsClient;
+        this.amazonIdentityManagement = amazonIdentityManagement;
+        this.githubReader = githubReader;
+        this.readFromGithubSecretsReader = readFromGithubSecretsReader;
+    }
+
+    /**
+     * Applies the action to the stacks of the branch of the event. Actions for the same branch are serialized and
+     * collapsed by the {@link BranchActionCoalescer}, so the action may be applied with this event by another thread
+     * that is already working on the branch.
+     *
+     * @param event the event identifying the branch
+     * @param action the action to apply
+     * @return whether the action was applied by this thread or handed over
+     * @throws Exception when applying the action fails
+     */
+    public BranchActionCoalescer.Outcome process(GitEvent event, Action action) throws Exception {
+        try {
+            return coalescer.submit(event, action, this::apply);
+        } finally {
+            SharedHttpClient.getInstance().logPoolStats();
+            MetricsRecorder.getInstance().flush();
+        }
+    }
+
+    /**
+     * Returns a processor with the same clients and secrets whose pipelines share one listing of the IAM roles. It is
+     * meant for a single batch of actions, since roles created or deleted outside the batch are not seen.
+     *
+     * @return a new processor for the batch
+     */
+    public GitEventProcessor withSharedRoleListings() {
+        GitEventProcessor batchProcessor = copy();
+        batchProcessor.roleFinder = new TaggedRoleFinder(amazonIdentityManagement).cacheListings();
+        return batchProcessor;
+    }
+
+    /**
+     * Returns a processor with the same clients and secrets whose actions wait for stacks at most until the deadline.
+     * It is meant for the events of a single invocation, whose actions share the time of the invocation.
+     *
+     * @param deadline the deadline of the invocation
+     * @return a new processor for the invocation
+     */
+    public GitEventProcessor withDeadline(Deadline deadline) {
+        GitEventProcessor invocationProcessor = copy();
+        invocationProcessor.roleFinder = roleFinder;
+        invocationProcessor.deadline = deadline;
+        return invocationProcessor;
+    }
+
+    private GitEventProcessor copy() {
+        GitEventProcessor processor = new GitEventProcessor(environment, cloudFormation, s3Client, lambdaClient,
+            logsClient, amazonIdentityManagement, githubReader, readFromGithubSecretsReader);
+        processor.coalescer = coalescer;
+        processor.deadline = deadline;
+        return processor;
+    }
+
+    public void deleteStacks(GitEvent event) throws Exception {
+        process(event, Action.DELETE);
+    }
+
+    public void createStacks(GitEvent event) throws Exception {
+        process(event, Action.CREATE);
+    }
+
+    private void apply(GitEvent event, Action action) throws Exception {
+        if (Action.CREATE.equals(action)) {
+            applyCreate(event);
+        } else if (Action.DELETE.equals(action)) {
+            applyDelete(event);
+        }
+    }
+
+    private void applyDelete(GitEvent event) {
+        GithubConf gitInfo =
+            new GithubConf(event.getOwner(), event.getRepository(), event.getBranch(),
+                readFromGithubSecretsReader);
+
+        newApplication(gitInfo).setLogRetentionDays(logRetentionDays()).wipeStacks();
+    }
+
+    private void applyCreate(GitEvent event) throws Exception {
+        GithubConf gitInfo =
+            new GithubConf(event.getOwner(), event.getRepository(), event.getBranch(),
+                readFromGithubSecretsReader);
+        // a reader per event, since events of different branches may be processed concurrently
+        GithubReader branchReader = githubReader.copy().setGitHubConf(gitInfo);
+        Application application = newApplication(gitInfo).setTemplateStore(templateStore());
+        try {
+            if (inPlaceUpdateEnabled()) {
+                application.createOrUpdateStacks(cloudFormation, amazonIdentityManagement, branchReader);
+            } else {
+                application.createStacks(cloudFormation, amazonIdentityManagement, branchReader);
+            }
+        } catch (UnauthorizedException e) {
+            // the Github token may have been rotated since it was cached
+            invalidateCachedSecret(readFromGithubSecretsReader);
+            throw e;
+        }
+    }
+
+    private Application newApplication(GithubConf gitInfo) {
+        Application application = new Application(gitInfo, cloudFormation, s3Client, lambdaClient,
+            logsClient, amazonIdentityManagement);
+        if (roleFinder != null) {
+            application.setRoleFinder(roleFinder);
+        }
+        application.setDeadline(deadline);
+        String traceExport = traceExport();
+        if (traceExport != null) {
+            application.setTraceExporter(SpanExporterFactory.create(traceExport));
+        }
+        return application;
+    }
+
+    public GitEventProcessor setCoalescer(BranchActionCoalescer coalescer) {
+        this.coalescer = coalescer;
+        return this;
+    }
+
+    public static void invalidateCachedSecret(SecretsReader secretsReader) {
+        if (secretsReader instanceof CachingSecretsReader) {
+            ((CachingSecretsReader) secretsReader).invalidate();
+        }
+    }
+
+    private Integer logRetentionDays() {
+        return OptionalEnvironment.read(environment, EnvironmentConstants.LOG_RETENTION_DAYS)
+            .map(Integer::valueOf)
+            .orElse(null);
+    }
+
+    private TemplateStore templateStore() throws IOException {
+        Optional<String> location = OptionalEnvironment.read(environment, EnvironmentConstants.TEMPLATE_STORE);
+        return location.isPresent() ? TemplateStoreFactory.create(location.get()) : null;
+    }
+
+    private String traceExport() {
+        return OptionalEnvironment.read(environment, EnvironmentConstants.TRACE_EXPORT).orElse(null);
+    }
+
+    private boolean inPlaceUpdateEnabled() {
+        return OptionalEnvironment.read(environment, EnvironmentConstants.IN_PLACE_UPDATE)
+            .map(Boolean::parseBoolean)
+            .orElse(false);
+    }
+}
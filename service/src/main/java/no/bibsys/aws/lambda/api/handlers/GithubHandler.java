@@ -1,16 +1,18 @@
 package no.bibsys.aws.lambda.api.handlers;
 
 import static no.bibsys.aws.lambda.EnvironmentConstants.AWS_REGION;
+import static no.bibsys.aws.lambda.EnvironmentConstants.DELIVERY_TABLE_NAME;
 import static no.bibsys.aws.lambda.EnvironmentConstants.GITHUB_WEBHOOK_SECRET_KEY;
 import static no.bibsys.aws.lambda.EnvironmentConstants.GITHUB_WEBHOOK_SECRET_NAME;
 import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_KEY;
 import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_NAME;
+import static no.bibsys.aws.lambda.EnvironmentConstants.WORK_QUEUE_URL;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.Optional;
 
-import org.apache.http.impl.client.HttpClients;
+import no.bibsys.aws.lambda.OptionalEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,24 +20,32 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.apigateway.model.UnauthorizedException;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
-import com.amazonaws.services.cloudformation.AmazonCloudFormationClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
-import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
 import com.amazonaws.services.lambda.AWSLambda;
-import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.logs.AWSLogs;
-import com.amazonaws.services.logs.AWSLogsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 
 import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.requests.GitEventParser;
 import no.bibsys.aws.lambda.api.requests.SimplePullRequest;
+import no.bibsys.aws.lambda.api.utils.Action;
 import no.bibsys.aws.secrets.AwsSecretsReader;
 import no.bibsys.aws.secrets.GithubSignatureChecker;
 import no.bibsys.aws.secrets.SecretsReader;
 import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+import no.bibsys.aws.utils.deliveries.DeliveryDeduplicator;
+import no.bibsys.aws.utils.deliveries.DeliveryStore;
+import no.bibsys.aws.utils.deliveries.DynamoDbDeliveryStore;
+import no.bibsys.aws.utils.deliveries.InMemoryDeliveryStore;
+import no.bibsys.aws.utils.github.CachingGithubReader;
 import no.bibsys.aws.utils.github.GithubReader;
+import no.bibsys.aws.utils.queue.GitEventJob;
+import no.bibsys.aws.utils.queue.WorkQueue;
+import no.bibsys.aws.utils.queue.WorkQueueFactory;
+import no.bibsys.aws.utils.secrets.CachingSecretsReader;
 
 public class GithubHandler extends ApiHandler {
 
@@ -43,24 +53,30 @@ public class GithubHandler extends ApiHandler {
     private static final String GITHUB_SIGNATURE_HEADER = "X-Hub-Signature";
     private static final String ERROR_MESSAGE_FOR_FAILED_GITHUB_SIGNATURE = "Wrong API key signature";
     public static final String NO_ACTION_MESSAGE = "No action";
+    public static final String ACCEPTED_MESSAGE = "Accepted: %s";
+    private static final String QUEUED_JOB_MESSAGE = "Queued job {}";
 
     private final transient SecretsReader readFromGithubSecretsReader;
     private final transient GithubSignatureChecker signatureChecker;
 
     private final transient SecretsReader webhookSecretsReader;
 
+    private transient WorkQueue workQueue;
+    private transient DeliveryDeduplicator deliveryDeduplicator =
+        new DeliveryDeduplicator(new InMemoryDeliveryStore());
+
     /**
      * Used by AWS Lambda.
      */
     @SuppressWarnings("PMD")
     public GithubHandler() {
         super(new Environment(),
-            AmazonCloudFormationClientBuilder.defaultClient(),
-            AmazonS3ClientBuilder.defaultClient(),
-            AWSLambdaClientBuilder.defaultClient(),
-            AWSLogsClientBuilder.defaultClient(),
-            AmazonIdentityManagementClientBuilder.defaultClient(),
-            new GithubReader(HttpClients.createMinimal())
+            AwsClientRegistry.getInstance().get(AmazonCloudFormation.class),
+            AwsClientRegistry.getInstance().get(AmazonS3.class),
+            AwsClientRegistry.getInstance().get(AWSLambda.class),
+            AwsClientRegistry.getInstance().get(AWSLogs.class),
+            AwsClientRegistry.getInstance().get(AmazonIdentityManagement.class),
+            CachingGithubReader.fromEnvironment(new Environment())
         );
 
         String regionString = environment.readEnv(AWS_REGION);
@@ -70,12 +86,24 @@ public class GithubHandler extends ApiHandler {
 
         System.out.println(String.format("Secrets key: %s - Secrets name: %s", gitHubWebhookSecretKey, gitHubWebhookSecretName));
 
-        this.webhookSecretsReader = new AwsSecretsReader(gitHubWebhookSecretName, gitHubWebhookSecretKey, region);
-        this.readFromGithubSecretsReader = new AwsSecretsReader(
+        this.webhookSecretsReader = new CachingSecretsReader(
+            new AwsSecretsReader(gitHubWebhookSecretName, gitHubWebhookSecretKey, region));
+        this.readFromGithubSecretsReader = new CachingSecretsReader(new AwsSecretsReader(
             environment.readEnv(READ_FROM_GITHUB_SECRET_NAME),
             environment.readEnv(READ_FROM_GITHUB_SECRET_KEY),
-            region);
+            region));
         this.signatureChecker = new GithubSignatureChecker(webhookSecretsReader);
+        Optional<String> deliveryTableName = OptionalEnvironment.read(environment, DELIVERY_TABLE_NAME);
+        deliveryTableName.ifPresent(tableName -> setDeliveryStore(new DynamoDbDeliveryStore(
+            AwsClientRegistry.getInstance().get(AmazonDynamoDB.class, regionString), tableName)));
+        Optional<String> workQueueUrl = OptionalEnvironment.read(environment, WORK_QUEUE_URL);
+        if (workQueueUrl.isPresent()) {
+            try {
+                setWorkQueue(WorkQueueFactory.create(workQueueUrl.get()));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 
     //long parameter list
@@ -103,9 +131,10 @@ public class GithubHandler extends ApiHandler {
         throws Exception {
 
         setRegionOrReportErrorToLogger();
+        startInvocation(context);
 
         if (isVerified(request, headers)) {
-            return processGitEvent(request);
+            return processGitEvent(request, eventType(headers), deliveryId(headers));
         } else {
             throw new UnauthorizedException(ERROR_MESSAGE_FOR_FAILED_GITHUB_SIGNATURE);
         }
@@ -113,16 +142,43 @@ public class GithubHandler extends ApiHandler {
 
     private boolean isVerified(String request, Map<String, String> headers) throws IOException {
         String webhookSecurityToken = headers.get(GITHUB_SIGNATURE_HEADER);
+        if (signatureChecker.verifySecurityToken(webhookSecurityToken, request)) {
+            return true;
+        }
+        // the webhook secret may have been rotated since it was cached
+        invalidateCachedSecret(webhookSecretsReader);
         return signatureChecker.verifySecurityToken(webhookSecurityToken, request);
     }
 
-    private String processGitEvent(String request) throws Exception {
-        Optional<GitEvent> gitEventOpt = parseEvent(request);
+    private Optional<String> deliveryId(Map<String, String> headers) {
+        return header(headers, DeliveryDeduplicator.DELIVERY_HEADER);
+    }
+
+    private String eventType(Map<String, String> headers) {
+        return header(headers, GitEventParser.EVENT_HEADER).orElse(null);
+    }
+
+    private Optional<String> header(Map<String, String> headers, String name) {
+        return headers.entrySet().stream()
+            .filter(header -> name.equalsIgnoreCase(header.getKey()))
+            .map(Map.Entry::getValue)
+            .findFirst();
+    }
+
+    private String processGitEvent(String request, String eventType, Optional<String> deliveryId)
+        throws Exception {
+        Optional<GitEvent> gitEventOpt = GitEventParser.parse(request, eventType);
         String response = NO_ACTION_MESSAGE;
         if (gitEventOpt.isPresent()) {
             GitEvent event = gitEventOpt.get();
             if (event instanceof SimplePullRequest) {
-                response = processPullRequest((SimplePullRequest) event);
+                SimplePullRequest pullRequest = (SimplePullRequest) event;
+                if (deliveryId.isPresent()) {
+                    response = deliveryDeduplicator.process(deliveryId.get(), pullRequest,
+                        pullRequest.getAction(), () -> processPullRequest(pullRequest));
+                } else {
+                    response = processPullRequest(pullRequest);
+                }
             }
         }
         return response;
@@ -130,12 +186,16 @@ public class GithubHandler extends ApiHandler {
 
     private String processPullRequest(SimplePullRequest simplePullRequest)
         throws Exception {
-        if (simplePullRequest.getAction().equals(SimplePullRequest.ACTION_OPEN)
-            || simplePullRequest.getAction().equals(SimplePullRequest.ACTION_REOPEN)) {
+        Optional<Action> action = stackAction(simplePullRequest);
+        if (workQueue != null && action.isPresent()) {
+            return enqueue(simplePullRequest, action.get());
+        }
+
+        if (action.isPresent() && action.get().equals(Action.CREATE)) {
             createStacks(simplePullRequest);
         }
 
-        if (simplePullRequest.getAction().equals(SimplePullRequest.ACTION_CLOSE)) {
+        if (action.isPresent() && action.get().equals(Action.DELETE)) {
             deleteStacks(simplePullRequest);
         }
 
@@ -144,8 +204,45 @@ public class GithubHandler extends ApiHandler {
         return simplePullRequest.toString();
     }
 
-    private Optional<GitEvent> parseEvent(String json) throws IOException {
-        return SimplePullRequest.create(json);
+    private String enqueue(SimplePullRequest simplePullRequest, Action action) throws IOException {
+        GitEventJob job = new GitEventJob(simplePullRequest, action);
+        workQueue.enqueue(job);
+        logger.info(QUEUED_JOB_MESSAGE, job);
+        return String.format(ACCEPTED_MESSAGE, simplePullRequest);
+    }
+
+    private Optional<Action> stackAction(SimplePullRequest simplePullRequest) {
+        String action = simplePullRequest.getAction();
+        if (action.equals(SimplePullRequest.ACTION_OPEN) || action.equals(SimplePullRequest.ACTION_REOPEN)) {
+            return Optional.of(Action.CREATE);
+        } else if (action.equals(SimplePullRequest.ACTION_CLOSE)) {
+            return Optional.of(Action.DELETE);
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Sets the store used for detecting retried deliveries of the same webhook event. Defaults to a store in
+     * memory.
+     *
+     * @param deliveryStore the store of processed deliveries
+     * @return this handler
+     */
+    public GithubHandler setDeliveryStore(DeliveryStore deliveryStore) {
+        this.deliveryDeduplicator = new DeliveryDeduplicator(deliveryStore);
+        return this;
+    }
+
+    /**
+     * Makes the handler queue the stack actions of webhook events instead of running them before responding.
+     *
+     * @param workQueue the queue that is drained by the work queue handler
+     * @return this handler
+     */
+    public GithubHandler setWorkQueue(WorkQueue workQueue) {
+        this.workQueue = workQueue;
+        return this;
     }
 
     protected SecretsReader getWebhookSecretsReader() {
@@ -4,64 +4,90 @@ import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_
 import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_NAME;
 import static no.bibsys.aws.lambda.EnvironmentConstants.REST_API_KEY_SECRET_KEY;
 import static no.bibsys.aws.lambda.EnvironmentConstants.REST_API_KEY_SECRET_NAME;
+import static no.bibsys.aws.lambda.EnvironmentConstants.WORK_QUEUE_URL;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
-import org.apache.http.impl.client.HttpClients;
+import no.bibsys.aws.lambda.OptionalEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.services.apigateway.model.UnauthorizedException;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
-import com.amazonaws.services.cloudformation.AmazonCloudFormationClientBuilder;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
-import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
 import com.amazonaws.services.lambda.AWSLambda;
-import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.logs.AWSLogs;
-import com.amazonaws.services.logs.AWSLogsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
 
+import no.bibsys.aws.lambda.api.requests.BatchUpdateStackRequest;
 import no.bibsys.aws.lambda.api.requests.UpdateStackRequest;
 import no.bibsys.aws.lambda.api.utils.Action;
 import no.bibsys.aws.secrets.AwsSecretsReader;
 import no.bibsys.aws.secrets.SecretsReader;
 import no.bibsys.aws.tools.Environment;
-import no.bibsys.aws.tools.JsonUtils;
+import no.bibsys.aws.utils.batch.BatchItemResult;
+import no.bibsys.aws.utils.batch.BatchStackUpdater;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+import no.bibsys.aws.utils.github.CachingGithubReader;
 import no.bibsys.aws.utils.github.GithubReader;
-
+import no.bibsys.aws.utils.json.ObjectMappers;
+import no.bibsys.aws.utils.queue.GitEventJob;
+import no.bibsys.aws.utils.queue.WorkQueue;
+import no.bibsys.aws.utils.queue.WorkQueueFactory;
+import no.bibsys.aws.utils.secrets.CachingSecretsReader;
+
+/**
+ * Creates or deletes the stacks of a branch. A body with a "requests" array is handled as a batch of requests (see
+ * {@link BatchUpdateStackRequest}), and the response then has one JSON line with the result of each request, in the
+ * order in which the results became known. When a work queue is configured, the requests of a batch are queued for
+ * the work queue worker, so that the response is returned within the time limit of API Gateway.
+ */
 public class UpdateStackRequestHandler extends ApiHandler {
 
     protected static final String API_KEY_HEADER = "api-key";
+    private static final String BATCH_REQUESTS_FIELD = "requests";
+    private static final String LINE_SEPARATOR = "\n";
     private static final Logger logger = LoggerFactory.getLogger(UpdateStackRequest.class);
     private static final String AUTHORIZATION_ERROR_MESSAGE = "Wrong API key signature";
     private final transient SecretsReader readFromGithubSecretsReader;
     private final transient SecretsReader restApiKeySecretsReader;
+    private transient WorkQueue workQueue;
 
     public UpdateStackRequestHandler() {
         super(new Environment(),
-            AmazonCloudFormationClientBuilder.defaultClient(),
-            AmazonS3ClientBuilder.defaultClient(),
-            AWSLambdaClientBuilder.defaultClient(),
-            AWSLogsClientBuilder.defaultClient(),
-            AmazonIdentityManagementClientBuilder.defaultClient(),
-            new GithubReader(HttpClients.createMinimal()));
+            AwsClientRegistry.getInstance().get(AmazonCloudFormation.class),
+            AwsClientRegistry.getInstance().get(AmazonS3.class),
+            AwsClientRegistry.getInstance().get(AWSLambda.class),
+            AwsClientRegistry.getInstance().get(AWSLogs.class),
+            AwsClientRegistry.getInstance().get(AmazonIdentityManagement.class),
+            CachingGithubReader.fromEnvironment(new Environment()));
 
         
         String restApiKeySecretName = environment.readEnv(REST_API_KEY_SECRET_NAME);
         String restApiKeySecretKey = environment.readEnv(REST_API_KEY_SECRET_KEY);
         System.out.println(String.format("Secrets key: %s - Secrets name: %s", restApiKeySecretKey, restApiKeySecretName));
-        this.restApiKeySecretsReader = new AwsSecretsReader(restApiKeySecretName, restApiKeySecretKey,
-            region);
+        this.restApiKeySecretsReader = new CachingSecretsReader(
+            new AwsSecretsReader(restApiKeySecretName, restApiKeySecretKey, region));
 
-        this.readFromGithubSecretsReader = new AwsSecretsReader(
+        this.readFromGithubSecretsReader = new CachingSecretsReader(new AwsSecretsReader(
             environment.readEnv(READ_FROM_GITHUB_SECRET_NAME),
             environment.readEnv(READ_FROM_GITHUB_SECRET_KEY),
-            region);
+            region));
+        Optional<String> workQueueUrl = OptionalEnvironment.read(environment, WORK_QUEUE_URL);
+        if (workQueueUrl.isPresent()) {
+            try {
+                setWorkQueue(WorkQueueFactory.create(workQueueUrl.get()));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 
     public UpdateStackRequestHandler(Environment environment,
@@ -85,9 +111,14 @@ public class UpdateStackRequestHandler extends ApiHandler {
             throws Exception {
 
         setRegionOrReportErrorToLogger();
+        startInvocation(context);
 
         String securityToken = headers.get(API_KEY_HEADER);
         checkAuthorization(securityToken);
+        JsonNode body = ObjectMappers.JSON.readTree(string);
+        if (body != null && body.has(BATCH_REQUESTS_FIELD)) {
+            return processBatch(ObjectMappers.JSON.treeToValue(body, BatchUpdateStackRequest.class));
+        }
         UpdateStackRequest request = parseRequest(string);
 
         if (request.getAction().equals(Action.CREATE.toString())) {
@@ -100,21 +131,69 @@ public class UpdateStackRequestHandler extends ApiHandler {
 
         logger.debug(request.toString());
 
-        ObjectMapper objectMapper = JsonUtils.newJsonParser();
-        return objectMapper.writeValueAsString(request);
+        return ObjectMappers.JSON.writeValueAsString(request);
+    }
+
+    /**
+     * Queues the requests of a batch, or without a work queue applies them with one set of clients and secrets, and
+     * with role listings shared by the requests.
+     */
+    private String processBatch(BatchUpdateStackRequest batch) {
+        int parallelism = batch.getParallelism() == null ? BatchStackUpdater.DEFAULT_PARALLELISM
+            : batch.getParallelism();
+        List<UpdateStackRequest> requests = batch.getRequests() == null ? Collections.emptyList()
+            : batch.getRequests();
+        BatchStackUpdater updater;
+        if (workQueue != null) {
+            updater = new BatchStackUpdater((branch, action) -> workQueue.enqueue(new GitEventJob(branch, action)),
+                parallelism).setQueued(true);
+        } else {
+            GitEventProcessor batchProcessor = invocationProcessor().withSharedRoleListings();
+            updater = new BatchStackUpdater(batchProcessor::process, parallelism);
+        }
+        StringBuilder response = new StringBuilder();
+        updater.apply(requests, result -> response.append(toJsonLine(result)));
+        return response.toString();
+    }
+
+    /**
+     * Makes the handler queue the requests of batches instead of applying them.
+     *
+     * @param workQueue the queue that is drained by the work queue handler
+     * @return this handler
+     */
+    public UpdateStackRequestHandler setWorkQueue(WorkQueue workQueue) {
+        this.workQueue = workQueue;
+        return this;
+    }
+
+    private String toJsonLine(BatchItemResult result) {
+        try {
+            String line = ObjectMappers.JSON.writeValueAsString(result);
+            logger.info(line);
+            return line + LINE_SEPARATOR;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private UpdateStackRequest parseRequest(String string) throws IOException {
-        ObjectMapper mapper = JsonUtils.newJsonParser();
-        return mapper.readValue(string, UpdateStackRequest.class);
+        return ObjectMappers.JSON.readValue(string, UpdateStackRequest.class);
     }
 
     private void checkAuthorization(String securityToken) throws IOException {
+        if (!isValidApiKey(securityToken)) {
+            // the API key may have been rotated since it was cached
+            invalidateCachedSecret(restApiKeySecretsReader);
+            if (!isValidApiKey(securityToken)) {
+                throw new UnauthorizedException(AUTHORIZATION_ERROR_MESSAGE);
+            }
+        }
+    }
 
+    private boolean isValidApiKey(String securityToken) throws IOException {
         String secret = restApiKeySecretsReader.readSecret();
-        if (!secret.equals(securityToken)) {
-            throw new UnauthorizedException(AUTHORIZATION_ERROR_MESSAGE);
-        }
+        return secret.equals(securityToken);
     }
 
     @Override
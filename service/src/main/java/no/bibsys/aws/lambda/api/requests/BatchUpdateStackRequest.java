@@ -0,0 +1,39 @@
+package no.bibsys.aws.lambda.api.requests;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of {@link UpdateStackRequest}s, optionally with the number of requests to apply at the same time.
+ */
+@JsonInclude(Include.NON_NULL)
+public class BatchUpdateStackRequest {
+
+    private List<UpdateStackRequest> requests = new ArrayList<>();
+    private Integer parallelism;
+
+    public BatchUpdateStackRequest() {
+    }
+
+    public BatchUpdateStackRequest(List<UpdateStackRequest> requests) {
+        this.requests = requests;
+    }
+
+    public List<UpdateStackRequest> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<UpdateStackRequest> requests) {
+        this.requests = requests;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+}
@@ -0,0 +1,160 @@
+package no.bibsys.aws.lambda.api.requests;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import no.bibsys.aws.utils.json.ObjectMappers;
+
+/**
+ * Reads the fields of a Github webhook payload that identify a branch with a streaming parser instead of building
+ * the whole tree. Objects that cannot contain a wanted field are skipped, and parsing stops as soon as all wanted
+ * fields have been read. Pull request, push, create and delete events are supported.
+ */
+public final class GitEventParser {
+
+    public static final String EVENT_HEADER = "X-GitHub-Event";
+    public static final String PULL_REQUEST_EVENT = "pull_request";
+    public static final String PUSH_EVENT = "push";
+    public static final String CREATE_EVENT = "create";
+    public static final String DELETE_EVENT = "delete";
+
+    private static final JsonFactory JSON_FACTORY = ObjectMappers.JSON.getFactory();
+    private static final String PATH_SEPARATOR = ".";
+    private static final String ACTION = "action";
+    private static final String OWNER_LOGIN = "repository.owner.login";
+    private static final String OWNER_NAME = "repository.owner.name";
+    private static final String REPOSITORY_NAME = "repository.name";
+    private static final String HEAD_REF = "pull_request.head.ref";
+    private static final String REF = "ref";
+    private static final String REF_TYPE = "ref_type";
+    private static final String CREATED = "created";
+    private static final String DELETED = "deleted";
+
+    private static final FieldSet PULL_REQUEST_FIELDS = new FieldSet(ACTION, OWNER_LOGIN, REPOSITORY_NAME, HEAD_REF);
+    private static final FieldSet PUSH_FIELDS = new FieldSet(REF, CREATED, DELETED, OWNER_LOGIN, OWNER_NAME,
+        REPOSITORY_NAME);
+    private static final FieldSet REF_FIELDS = new FieldSet(REF, REF_TYPE, OWNER_LOGIN, REPOSITORY_NAME);
+
+    private GitEventParser() {
+    }
+
+    /**
+     * Parses a payload whose event type is unknown. Only pull request events are recognized, by their
+     * {@code pull_request} object.
+     *
+     * @param json the payload
+     * @return the pull request, or empty if the payload is not a pull request event
+     * @throws IOException when the payload is not valid JSON
+     */
+    public static Optional<GitEvent> parse(String json) throws IOException {
+        return parse(json, PULL_REQUEST_EVENT);
+    }
+
+    /**
+     * Parses a payload of an event type.
+     *
+     * @param json the payload
+     * @param eventType the value of the {@value #EVENT_HEADER} header, or null if it is unknown
+     * @return a {@link SimplePullRequest}, {@link PushEvent} or {@link RefEvent}, or empty if the event type is not
+     *     supported or the payload lacks the fields of a branch
+     * @throws IOException when the payload is not valid JSON
+     */
+    public static Optional<GitEvent> parse(String json, String eventType) throws IOException {
+        if (eventType == null || PULL_REQUEST_EVENT.equals(eventType)) {
+            return pullRequest(read(json, PULL_REQUEST_FIELDS));
+        } else if (PUSH_EVENT.equals(eventType)) {
+            return push(read(json, PUSH_FIELDS));
+        } else if (CREATE_EVENT.equals(eventType) || DELETE_EVENT.equals(eventType)) {
+            return refEvent(eventType, read(json, REF_FIELDS));
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<GitEvent> pullRequest(Map<String, String> fields) {
+        if (!fields.containsKey(HEAD_REF)) {
+            return Optional.empty();
+        }
+        return Optional.of(new SimplePullRequest(fields.get(OWNER_LOGIN), fields.get(REPOSITORY_NAME),
+            fields.get(HEAD_REF), fields.get(ACTION)));
+    }
+
+    private static Optional<GitEvent> push(Map<String, String> fields) {
+        if (!fields.containsKey(REF)) {
+            return Optional.empty();
+        }
+        String owner = fields.containsKey(OWNER_LOGIN) ? fields.get(OWNER_LOGIN) : fields.get(OWNER_NAME);
+        return Optional.of(new PushEvent(owner, fields.get(REPOSITORY_NAME), fields.get(REF),
+            Boolean.parseBoolean(fields.get(CREATED)), Boolean.parseBoolean(fields.get(DELETED))));
+    }
+
+    private static Optional<GitEvent> refEvent(String eventType, Map<String, String> fields) {
+        if (!fields.containsKey(REF)) {
+            return Optional.empty();
+        }
+        return Optional.of(new RefEvent(eventType, fields.get(OWNER_LOGIN), fields.get(REPOSITORY_NAME),
+            fields.get(REF), fields.get(REF_TYPE)));
+    }
+
+    private static Map<String, String> read(String json, FieldSet fieldSet) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                readObject(parser, "", fieldSet, values);
+            }
+        }
+        return values;
+    }
+
+    // returns true when all wanted fields have been read, leaving the rest of the payload unread
+    private static boolean readObject(JsonParser parser, String prefix, FieldSet fieldSet, Map<String, String> values)
+        throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = prefix + parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token.isScalarValue() && fieldSet.fields.contains(path)) {
+                String value = parser.getValueAsString();
+                if (value != null) {
+                    values.put(path, value);
+                    if (values.size() == fieldSet.fields.size()) {
+                        return true;
+                    }
+                }
+            } else if (token == JsonToken.START_OBJECT && fieldSet.prefixes.contains(path + PATH_SEPARATOR)) {
+                if (readObject(parser, path + PATH_SEPARATOR, fieldSet, values)) {
+                    return true;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    // the dotted paths of the wanted fields and of the objects containing them
+    private static class FieldSet {
+
+        private final transient Set<String> fields;
+        private final transient Set<String> prefixes;
+
+        FieldSet(String... paths) {
+            this.fields = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(paths)));
+            Set<String> objects = new HashSet<>();
+            for (String path : paths) {
+                int end = path.indexOf(PATH_SEPARATOR);
+                while (end > 0) {
+                    objects.add(path.substring(0, end + 1));
+                    end = path.indexOf(PATH_SEPARATOR, end + 1);
+                }
+            }
+            this.prefixes = Collections.unmodifiableSet(objects);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package no.bibsys.aws.lambda.api.requests;
+
+/**
+ * A push to a Github repository. The branch is set only when a branch was pushed, not a tag.
+ */
+public final class PushEvent extends GitEvent {
+
+    private static final String BRANCH_REF_PREFIX = "refs/heads/";
+
+    private final transient String ref;
+    private final transient boolean created;
+    private final transient boolean deleted;
+
+    /**
+     * Constructor.
+     *
+     * @param owner the owner of the repository
+     * @param repository the name of the repository
+     * @param ref the full name of the pushed ref, e.g. "refs/heads/master"
+     * @param created whether the push created the ref
+     * @param deleted whether the push deleted the ref
+     */
+    public PushEvent(String owner, String repository, String ref, boolean created, boolean deleted) {
+        super(owner, repository, ref.startsWith(BRANCH_REF_PREFIX) ? ref.substring(BRANCH_REF_PREFIX.length()) : null);
+        this.ref = ref;
+        this.created = created;
+        this.deleted = deleted;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return ref;
+    }
+}
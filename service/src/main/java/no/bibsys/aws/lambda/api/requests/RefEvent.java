@@ -0,0 +1,44 @@
+package no.bibsys.aws.lambda.api.requests;
+
+/**
+ * The creation or deletion of a branch or tag in a Github repository. The branch is set only for branches.
+ */
+public final class RefEvent extends GitEvent {
+
+    public static final String REF_TYPE_BRANCH = "branch";
+
+    private final transient String eventType;
+    private final transient String refType;
+
+    /**
+     * Constructor.
+     *
+     * @param eventType {@link GitEventParser#CREATE_EVENT} or {@link GitEventParser#DELETE_EVENT}
+     * @param owner the owner of the repository
+     * @param repository the name of the repository
+     * @param ref the short name of the ref, e.g. "master"
+     * @param refType "branch" or "tag"
+     */
+    public RefEvent(String eventType, String owner, String repository, String ref, String refType) {
+        super(owner, repository, REF_TYPE_BRANCH.equals(refType) ? ref : null);
+        this.eventType = eventType;
+        this.refType = refType;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getRefType() {
+        return refType;
+    }
+
+    public boolean isCreated() {
+        return GitEventParser.CREATE_EVENT.equals(eventType);
+    }
+
+    @Override
+    public String toString() {
+        return eventType;
+    }
+}
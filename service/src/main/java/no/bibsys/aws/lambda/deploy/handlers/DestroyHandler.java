@@ -10,11 +10,15 @@ import no.bibsys.aws.lambda.responses.SimpleResponse;
 import no.bibsys.aws.route53.StaticUrlInfo;
 import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
 import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.metrics.MetricsRecorder;
 import no.bibsys.aws.utils.resources.ResourceDestroyer;
 import no.bibsys.aws.utils.resources.SwaggerHubConnectionDetails;
+import no.bibsys.aws.utils.tracing.Span;
 
 public class DestroyHandler extends ResourceHandler {
 
+    private static final String DESTROY_SPAN = "destroy";
+
     /**
      * Used by AWS Lambda.
      */
@@ -46,7 +50,16 @@ public class DestroyHandler extends ResourceHandler {
             apiGatewayClient,
             route53Client
         );
-        resourceDestroyer.destroy();
+        Span span = tracer.startSpan(DESTROY_SPAN).annotate(STAGE_ANNOTATION, stage.toString());
+        try {
+            resourceDestroyer.destroy();
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            span.fail(e);
+            throw e;
+        } finally {
+            span.close();
+            MetricsRecorder.getInstance().flush();
+        }
 
         return new SimpleResponse("OK");
     }
@@ -12,11 +12,15 @@ import no.bibsys.aws.lambda.responses.SimpleResponse;
 import no.bibsys.aws.route53.StaticUrlInfo;
 import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
 import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.metrics.MetricsRecorder;
 import no.bibsys.aws.utils.resources.ResourceInitializer;
 import no.bibsys.aws.utils.resources.SwaggerHubConnectionDetails;
+import no.bibsys.aws.utils.tracing.Span;
 
 public class InitHandler extends ResourceHandler {
 
+    private static final String INITIALIZE_STACKS_SPAN = "initializeStacks";
+
     /**
      * Used by AWS Lambda.
      */
@@ -45,7 +49,16 @@ public class InitHandler extends ResourceHandler {
                 route53Client
             );
 
-        initializer.initializeStacks();
+        Span span = tracer.startSpan(INITIALIZE_STACKS_SPAN).annotate(STAGE_ANNOTATION, stage.toString());
+        try {
+            initializer.initializeStacks();
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            span.fail(e);
+            throw e;
+        } finally {
+            span.close();
+            MetricsRecorder.getInstance().flush();
+        }
 
         return new SimpleResponse("OK");
     }
@@ -3,18 +3,16 @@ package no.bibsys.aws.lambda.deploy.handlers;
 import java.io.IOException;
 import java.net.URISyntaxException;
 
+import no.bibsys.aws.lambda.OptionalEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.apigateway.AmazonApiGateway;
-import com.amazonaws.services.apigateway.AmazonApiGatewayClientBuilder;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
-import com.amazonaws.services.cloudformation.AmazonCloudFormationClientBuilder;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.route53.AmazonRoute53;
-import com.amazonaws.services.route53.AmazonRoute53ClientBuilder;
 
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.git.github.BranchInfo;
@@ -28,10 +26,17 @@ import no.bibsys.aws.secrets.AwsSecretsReader;
 import no.bibsys.aws.secrets.SecretsReader;
 import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
 import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+import no.bibsys.aws.utils.secrets.CachingSecretsReader;
+import no.bibsys.aws.utils.tracing.SpanExporter;
+import no.bibsys.aws.utils.tracing.SpanExporterFactory;
+import no.bibsys.aws.utils.tracing.TraceIds;
+import no.bibsys.aws.utils.tracing.Tracer;
 
 public abstract class ResourceHandler extends CodePipelineFunctionHandlerTemplate<SimpleResponse> {
 
     private static final String OVERRIDE_WARNING = "You should override this method";
+    protected static final String STAGE_ANNOTATION = "stage";
     protected transient Stage stage;
     protected transient String stackName;
     protected transient String branch;
@@ -40,6 +45,7 @@ public abstract class ResourceHandler extends CodePipelineFunctionHandlerTemplat
     protected transient AmazonApiGateway apiGatewayClient;
     protected transient SecretsReader swaggerHubSecretsReader;
     protected transient AmazonRoute53 route53Client;
+    protected transient Tracer tracer;
     private transient String swaggerApiId;
     private transient String swaggerApiVersion;
     private transient String swaggerApiOwner;
@@ -71,23 +77,29 @@ public abstract class ResourceHandler extends CodePipelineFunctionHandlerTemplat
         this.stackName = environment.readEnv(EnvironmentConstants.STACK_NAME);
 
         this.stage = Stage.fromString(environment.readEnv(EnvironmentConstants.STAGE));
+        this.tracer = initializeTracer();
 
-        this.cloudFormationClient = AmazonCloudFormationClientBuilder.defaultClient();
-        this.apiGatewayClient = AmazonApiGatewayClientBuilder.defaultClient();
-        this.route53Client = AmazonRoute53ClientBuilder.defaultClient();
-
-        String swaggerHubApiKeySecretsName = environment
-            .readEnv(EnvironmentConstants.ACCESS_SWAGGERHUB_SECRET_NAME);
-        String swaggerHubApiKeySecretsKey = environment
-            .readEnv(EnvironmentConstants.ACCESS_SWAGGERHUB_SECRET_KEY);
-        
-        System.out.println(String.format("Secrets key: %s - Secrets name: %s", swaggerHubApiKeySecretsKey, swaggerHubApiKeySecretsName));
-        
-        Region region = Region
-            .getRegion(Regions.fromName(environment.readEnv(EnvironmentConstants.AWS_REGION)));
-        
-        this.swaggerHubSecretsReader = new AwsSecretsReader(swaggerHubApiKeySecretsName,
-            swaggerHubApiKeySecretsKey, region);
+        String regionName = environment.readEnv(EnvironmentConstants.AWS_REGION);
+        AwsClientRegistry clientRegistry = AwsClientRegistry.getInstance();
+        this.cloudFormationClient = clientRegistry.get(AmazonCloudFormation.class, regionName);
+        this.apiGatewayClient = clientRegistry.get(AmazonApiGateway.class, regionName);
+        this.route53Client = clientRegistry.get(AmazonRoute53.class, regionName);
+
+        // the reader is kept across invocations so that its cached secret is reused
+        if (swaggerHubSecretsReader == null) {
+            String swaggerHubApiKeySecretsName = environment
+                .readEnv(EnvironmentConstants.ACCESS_SWAGGERHUB_SECRET_NAME);
+            String swaggerHubApiKeySecretsKey = environment
+                .readEnv(EnvironmentConstants.ACCESS_SWAGGERHUB_SECRET_KEY);
+
+            System.out.println(String.format("Secrets key: %s - Secrets name: %s", swaggerHubApiKeySecretsKey,
+                swaggerHubApiKeySecretsName));
+
+            Region region = Region.getRegion(Regions.fromName(regionName));
+
+            this.swaggerHubSecretsReader = new CachingSecretsReader(new AwsSecretsReader(
+                swaggerHubApiKeySecretsName, swaggerHubApiKeySecretsKey, region));
+        }
     }
 
     @Override
@@ -97,6 +109,17 @@ public abstract class ResourceHandler extends CodePipelineFunctionHandlerTemplat
         throw new IllegalStateException(OVERRIDE_WARNING);
     }
 
+    // the trace id is passed by the pipeline when available, otherwise one with the same branch hash is derived
+    private Tracer initializeTracer() {
+        String projectId = OptionalEnvironment.read(environment, EnvironmentConstants.PROJECT_ID).orElse(stackName);
+        String traceId = OptionalEnvironment.read(environment, EnvironmentConstants.TRACE_ID)
+            .orElseGet(() -> TraceIds.newTraceId(projectId, branch));
+        SpanExporter exporter = OptionalEnvironment.read(environment, EnvironmentConstants.TRACE_EXPORT)
+            .map(SpanExporterFactory::create)
+            .orElse(SpanExporter.NONE);
+        return new Tracer(traceId, exporter);
+    }
+
     protected SwaggerHubInfo initializeSwaggerHubInfo() {
 
         return new SwaggerHubInfo(swaggerApiId, swaggerApiVersion, swaggerApiOwner,
@@ -7,10 +7,13 @@ import java.util.Optional;
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.git.github.GitInfo;
 import no.bibsys.aws.lambda.deploy.handlers.utils.ApiGatewayApiInfo;
+import no.bibsys.aws.lambda.deploy.handlers.utils.PublishedSpecHash;
 import no.bibsys.aws.secrets.SecretsReader;
 import no.bibsys.aws.swaggerhub.SwaggerDriver;
 import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
 import no.bibsys.aws.utils.constants.GitConstants;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
@@ -28,10 +31,14 @@ import org.slf4j.LoggerFactory;
 public class SwaggerHubUpdater {
 
     private static final Logger logger = LoggerFactory.getLogger(SwaggerHubUpdater.class);
+    private static final String UNCHANGED_SPEC_MESSAGE = "OpenAPI specification of {} is unchanged, not publishing";
     private final transient SwaggerHubInfo swaggerHubInfo;
     private final transient AmazonApiGateway apiGateway;
     private final transient String apiGatewayRestApiId;
     protected transient Stage stage;
+    // the requests are built by the SwaggerDriver but sent through the pooled client
+    private final transient SharedHttpClient httpClient = SharedHttpClient.getInstance();
+    private transient PublishedSpecHash publishedSpecHash;
 
     public SwaggerHubUpdater(
         AmazonApiGateway apiGateway,
@@ -44,6 +51,7 @@ public class SwaggerHubUpdater {
         this.apiGateway = apiGateway;
         this.apiGatewayRestApiId = apiGatewayRestApiId;
         this.stage = stage;
+        this.publishedSpecHash = new PublishedSpecHash(apiGateway, apiGatewayRestApiId);
         this.swaggerHubInfo = intializeSwaggerHubInfo(swaggerHubInfo, gitInfo, stackName,
             swaggerHubSecretsReader);
     }
@@ -77,11 +85,12 @@ public class SwaggerHubUpdater {
         String swaggerApiKey = swaggerHubInfo.getSwaggerAuth();
         SwaggerDriver swaggerDriver = new SwaggerDriver(swaggerHubInfo);
         HttpDelete deleteRequest = swaggerDriver.createDeleteApiRequest(swaggerApiKey);
-        return swaggerDriver.executeDelete(deleteRequest);
+        return httpClient.execute(deleteRequest);
     }
 
     /**
-     * Updates the API documentation in SwaggerHub.
+     * Updates the API documentation in SwaggerHub. When the generated specification has the same hash as the last
+     * published one, nothing is sent to SwaggerHub and the generated specification is returned.
      *
      * @return The body of the HTTP response for the update query
      */
@@ -94,31 +103,44 @@ public class SwaggerHubUpdater {
 
         if (jsonOpt.isPresent()) {
             logger.debug("Found json API");
+            String hash = PublishedSpecHash.compute(jsonOpt.get(), swaggerHubInfo);
+            if (publishedSpecHash.read().filter(hash::equals).isPresent()) {
+                logger.info(UNCHANGED_SPEC_MESSAGE, swaggerHubInfo.getApiId());
+                return jsonOpt;
+            }
+            deleteApiVersion();
             SwaggerDriver swaggerDriver = newSwaggerDriver();
-            executeUpdate(jsonOpt.get(), swaggerDriver);
+            int status = executeUpdate(jsonOpt.get(), swaggerDriver);
             String response = readTheUpdatedApi(swaggerDriver);
+            if (isSuccessful(status)) {
+                publishedSpecHash.write(hash);
+            }
             return Optional.of(response);
         } else {
             return Optional.empty();
         }
     }
 
+    private boolean isSuccessful(int status) {
+        return status >= HttpStatus.SC_OK && status < HttpStatus.SC_MULTIPLE_CHOICES;
+    }
+
     private String readTheUpdatedApi(SwaggerDriver swaggerDriver)
         throws URISyntaxException, IOException {
         String swaggerApiKey = swaggerHubInfo.getSwaggerAuth();
         HttpGet getSpecRequest = swaggerDriver.getSpecificationRequest(swaggerApiKey);
-        return swaggerDriver.executeGet(getSpecRequest);
+        return httpClient.executeForBody(getSpecRequest);
     }
 
     private SwaggerDriver newSwaggerDriver() {
         return new SwaggerDriver(swaggerHubInfo);
     }
 
-    private void executeUpdate(String json, SwaggerDriver swaggerDriver)
+    private int executeUpdate(String json, SwaggerDriver swaggerDriver)
         throws URISyntaxException, IOException {
         String swaggerApiKey = swaggerHubInfo.getSwaggerAuth();
         HttpPost request = swaggerDriver.createUpdateRequest(json, swaggerApiKey);
-        swaggerDriver.executePost(request);
+        return httpClient.execute(request);
     }
 
     private Optional<String> generateApiSpec() throws IOException {
@@ -127,6 +149,18 @@ public class SwaggerHubUpdater {
         return apiGatewayApiInfo.generateOpenApiNoExtensions();
     }
 
+    /**
+     * Sets where the hash of the published specification is stored. Defaults to a tag of the RestApi in the region
+     * of the environment.
+     *
+     * @param publishedSpecHash the store of the hash
+     * @return this updater
+     */
+    public SwaggerHubUpdater setPublishedSpecHash(PublishedSpecHash publishedSpecHash) {
+        this.publishedSpecHash = publishedSpecHash;
+        return this;
+    }
+
     public SwaggerHubInfo getSwaggerHubInfo() {
         return swaggerHubInfo;
     }
@@ -7,12 +7,11 @@ import com.amazonaws.services.apigateway.model.GetExportRequest;
 import com.amazonaws.services.apigateway.model.GetExportResult;
 import com.amazonaws.services.apigateway.model.NotFoundException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Preconditions;
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,8 +19,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import no.bibsys.aws.apigateway.ApiGatewayConstants;
 import no.bibsys.aws.apigateway.ServerInfo;
 import no.bibsys.aws.cloudformation.Stage;
-import no.bibsys.aws.tools.IoUtils;
-import no.bibsys.aws.tools.JsonUtils;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import no.bibsys.aws.utils.templates.TemplateRegistry;
 
 /**
  * Retrieves Information regarding a specific AWS ApiGateway API.
@@ -33,9 +32,6 @@ public class ApiGatewayApiInfo {
     private static final String VARIABLES_FIELD = "variables";
     private static final String BASE_PATH_FIELD = "basePath";
     private static final String DEFAULT_FIELD = "default";
-    private static final String OPENAPI_RESOURCE_FOLDER = "openapi";
-    private static final String OPENAPI_YML = "openapi.yml";
-    private static final String OPENAPI_TEMPLATE = OPENAPI_YML;
     private static final String SERVER_URL_PLACEHOLDER = "<SERVER_PLACEHOLDER>";
     private static final String STAGE_PLACEHOLDER = "<STAGE_PLACEHOLDER>";
     private static final String ACCEPTS_HEADER = "accepts";
@@ -55,13 +51,10 @@ public class ApiGatewayApiInfo {
     }
 
     public Optional<String> generateOpenApiNoExtensions() throws IOException {
-        String openApiTemplate = readOpenApiTemplate();
         Optional<ServerInfo> serverInfo = readServerInfo();
         if (serverInfo.isPresent()) {
-            ServerInfo info = serverInfo.get();
-            String updatedOpenApiSpecification = injectServerInfo(openApiTemplate, info);
-            String openApiJsonSpec = JsonUtils.yamlToJson(updatedOpenApiSpecification);
-            return Optional.of(openApiJsonSpec);
+            JsonNode openApiSpecification = injectServerInfo(serverInfo.get());
+            return Optional.of(ObjectMappers.JSON.writeValueAsString(openApiSpecification));
         }
         return Optional.empty();
     }
@@ -75,25 +68,25 @@ public class ApiGatewayApiInfo {
 
     /**
      * We desire a richer OpenApi documentation than the one that Amazon currently provides. So we read the server
-     * address from Api Gateway and we inject the information to the custom OpenApi specification.
+     * address from Api Gateway and we inject the information to the custom OpenApi specification. The specification
+     * template is parsed once per container and copied for every call.
      *
-     * @param openApiTemplate Custom OpenApi specification
      * @param serverInfo Server URL and URL path variables as produced by ApiGateway
      * @return A Swagger documentation with the correct Server URL
      */
-    private String injectServerInfo(String openApiTemplate, ServerInfo serverInfo) throws IOException {
-
-        String replacedSever = openApiTemplate.replace(SERVER_URL_PLACEHOLDER, serverInfo.getServerUrl());
+    private JsonNode injectServerInfo(ServerInfo serverInfo) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        values.put(SERVER_URL_PLACEHOLDER, serverInfo.getServerUrl());
         if (Objects.nonNull(serverInfo.getStage())) {
-            return replacedSever.replace(STAGE_PLACEHOLDER, serverInfo.getStage());
-        } else {
-            ObjectMapper yamlParser = JsonUtils.newYamlParser();
-            ObjectNode root = (ObjectNode) yamlParser.readTree(replacedSever);
+            values.put(STAGE_PLACEHOLDER, serverInfo.getStage());
+        }
+        JsonNode root = TemplateRegistry.getInstance().get(TemplateRegistry.OPENAPI_TEMPLATE).renderDocument(values);
+        if (Objects.isNull(serverInfo.getStage())) {
             ArrayNode servers = (ArrayNode) root.get(SERVERS_FIELD);
             ObjectNode server = (ObjectNode) servers.get(ONE_SERVER_EXPECTED);
             server.remove(VARIABLES_FIELD);
-            return yamlParser.writeValueAsString(root);
         }
+        return root;
     }
 
     public Optional<JsonNode> readOpenApiSpecFromAmazon(Map<String, String> requestParameters) throws IOException {
@@ -102,8 +95,7 @@ public class ApiGatewayApiInfo {
                 .withExportType(ApiGatewayConstants.OPEN_API_3).withParameters(requestParameters);
             GetExportResult result = client.getExport(request);
             String swaggerFile = new String(result.getBody().array());
-            ObjectMapper parser = JsonUtils.newJsonParser();
-            return Optional.ofNullable(parser.readTree(swaggerFile));
+            return Optional.ofNullable(ObjectMappers.JSON.readTree(swaggerFile));
         } catch (NotFoundException e) {
             return Optional.empty();
         }
@@ -120,8 +112,4 @@ public class ApiGatewayApiInfo {
         return Optional.ofNullable(serversNode.get(VARIABLES_FIELD))
             .map(var -> var.get(BASE_PATH_FIELD)).map(basePath -> basePath.get(DEFAULT_FIELD)).map(JsonNode::asText);
     }
-
-    private String readOpenApiTemplate() throws IOException {
-        return IoUtils.resourceAsString(Paths.get(OPENAPI_RESOURCE_FOLDER, OPENAPI_TEMPLATE));
-    }
 }
@@ -0,0 +1,120 @@
+package no.bibsys.aws.lambda.deploy.handlers.utils;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.regions.DefaultAwsRegionProviderChain;
+import com.amazonaws.services.apigateway.AmazonApiGateway;
+import com.amazonaws.services.apigateway.model.GetTagsRequest;
+import com.amazonaws.services.apigateway.model.TagResourceRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The hash of the OpenAPI specification that was last published to SwaggerHub for an ApiGateway RestApi. The hash is
+ * stored in a tag of the RestApi, so it is removed together with the RestApi.
+ * <p>
+ * The hash is computed over the canonical form of the specification, i.e. compact JSON with the fields of all objects
+ * sorted by name, together with the SwaggerHub organization, API id and version it was published to.
+ * </p>
+ */
+public class PublishedSpecHash {
+
+    public static final String HASH_TAG_KEY = "openapi-sha256";
+
+    private static final Logger logger = LoggerFactory.getLogger(PublishedSpecHash.class);
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    private static final String REST_API_ARN_TEMPLATE = "arn:aws:apigateway:%s::/restapis/%s";
+    private static final String TARGET_TEMPLATE = "%s/%s/%s\n";
+    private static final String TAGS_UNAVAILABLE_MESSAGE = "Could not read the tags of RestApi {}: {}";
+    private static final String TAG_NOT_WRITTEN_MESSAGE = "Could not tag RestApi {}: {}";
+
+    private final transient AmazonApiGateway apiGateway;
+    private final transient String restApiId;
+    private final transient String region;
+
+    public PublishedSpecHash(AmazonApiGateway apiGateway, String restApiId) {
+        this(apiGateway, restApiId, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param apiGateway the ApiGateway client
+     * @param restApiId the id of the RestApi
+     * @param region the region of the RestApi, or null for the region of the environment
+     */
+    public PublishedSpecHash(AmazonApiGateway apiGateway, String restApiId, String region) {
+        this.apiGateway = apiGateway;
+        this.restApiId = restApiId;
+        this.region = region;
+    }
+
+    /**
+     * Computes the hash of a specification published to a SwaggerHub API.
+     *
+     * @param openApiJson the specification in JSON
+     * @param swaggerHubInfo the SwaggerHub API
+     * @return the SHA-256 hash in hexadecimal
+     * @throws IOException when the specification is not valid JSON
+     */
+    public static String compute(String openApiJson, SwaggerHubInfo swaggerHubInfo) throws IOException {
+        Object specification = CANONICAL_MAPPER.readValue(openApiJson, Object.class);
+        String target = String.format(TARGET_TEMPLATE, swaggerHubInfo.getSwaggerOrganization(),
+            swaggerHubInfo.getApiId(), swaggerHubInfo.getApiVersion());
+        String canonical = target + CANONICAL_MAPPER.writeValueAsString(specification);
+        return DigestUtils.sha256Hex(canonical.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the hash of the last published specification.
+     *
+     * @return the hash, or empty when no specification has been published or the tags cannot be read
+     */
+    public Optional<String> read() {
+        if (restApiId == null) {
+            return Optional.empty();
+        }
+        try {
+            Map<String, String> tags = apiGateway.getTags(new GetTagsRequest().withResourceArn(restApiArn()))
+                .getTags();
+            return Optional.ofNullable(tags).map(map -> map.get(HASH_TAG_KEY));
+        } catch (SdkClientException e) {
+            logger.warn(TAGS_UNAVAILABLE_MESSAGE, restApiId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records the hash of a published specification. A hash that cannot be recorded only causes the specification to
+     * be published again on the next deployment, so failures are logged and ignored.
+     *
+     * @param hash the hash computed with {@link #compute(String, SwaggerHubInfo)}
+     */
+    public void write(String hash) {
+        if (restApiId == null) {
+            return;
+        }
+        try {
+            apiGateway.tagResource(new TagResourceRequest()
+                .withResourceArn(restApiArn())
+                .withTags(Collections.singletonMap(HASH_TAG_KEY, hash)));
+        } catch (SdkClientException e) {
+            logger.warn(TAG_NOT_WRITTEN_MESSAGE, restApiId, e.getMessage());
+        }
+    }
+
+    private String restApiArn() {
+        String arnRegion = Optional.ofNullable(region)
+            .orElseGet(() -> new DefaultAwsRegionProviderChain().getRegion());
+        return String.format(REST_API_ARN_TEMPLATE, arnRegion, restApiId);
+    }
+}
@@ -0,0 +1,164 @@
+package no.bibsys.aws.lambda.fleet.handlers;
+
+import static no.bibsys.aws.lambda.EnvironmentConstants.AWS_REGION;
+import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_KEY;
+import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_NAME;
+import static no.bibsys.aws.lambda.EnvironmentConstants.RECONCILE_DRY_RUN;
+import static no.bibsys.aws.lambda.EnvironmentConstants.RECONCILE_REPOSITORIES;
+import static no.bibsys.aws.lambda.EnvironmentConstants.WORK_QUEUE_URL;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.s3.AmazonS3;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import no.bibsys.aws.lambda.OptionalEnvironment;
+import no.bibsys.aws.lambda.api.handlers.GitEventProcessor;
+import no.bibsys.aws.secrets.AwsSecretsReader;
+import no.bibsys.aws.secrets.SecretsReader;
+import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+import no.bibsys.aws.utils.fleet.BranchActionExecutor;
+import no.bibsys.aws.utils.fleet.FleetReconciler;
+import no.bibsys.aws.utils.fleet.GithubBranchSource;
+import no.bibsys.aws.utils.fleet.PipelineInventory;
+import no.bibsys.aws.utils.fleet.RepositoryRef;
+import no.bibsys.aws.utils.github.CachingGithubReader;
+import no.bibsys.aws.utils.github.GithubPullRequestLister;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import no.bibsys.aws.utils.metrics.MetricsRecorder;
+import no.bibsys.aws.utils.queue.GitEventJob;
+import no.bibsys.aws.utils.queue.WorkQueue;
+import no.bibsys.aws.utils.queue.WorkQueueFactory;
+import no.bibsys.aws.utils.secrets.CachingSecretsReader;
+import no.bibsys.aws.utils.stacks.Deadline;
+
+/**
+ * Runs the {@link FleetReconciler} on a schedule, so that pipelines missed or left behind because of lost webhook
+ * events are created or deleted.
+ * <p>
+ * The reconciled repositories are those in {@code RECONCILE_REPOSITORIES} and those that already have pipelines. When
+ * a work queue is configured the actions are queued for the work queue worker, so that a long reconciliation does not
+ * exceed the time limit of the invocation; otherwise they are applied directly. The dry-run setting of the
+ * environment can be overridden with a boolean "dryRun" in the input event.
+ * </p>
+ */
+public class FleetReconciliationHandler implements RequestHandler<Map<String, Object>, String> {
+
+    private static final String DRY_RUN = "dryRun";
+    private static final String REPOSITORY_SEPARATOR = ",";
+
+    private final transient FleetReconciler reconciler;
+    private final transient List<RepositoryRef> repositories;
+    private final transient boolean dryRun;
+    private transient AtomicReference<Deadline> invocationDeadline = new AtomicReference<>();
+
+    /**
+     * Used by AWS Lambda.
+     */
+    public FleetReconciliationHandler() throws IOException {
+        this(new Environment());
+    }
+
+    private FleetReconciliationHandler(Environment environment) throws IOException {
+        this(environment, new AtomicReference<>());
+    }
+
+    private FleetReconciliationHandler(Environment environment, AtomicReference<Deadline> invocationDeadline)
+        throws IOException {
+        this(newReconciler(environment, invocationDeadline),
+            parseRepositories(OptionalEnvironment.read(environment, RECONCILE_REPOSITORIES).orElse("")),
+            OptionalEnvironment.read(environment, RECONCILE_DRY_RUN).map(Boolean::parseBoolean).orElse(false));
+        this.invocationDeadline = invocationDeadline;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param reconciler the reconciler
+     * @param repositories the repositories to reconcile in addition to those that have pipelines
+     * @param dryRun if true, actions are only reported
+     */
+    public FleetReconciliationHandler(FleetReconciler reconciler, List<RepositoryRef> repositories, boolean dryRun) {
+        this.reconciler = reconciler;
+        this.repositories = repositories;
+        this.dryRun = dryRun;
+    }
+
+    @Override
+    public String handleRequest(Map<String, Object> input, Context context) {
+        boolean dryRunRequested = dryRun;
+        if (input != null && input.containsKey(DRY_RUN)) {
+            dryRunRequested = Boolean.parseBoolean(String.valueOf(input.get(DRY_RUN)));
+        }
+        invocationDeadline.set(Deadline.forContext(context));
+        try {
+            return reconciler.reconcileAll(repositories, dryRunRequested).toJson();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            MetricsRecorder.getInstance().flush();
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of repositories of the form "owner/repository".
+     *
+     * @param repositories the list, possibly empty
+     * @return the repositories
+     */
+    public static List<RepositoryRef> parseRepositories(String repositories) {
+        return Arrays.stream(repositories.split(REPOSITORY_SEPARATOR))
+            .map(String::trim)
+            .filter(repository -> !repository.isEmpty())
+            .map(RepositoryRef::parse)
+            .collect(Collectors.toList());
+    }
+
+    private static FleetReconciler newReconciler(Environment environment, AtomicReference<Deadline> invocationDeadline)
+        throws IOException {
+        Region region = Region.getRegion(Regions.fromName(environment.readEnv(AWS_REGION)));
+        AwsClientRegistry clients = AwsClientRegistry.getInstance();
+        SecretsReader secretsReader = new CachingSecretsReader(new AwsSecretsReader(
+            environment.readEnv(READ_FROM_GITHUB_SECRET_NAME),
+            environment.readEnv(READ_FROM_GITHUB_SECRET_KEY),
+            region));
+        PipelineInventory inventory = new PipelineInventory(clients.get(AmazonCloudFormation.class),
+            clients.get(AmazonIdentityManagement.class));
+        GithubPullRequestLister lister = new GithubPullRequestLister(SharedHttpClient.getInstance().getHttpClient(),
+            secretsReader);
+        BranchActionExecutor executor = newExecutor(environment, secretsReader, invocationDeadline);
+        return new FleetReconciler(inventory, new GithubBranchSource(lister), executor);
+    }
+
+    private static BranchActionExecutor newExecutor(Environment environment, SecretsReader secretsReader,
+        AtomicReference<Deadline> invocationDeadline) throws IOException {
+        Optional<String> workQueueUrl = OptionalEnvironment.read(environment, WORK_QUEUE_URL);
+        if (workQueueUrl.isPresent()) {
+            WorkQueue workQueue = WorkQueueFactory.create(workQueueUrl.get());
+            return (branch, action) -> workQueue.enqueue(new GitEventJob(branch, action));
+        }
+        AwsClientRegistry clients = AwsClientRegistry.getInstance();
+        GitEventProcessor gitEventProcessor = new GitEventProcessor(environment,
+            clients.get(AmazonCloudFormation.class),
+            clients.get(AmazonS3.class),
+            clients.get(AWSLambda.class),
+            clients.get(AWSLogs.class),
+            clients.get(AmazonIdentityManagement.class),
+            CachingGithubReader.fromEnvironment(environment),
+            secretsReader);
+        // the actions applied directly share the time of the invocation
+        return (branch, action) -> gitEventProcessor.withDeadline(invocationDeadline.get()).process(branch, action);
+    }
+}
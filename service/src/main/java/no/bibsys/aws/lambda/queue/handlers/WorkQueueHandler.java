@@ -0,0 +1,186 @@
+package no.bibsys.aws.lambda.queue.handlers;
+
+import static no.bibsys.aws.lambda.EnvironmentConstants.AWS_REGION;
+import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_KEY;
+import static no.bibsys.aws.lambda.EnvironmentConstants.READ_FROM_GITHUB_SECRET_NAME;
+import static no.bibsys.aws.lambda.EnvironmentConstants.WORK_QUEUE_URL;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.s3.AmazonS3;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import no.bibsys.aws.lambda.api.handlers.GitEventProcessor;
+import no.bibsys.aws.secrets.AwsSecretsReader;
+import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+import no.bibsys.aws.utils.coalescing.BranchActionCoalescer;
+import no.bibsys.aws.utils.github.CachingGithubReader;
+import no.bibsys.aws.utils.queue.GitEventJob;
+import no.bibsys.aws.utils.queue.QueuedJob;
+import no.bibsys.aws.utils.queue.WorkQueue;
+import no.bibsys.aws.utils.queue.WorkQueueFactory;
+import no.bibsys.aws.utils.secrets.CachingSecretsReader;
+import no.bibsys.aws.utils.stacks.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes the jobs queued by the {@link no.bibsys.aws.lambda.api.handlers.GithubHandler}.
+ * <p>
+ * When invoked by an SQS event source, the jobs in the records of the event are processed and a failure is rethrown
+ * so that the messages are delivered again. When invoked with any other event, e.g. by a schedule, the handler
+ * receives jobs from the queue until it is empty or the remaining time of the invocation runs low. Of the received
+ * jobs of a branch only the latest is processed. Jobs that fail are not acknowledged and are therefore received
+ * again later.
+ * </p>
+ */
+public class WorkQueueHandler implements RequestHandler<Map<String, Object>, String> {
+
+    public static final int RECEIVE_BATCH_SIZE = 10;
+    public static final long MIN_REMAINING_TIME_MILLIS = 5 * 60 * 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkQueueHandler.class);
+    private static final String RECORDS = "Records";
+    private static final String BODY = "body";
+    private static final String PROCESSED_MESSAGE = "Processed %d jobs";
+    private static final String PROCESSING_JOB_MESSAGE = "Processing job {}";
+    private static final String FAILED_JOB_MESSAGE = "Job {} failed and will be retried";
+    private static final String SUPERSEDED_JOB_MESSAGE = "Job {} was superseded by a later job";
+
+    private final transient GitEventProcessor gitEventProcessor;
+    private final transient WorkQueue workQueue;
+
+    /**
+     * Used by AWS Lambda.
+     */
+    public WorkQueueHandler() throws IOException {
+        this(new Environment());
+    }
+
+    private WorkQueueHandler(Environment environment) throws IOException {
+        this(newGitEventProcessor(environment), WorkQueueFactory.create(environment.readEnv(WORK_QUEUE_URL)));
+    }
+
+    public WorkQueueHandler(GitEventProcessor gitEventProcessor, WorkQueue workQueue) {
+        this.gitEventProcessor = gitEventProcessor;
+        this.workQueue = workQueue;
+    }
+
+    @Override
+    public String handleRequest(Map<String, Object> input, Context context) {
+        try {
+            // the jobs of an invocation share its time, so their waits for stacks share one deadline
+            GitEventProcessor processor = gitEventProcessor.withDeadline(Deadline.forContext(context));
+            int processed;
+            if (input != null && input.containsKey(RECORDS)) {
+                processed = processRecords(processor, input.get(RECORDS));
+            } else {
+                processed = drainQueue(processor, context);
+            }
+            return String.format(PROCESSED_MESSAGE, processed);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int processRecords(GitEventProcessor processor, Object records) throws IOException {
+        int processed = 0;
+        for (Object record : (List<?>) records) {
+            String body = (String) ((Map<?, ?>) record).get(BODY);
+            GitEventJob job = GitEventJob.fromJson(body);
+            logger.info(PROCESSING_JOB_MESSAGE, job);
+            try {
+                processor.process(job, job.getActionType());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            processed++;
+        }
+        return processed;
+    }
+
+    private int drainQueue(GitEventProcessor processor, Context context) throws IOException {
+        int processed = 0;
+        List<QueuedJob> jobs = workQueue.receive(RECEIVE_BATCH_SIZE);
+        while (!jobs.isEmpty()) {
+            for (List<QueuedJob> branchJobs : jobsPerBranch(jobs).values()) {
+                if (processLatestJob(processor, branchJobs)) {
+                    processed += branchJobs.size();
+                }
+            }
+            jobs = hasTimeForMoreJobs(context) ? workQueue.receive(RECEIVE_BATCH_SIZE) : Collections.emptyList();
+        }
+        return processed;
+    }
+
+    private Map<String, List<QueuedJob>> jobsPerBranch(List<QueuedJob> jobs) {
+        Map<String, List<QueuedJob>> jobsPerBranch = new LinkedHashMap<>();
+        for (QueuedJob job : jobs) {
+            jobsPerBranch.computeIfAbsent(BranchActionCoalescer.branchKey(job.getJob()), key -> new ArrayList<>())
+                .add(job);
+        }
+        return jobsPerBranch;
+    }
+
+    /**
+     * Processes only the latest of the received jobs of a branch, as it determines the final state of the stacks,
+     * and acknowledges the superseded jobs together with it.
+     */
+    private boolean processLatestJob(GitEventProcessor processor, List<QueuedJob> branchJobs) throws IOException {
+        QueuedJob latest = branchJobs.get(branchJobs.size() - 1);
+        if (!processQueuedJob(processor, latest)) {
+            return false;
+        }
+        for (QueuedJob superseded : branchJobs.subList(0, branchJobs.size() - 1)) {
+            logger.info(SUPERSEDED_JOB_MESSAGE, superseded.getJob());
+            workQueue.acknowledge(superseded);
+        }
+        return true;
+    }
+
+    private boolean processQueuedJob(GitEventProcessor processor, QueuedJob queuedJob) throws IOException {
+        GitEventJob job = queuedJob.getJob();
+        logger.info(PROCESSING_JOB_MESSAGE, job);
+        try {
+            processor.process(job, job.getActionType());
+        } catch (Exception e) {
+            logger.error(FAILED_JOB_MESSAGE, job, e);
+            return false;
+        }
+        workQueue.acknowledge(queuedJob);
+        return true;
+    }
+
+    private boolean hasTimeForMoreJobs(Context context) {
+        return context == null || context.getRemainingTimeInMillis() > MIN_REMAINING_TIME_MILLIS;
+    }
+
+    private static GitEventProcessor newGitEventProcessor(Environment environment) {
+        Region region = Region.getRegion(Regions.fromName(environment.readEnv(AWS_REGION)));
+        AwsClientRegistry clients = AwsClientRegistry.getInstance();
+        return new GitEventProcessor(environment,
+            clients.get(AmazonCloudFormation.class),
+            clients.get(AmazonS3.class),
+            clients.get(AWSLambda.class),
+            clients.get(AWSLogs.class),
+            clients.get(AmazonIdentityManagement.class),
+            CachingGithubReader.fromEnvironment(environment),
+            new CachingSecretsReader(new AwsSecretsReader(
+                environment.readEnv(READ_FROM_GITHUB_SECRET_NAME),
+                environment.readEnv(READ_FROM_GITHUB_SECRET_KEY),
+                region)));
+    }
+}
@@ -19,4 +19,11 @@ public interface CreateStackRole {
     AttachRolePolicyRequest createNewAttachPolicyRequest(String policyArn, String roleName);
 
     String createRole() throws Exception;
+
+    /**
+     * Replaces the inline policy of an already existing create-stack role with the current policy document.
+     *
+     * @throws Exception when the policy document cannot be read or the policy cannot be updated
+     */
+    void updateRolePolicy() throws Exception;
 }
@@ -11,10 +11,11 @@ import com.amazonaws.services.identitymanagement.model.Tag;
 import java.io.IOException;
 import java.nio.file.Paths;
 import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
-import no.bibsys.aws.tools.IoUtils;
 import no.bibsys.aws.utils.github.GithubReader;
 import no.bibsys.aws.utils.github.NotFoundException;
 import no.bibsys.aws.utils.github.UnauthorizedException;
+import no.bibsys.aws.utils.templates.TemplateRegistry;
+import no.bibsys.aws.utils.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,15 +24,16 @@ public class CreateStackRoleImpl implements CreateStackRole {
     protected static final String MISSING_CONFIGURATION_EXCEPTION_MESSAGE =
         "Missing configuration exception. Probably due to missing role policy document file.";
     private static final Logger logger = LoggerFactory.getLogger(CreateStackRoleImpl.class);
-    private static final String TEMPLATES_DIRECTORY = "templates";
-    private static final String CREATE_STACK_ROLE_ASSUME_POLICY_JSON = "createStackRoleAssumePolicy.json";
     private static final String CREATE_STACK_ROLE_POLICY_DOCUMENT_JSON = "createStackRolePolicyDocument.json";
     private static final String CREATE_STACK_ROLE_DESCRIPTION = "Role that allows creation of resources in a deployed"
         + " service";
     private static final String CREATE_ROLE_SUCCESS_MESSAGE = "Created role with roleName {}";
+    private static final String UPDATE_ROLE_POLICY_SUCCESS_MESSAGE = "Updated policy of role with roleName {}";
+    private static final String WAIT_FOR_ROLE_SPAN = "waitForRole";
     private final transient GithubReader githubReader;
     private final transient PipelineStackConfiguration pipelineStackConfiguration;
     private final transient AmazonIdentityManagement amazonIdentityManagement;
+    private transient Tracer tracer;
 
     public CreateStackRoleImpl(GithubReader githubReader,
         PipelineStackConfiguration pipelineStackConfiguration,
@@ -41,6 +43,17 @@ public class CreateStackRoleImpl implements CreateStackRole {
         this.amazonIdentityManagement = amazonIdentityManagement;
     }
 
+    /**
+     * Records the wait for the new role in a span of the trace.
+     *
+     * @param tracer the tracer of the stack action
+     * @return this role
+     */
+    public CreateStackRoleImpl setTracer(Tracer tracer) {
+        this.tracer = tracer;
+        return this;
+    }
+
     @Override
     public AttachRolePolicyRequest createNewAttachPolicyRequest(String policyArn, String roleName) {
         return new AttachRolePolicyRequest()
@@ -54,16 +67,26 @@ public class CreateStackRoleImpl implements CreateStackRole {
         PutRolePolicyRequest putRolePolicyRequest = createNewPutRolePolicyRequest();
 
         Role role = amazonIdentityManagement.createRole(createRoleRequest).getRole();
-        waitForRole();
+        if (tracer == null) {
+            waitForRole();
+        } else {
+            tracer.run(WAIT_FOR_ROLE_SPAN, this::waitForRole);
+        }
         amazonIdentityManagement.putRolePolicy(putRolePolicyRequest);
         logger.info(CREATE_ROLE_SUCCESS_MESSAGE, role.getRoleName());
         return role.getRoleName();
     }
 
+    @Override
+    public void updateRolePolicy() throws Exception {
+        amazonIdentityManagement.putRolePolicy(createNewPutRolePolicyRequest());
+        logger.info(UPDATE_ROLE_POLICY_SUCCESS_MESSAGE, pipelineStackConfiguration.getCreateStackRoleName());
+    }
+
     @Override
     public CreateRoleRequest createNewCreateRoleRequest() throws IOException {
-        String assumeRolePolicy = IoUtils.resourceAsString(
-            Paths.get(TEMPLATES_DIRECTORY, CREATE_STACK_ROLE_ASSUME_POLICY_JSON));
+        String assumeRolePolicy = TemplateRegistry.getInstance()
+            .get(TemplateRegistry.CREATE_STACK_ROLE_ASSUME_POLICY).text();
         Tag projectIdTag = new Tag()
             .withKey(PipelineStackConfiguration.TAG_KEY_PROJECT_ID)
             .withValue(pipelineStackConfiguration.getProjectId());
@@ -77,6 +100,7 @@ public class CreateStackRoleImpl implements CreateStackRole {
         return new CreateRoleRequest()
             .withAssumeRolePolicyDocument(assumeRolePolicy)
             .withRoleName(this.pipelineStackConfiguration.getCreateStackRoleName())
+            .withPath(this.pipelineStackConfiguration.getCreateStackRolePath())
             .withDescription(CREATE_STACK_ROLE_DESCRIPTION)
             .withTags(projectIdTag, branch, role);
     }
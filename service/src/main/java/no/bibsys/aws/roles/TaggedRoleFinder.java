@@ -0,0 +1,228 @@
+package no.bibsys.aws.roles;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.model.ListRoleTagsRequest;
+import com.amazonaws.services.identitymanagement.model.ListRoleTagsResult;
+import com.amazonaws.services.identitymanagement.model.ListRolesRequest;
+import com.amazonaws.services.identitymanagement.model.ListRolesResult;
+import com.amazonaws.services.identitymanagement.model.NoSuchEntityException;
+import com.amazonaws.services.identitymanagement.model.Role;
+import com.amazonaws.services.identitymanagement.model.Tag;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds IAM roles by path prefix and tags. All pages of {@code ListRoles} are read, so that no role is missed in large
+ * accounts. The tags of the candidate roles are checked concurrently by a bounded number of threads, and throttled
+ * {@code ListRoleTags} calls are retried with exponential backoff and jitter.
+ */
+public class TaggedRoleFinder {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_MAX_ATTEMPTS = 6;
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 200;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+
+    private static final Logger logger = LoggerFactory.getLogger(TaggedRoleFinder.class);
+    private static final String THROTTLING_ERROR_CODE = "Throttling";
+    private static final String INVALID_SETTINGS_MESSAGE = "Parallelism, attempts and delays should be positive";
+    private static final String LISTED_ROLES_MESSAGE = "Found {} candidate roles under path {}";
+    private static final String THROTTLED_MESSAGE = "Listing tags of role {} was throttled, attempt {}";
+    private static final String DELETED_ROLE_MESSAGE = "Role {} was deleted while its tags were read";
+
+    private final transient AmazonIdentityManagement amazonIdentityManagement;
+    private final transient int parallelism;
+    private final transient int maxAttempts;
+    private final transient long initialDelayMillis;
+    private final transient long maxDelayMillis;
+    private transient Map<String, List<Role>> listedRoles;
+
+    public TaggedRoleFinder(AmazonIdentityManagement amazonIdentityManagement) {
+        this(amazonIdentityManagement, DEFAULT_PARALLELISM, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_DELAY_MILLIS,
+            DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public TaggedRoleFinder(AmazonIdentityManagement amazonIdentityManagement, int parallelism, int maxAttempts,
+        long initialDelayMillis, long maxDelayMillis) {
+        Preconditions.checkArgument(parallelism > 0 && maxAttempts > 0 && initialDelayMillis > 0
+            && maxDelayMillis > 0, INVALID_SETTINGS_MESSAGE);
+        this.amazonIdentityManagement = amazonIdentityManagement;
+        this.parallelism = parallelism;
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Makes the finder list the roles under each path prefix only once and reuse the listing, e.g. for a batch of
+     * pipelines that all search the root path. Roles created or deleted after the listing are not seen, so a caching
+     * finder should only live as long as the batch.
+     *
+     * @return this finder
+     */
+    public TaggedRoleFinder cacheListings() {
+        this.listedRoles = new ConcurrentHashMap<>();
+        return this;
+    }
+
+    /**
+     * Returns the roles under the path prefix that have all the expected tags.
+     *
+     * @param pathPrefix the IAM path prefix, e.g. "/pipeline/project/branch/"
+     * @param expectedTags the tags a role should have
+     * @return the matching roles
+     */
+    public List<Role> findRoles(String pathPrefix, Set<Tag> expectedTags) {
+        return findRoles(pathPrefix, role -> true, expectedTags);
+    }
+
+    /**
+     * Returns the roles under the path prefix that are accepted by the filter and have all the expected tags. The
+     * filter is applied before the tags are read, so it saves one IAM call per rejected role.
+     *
+     * @param pathPrefix the IAM path prefix
+     * @param filter filter on the listed roles
+     * @param expectedTags the tags a role should have
+     * @return the matching roles
+     */
+    public List<Role> findRoles(String pathPrefix, Predicate<Role> filter, Set<Tag> expectedTags) {
+        List<Role> candidates = listRoles(pathPrefix).stream().filter(filter).collect(Collectors.toList());
+        logger.debug(LISTED_ROLES_MESSAGE, candidates.size(), pathPrefix);
+        if (candidates.size() <= 1) {
+            return candidates.stream().filter(role -> hasTags(role, expectedTags)).collect(Collectors.toList());
+        }
+        return filterConcurrently(candidates, expectedTags);
+    }
+
+    /**
+     * Lists all roles under the path prefix, following the pagination markers of {@code ListRoles}.
+     *
+     * @param pathPrefix the IAM path prefix
+     * @return all roles under the prefix
+     */
+    public List<Role> listRoles(String pathPrefix) {
+        if (listedRoles != null) {
+            return listedRoles.computeIfAbsent(pathPrefix,
+                prefix -> Collections.unmodifiableList(listAllRoles(prefix)));
+        }
+        return listAllRoles(pathPrefix);
+    }
+
+    private List<Role> listAllRoles(String pathPrefix) {
+        List<Role> roles = new ArrayList<>();
+        ListRolesRequest request = new ListRolesRequest().withPathPrefix(pathPrefix);
+        ListRolesResult result;
+        do {
+            result = amazonIdentityManagement.listRoles(request);
+            roles.addAll(result.getRoles());
+            request.setMarker(result.getMarker());
+        } while (Boolean.TRUE.equals(result.getIsTruncated()));
+        return roles;
+    }
+
+    /**
+     * Checks whether a role has all the expected tags. A role that no longer exists has no tags.
+     *
+     * @param role the role
+     * @param expectedTags the tags the role should have
+     * @return true if the role has all the expected tags
+     */
+    public boolean hasTags(Role role, Set<Tag> expectedTags) {
+        try {
+            return listTags(role).containsAll(expectedTags);
+        } catch (NoSuchEntityException e) {
+            logger.warn(DELETED_ROLE_MESSAGE, role.getRoleName());
+            return false;
+        }
+    }
+
+    private List<Role> filterConcurrently(List<Role> candidates, Set<Tag> expectedTags) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, candidates.size()));
+        try {
+            List<CompletableFuture<Boolean>> checks = candidates.stream()
+                .map(role -> CompletableFuture.supplyAsync(() -> hasTags(role, expectedTags), executor))
+                .collect(Collectors.toList());
+            List<Role> matching = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                if (checks.get(i).join()) {
+                    matching.add(candidates.get(i));
+                }
+            }
+            return matching;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists all tags of a role, following the pagination markers of {@code ListRoleTags} and retrying throttled
+     * requests.
+     *
+     * @param role the role
+     * @return the tags of the role
+     */
+    public Collection<Tag> listTags(Role role) {
+        Set<Tag> tags = new HashSet<>();
+        ListRoleTagsRequest request = new ListRoleTagsRequest().withRoleName(role.getRoleName());
+        ListRoleTagsResult result;
+        do {
+            result = listTagsWithRetries(role, request);
+            tags.addAll(result.getTags());
+            request.setMarker(result.getMarker());
+        } while (Boolean.TRUE.equals(result.getIsTruncated()));
+        return tags;
+    }
+
+    private ListRoleTagsResult listTagsWithRetries(Role role, ListRoleTagsRequest request) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return amazonIdentityManagement.listRoleTags(request);
+            } catch (AmazonServiceException e) {
+                if (!THROTTLING_ERROR_CODE.equals(e.getErrorCode()) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.warn(THROTTLED_MESSAGE, role.getRoleName(), attempt);
+                sleep(nextDelay(attempt));
+            }
+        }
+    }
+
+    private long nextDelay(int attempt) {
+        long exponential = initialDelayMillis << Math.min(attempt - 1,
+            Long.numberOfLeadingZeros(initialDelayMillis) - 1);
+        long delay = Math.min(maxDelayMillis, exponential);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
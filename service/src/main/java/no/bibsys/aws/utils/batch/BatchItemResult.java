@@ -0,0 +1,120 @@
+package no.bibsys.aws.utils.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import no.bibsys.aws.lambda.api.requests.UpdateStackRequest;
+
+/**
+ * The outcome of one request of a batch handled by a {@link BatchStackUpdater}.
+ */
+@JsonInclude(Include.NON_NULL)
+public class BatchItemResult {
+
+    public enum Status {
+        /**
+         * The stacks of the branch were created or deleted.
+         */
+        SUCCEEDED,
+        /**
+         * The action was queued, to be applied by the work queue worker.
+         */
+        ACCEPTED,
+        /**
+         * Applying the action failed.
+         */
+        FAILED,
+        /**
+         * A later request of the batch for the same branch replaced this one.
+         */
+        SUPERSEDED,
+        /**
+         * The request is incomplete or has an invalid action.
+         */
+        INVALID
+    }
+
+    private final transient int index;
+    private final transient String owner;
+    private final transient String repository;
+    private final transient String branch;
+    private final transient String action;
+    private final transient Status status;
+    private final transient String error;
+    private final transient Long durationMillis;
+
+    private BatchItemResult(int index, UpdateStackRequest request, String action, Status status, String error,
+        Long durationMillis) {
+        this.index = index;
+        this.owner = request.getOwner();
+        this.repository = request.getRepository();
+        this.branch = request.getBranch();
+        this.action = action;
+        this.status = status;
+        this.error = error;
+        this.durationMillis = durationMillis;
+    }
+
+    static BatchItemResult succeeded(int index, UpdateStackRequest request, String action, long durationMillis) {
+        return new BatchItemResult(index, request, action, Status.SUCCEEDED, null, durationMillis);
+    }
+
+    static BatchItemResult accepted(int index, UpdateStackRequest request, String action) {
+        return new BatchItemResult(index, request, action, Status.ACCEPTED, null, null);
+    }
+
+    static BatchItemResult failed(int index, UpdateStackRequest request, String action, String error,
+        long durationMillis) {
+        return new BatchItemResult(index, request, action, Status.FAILED, error, durationMillis);
+    }
+
+    static BatchItemResult superseded(int index, UpdateStackRequest request, String action, int supersedingIndex) {
+        return new BatchItemResult(index, request, action, Status.SUPERSEDED,
+            String.format("Replaced by request %d", supersedingIndex), null);
+    }
+
+    static BatchItemResult invalid(int index, UpdateStackRequest request, String error) {
+        return new BatchItemResult(index, request, null, Status.INVALID, error, null);
+    }
+
+    /**
+     * The position of the request in the batch, starting from 0.
+     *
+     * @return the index of the request
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d: %s %s/%s:%s %s", index, action, owner, repository, branch, status);
+    }
+}
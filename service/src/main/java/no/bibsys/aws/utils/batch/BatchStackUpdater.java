@@ -0,0 +1,149 @@
+package no.bibsys.aws.utils.batch;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import no.bibsys.aws.lambda.api.requests.UpdateStackRequest;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.utils.coalescing.BranchActionCoalescer;
+import no.bibsys.aws.utils.fleet.BranchActionExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates or deletes the stacks of many branches in one call. Requests for the same branch are deduplicated so that
+ * only the last one is applied, since it determines the final state of the stacks. The remaining requests run with
+ * bounded parallelism, and the result of each request is passed to a listener as soon as it is known, so that the
+ * caller can stream the results. With an executor that only queues the actions, the requests are reported as
+ * accepted instead of succeeded.
+ */
+public class BatchStackUpdater {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int MAX_PARALLELISM = 8;
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchStackUpdater.class);
+    private static final String INVALID_PARALLELISM_MESSAGE = "Parallelism should be between 1 and "
+        + MAX_PARALLELISM;
+    private static final String BATCH_TOO_LARGE_MESSAGE = "A batch may contain at most " + MAX_BATCH_SIZE
+        + " requests";
+    private static final String MISSING_FIELDS_MESSAGE = "\"owner\", \"repository\" and \"branch\" are required";
+    private static final String FAILED_REQUEST_MESSAGE = "Batch request {} failed";
+    private static final String BATCH_DONE_MESSAGE = "Processed batch of {} requests, {} applied";
+
+    private final transient BranchActionExecutor executor;
+    private final transient int parallelism;
+    private transient boolean queued;
+
+    public BatchStackUpdater(BranchActionExecutor executor) {
+        this(executor, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor creates or deletes the stacks of a branch
+     * @param parallelism the maximum number of requests that are applied at the same time
+     */
+    public BatchStackUpdater(BranchActionExecutor executor, int parallelism) {
+        Preconditions.checkArgument(parallelism > 0 && parallelism <= MAX_PARALLELISM, INVALID_PARALLELISM_MESSAGE);
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Makes the updater report the requests that were passed to the executor as accepted, for an executor that only
+     * queues the actions.
+     *
+     * @param queued whether the executor queues the actions
+     * @return this updater
+     */
+    public BatchStackUpdater setQueued(boolean queued) {
+        this.queued = queued;
+        return this;
+    }
+
+    /**
+     * Applies the requests of a batch.
+     *
+     * @param requests the requests
+     * @param listener receives the result of each request when it is known; it is called by one thread at a time
+     * @return the results in the order of the requests
+     */
+    public List<BatchItemResult> apply(List<UpdateStackRequest> requests, Consumer<BatchItemResult> listener) {
+        Preconditions.checkArgument(requests.size() <= MAX_BATCH_SIZE, BATCH_TOO_LARGE_MESSAGE);
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        Consumer<BatchItemResult> recorder = result -> {
+            synchronized (results) {
+                results[result.getIndex()] = result;
+                listener.accept(result);
+            }
+        };
+
+        Map<String, Integer> latestByBranch = new LinkedHashMap<>();
+        for (int index = 0; index < requests.size(); index++) {
+            UpdateStackRequest request = requests.get(index) == null ? new UpdateStackRequest() : requests.get(index);
+            String error = validate(request);
+            if (error != null) {
+                recorder.accept(BatchItemResult.invalid(index, request, error));
+                continue;
+            }
+            Integer previous = latestByBranch.put(BranchActionCoalescer.branchKey(request), index);
+            if (previous != null) {
+                UpdateStackRequest superseded = requests.get(previous);
+                recorder.accept(BatchItemResult.superseded(previous, superseded, superseded.getAction(), index));
+            }
+        }
+
+        List<Integer> toApply = new ArrayList<>(latestByBranch.values());
+        if (!toApply.isEmpty()) {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, toApply.size()));
+            try {
+                CompletableFuture.allOf(toApply.stream()
+                    .map(index -> CompletableFuture.runAsync(
+                        () -> recorder.accept(apply(index, requests.get(index))), pool))
+                    .toArray(CompletableFuture<?>[]::new))
+                    .join();
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        logger.info(BATCH_DONE_MESSAGE, requests.size(), toApply.size());
+        return Arrays.asList(results);
+    }
+
+    private BatchItemResult apply(int index, UpdateStackRequest request) {
+        long start = System.currentTimeMillis();
+        try {
+            executor.apply(request, Action.fromString(request.getAction()));
+            if (queued) {
+                return BatchItemResult.accepted(index, request, request.getAction());
+            }
+            return BatchItemResult.succeeded(index, request, request.getAction(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error(FAILED_REQUEST_MESSAGE, index, e);
+            return BatchItemResult.failed(index, request, request.getAction(), e.getMessage(),
+                System.currentTimeMillis() - start);
+        }
+    }
+
+    private String validate(UpdateStackRequest request) {
+        if (request.getOwner() == null || request.getRepository() == null || request.getBranch() == null) {
+            return MISSING_FIELDS_MESSAGE;
+        }
+        try {
+            request.getAction();
+            return null;
+        } catch (NullPointerException | IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+}
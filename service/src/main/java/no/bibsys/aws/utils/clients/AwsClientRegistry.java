@@ -0,0 +1,199 @@
+package no.bibsys.aws.utils.clients;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.client.builder.AwsSyncClientBuilder;
+import com.amazonaws.regions.DefaultAwsRegionProviderChain;
+import com.amazonaws.services.apigateway.AmazonApiGateway;
+import com.amazonaws.services.apigateway.AmazonApiGatewayClientBuilder;
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.logs.AWSLogsClientBuilder;
+import com.amazonaws.services.route53.AmazonRoute53;
+import com.amazonaws.services.route53.AmazonRoute53ClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.google.common.base.Preconditions;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import no.bibsys.aws.utils.metrics.AwsMetricsHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide registry of AWS clients. Clients are created lazily, once per client type and region, and reused by
+ * all handlers running in the same JVM, so that warm Lambda invocations reuse connections and resolved credentials.
+ * The default clients record their calls with an {@link AwsMetricsHandler}.
+ * <p>
+ * Tests can replace the client of a type with {@link #override(Class, Object)} and restore the registry with
+ * {@link #reset()}.
+ * </p>
+ */
+public final class AwsClientRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AwsClientRegistry.class);
+    private static final AwsClientRegistry INSTANCE = new AwsClientRegistry();
+    private static final String UNKNOWN_CLIENT_MESSAGE = "No factory registered for client %s";
+    private static final String CREATED_CLIENT_MESSAGE = "Created client {} for region {}";
+
+    private final transient Map<Class<?>, Function<String, ?>> factories = new ConcurrentHashMap<>();
+    private final transient Map<ClientKey, Object> clients = new ConcurrentHashMap<>();
+    private final transient Map<Class<?>, Object> overrides = new ConcurrentHashMap<>();
+    private transient volatile String defaultRegion;
+
+    private AwsClientRegistry() {
+        registerDefaultFactories();
+    }
+
+    public static AwsClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the client of the given type for the default region of the environment.
+     *
+     * @param clientType the client interface, e.g. {@code AmazonCloudFormation.class}
+     * @param <T> the client interface
+     * @return the shared client
+     */
+    public <T> T get(Class<T> clientType) {
+        return get(clientType, defaultRegion());
+    }
+
+    /**
+     * Returns the client of the given type for the given region, creating it on first use.
+     *
+     * @param clientType the client interface, e.g. {@code AmazonCloudFormation.class}
+     * @param region the region name, e.g. "eu-west-1"
+     * @param <T> the client interface
+     * @return the shared client
+     */
+    public <T> T get(Class<T> clientType, String region) {
+        Object override = overrides.get(clientType);
+        if (override != null) {
+            return clientType.cast(override);
+        }
+        Object client = clients.computeIfAbsent(new ClientKey(clientType, region), this::createClient);
+        return clientType.cast(client);
+    }
+
+    /**
+     * Registers the factory used for creating clients of the given type. Clients that have already been created are
+     * not affected.
+     *
+     * @param clientType the client interface
+     * @param factory function from a region name to a new client
+     * @param <T> the client interface
+     * @return this registry
+     */
+    public <T> AwsClientRegistry registerFactory(Class<T> clientType, Function<String, T> factory) {
+        factories.put(clientType, factory);
+        return this;
+    }
+
+    /**
+     * Makes the registry return the given client for all regions. Intended for tests.
+     *
+     * @param clientType the client interface
+     * @param client the client to return
+     * @param <T> the client interface
+     * @return this registry
+     */
+    public <T> AwsClientRegistry override(Class<T> clientType, T client) {
+        overrides.put(clientType, client);
+        return this;
+    }
+
+    /**
+     * Removes all overrides, custom factories and created clients.
+     */
+    public void reset() {
+        overrides.clear();
+        clients.values().forEach(this::shutdown);
+        clients.clear();
+        factories.clear();
+        registerDefaultFactories();
+    }
+
+    private Object createClient(ClientKey key) {
+        Function<String, ?> factory = factories.get(key.clientType);
+        Preconditions.checkArgument(factory != null, String.format(UNKNOWN_CLIENT_MESSAGE, key.clientType));
+        logger.debug(CREATED_CLIENT_MESSAGE, key.clientType.getSimpleName(), key.region);
+        return factory.apply(key.region);
+    }
+
+    private String defaultRegion() {
+        if (defaultRegion == null) {
+            defaultRegion = new DefaultAwsRegionProviderChain().getRegion();
+        }
+        return defaultRegion;
+    }
+
+    private void shutdown(Object client) {
+        if (client instanceof AmazonWebServiceClient) {
+            ((AmazonWebServiceClient) client).shutdown();
+        }
+    }
+
+    private void registerDefaultFactories() {
+        registerFactory(AmazonCloudFormation.class,
+            region -> build(AmazonCloudFormationClientBuilder.standard(), region));
+        registerFactory(AmazonS3.class,
+            region -> build(AmazonS3ClientBuilder.standard(), region));
+        registerFactory(AWSLambda.class,
+            region -> build(AWSLambdaClientBuilder.standard(), region));
+        registerFactory(AWSLogs.class,
+            region -> build(AWSLogsClientBuilder.standard(), region));
+        registerFactory(AmazonIdentityManagement.class,
+            region -> build(AmazonIdentityManagementClientBuilder.standard(), region));
+        registerFactory(AmazonApiGateway.class,
+            region -> build(AmazonApiGatewayClientBuilder.standard(), region));
+        registerFactory(AmazonRoute53.class,
+            region -> build(AmazonRoute53ClientBuilder.standard(), region));
+        registerFactory(AmazonDynamoDB.class,
+            region -> build(AmazonDynamoDBClientBuilder.standard(), region));
+        registerFactory(AmazonSQS.class,
+            region -> build(AmazonSQSClientBuilder.standard(), region));
+    }
+
+    private static <B extends AwsSyncClientBuilder<B, T>, T> T build(B builder, String region) {
+        return builder.withRegion(region).withRequestHandlers(new AwsMetricsHandler()).build();
+    }
+
+    private static class ClientKey {
+
+        private final transient Class<?> clientType;
+        private final transient String region;
+
+        ClientKey(Class<?> clientType, String region) {
+            this.clientType = clientType;
+            this.region = region;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            ClientKey other = (ClientKey) o;
+            return clientType.equals(other.clientType) && region.equals(other.region);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * clientType.hashCode() + region.hashCode();
+        }
+    }
+}
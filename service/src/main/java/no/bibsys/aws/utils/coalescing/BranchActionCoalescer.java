@@ -0,0 +1,136 @@
+package no.bibsys.aws.utils.coalescing;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import no.bibsys.aws.cloudformation.BranchNames;
+import no.bibsys.aws.cloudformation.NamingRegistry;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializes the stack actions of each branch and collapses the actions that arrive while an action is running.
+ * <p>
+ * Branches are identified by the owner of the repository and the project id and normalized branch name of
+ * {@link BranchNames}, which are the parts of the stack names. The first caller for a branch runs its action on its
+ * own thread. Callers that arrive while the branch is busy only record their event and action and return; when the
+ * running action finishes, the running thread applies the latest recorded action with its event, unless it is the
+ * action that has just been applied successfully. So a close and reopen that arrive during a running create result in
+ * no further action once the create succeeds, instead of a delete and a create.
+ * </p>
+ */
+public class BranchActionCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BranchActionCoalescer.class);
+    private static final BranchActionCoalescer INSTANCE = new BranchActionCoalescer();
+    private static final String COALESCED_MESSAGE = "Branch {} is busy. Action {} will run when it is done";
+    private static final String SUPERSEDED_FAILURE_MESSAGE = "Action {} on branch {} failed and has been superseded";
+
+    private final transient Map<String, BranchState> branches = new ConcurrentHashMap<>();
+
+    public static BranchActionCoalescer getInstance() {
+        return INSTANCE;
+    }
+
+    public static String branchKey(GitEvent event) {
+        BranchNames names = NamingRegistry.getInstance().names(event.getRepository(), event.getBranch());
+        String owner = event.getOwner() == null ? null : event.getOwner().toLowerCase(Locale.ROOT);
+        return String.join("-", owner, names.getProjectId(), names.getNormalizedBranchName());
+    }
+
+    /**
+     * Runs the action for the branch of the event, or records it for the thread that is already working on the
+     * branch.
+     *
+     * @param event the event identifying the branch
+     * @param action the desired action
+     * @param runner runs an action with the event that requested it
+     * @return {@link Outcome#APPLIED} if the action ran on this thread, {@link Outcome#COALESCED} if it was handed
+     *     over to the thread working on the branch
+     * @throws Exception the failure of the last action run by this thread
+     */
+    public Outcome submit(GitEvent event, Action action, ActionRunner runner) throws Exception {
+        String branchKey = branchKey(event);
+        while (true) {
+            BranchState state = branches.computeIfAbsent(branchKey, key -> new BranchState());
+            synchronized (state) {
+                if (state.removed) {
+                    // the state was removed after it was looked up
+                    continue;
+                }
+                if (state.running) {
+                    logger.info(COALESCED_MESSAGE, branchKey, action);
+                    state.pending = new PendingAction(event, action);
+                    return Outcome.COALESCED;
+                }
+                state.running = true;
+            }
+            runActions(branchKey, state, new PendingAction(event, action), runner);
+            return Outcome.APPLIED;
+        }
+    }
+
+    private void runActions(String branchKey, BranchState state, PendingAction firstAction, ActionRunner runner)
+        throws Exception {
+        PendingAction current = firstAction;
+        while (current != null) {
+            Exception failure = null;
+            try {
+                runner.run(current.event, current.action);
+            } catch (Exception e) {
+                failure = e;
+            }
+            PendingAction next;
+            synchronized (state) {
+                next = state.pending;
+                state.pending = null;
+                if (next != null && failure == null && next.action.equals(current.action)) {
+                    next = null;
+                }
+                if (next == null) {
+                    state.running = false;
+                    state.removed = true;
+                    branches.remove(branchKey, state);
+                }
+            }
+            if (failure != null && next == null) {
+                throw failure;
+            } else if (failure != null) {
+                logger.warn(SUPERSEDED_FAILURE_MESSAGE, current.action, branchKey, failure);
+            }
+            current = next;
+        }
+    }
+
+    public enum Outcome {
+        APPLIED, COALESCED
+    }
+
+    /**
+     * Runs a stack action for a branch.
+     */
+    public interface ActionRunner {
+
+        void run(GitEvent event, Action action) throws Exception;
+    }
+
+    private static class BranchState {
+
+        private transient boolean running;
+        private transient PendingAction pending;
+        private transient boolean removed;
+    }
+
+    private static class PendingAction {
+
+        private final transient GitEvent event;
+        private final transient Action action;
+
+        PendingAction(GitEvent event, Action action) {
+            this.event = event;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package no.bibsys.aws.utils.deliveries;
+
+import java.util.concurrent.Callable;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes each webhook delivery at most once. A delivery is identified by the delivery id that Github sends in
+ * the {@value #DELIVERY_HEADER} header together with the repository, branch and action of the event, so that a
+ * retried delivery returns the result of the original instead of repeating the stack operations.
+ * <p>
+ * The stores keep a claim for {@value #DEFAULT_CLAIM_LEASE_MILLIS} milliseconds by default, so that after a crash a
+ * redelivery is processed soon. Completing a delivery keeps its result for {@value #DEFAULT_TTL_MILLIS} milliseconds.
+ * </p>
+ */
+public class DeliveryDeduplicator {
+
+    public static final String DELIVERY_HEADER = "X-GitHub-Delivery";
+    public static final String IN_PROGRESS_MESSAGE = "Delivery %s is already being processed";
+    public static final long DEFAULT_TTL_MILLIS = 24 * 60 * 60 * 1000;
+    public static final long DEFAULT_CLAIM_LEASE_MILLIS = 2 * 60 * 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryDeduplicator.class);
+    private static final String DUPLICATE_DELIVERY_MESSAGE = "Duplicate delivery {}";
+
+    private final transient DeliveryStore deliveryStore;
+
+    public DeliveryDeduplicator(DeliveryStore deliveryStore) {
+        this.deliveryStore = deliveryStore;
+    }
+
+    /**
+     * Runs the work of a delivery unless the same delivery has been claimed before.
+     *
+     * @param deliveryId the Github delivery id
+     * @param event the event of the delivery
+     * @param action the action of the event
+     * @param work the processing of the delivery
+     * @return the result of the work, or of the original delivery for a duplicate
+     * @throws Exception when the work fails. The claim is then released so that a redelivery is processed.
+     */
+    public String process(String deliveryId, GitEvent event, String action, Callable<String> work)
+        throws Exception {
+        String deliveryKey = deliveryKey(deliveryId, event, action);
+        if (!deliveryStore.claim(deliveryKey)) {
+            logger.info(DUPLICATE_DELIVERY_MESSAGE, deliveryKey);
+            return deliveryStore.findResult(deliveryKey)
+                .orElse(String.format(IN_PROGRESS_MESSAGE, deliveryId));
+        }
+        try {
+            String result = work.call();
+            deliveryStore.complete(deliveryKey, result);
+            return result;
+        } catch (Exception e) {
+            deliveryStore.release(deliveryKey);
+            throw e;
+        }
+    }
+
+    public static String deliveryKey(String deliveryId, GitEvent event, String action) {
+        return String.join("/", deliveryId, event.getOwner(), event.getRepository(), event.getBranch(), action);
+    }
+}
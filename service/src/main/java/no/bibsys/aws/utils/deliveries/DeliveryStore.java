@@ -0,0 +1,46 @@
+package no.bibsys.aws.utils.deliveries;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Records which webhook deliveries have been processed, and their results. Records expire after a
+ * time-to-live set by the implementation.
+ */
+public interface DeliveryStore {
+
+    /**
+     * Claims a delivery for processing.
+     *
+     * @param deliveryKey the key of the delivery
+     * @return true if the delivery had not been claimed before, false for a duplicate delivery
+     * @throws IOException when the store cannot be reached
+     */
+    boolean claim(String deliveryKey) throws IOException;
+
+    /**
+     * Stores the result of a claimed delivery, to be returned for duplicates of the delivery.
+     *
+     * @param deliveryKey the key of the delivery
+     * @param result the result of processing the delivery
+     * @throws IOException when the store cannot be reached
+     */
+    void complete(String deliveryKey, String result) throws IOException;
+
+    /**
+     * Returns the stored result of a delivery.
+     *
+     * @param deliveryKey the key of the delivery
+     * @return the result, empty if the delivery is unknown or still being processed
+     * @throws IOException when the store cannot be reached
+     */
+    Optional<String> findResult(String deliveryKey) throws IOException;
+
+    /**
+     * Removes the claim of a delivery whose processing failed, so that a redelivery is processed again.
+     *
+     * @param deliveryKey the key of the delivery
+     * @throws IOException when the store cannot be reached
+     */
+    void release(String deliveryKey) throws IOException;
+}
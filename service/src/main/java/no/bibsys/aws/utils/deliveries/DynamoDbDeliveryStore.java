@@ -0,0 +1,148 @@
+package no.bibsys.aws.utils.deliveries;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A {@link DeliveryStore} backed by a DynamoDB table with the string hash key {@value #DELIVERY_KEY}. Claims are
+ * conditional writes, so that concurrent duplicates reaching different Lambda containers are detected. Items carry
+ * the epoch second attribute {@value #EXPIRES_AT}, which should be configured as the time-to-live attribute of the
+ * table; expired items that DynamoDB has not deleted yet are treated as absent. A claim expires after a short lease,
+ * so that a delivery whose processing was interrupted is processed again, and completing it extends the expiry to
+ * the time-to-live.
+ */
+public class DynamoDbDeliveryStore implements DeliveryStore {
+
+    public static final String DELIVERY_KEY = "DeliveryKey";
+    public static final String EXPIRES_AT = "ExpiresAt";
+    public static final String RESULT = "Result";
+
+    private static final String CLAIM_CONDITION = "attribute_not_exists(#key) OR #expiresAt <= :now";
+    private static final String COMPLETE_EXPRESSION = "SET #result = :result, #expiresAt = :expiresAt";
+    private static final String KEY_NAME = "#key";
+    private static final String EXPIRES_AT_NAME = "#expiresAt";
+    private static final String RESULT_NAME = "#result";
+    private static final String NOW_VALUE = ":now";
+    private static final String EXPIRES_AT_VALUE = ":expiresAt";
+    private static final String RESULT_VALUE = ":result";
+
+    private final transient AmazonDynamoDB dynamoDb;
+    private final transient String tableName;
+    private final transient long ttlMillis;
+    private final transient long leaseMillis;
+    private final transient Clock clock;
+
+    public DynamoDbDeliveryStore(AmazonDynamoDB dynamoDb, String tableName) {
+        this(dynamoDb, tableName, DeliveryDeduplicator.DEFAULT_TTL_MILLIS,
+            DeliveryDeduplicator.DEFAULT_CLAIM_LEASE_MILLIS, Clock.systemUTC());
+    }
+
+    public DynamoDbDeliveryStore(AmazonDynamoDB dynamoDb, String tableName, long ttlMillis, Clock clock) {
+        this(dynamoDb, tableName, ttlMillis, Math.min(ttlMillis, DeliveryDeduplicator.DEFAULT_CLAIM_LEASE_MILLIS),
+            clock);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dynamoDb the DynamoDB client
+     * @param tableName the name of the table
+     * @param ttlMillis how long the result of a completed delivery is kept
+     * @param leaseMillis how long a claim lasts before the delivery is completed
+     * @param clock the clock
+     */
+    public DynamoDbDeliveryStore(AmazonDynamoDB dynamoDb, String tableName, long ttlMillis, long leaseMillis,
+        Clock clock) {
+        this.dynamoDb = dynamoDb;
+        this.tableName = tableName;
+        this.ttlMillis = ttlMillis;
+        this.leaseMillis = leaseMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean claim(String deliveryKey) {
+        Map<String, AttributeValue> item = key(deliveryKey);
+        item.put(EXPIRES_AT, number(expiresAt(leaseMillis)));
+        Map<String, String> names = new HashMap<>();
+        names.put(KEY_NAME, DELIVERY_KEY);
+        names.put(EXPIRES_AT_NAME, EXPIRES_AT);
+        try {
+            dynamoDb.putItem(new PutItemRequest()
+                .withTableName(tableName)
+                .withItem(item)
+                .withConditionExpression(CLAIM_CONDITION)
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(Collections.singletonMap(NOW_VALUE, number(nowInSeconds()))));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void complete(String deliveryKey, String result) {
+        Map<String, String> names = new HashMap<>();
+        names.put(RESULT_NAME, RESULT);
+        names.put(EXPIRES_AT_NAME, EXPIRES_AT);
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(RESULT_VALUE, new AttributeValue().withS(result));
+        values.put(EXPIRES_AT_VALUE, number(expiresAt(ttlMillis)));
+        dynamoDb.updateItem(new UpdateItemRequest()
+            .withTableName(tableName)
+            .withKey(key(deliveryKey))
+            .withUpdateExpression(COMPLETE_EXPRESSION)
+            .withExpressionAttributeNames(names)
+            .withExpressionAttributeValues(values));
+    }
+
+    @Override
+    public Optional<String> findResult(String deliveryKey) {
+        Map<String, AttributeValue> item = dynamoDb.getItem(new GetItemRequest()
+            .withTableName(tableName)
+            .withKey(key(deliveryKey))
+            .withConsistentRead(true))
+            .getItem();
+        if (item == null || !item.containsKey(RESULT) || isExpired(item)) {
+            return Optional.empty();
+        }
+        return Optional.of(item.get(RESULT).getS());
+    }
+
+    @Override
+    public void release(String deliveryKey) {
+        dynamoDb.deleteItem(new DeleteItemRequest().withTableName(tableName).withKey(key(deliveryKey)));
+    }
+
+    private boolean isExpired(Map<String, AttributeValue> item) {
+        return item.containsKey(EXPIRES_AT) && Long.parseLong(item.get(EXPIRES_AT).getN()) <= nowInSeconds();
+    }
+
+    private Map<String, AttributeValue> key(String deliveryKey) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(DELIVERY_KEY, new AttributeValue().withS(deliveryKey));
+        return key;
+    }
+
+    private long expiresAt(long lifetimeMillis) {
+        return (clock.millis() + lifetimeMillis) / 1000;
+    }
+
+    private long nowInSeconds() {
+        return clock.millis() / 1000;
+    }
+
+    private static AttributeValue number(long value) {
+        return new AttributeValue().withN(Long.toString(value));
+    }
+}
@@ -0,0 +1,78 @@
+package no.bibsys.aws.utils.deliveries;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link DeliveryStore} kept in memory. It only detects duplicates that reach the same JVM, and is used in tests
+ * and when no DynamoDB table is configured.
+ */
+public class InMemoryDeliveryStore implements DeliveryStore {
+
+    private final transient Map<String, Delivery> deliveries = new ConcurrentHashMap<>();
+    private final transient long ttlMillis;
+    private final transient long leaseMillis;
+    private final transient Clock clock;
+
+    public InMemoryDeliveryStore() {
+        this(DeliveryDeduplicator.DEFAULT_TTL_MILLIS, Clock.systemUTC());
+    }
+
+    public InMemoryDeliveryStore(long ttlMillis, Clock clock) {
+        this(ttlMillis, Math.min(ttlMillis, DeliveryDeduplicator.DEFAULT_CLAIM_LEASE_MILLIS), clock);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ttlMillis how long the result of a completed delivery is kept
+     * @param leaseMillis how long a claim lasts before the delivery is completed, so that a delivery whose processing
+     *     was interrupted is processed again on redelivery
+     * @param clock the clock
+     */
+    public InMemoryDeliveryStore(long ttlMillis, long leaseMillis, Clock clock) {
+        this.ttlMillis = ttlMillis;
+        this.leaseMillis = leaseMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean claim(String deliveryKey) {
+        long now = clock.millis();
+        deliveries.values().removeIf(delivery -> delivery.expiresAt <= now);
+        Delivery claimed = new Delivery(null, now + leaseMillis);
+        return deliveries.putIfAbsent(deliveryKey, claimed) == null;
+    }
+
+    @Override
+    public void complete(String deliveryKey, String result) {
+        deliveries.put(deliveryKey, new Delivery(result, clock.millis() + ttlMillis));
+    }
+
+    @Override
+    public Optional<String> findResult(String deliveryKey) {
+        Delivery delivery = deliveries.get(deliveryKey);
+        if (delivery == null || delivery.expiresAt <= clock.millis()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(delivery.result);
+    }
+
+    @Override
+    public void release(String deliveryKey) {
+        deliveries.remove(deliveryKey);
+    }
+
+    private static class Delivery {
+
+        private final transient String result;
+        private final transient long expiresAt;
+
+        Delivery(String result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
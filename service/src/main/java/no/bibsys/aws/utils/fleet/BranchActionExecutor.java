@@ -0,0 +1,14 @@
+package no.bibsys.aws.utils.fleet;
+
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+
+/**
+ * Creates or deletes the pipeline of a branch, e.g. through the
+ * {@link no.bibsys.aws.lambda.api.handlers.GitEventProcessor} or by queueing a job.
+ */
+@FunctionalInterface
+public interface BranchActionExecutor {
+
+    void apply(GitEvent branch, Action action) throws Exception;
+}
@@ -0,0 +1,36 @@
+package no.bibsys.aws.utils.fleet;
+
+/**
+ * A create-stack role found in IAM. The project and normalized branch are read from the path of the role, the Github
+ * branch from its tags.
+ */
+public class ExistingCreateStackRole {
+
+    private final transient String roleName;
+    private final transient String projectId;
+    private final transient String normalizedBranchName;
+    private final transient String branch;
+
+    public ExistingCreateStackRole(String roleName, String projectId, String normalizedBranchName, String branch) {
+        this.roleName = roleName;
+        this.projectId = projectId;
+        this.normalizedBranchName = normalizedBranchName;
+        this.branch = branch;
+    }
+
+    public String getRoleName() {
+        return roleName;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public String projectBranchKey() {
+        return projectId + "/" + normalizedBranchName;
+    }
+}
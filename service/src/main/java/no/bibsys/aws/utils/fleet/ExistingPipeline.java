@@ -0,0 +1,66 @@
+package no.bibsys.aws.utils.fleet;
+
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import java.util.Arrays;
+import java.util.List;
+import no.bibsys.aws.cloudformation.BranchNames;
+import no.bibsys.aws.cloudformation.NamingRegistry;
+
+/**
+ * A pipeline stack found in CloudFormation, with the Github branch it was created for.
+ */
+public class ExistingPipeline {
+
+    private static final List<String> BROKEN_STATUSES = Arrays.asList(
+        StackStatus.CREATE_FAILED.toString(),
+        StackStatus.ROLLBACK_COMPLETE.toString(),
+        StackStatus.ROLLBACK_FAILED.toString(),
+        StackStatus.DELETE_FAILED.toString());
+
+    private final transient RepositoryRef repository;
+    private final transient String branch;
+    private final transient String stackName;
+    private final transient String stackStatus;
+
+    public ExistingPipeline(RepositoryRef repository, String branch, String stackName, String stackStatus) {
+        this.repository = repository;
+        this.branch = branch;
+        this.stackName = stackName;
+        this.stackStatus = stackStatus;
+    }
+
+    public RepositoryRef getRepository() {
+        return repository;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public String getStackName() {
+        return stackName;
+    }
+
+    public String getStackStatus() {
+        return stackStatus;
+    }
+
+    /**
+     * Whether the stack is in a state that cannot be updated and has to be recreated.
+     *
+     * @return true if the creation of the stack failed or was rolled back
+     */
+    public boolean isBroken() {
+        return BROKEN_STATUSES.contains(stackStatus);
+    }
+
+    /**
+     * The key of the project and normalized branch of the pipeline, as in the path of its create-stack role.
+     *
+     * @return the key "{projectId}/{normalizedBranchName}"
+     */
+    public String projectBranchKey() {
+        BranchNames names = NamingRegistry.getInstance().names(repository.getRepository(), branch);
+        return names.getProjectId() + "/" + names.getNormalizedBranchName();
+    }
+}
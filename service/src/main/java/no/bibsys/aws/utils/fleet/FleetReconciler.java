@@ -0,0 +1,239 @@
+package no.bibsys.aws.utils.fleet;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import no.bibsys.aws.cloudformation.NamingRegistry;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.utils.constants.GitConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converges the pipelines in AWS with the branches in Github. Missed webhooks leave branches without a pipeline, or
+ * pipelines, buckets and roles of branches that no longer exist; the reconciler finds and fixes both.
+ * <p>
+ * For every repository the open branches, e.g. the head branches of open pull requests, and the branches that exist
+ * are compared with the existing pipeline stacks and create-stack roles:
+ * </p>
+ * <ul>
+ * <li>an open branch without a pipeline stack, or with a stack whose creation failed, gets a pipeline,</li>
+ * <li>a pipeline stack of a branch that no longer exists is deleted,</li>
+ * <li>a create-stack role without a pipeline stack, of a branch that no longer exists, is deleted.</li>
+ * </ul>
+ * <p>
+ * Pipelines of branches that exist without an open pull request, e.g. those created through the API, are kept.
+ * </p>
+ * <p>
+ * Protected branches such as master are never deleted. A repository whose open branches cannot be read is skipped and
+ * reported, so that a Github failure does not delete its pipelines. The actions run with bounded parallelism, and in
+ * dry-run mode they are only planned.
+ * </p>
+ */
+public class FleetReconciler {
+
+    public static final int DEFAULT_PARALLELISM = 2;
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetReconciler.class);
+    private static final String INVALID_PARALLELISM_MESSAGE = "Parallelism should be a positive number";
+    private static final String MISSING_PIPELINE_REASON = "open branch without pipeline";
+    private static final String BROKEN_PIPELINE_REASON = "pipeline stack is %s";
+    private static final String CLOSED_BRANCH_REASON = "pipeline of a branch that no longer exists";
+    private static final String ORPHANED_ROLE_REASON = "create-stack role %s without pipeline";
+    private static final String SKIPPED_REPOSITORY_MESSAGE = "Skipping repository {}: {}";
+    private static final String AMBIGUOUS_PROJECT_MESSAGE = "Roles of project {} belong to more than one repository";
+    private static final String ACTION_FAILED_MESSAGE = "Reconciliation action failed: {}";
+
+    private final transient PipelineInventory inventory;
+    private final transient OpenBranchSource openBranchSource;
+    private final transient BranchActionExecutor executor;
+    private final transient int parallelism;
+    private transient Set<String> protectedBranches = Collections.singleton(GitConstants.MASTER);
+
+    public FleetReconciler(PipelineInventory inventory, OpenBranchSource openBranchSource,
+        BranchActionExecutor executor) {
+        this(inventory, openBranchSource, executor, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param inventory the pipelines that exist in AWS
+     * @param openBranchSource the branches that should have a pipeline and the branches that exist
+     * @param executor creates and deletes pipelines
+     * @param parallelism the maximum number of actions that run at the same time
+     */
+    public FleetReconciler(PipelineInventory inventory, OpenBranchSource openBranchSource,
+        BranchActionExecutor executor, int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, INVALID_PARALLELISM_MESSAGE);
+        this.inventory = inventory;
+        this.openBranchSource = openBranchSource;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    public FleetReconciler setProtectedBranches(Set<String> protectedBranches) {
+        this.protectedBranches = new HashSet<>(protectedBranches);
+        return this;
+    }
+
+    /**
+     * Reconciles the given repositories.
+     *
+     * @param repositories the repositories to reconcile
+     * @param dryRun if true, the actions are planned but not applied
+     * @return the report of the planned or applied actions
+     */
+    public ReconciliationReport reconcile(Collection<RepositoryRef> repositories, boolean dryRun) {
+        return reconcile(repositories, false, dryRun);
+    }
+
+    /**
+     * Reconciles the given repositories and all repositories that have a pipeline stack.
+     *
+     * @param repositories repositories to reconcile in addition to those that have pipelines
+     * @param dryRun if true, the actions are planned but not applied
+     * @return the report of the planned or applied actions
+     */
+    public ReconciliationReport reconcileAll(Collection<RepositoryRef> repositories, boolean dryRun) {
+        return reconcile(repositories, true, dryRun);
+    }
+
+    private ReconciliationReport reconcile(Collection<RepositoryRef> repositories, boolean includeExisting,
+        boolean dryRun) {
+        List<ExistingPipeline> pipelines = inventory.pipelines();
+        List<ExistingCreateStackRole> roles = inventory.createStackRoles();
+
+        Set<RepositoryRef> scope = new LinkedHashSet<>(repositories);
+        if (includeExisting) {
+            pipelines.stream().map(ExistingPipeline::getRepository).forEach(scope::add);
+        }
+
+        Set<String> pipelineKeys = pipelines.stream()
+            .map(ExistingPipeline::projectBranchKey)
+            .collect(Collectors.toSet());
+        Map<String, RepositoryRef> repositoriesByProject = repositoriesByProject(scope);
+
+        List<ReconciliationAction> plan = new ArrayList<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (RepositoryRef repository : scope) {
+            Set<String> openBranches;
+            Set<String> existingBranches;
+            try {
+                openBranches = openBranchSource.openBranches(repository);
+                existingBranches = new HashSet<>(openBranchSource.existingBranches(repository));
+                existingBranches.addAll(openBranches);
+            } catch (Exception e) {
+                logger.warn(SKIPPED_REPOSITORY_MESSAGE, repository, e.getMessage());
+                errors.put(repository.toString(), e.getMessage());
+                continue;
+            }
+            plan.addAll(plan(repository, openBranches, existingBranches, pipelines, roles, pipelineKeys,
+                repositoriesByProject));
+        }
+
+        List<ReconciliationAction> actions = dryRun ? plan : apply(plan);
+        ReconciliationReport report = new ReconciliationReport(dryRun, actions, errors);
+        logger.info(report.toString());
+        return report;
+    }
+
+    //long parameter list
+    @SuppressWarnings("PMD")
+    private List<ReconciliationAction> plan(RepositoryRef repository, Set<String> openBranches,
+        Set<String> existingBranches, List<ExistingPipeline> pipelines, List<ExistingCreateStackRole> roles,
+        Set<String> pipelineKeys, Map<String, RepositoryRef> repositoriesByProject) {
+        // one action per branch; a deletion because of the stack takes precedence over one because of the role
+        Map<String, ReconciliationAction> actions = new LinkedHashMap<>();
+        Map<String, ExistingPipeline> pipelinesByBranch = pipelines.stream()
+            .filter(pipeline -> repository.equals(pipeline.getRepository()))
+            .collect(Collectors.toMap(ExistingPipeline::getBranch, pipeline -> pipeline, (a, b) -> a,
+                LinkedHashMap::new));
+
+        for (String branch : openBranches) {
+            ExistingPipeline pipeline = pipelinesByBranch.get(branch);
+            if (pipeline == null) {
+                actions.put(branch, new ReconciliationAction(repository, branch, Action.CREATE,
+                    MISSING_PIPELINE_REASON));
+            } else if (pipeline.isBroken()) {
+                actions.put(branch, new ReconciliationAction(repository, branch, Action.CREATE,
+                    String.format(BROKEN_PIPELINE_REASON, pipeline.getStackStatus())));
+            }
+        }
+        for (String branch : pipelinesByBranch.keySet()) {
+            if (isRemovable(branch, existingBranches)) {
+                actions.put(branch, new ReconciliationAction(repository, branch, Action.DELETE,
+                    CLOSED_BRANCH_REASON));
+            }
+        }
+        for (ExistingCreateStackRole role : roles) {
+            boolean ownRole = repository.equals(repositoriesByProject.get(role.getProjectId()));
+            if (ownRole && !pipelineKeys.contains(role.projectBranchKey())
+                && isRemovable(role.getBranch(), existingBranches)) {
+                actions.putIfAbsent(role.getBranch(), new ReconciliationAction(repository, role.getBranch(),
+                    Action.DELETE, String.format(ORPHANED_ROLE_REASON, role.getRoleName())));
+            }
+        }
+        return new ArrayList<>(actions.values());
+    }
+
+    private boolean isRemovable(String branch, Set<String> existingBranches) {
+        return !existingBranches.contains(branch) && !protectedBranches.contains(branch);
+    }
+
+    // project ids are shortened repository names, so a role is only matched if its project id is unambiguous
+    private Map<String, RepositoryRef> repositoriesByProject(Set<RepositoryRef> repositories) {
+        Map<String, RepositoryRef> repositoriesByProject = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (RepositoryRef repository : repositories) {
+            String projectId = NamingRegistry.getInstance().names(repository.getRepository(), GitConstants.MASTER)
+                .getProjectId();
+            RepositoryRef previous = repositoriesByProject.putIfAbsent(projectId, repository);
+            if (previous != null && !previous.equals(repository)) {
+                ambiguous.add(projectId);
+            }
+        }
+        ambiguous.forEach(projectId -> {
+            logger.warn(AMBIGUOUS_PROJECT_MESSAGE, projectId);
+            repositoriesByProject.remove(projectId);
+        });
+        return repositoriesByProject;
+    }
+
+    private List<ReconciliationAction> apply(List<ReconciliationAction> plan) {
+        if (plan.isEmpty()) {
+            return plan;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, plan.size()));
+        try {
+            List<CompletableFuture<ReconciliationAction>> results = plan.stream()
+                .map(action -> CompletableFuture.supplyAsync(() -> apply(action), pool))
+                .collect(Collectors.toList());
+            return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private ReconciliationAction apply(ReconciliationAction action) {
+        try {
+            executor.apply(action.getGitEvent(), action.getActionType());
+            return action.applied();
+        } catch (Exception e) {
+            logger.error(ACTION_FAILED_MESSAGE, action, e);
+            return action.failed(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package no.bibsys.aws.utils.fleet;
+
+import java.io.IOException;
+import java.util.Set;
+import no.bibsys.aws.utils.github.GithubPullRequestLister;
+import no.bibsys.aws.utils.github.NotFoundException;
+import no.bibsys.aws.utils.github.UnauthorizedException;
+
+/**
+ * Reads the head branches of the open pull requests and all branches of a repository from Github.
+ */
+public class GithubBranchSource implements OpenBranchSource {
+
+    private final transient GithubPullRequestLister lister;
+
+    public GithubBranchSource(GithubPullRequestLister lister) {
+        this.lister = lister;
+    }
+
+    @Override
+    public Set<String> openBranches(RepositoryRef repository)
+        throws IOException, UnauthorizedException, NotFoundException {
+        return lister.openPullRequestBranches(repository.getOwner(), repository.getRepository());
+    }
+
+    @Override
+    public Set<String> existingBranches(RepositoryRef repository)
+        throws IOException, UnauthorizedException, NotFoundException {
+        return lister.branches(repository.getOwner(), repository.getRepository());
+    }
+}
@@ -0,0 +1,14 @@
+package no.bibsys.aws.utils.fleet;
+
+import java.util.Set;
+
+/**
+ * The branches of a repository: those that should have a pipeline, e.g. the head branches of its open pull requests,
+ * and all branches that exist. Pipelines are only deleted for branches that no longer exist.
+ */
+public interface OpenBranchSource {
+
+    Set<String> openBranches(RepositoryRef repository) throws Exception;
+
+    Set<String> existingBranches(RepositoryRef repository) throws Exception;
+}
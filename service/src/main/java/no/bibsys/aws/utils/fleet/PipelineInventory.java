@@ -0,0 +1,122 @@
+package no.bibsys.aws.utils.fleet;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
+import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
+import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.model.NoSuchEntityException;
+import com.amazonaws.services.identitymanagement.model.Role;
+import com.amazonaws.services.identitymanagement.model.Tag;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
+import no.bibsys.aws.roles.CreateStackRole;
+import no.bibsys.aws.roles.TaggedRoleFinder;
+import no.bibsys.aws.utils.stacks.StackBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lists the pipelines that exist in AWS: the pipeline stacks, recognized by the Github parameters that
+ * {@link StackBuilder} passes to them, and the create-stack roles under
+ * {@link PipelineStackConfiguration#ROLE_PATH_ROOT}.
+ */
+public class PipelineInventory {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineInventory.class);
+    private static final String PATH_SEPARATOR = "/";
+    private static final int PROJECT_PATH_INDEX = 2;
+    private static final int BRANCH_PATH_INDEX = 3;
+    private static final String DELETED_ROLE_MESSAGE = "Role {} was deleted while its tags were read";
+
+    private final transient AmazonCloudFormation cloudFormationClient;
+    private final transient TaggedRoleFinder roleFinder;
+
+    public PipelineInventory(AmazonCloudFormation cloudFormationClient,
+        AmazonIdentityManagement amazonIdentityManagement) {
+        this(cloudFormationClient, new TaggedRoleFinder(amazonIdentityManagement));
+    }
+
+    public PipelineInventory(AmazonCloudFormation cloudFormationClient, TaggedRoleFinder roleFinder) {
+        this.cloudFormationClient = cloudFormationClient;
+        this.roleFinder = roleFinder;
+    }
+
+    /**
+     * Lists the pipeline stacks, following the pagination tokens of DescribeStacks.
+     *
+     * @return the pipeline stacks
+     */
+    public List<ExistingPipeline> pipelines() {
+        List<ExistingPipeline> pipelines = new ArrayList<>();
+        DescribeStacksRequest request = new DescribeStacksRequest();
+        DescribeStacksResult result;
+        do {
+            result = cloudFormationClient.describeStacks(request);
+            result.getStacks().stream()
+                .map(this::toPipeline)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .forEach(pipelines::add);
+            request.setNextToken(result.getNextToken());
+        } while (result.getNextToken() != null);
+        return pipelines;
+    }
+
+    /**
+     * Lists the create-stack roles with the path of a pipeline. Roles created before the path was introduced have the
+     * root path and are not listed.
+     *
+     * @return the create-stack roles
+     */
+    public List<ExistingCreateStackRole> createStackRoles() {
+        Tag roleTag = new Tag()
+            .withKey(PipelineStackConfiguration.TAG_KEY_ROLE)
+            .withValue(CreateStackRole.ROLE_TAG_FOR_CREATE_STACK_ROLE);
+        return roleFinder.findRoles(PipelineStackConfiguration.ROLE_PATH_ROOT, Collections.singleton(roleTag))
+            .stream()
+            .map(this::toCreateStackRole)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(Collectors.toList());
+    }
+
+    private Optional<ExistingPipeline> toPipeline(Stack stack) {
+        Map<String, String> parameters = stack.getParameters().stream()
+            .filter(parameter -> parameter.getParameterValue() != null)
+            .collect(Collectors.toMap(Parameter::getParameterKey, Parameter::getParameterValue, (a, b) -> a));
+        String owner = parameters.get(StackBuilder.CLOUDFORMATION_TEMPLATE_PARAMETER_GITHUB_OWNER);
+        String repository = parameters.get(StackBuilder.CLOUD_FORMATION_TEMPLATE_PARAMETER_GITHUB_REPO);
+        String branch = parameters.get(StackBuilder.CLOUD_FORMATION_TEMPLATE_PARAMETER_PROJECT_BRANCH);
+        if (owner == null || repository == null || branch == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new ExistingPipeline(new RepositoryRef(owner, repository), branch, stack.getStackName(),
+            stack.getStackStatus()));
+    }
+
+    private Optional<ExistingCreateStackRole> toCreateStackRole(Role role) {
+        // the path is "/pipeline/{projectId}/{normalizedBranchName}/"
+        String[] path = role.getPath().split(PATH_SEPARATOR);
+        if (path.length <= BRANCH_PATH_INDEX) {
+            return Optional.empty();
+        }
+        try {
+            Optional<String> branch = roleFinder.listTags(role).stream()
+                .filter(tag -> PipelineStackConfiguration.TAG_KEY_BRANCH_NAME.equals(tag.getKey()))
+                .map(Tag::getValue)
+                .findFirst();
+            return branch.map(value -> new ExistingCreateStackRole(role.getRoleName(), path[PROJECT_PATH_INDEX],
+                path[BRANCH_PATH_INDEX], value));
+        } catch (NoSuchEntityException e) {
+            logger.warn(DELETED_ROLE_MESSAGE, role.getRoleName());
+            return Optional.empty();
+        }
+    }
+}
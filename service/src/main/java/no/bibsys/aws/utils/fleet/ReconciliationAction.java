@@ -0,0 +1,85 @@
+package no.bibsys.aws.utils.fleet;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+
+/**
+ * An action of a {@link FleetReconciler}: the creation or deletion of the pipeline of a branch, together with the
+ * reason for it and its outcome.
+ */
+@JsonInclude(Include.NON_NULL)
+public class ReconciliationAction {
+
+    public enum Status {
+        PLANNED, APPLIED, FAILED
+    }
+
+    private final transient GitEvent branch;
+    private final transient Action action;
+    private final transient String reason;
+    private final transient Status status;
+    private final transient String error;
+
+    public ReconciliationAction(RepositoryRef repository, String branch, Action action, String reason) {
+        this(new GitEvent(repository.getOwner(), repository.getRepository(), branch), action, reason,
+            Status.PLANNED, null);
+    }
+
+    private ReconciliationAction(GitEvent branch, Action action, String reason, Status status, String error) {
+        this.branch = branch;
+        this.action = action;
+        this.reason = reason;
+        this.status = status;
+        this.error = error;
+    }
+
+    public ReconciliationAction applied() {
+        return new ReconciliationAction(branch, action, reason, Status.APPLIED, null);
+    }
+
+    public ReconciliationAction failed(String error) {
+        return new ReconciliationAction(branch, action, reason, Status.FAILED, error);
+    }
+
+    @JsonIgnore
+    public GitEvent getGitEvent() {
+        return branch;
+    }
+
+    public String getRepository() {
+        return branch.getOwner() + "/" + branch.getRepository();
+    }
+
+    public String getBranch() {
+        return branch.getBranch();
+    }
+
+    @JsonIgnore
+    public Action getActionType() {
+        return action;
+    }
+
+    public String getAction() {
+        return action.toString();
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s:%s (%s) %s", action, getRepository(), getBranch(), reason, status);
+    }
+}
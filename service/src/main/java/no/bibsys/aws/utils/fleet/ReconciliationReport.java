@@ -0,0 +1,60 @@
+package no.bibsys.aws.utils.fleet;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import no.bibsys.aws.utils.fleet.ReconciliationAction.Status;
+import no.bibsys.aws.utils.json.ObjectMappers;
+
+/**
+ * The result of a reconciliation: the actions that were planned or taken and the repositories that could not be
+ * reconciled.
+ */
+public class ReconciliationReport {
+
+    private static final String SUMMARY_TEMPLATE = "Reconciliation%s: %d planned, %d applied, %d failed, %d errors";
+    private static final String DRY_RUN_SUFFIX = " (dry run)";
+
+    private final transient boolean dryRun;
+    private final transient List<ReconciliationAction> actions;
+    private final transient Map<String, String> errors;
+
+    public ReconciliationReport(boolean dryRun, List<ReconciliationAction> actions, Map<String, String> errors) {
+        this.dryRun = dryRun;
+        this.actions = Collections.unmodifiableList(actions);
+        this.errors = Collections.unmodifiableMap(new LinkedHashMap<>(errors));
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public List<ReconciliationAction> getActions() {
+        return actions;
+    }
+
+    /**
+     * The repositories that were skipped, e.g. because their pull requests could not be read.
+     *
+     * @return error messages by repository
+     */
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public long count(Status status) {
+        return actions.stream().filter(action -> status.equals(action.getStatus())).count();
+    }
+
+    public String toJson() throws IOException {
+        return ObjectMappers.JSON.writeValueAsString(this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(SUMMARY_TEMPLATE, dryRun ? DRY_RUN_SUFFIX : "", count(Status.PLANNED),
+            count(Status.APPLIED), count(Status.FAILED), errors.size());
+    }
+}
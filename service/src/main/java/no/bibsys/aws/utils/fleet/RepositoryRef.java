@@ -0,0 +1,64 @@
+package no.bibsys.aws.utils.fleet;
+
+import com.google.common.base.Preconditions;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A Github repository, identified by its owner and name. Github names are case-insensitive, and so is equality.
+ */
+public final class RepositoryRef {
+
+    private static final String SEPARATOR = "/";
+    private static final String INVALID_REPOSITORY_MESSAGE = "Repository should have the form owner/repository: %s";
+
+    private final transient String owner;
+    private final transient String repository;
+
+    public RepositoryRef(String owner, String repository) {
+        this.owner = Objects.requireNonNull(owner);
+        this.repository = Objects.requireNonNull(repository);
+    }
+
+    /**
+     * Parses a repository of the form "owner/repository".
+     *
+     * @param fullName the full name of the repository
+     * @return the repository
+     */
+    public static RepositoryRef parse(String fullName) {
+        String[] parts = fullName.trim().split(SEPARATOR);
+        Preconditions.checkArgument(parts.length == 2 && !parts[0].isEmpty() && !parts[1].isEmpty(),
+            INVALID_REPOSITORY_MESSAGE, fullName);
+        return new RepositoryRef(parts[0], parts[1]);
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RepositoryRef)) {
+            return false;
+        }
+        return toString().equalsIgnoreCase(other.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().toLowerCase(Locale.ROOT).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return owner + SEPARATOR + repository;
+    }
+}
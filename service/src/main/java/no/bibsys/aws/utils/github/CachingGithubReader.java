@@ -0,0 +1,100 @@
+package no.bibsys.aws.utils.github;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import no.bibsys.aws.git.github.GithubConf;
+import no.bibsys.aws.lambda.EnvironmentConstants;
+import no.bibsys.aws.lambda.OptionalEnvironment;
+import no.bibsys.aws.tools.Environment;
+import no.bibsys.aws.utils.github.GithubFileCache.CachedFile;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link GithubReader} that caches the files it reads together with their ETags, and revalidates cached files
+ * with conditional requests. Github answers "304 Not Modified" for unchanged files, and these answers do not count
+ * against the rate limit of the token. Blobs read by {@link #readFiles} are cached by their SHA and are never
+ * requested again.
+ */
+public class CachingGithubReader extends GithubReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingGithubReader.class);
+    private static final String NOT_MODIFIED_MESSAGE = "Github file {} not modified";
+    private static final String BLOB_KEY_PREFIX = "blob";
+
+    private final transient GithubFileCache cache;
+
+    public CachingGithubReader(CloseableHttpClient closeableHttpClient, GithubFileCache cache) {
+        super(closeableHttpClient);
+        this.cache = cache;
+    }
+
+    /**
+     * Creates a reader with a disk cache in the directory named by the environment variable
+     * {@value EnvironmentConstants#GITHUB_CACHE_DIR}, or with a cache in memory only if the variable is not set.
+     *
+     * @param environment the environment
+     * @return a new reader
+     */
+    public static CachingGithubReader fromEnvironment(Environment environment) {
+        Path directory = OptionalEnvironment.read(environment, EnvironmentConstants.GITHUB_CACHE_DIR)
+            .map(Paths::get)
+            .orElse(null);
+        return new CachingGithubReader(SharedHttpClient.getInstance().getHttpClient(),
+            new GithubFileCache(GithubFileCache.DEFAULT_MAX_ENTRIES, directory));
+    }
+
+    /**
+     * Returns a reader that shares the HTTP client and the cache of this reader.
+     *
+     * @return a new reader
+     */
+    @Override
+    public CachingGithubReader copy() {
+        return new CachingGithubReader(getHttpClient(), cache);
+    }
+
+    @Override
+    public String readFile(Path filePath) throws UnauthorizedException, IOException, NotFoundException {
+        String url = createUrl(filePath);
+        GithubConf githubConf = getGithubConf();
+        String key = GithubFileCache.key(githubConf.getOwner(), githubConf.getRepository(), githubConf.getBranch(),
+            filePath.toString());
+        Optional<CachedFile> cached = cache.get(key);
+
+        GithubRestReader githubRestReader = getGithubRestReader().setGitHubConf(githubConf);
+        HttpGet request = githubRestReader.createRequest(url);
+        GithubResponse response = githubRestReader
+            .executeConditionalRequest(request, cached.map(CachedFile::getEtag).orElse(null));
+
+        if (response.isNotModified() && cached.isPresent()) {
+            logger.debug(NOT_MODIFIED_MESSAGE, key);
+            return cached.get().getContent();
+        }
+        if (response.isNotFound() || !response.getContent().isPresent()) {
+            cache.remove(key);
+            throw new NotFoundException(String.format(GITHUB_PATH_NOT_FOUND, url));
+        }
+        String content = response.getContent().get();
+        response.getEtag().ifPresent(etag -> cache.put(key, new CachedFile(etag, content)));
+        return content;
+    }
+
+    @Override
+    protected String readBlob(String blobSha) throws UnauthorizedException, IOException, NotFoundException {
+        GithubConf githubConf = getGithubConf();
+        String key = GithubFileCache.key(githubConf.getOwner(), githubConf.getRepository(), BLOB_KEY_PREFIX, blobSha);
+        Optional<CachedFile> cached = cache.get(key);
+        if (cached.isPresent()) {
+            return cached.get().getContent();
+        }
+        String content = super.readBlob(blobSha);
+        cache.put(key, new CachedFile(blobSha, content));
+        return content;
+    }
+}
@@ -0,0 +1,151 @@
+package no.bibsys.aws.utils.github;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of files read from Github, together with their ETags. Entries are kept in memory and, optionally, in a
+ * directory such as one under "/tmp", which survives as long as a warm Lambda container.
+ */
+public class GithubFileCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final Logger logger = LoggerFactory.getLogger(GithubFileCache.class);
+    private static final ObjectMapper JSON_PARSER = ObjectMappers.JSON;
+    private static final String DISK_CACHE_FAILURE_MESSAGE = "Could not use Github disk cache {}: {}";
+    private static final String ENTRY_SUFFIX = ".json";
+
+    private final transient Map<String, CachedFile> entries;
+    private final transient Path directory;
+
+    public GithubFileCache() {
+        this(DEFAULT_MAX_ENTRIES, null);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries the maximum number of entries kept in memory. The least recently used entries are evicted.
+     * @param directory the directory of the disk cache, or null for a cache in memory only
+     */
+    public GithubFileCache(int maxEntries, Path directory) {
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, CachedFile>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedFile> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.directory = directory;
+    }
+
+    public static String key(String owner, String repository, String ref, String path) {
+        return String.join("/", owner, repository, ref, path);
+    }
+
+    public Optional<CachedFile> get(String key) {
+        CachedFile cached = entries.get(key);
+        if (cached == null && directory != null) {
+            cached = readFromDisk(key);
+            if (cached != null) {
+                entries.put(key, cached);
+            }
+        }
+        return Optional.ofNullable(cached);
+    }
+
+    public void put(String key, CachedFile file) {
+        entries.put(key, file);
+        if (directory != null) {
+            writeToDisk(key, file);
+        }
+    }
+
+    public void remove(String key) {
+        entries.remove(key);
+        if (directory != null) {
+            try {
+                Files.deleteIfExists(entryPath(key));
+            } catch (IOException e) {
+                logger.warn(DISK_CACHE_FAILURE_MESSAGE, directory, e.getMessage());
+            }
+        }
+    }
+
+    private CachedFile readFromDisk(String key) {
+        Path entryPath = entryPath(key);
+        if (!Files.exists(entryPath)) {
+            return null;
+        }
+        try {
+            return JSON_PARSER.readValue(entryPath.toFile(), CachedFile.class);
+        } catch (IOException e) {
+            logger.warn(DISK_CACHE_FAILURE_MESSAGE, directory, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, CachedFile file) {
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, null, null);
+            JSON_PARSER.writeValue(temporary.toFile(), file);
+            Files.move(temporary, entryPath(key), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn(DISK_CACHE_FAILURE_MESSAGE, directory, e.getMessage());
+        }
+    }
+
+    private Path entryPath(String key) {
+        // keys contain paths and branch names, so the file name is derived from a hash
+        return directory.resolve(Hashing.sha256().hashString(key, StandardCharsets.UTF_8) + ENTRY_SUFFIX);
+    }
+
+    /**
+     * A file and the ETag Github returned for it.
+     */
+    public static class CachedFile {
+
+        private String etag;
+        private String content;
+
+        public CachedFile() {
+        }
+
+        public CachedFile(String etag, String content) {
+            this.etag = etag;
+            this.content = content;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public void setEtag(String etag) {
+            this.etag = etag;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public void setContent(String content) {
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package no.bibsys.aws.utils.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import no.bibsys.aws.git.github.GithubConf;
+import no.bibsys.aws.secrets.SecretsReader;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * Lists the open pull requests and the branches of a repository through the Github REST API.
+ */
+public class GithubPullRequestLister {
+
+    public static final int PAGE_SIZE = 100;
+
+    private static final ObjectMapper JSON_PARSER = ObjectMappers.JSON;
+    private static final String PULLS_URL_TEMPLATE =
+        "https://api.github.com/repos/%s/%s/pulls?state=open&per_page=%d&page=%d";
+    private static final String BRANCHES_URL_TEMPLATE =
+        "https://api.github.com/repos/%s/%s/branches?per_page=%d&page=%d";
+    private static final String ACCEPT = "Accept";
+    private static final String ACCEPT_JSON = "application/vnd.github.v3+json";
+    private static final String HEAD = "head";
+    private static final String REF = "ref";
+    private static final String REPO = "repo";
+    private static final String FULL_NAME = "full_name";
+    private static final String NAME = "name";
+    private static final String REPOSITORY_NOT_FOUND = "Repository %s/%s not found";
+    private static final String UNEXPECTED_STATUS = "Github answered with status %d for %s";
+    private static final String NOT_A_LIST = "Github did not answer with a list for %s";
+
+    private final transient GithubRestReader githubRestReader;
+    private final transient SecretsReader secretsReader;
+
+    public GithubPullRequestLister(CloseableHttpClient httpClient, SecretsReader secretsReader) {
+        this.githubRestReader = new GithubRestReader(httpClient);
+        this.secretsReader = secretsReader;
+    }
+
+    /**
+     * Returns the head branches of the open pull requests whose head is in the repository itself. Pull requests from
+     * forks are ignored, since the pipelines are built from branches of the repository.
+     *
+     * @param owner the owner of the repository
+     * @param repository the name of the repository
+     * @return the branch names
+     * @throws IOException when the request fails or Github answers with an error
+     * @throws UnauthorizedException when Github rejects the credentials
+     * @throws NotFoundException when the repository does not exist or is not visible with the credentials
+     */
+    public Set<String> openPullRequestBranches(String owner, String repository)
+        throws IOException, UnauthorizedException, NotFoundException {
+        githubRestReader.setGitHubConf(new GithubConf(owner, repository, null, secretsReader));
+        String fullName = owner + "/" + repository;
+        Set<String> branches = new LinkedHashSet<>();
+        int page = 1;
+        JsonNode pullRequests;
+        do {
+            pullRequests = readPage(PULLS_URL_TEMPLATE, owner, repository, page++);
+            for (JsonNode pullRequest : pullRequests) {
+                JsonNode head = pullRequest.path(HEAD);
+                if (fullName.equalsIgnoreCase(head.path(REPO).path(FULL_NAME).asText())) {
+                    branches.add(head.path(REF).asText());
+                }
+            }
+        } while (pullRequests.size() == PAGE_SIZE);
+        return branches;
+    }
+
+    /**
+     * Returns the names of all branches of the repository.
+     *
+     * @param owner the owner of the repository
+     * @param repository the name of the repository
+     * @return the branch names
+     * @throws IOException when the request fails or Github answers with an error
+     * @throws UnauthorizedException when Github rejects the credentials
+     * @throws NotFoundException when the repository does not exist or is not visible with the credentials
+     */
+    public Set<String> branches(String owner, String repository)
+        throws IOException, UnauthorizedException, NotFoundException {
+        githubRestReader.setGitHubConf(new GithubConf(owner, repository, null, secretsReader));
+        Set<String> branches = new LinkedHashSet<>();
+        int page = 1;
+        JsonNode branchPage;
+        do {
+            branchPage = readPage(BRANCHES_URL_TEMPLATE, owner, repository, page++);
+            for (JsonNode branch : branchPage) {
+                branches.add(branch.path(NAME).asText());
+            }
+        } while (branchPage.size() == PAGE_SIZE);
+        return branches;
+    }
+
+    private JsonNode readPage(String urlTemplate, String owner, String repository, int page)
+        throws IOException, UnauthorizedException, NotFoundException {
+        String url = String.format(urlTemplate, owner, repository, PAGE_SIZE, page);
+        HttpGet request = githubRestReader.createRequest(url);
+        request.setHeader(new BasicHeader(ACCEPT, ACCEPT_JSON));
+        GithubResponse response = githubRestReader.executeConditionalRequest(request, null);
+        if (response.isNotFound()) {
+            throw new NotFoundException(String.format(REPOSITORY_NOT_FOUND, owner, repository));
+        }
+        // an error answer, such as an exceeded rate limit, must not be read as a repository without branches
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            throw new IOException(String.format(UNEXPECTED_STATUS, response.getStatusCode(), url));
+        }
+        JsonNode items = JSON_PARSER.readTree(response.getContent()
+            .orElseThrow(() -> new IOException(String.format(NOT_A_LIST, url))));
+        if (!items.isArray()) {
+            throw new IOException(String.format(NOT_A_LIST, url));
+        }
+        return items;
+    }
+}
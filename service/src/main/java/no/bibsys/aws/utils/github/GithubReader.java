@@ -1,25 +1,82 @@
 package no.bibsys.aws.utils.github;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Splitter;
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import no.bibsys.aws.git.github.GithubConf;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class GithubReader {
 
+    public static final int MAX_CONCURRENT_FETCHES = 8;
+
     public static final String GITHUB_PATH_NOT_FOUND = "Github path not found:%s";
     protected static final String GITHUBCONF_NULL_ERROR_MESSAGE = "You need to set the githubConf";
     private static final transient String urlTemplate = "https://api.github.com/"
         + "repos/%1$s/%2$s/contents/%4$s?ref=%3$s";
+    private static final transient String refUrlTemplate = "https://api.github.com/"
+        + "repos/%1$s/%2$s/git/ref/heads/%3$s";
+    private static final transient String treeUrlTemplate = "https://api.github.com/"
+        + "repos/%1$s/%2$s/git/trees/%3$s?recursive=1";
+    private static final transient String blobUrlTemplate = "https://api.github.com/"
+        + "repos/%1$s/%2$s/git/blobs/%3$s";
+    private static final String BRANCH_SEPARATOR = "/";
+    private static final Escaper PATH_SEGMENT_ESCAPER = UrlEscapers.urlPathSegmentEscaper();
+    private static final String OBJECT = "object";
+    private static final String SHA = "sha";
+    private static final String MISSING_HEAD_MESSAGE = "No head commit in ref:%s";
+    private static final String ACCEPT = "Accept";
+    private static final String ACCEPT_JSON = "application/vnd.github.v3+json";
+    private static final String TRUNCATED_TREE_MESSAGE = "Tree of {} is truncated. Some files may be missing";
+    private static final Logger logger = LoggerFactory.getLogger(GithubReader.class);
+    private static final ExecutorService FETCH_EXECUTOR = Executors.newFixedThreadPool(MAX_CONCURRENT_FETCHES,
+        runnable -> {
+            Thread thread = new Thread(runnable, "github-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private final transient CloseableHttpClient httpClient;
     private final transient GithubRestReader githubRestReader;
     private transient GithubConf githubConf;
 
     public GithubReader(CloseableHttpClient closeableHttpClient) {
+        this.httpClient = closeableHttpClient;
         this.githubRestReader = new GithubRestReader(closeableHttpClient);
     }
 
+    /**
+     * Returns a reader without a {@link GithubConf} that shares the HTTP client of this reader. A reader holds the
+     * branch it reads, so concurrent actions on different branches need a reader each.
+     *
+     * @return a new reader
+     */
+    public GithubReader copy() {
+        return new GithubReader(httpClient);
+    }
+
+    protected CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
     public String createUrl(Path path) {
         Objects.requireNonNull(githubConf, GITHUBCONF_NULL_ERROR_MESSAGE);
         String pathString = path.toString();
@@ -40,6 +97,159 @@ public class GithubReader {
             .orElseThrow(() -> new NotFoundException(String.format(GITHUB_PATH_NOT_FOUND, url)));
     }
 
+    /**
+     * Reads several files of the branch. The tree of the branch is read once, and the files are then fetched
+     * concurrently by their blob SHA, so all files come from the same commit.
+     *
+     * @param filePaths paths relative to the repository root
+     * @return map from each path to the content of the file, in the order of the paths
+     * @throws NotFoundException if any of the files does not exist
+     */
+    public Map<Path, String> readFiles(Collection<Path> filePaths)
+        throws UnauthorizedException, IOException, NotFoundException {
+        GithubTree tree = readTree();
+        Map<Path, String> blobShas = new LinkedHashMap<>();
+        for (Path filePath : filePaths) {
+            String path = githubPath(filePath);
+            String blobSha = tree.blobSha(path)
+                .orElseThrow(() -> new NotFoundException(String.format(GITHUB_PATH_NOT_FOUND, path)));
+            blobShas.put(filePath, blobSha);
+        }
+        return readBlobs(blobShas);
+    }
+
+    /**
+     * Reads all files under a directory of the branch, at any depth, with one read of the tree of the branch and
+     * concurrent fetches of the files.
+     *
+     * @param directory path of the directory relative to the repository root
+     * @return map from the path of each file to its content
+     * @throws NotFoundException if the directory contains no files
+     */
+    public Map<Path, String> readDirectory(Path directory)
+        throws UnauthorizedException, IOException, NotFoundException {
+        GithubTree tree = readTree();
+        String path = githubPath(directory);
+        Map<Path, String> blobShas = new LinkedHashMap<>();
+        tree.blobsUnder(path).forEach((filePath, blobSha) -> blobShas.put(Paths.get(filePath), blobSha));
+        if (blobShas.isEmpty()) {
+            throw new NotFoundException(String.format(GITHUB_PATH_NOT_FOUND, path));
+        }
+        return readBlobs(blobShas);
+    }
+
+    /**
+     * Reads the recursive tree of the head commit of the branch. The head is resolved once, so the tree stays the
+     * same even if the branch moves while its files are read.
+     *
+     * @return the tree of the head commit
+     */
+    protected GithubTree readTree() throws UnauthorizedException, IOException, NotFoundException {
+        Objects.requireNonNull(githubConf, GITHUBCONF_NULL_ERROR_MESSAGE);
+        String url = String.format(treeUrlTemplate, githubConf.getOwner(), githubConf.getRepository(),
+            resolveHeadSha());
+        String json = readJson(url);
+        GithubTree tree = GithubTree.fromJson(json);
+        if (tree.isTruncated()) {
+            logger.warn(TRUNCATED_TREE_MESSAGE, url);
+        }
+        return tree;
+    }
+
+    /**
+     * Resolves the SHA of the commit the branch points to.
+     *
+     * @return the SHA of the head commit of the branch
+     * @throws NotFoundException if the branch does not exist
+     */
+    protected String resolveHeadSha() throws UnauthorizedException, IOException, NotFoundException {
+        Objects.requireNonNull(githubConf, GITHUBCONF_NULL_ERROR_MESSAGE);
+        String url = String.format(refUrlTemplate, githubConf.getOwner(), githubConf.getRepository(),
+            encodeBranch(githubConf.getBranch()));
+        JsonNode sha = ObjectMappers.JSON.readTree(readJson(url)).path(OBJECT).path(SHA);
+        if (!sha.isTextual()) {
+            throw new NotFoundException(String.format(MISSING_HEAD_MESSAGE, url));
+        }
+        return sha.asText();
+    }
+
+    // escapes each segment of the branch name, keeping the slashes between them as the ref API expects
+    private static String encodeBranch(String branch) {
+        return Splitter.on(BRANCH_SEPARATOR).splitToList(branch).stream()
+            .map(PATH_SEGMENT_ESCAPER::escape)
+            .collect(Collectors.joining(BRANCH_SEPARATOR));
+    }
+
+    private String readJson(String url) throws UnauthorizedException, IOException, NotFoundException {
+        HttpGet request = githubRestReader.setGitHubConf(githubConf).createRequest(url);
+        request.setHeader(new BasicHeader(ACCEPT, ACCEPT_JSON));
+        return githubRestReader.executeRequest(request)
+            .orElseThrow(() -> new NotFoundException(String.format(GITHUB_PATH_NOT_FOUND, url)));
+    }
+
+    /**
+     * Reads the raw content of a blob. Blobs are addressed by the SHA of their content and never change.
+     *
+     * @param blobSha the SHA of the blob
+     * @return the content of the blob
+     */
+    protected String readBlob(String blobSha) throws UnauthorizedException, IOException, NotFoundException {
+        String url = String.format(blobUrlTemplate, githubConf.getOwner(), githubConf.getRepository(), blobSha);
+        HttpGet request = githubRestReader.setGitHubConf(githubConf).createRequest(url);
+        return githubRestReader.executeRequest(request)
+            .orElseThrow(() -> new NotFoundException(String.format(GITHUB_PATH_NOT_FOUND, url)));
+    }
+
+    private Map<Path, String> readBlobs(Map<Path, String> blobShas)
+        throws UnauthorizedException, IOException, NotFoundException {
+        Map<Path, CompletableFuture<String>> contents = new LinkedHashMap<>();
+        blobShas.forEach((path, blobSha) -> contents.put(path,
+            CompletableFuture.supplyAsync(() -> readBlobUnchecked(blobSha), FETCH_EXECUTOR)));
+        Map<Path, String> files = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, CompletableFuture<String>> entry : contents.entrySet()) {
+                files.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            contents.values().forEach(future -> future.cancel(true));
+            rethrowCause(e);
+        }
+        return files;
+    }
+
+    private String readBlobUnchecked(String blobSha) {
+        try {
+            return readBlob(blobSha);
+        } catch (UnauthorizedException | IOException | NotFoundException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static void rethrowCause(CompletionException e)
+        throws UnauthorizedException, IOException, NotFoundException {
+        Throwable cause = e.getCause();
+        if (cause instanceof UnauthorizedException) {
+            throw (UnauthorizedException) cause;
+        } else if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof NotFoundException) {
+            throw (NotFoundException) cause;
+        }
+        throw e;
+    }
+
+    private static String githubPath(Path path) {
+        return path.toString().replace('\\', '/');
+    }
+
+    protected GithubRestReader getGithubRestReader() {
+        return githubRestReader;
+    }
+
+    protected GithubConf getGithubConf() {
+        return githubConf;
+    }
+
     public GithubReader setGitHubConf(GithubConf gitHubConf) {
         this.githubConf = gitHubConf;
         return this;
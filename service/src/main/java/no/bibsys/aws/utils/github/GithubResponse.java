@@ -0,0 +1,40 @@
+package no.bibsys.aws.utils.github;
+
+import java.util.Optional;
+import org.apache.http.HttpStatus;
+
+/**
+ * The status, content and ETag of a response from the Github contents API.
+ */
+public class GithubResponse {
+
+    private final transient int statusCode;
+    private final transient String content;
+    private final transient String etag;
+
+    public GithubResponse(int statusCode, String content, String etag) {
+        this.statusCode = statusCode;
+        this.content = content;
+        this.etag = etag;
+    }
+
+    public boolean isNotModified() {
+        return statusCode == HttpStatus.SC_NOT_MODIFIED;
+    }
+
+    public boolean isNotFound() {
+        return statusCode == HttpStatus.SC_NOT_FOUND;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Optional<String> getContent() {
+        return Optional.ofNullable(content);
+    }
+
+    public Optional<String> getEtag() {
+        return Optional.ofNullable(etag);
+    }
+}
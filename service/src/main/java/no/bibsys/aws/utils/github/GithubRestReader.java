@@ -5,12 +5,14 @@ import java.util.Objects;
 import java.util.Optional;
 import no.bibsys.aws.git.github.GithubConf;
 import no.bibsys.aws.tools.IoUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 
 public class GithubRestReader {
 
@@ -21,6 +23,8 @@ public class GithubRestReader {
     private static final String ACCEPT = "Accept";
     private static final String ACCEPT_FORMAT = "application/vnd.github.VERSION.raw";
     private static final String ERROR_MESSAGE = "Response HttpEntity was null";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String ETAG = "ETag";
     private final transient CloseableHttpClient httpClient;
     private transient GithubConf githubConf;
 
@@ -30,35 +34,68 @@ public class GithubRestReader {
 
     public Optional<String> executeRequest(HttpGet httpGet)
         throws IOException, UnauthorizedException {
-        CloseableHttpResponse response = this.httpClient.execute(httpGet);
+        GithubResponse response = executeConditionalRequest(httpGet, null);
+        if (response.isNotFound()) {
+            return handleNotFound();
+        }
+        String responseString = response.getContent().orElse(null);
+        Objects.requireNonNull(responseString, ERROR_MESSAGE);
+        return Optional.of(responseString);
+    }
+
+    /**
+     * Executes a request, sending the ETag of a previously read version of the resource. Github answers with
+     * "304 Not Modified" if the resource has not changed, and such responses do not count against the rate limit.
+     *
+     * @param httpGet the request
+     * @param etag the ETag of the cached version, or null
+     * @return the response
+     * @throws IOException when the request fails
+     * @throws UnauthorizedException when Github rejects the credentials
+     */
+    public GithubResponse executeConditionalRequest(HttpGet httpGet, String etag)
+        throws IOException, UnauthorizedException {
+        if (etag != null) {
+            httpGet.setHeader(new BasicHeader(IF_NONE_MATCH, etag));
+        }
+        try (CloseableHttpResponse response = this.httpClient.execute(httpGet)) {
+            try {
+                return readResponse(response);
+            } finally {
+                // a pooled connection is only reused after its response entity has been consumed
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }
+    }
+
+    private GithubResponse readResponse(CloseableHttpResponse response) throws IOException, UnauthorizedException {
         int statusCode = response.getStatusLine().getStatusCode();
-        String responseString = null;
         switch (statusCode) {
             case HttpStatus.SC_UNAUTHORIZED:
-                handleUnauthorized();
-                break;
+                throw new UnauthorizedException(BAD_GITHUB_CREDENTIALS);
             case HttpStatus.SC_NOT_FOUND:
-                return handleNotFound();
+            case HttpStatus.SC_NOT_MODIFIED:
+                return new GithubResponse(statusCode, null, null);
             case HttpStatus.SC_OK:
             default:
-                responseString = handleSuccess(response);
-                break;
+                return new GithubResponse(statusCode, handleSuccess(response), etag(response));
         }
+    }
 
-        Objects.requireNonNull(responseString, ERROR_MESSAGE);
-        return Optional.of(responseString);
+    private String etag(CloseableHttpResponse response) {
+        Header etagHeader = response.getFirstHeader(ETAG);
+        return etagHeader == null ? null : etagHeader.getValue();
     }
 
     private Optional<String> handleNotFound() {
         return Optional.empty();
     }
 
-    private void handleUnauthorized() throws UnauthorizedException {
-        throw new UnauthorizedException(BAD_GITHUB_CREDENTIALS);
-    }
-
     private String handleSuccess(CloseableHttpResponse response) throws IOException {
         HttpEntity responseEntity = response.getEntity();
+        if (responseEntity == null) {
+            return null;
+        }
         return IoUtils.streamToString(responseEntity.getContent());
     }
 
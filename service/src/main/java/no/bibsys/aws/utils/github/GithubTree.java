@@ -0,0 +1,79 @@
+package no.bibsys.aws.utils.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import no.bibsys.aws.utils.json.ObjectMappers;
+
+/**
+ * The files of a recursive tree from the Github git trees API, as a map from path to blob SHA.
+ */
+public class GithubTree {
+
+    private static final ObjectMapper JSON_PARSER = ObjectMappers.JSON;
+    private static final String TREE = "tree";
+    private static final String PATH = "path";
+    private static final String TYPE = "type";
+    private static final String SHA = "sha";
+    private static final String TRUNCATED = "truncated";
+    private static final String BLOB = "blob";
+    private static final String SEPARATOR = "/";
+
+    private final transient String sha;
+    private final transient Map<String, String> blobs;
+    private final transient boolean truncated;
+
+    private GithubTree(String sha, Map<String, String> blobs, boolean truncated) {
+        this.sha = sha;
+        this.blobs = blobs;
+        this.truncated = truncated;
+    }
+
+    public static GithubTree fromJson(String json) throws IOException {
+        JsonNode root = JSON_PARSER.readTree(json);
+        Map<String, String> blobs = new LinkedHashMap<>();
+        for (JsonNode entry : root.path(TREE)) {
+            if (BLOB.equals(entry.path(TYPE).asText())) {
+                blobs.put(entry.path(PATH).asText(), entry.path(SHA).asText());
+            }
+        }
+        return new GithubTree(root.path(SHA).asText(), Collections.unmodifiableMap(blobs),
+            root.path(TRUNCATED).asBoolean(false));
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    /**
+     * True if Github truncated the tree because it is too large, in which case files may be missing.
+     *
+     * @return whether the tree is incomplete
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public Optional<String> blobSha(String path) {
+        return Optional.ofNullable(blobs.get(path));
+    }
+
+    /**
+     * Returns the files under a directory, at any depth.
+     *
+     * @param directory the path of the directory, relative to the repository root
+     * @return map from the path of each file to its blob SHA
+     */
+    public Map<String, String> blobsUnder(String directory) {
+        String prefix = directory.isEmpty() || directory.endsWith(SEPARATOR) ? directory : directory + SEPARATOR;
+        return blobs.entrySet().stream()
+            .filter(entry -> entry.getKey().startsWith(prefix))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first,
+                LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,166 @@
+package no.bibsys.aws.utils.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import no.bibsys.aws.utils.metrics.HttpMetricsInterceptor;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide HTTP client for the calls to Github and SwaggerHub. Connections are pooled and kept alive between
+ * requests and between warm Lambda invocations. Responses are gzip-decompressed transparently. The calls are recorded
+ * by an {@link HttpMetricsInterceptor}.
+ * <p>
+ * A pooled connection is only reused after the entity of its response has been consumed. Callers should therefore
+ * use {@link #execute(HttpUriRequest)} and {@link #executeForBody(HttpUriRequest)}, or consume the entity and close
+ * the response themselves.
+ * </p>
+ * <p>
+ * Tests can replace the client with {@link #override(CloseableHttpClient)} and restore it with {@link #reset()}.
+ * </p>
+ */
+public final class SharedHttpClient {
+
+    public static final int MAX_CONNECTIONS = 50;
+    public static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    public static final int SOCKET_TIMEOUT_MILLIS = 30_000;
+    public static final int CONNECTION_REQUEST_TIMEOUT_MILLIS = 5_000;
+    public static final long MAX_KEEP_ALIVE_MILLIS = 30_000;
+    public static final long MAX_IDLE_MILLIS = 60_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedHttpClient.class);
+    private static final SharedHttpClient INSTANCE = new SharedHttpClient();
+    private static final String POOL_STATS_MESSAGE =
+        "HTTP connection pool: leased={} pending={} available={} max={}";
+
+    private final transient PoolingHttpClientConnectionManager connectionManager;
+    private final transient CloseableHttpClient httpClient;
+    private transient volatile CloseableHttpClient override;
+
+    private SharedHttpClient() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+            .setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+            .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MILLIS)
+            .setContentCompressionEnabled(true)
+            .build();
+        // added first, so that the response is measured before it is decompressed
+        HttpMetricsInterceptor metricsInterceptor = new HttpMetricsInterceptor();
+        httpClient = HttpClients.custom()
+            .addInterceptorFirst((HttpRequestInterceptor) metricsInterceptor)
+            .addInterceptorFirst((HttpResponseInterceptor) metricsInterceptor)
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(new BoundedKeepAliveStrategy())
+            .evictExpiredConnections()
+            .evictIdleConnections(MAX_IDLE_MILLIS, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    public static SharedHttpClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the pooled client. The client must not be closed.
+     *
+     * @return the shared client
+     */
+    public CloseableHttpClient getHttpClient() {
+        CloseableHttpClient overridingClient = override;
+        return overridingClient == null ? httpClient : overridingClient;
+    }
+
+    /**
+     * Makes {@link #getHttpClient()} return the given client. Intended for tests.
+     *
+     * @param client the client to return
+     */
+    public void override(CloseableHttpClient client) {
+        this.override = client;
+    }
+
+    /**
+     * Removes the override.
+     */
+    public void reset() {
+        this.override = null;
+    }
+
+    /**
+     * Executes a request and releases its connection back to the pool.
+     *
+     * @param request the request
+     * @return the status code of the response
+     * @throws IOException when the request fails
+     */
+    public int execute(HttpUriRequest request) throws IOException {
+        try (CloseableHttpResponse response = getHttpClient().execute(request)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+
+    /**
+     * Executes a request, reads the body of its response and releases its connection back to the pool.
+     *
+     * @param request the request
+     * @return the body of the response, or null if the response had no body
+     * @throws IOException when the request fails
+     */
+    public String executeForBody(HttpUriRequest request) throws IOException {
+        try (CloseableHttpResponse response = getHttpClient().execute(request)) {
+            if (response.getEntity() == null) {
+                return null;
+            }
+            return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Logs the usage of the connection pool, for sizing the pool.
+     */
+    public void logPoolStats() {
+        PoolStats stats = getPoolStats();
+        logger.info(POOL_STATS_MESSAGE, stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+    }
+
+    /**
+     * Keeps connections alive as long as the server allows, but never longer than {@link #MAX_KEEP_ALIVE_MILLIS},
+     * as idle connections are closed by the servers and load balancers after some time without notice.
+     */
+    private static class BoundedKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        private final transient ConnectionKeepAliveStrategy serverStrategy =
+            DefaultConnectionKeepAliveStrategy.INSTANCE;
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long serverDuration = serverStrategy.getKeepAliveDuration(response, context);
+            return serverDuration > 0 ? Math.min(serverDuration, MAX_KEEP_ALIVE_MILLIS) : MAX_KEEP_ALIVE_MILLIS;
+        }
+    }
+}
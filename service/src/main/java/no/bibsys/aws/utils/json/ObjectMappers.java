@@ -0,0 +1,32 @@
+package no.bibsys.aws.utils.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import no.bibsys.aws.tools.JsonUtils;
+
+/**
+ * Process-wide JSON and YAML {@link ObjectMapper}s. Building a mapper is expensive while a configured mapper is
+ * thread-safe, so the mappers are created once and shared. They must not be reconfigured after creation.
+ */
+public final class ObjectMappers {
+
+    public static final ObjectMapper JSON = JsonUtils.newJsonParser();
+    public static final ObjectMapper YAML = JsonUtils.newYamlParser();
+
+    private ObjectMappers() {
+    }
+
+    /**
+     * Converts a YAML document to compact JSON, like {@link JsonUtils#yamlToJson(String)} but with the shared
+     * mappers.
+     *
+     * @param yaml the YAML document
+     * @return the document in JSON
+     * @throws IOException when the document is not valid YAML
+     */
+    public static String yamlToJson(String yaml) throws IOException {
+        JsonNode root = YAML.readTree(yaml);
+        return JSON.writeValueAsString(root);
+    }
+}
@@ -0,0 +1,104 @@
+package no.bibsys.aws.utils.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the latency, retries, throttled attempts and bytes transferred of every call of an AWS client in the
+ * {@link MetricsRecorder}. It is added to all clients created by the
+ * {@link no.bibsys.aws.utils.clients.AwsClientRegistry}.
+ */
+public class AwsMetricsHandler extends RequestHandler2 {
+
+    private static final HandlerContextKey<Long> START_NANOS = new HandlerContextKey<>("MetricsStartNanos");
+    private static final HandlerContextKey<AtomicInteger> ATTEMPTS = new HandlerContextKey<>("MetricsAttempts");
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String REQUEST_SUFFIX = "Request";
+
+    private final transient MetricsRecorder recorder;
+
+    public AwsMetricsHandler() {
+        this(MetricsRecorder.getInstance());
+    }
+
+    public AwsMetricsHandler(MetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START_NANOS, System.nanoTime());
+        request.addHandlerContext(ATTEMPTS, new AtomicInteger());
+    }
+
+    @Override
+    public void afterAttempt(HandlerAfterAttemptContext context) {
+        Request<?> request = context.getRequest();
+        AtomicInteger attempts = request.getHandlerContext(ATTEMPTS);
+        if (attempts != null) {
+            attempts.incrementAndGet();
+        }
+        Exception exception = context.getException();
+        if (exception instanceof SdkBaseException && RetryUtils.isThrottlingException((SdkBaseException) exception)) {
+            metrics(request).recordThrottle();
+        }
+        long received = context.getResponse() == null || context.getResponse().getHttpResponse() == null ? 0
+            : contentLength(context.getResponse().getHttpResponse().getHeaders());
+        metrics(request).recordBytes(contentLength(request.getHeaders()), received);
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        recordCall(request, false);
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        recordCall(request, true);
+    }
+
+    private void recordCall(Request<?> request, boolean failed) {
+        Long start = request.getHandlerContext(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        OperationMetrics metrics = metrics(request);
+        metrics.recordCall(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed);
+        AtomicInteger attempts = request.getHandlerContext(ATTEMPTS);
+        if (attempts != null && attempts.get() > 1) {
+            metrics.recordRetries(attempts.get() - 1);
+        }
+    }
+
+    private OperationMetrics metrics(Request<?> request) {
+        return recorder.operation(request.getServiceName(), operationName(request));
+    }
+
+    private String operationName(Request<?> request) {
+        String operation = request.getHandlerContext(HandlerContextKey.OPERATION_NAME);
+        if (operation != null) {
+            return operation;
+        }
+        AmazonWebServiceRequest original = request.getOriginalRequest();
+        String name = original == null ? request.getHttpMethod().name() : original.getClass().getSimpleName();
+        return name.endsWith(REQUEST_SUFFIX) ? name.substring(0, name.length() - REQUEST_SUFFIX.length()) : name;
+    }
+
+    private long contentLength(Map<String, String> headers) {
+        String length = headers == null ? null : headers.get(CONTENT_LENGTH);
+        try {
+            return length == null ? 0 : Long.parseLong(length);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
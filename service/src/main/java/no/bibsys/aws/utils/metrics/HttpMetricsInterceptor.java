@@ -0,0 +1,91 @@
+package no.bibsys.aws.utils.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+
+/**
+ * Records the latency, throttled responses and bytes transferred of the calls of the shared HTTP client in the
+ * {@link MetricsRecorder}. The service is derived from the host (Github, SwaggerHub or the host name) and the
+ * operation is the HTTP method. The latency is measured until the response headers are received.
+ */
+public class HttpMetricsInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    public static final String GITHUB_SERVICE = "Github";
+    public static final String SWAGGERHUB_SERVICE = "SwaggerHub";
+
+    private static final String START_NANOS = HttpMetricsInterceptor.class.getName() + ".startNanos";
+    private static final String GITHUB_HOST = "github.com";
+    private static final String SWAGGERHUB_HOST = "swaggerhub.com";
+    private static final String RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+    private static final String NO_REMAINING_REQUESTS = "0";
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final transient MetricsRecorder recorder;
+
+    public HttpMetricsInterceptor() {
+        this(MetricsRecorder.getInstance());
+    }
+
+    public HttpMetricsInterceptor(MetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        context.setAttribute(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        Object start = context.getAttribute(START_NANOS);
+        HttpCoreContext coreContext = HttpCoreContext.adapt(context);
+        HttpRequest request = coreContext.getRequest();
+        if (!(start instanceof Long) || request == null) {
+            return;
+        }
+        int status = response.getStatusLine().getStatusCode();
+        OperationMetrics metrics = recorder.operation(service(coreContext.getTargetHost()),
+            request.getRequestLine().getMethod());
+        metrics.recordCall(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - (Long) start),
+            status >= HttpStatus.SC_BAD_REQUEST);
+        if (isThrottled(response, status)) {
+            metrics.recordThrottle();
+        }
+        long sent = request instanceof HttpEntityEnclosingRequest
+            ? contentLength(((HttpEntityEnclosingRequest) request).getEntity()) : 0;
+        metrics.recordBytes(sent, contentLength(response.getEntity()));
+    }
+
+    private boolean isThrottled(HttpResponse response, int status) {
+        if (status == TOO_MANY_REQUESTS) {
+            return true;
+        }
+        // Github answers 403 when the rate limit of the token is exhausted
+        return status == HttpStatus.SC_FORBIDDEN && response.containsHeader(RATE_LIMIT_REMAINING)
+            && NO_REMAINING_REQUESTS.equals(response.getFirstHeader(RATE_LIMIT_REMAINING).getValue());
+    }
+
+    private String service(HttpHost host) {
+        String hostName = host == null ? "" : host.getHostName().toLowerCase(Locale.ROOT);
+        if (hostName.endsWith(GITHUB_HOST)) {
+            return GITHUB_SERVICE;
+        } else if (hostName.endsWith(SWAGGERHUB_HOST)) {
+            return SWAGGERHUB_SERVICE;
+        }
+        return hostName;
+    }
+
+    private long contentLength(HttpEntity entity) {
+        return entity == null ? 0 : entity.getContentLength();
+    }
+}
@@ -0,0 +1,26 @@
+package no.bibsys.aws.utils.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the metric documents in memory. Intended for tests.
+ */
+public class InMemoryMetricsSink implements MetricsSink {
+
+    private final transient List<String> documents = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String document) {
+        documents.add(document);
+    }
+
+    public List<String> getDocuments() {
+        return new ArrayList<>(documents);
+    }
+
+    public void clear() {
+        documents.clear();
+    }
+}
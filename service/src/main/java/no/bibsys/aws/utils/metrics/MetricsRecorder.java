@@ -0,0 +1,153 @@
+package no.bibsys.aws.utils.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide collector of the latency, retries, throttling and bytes transferred of the calls to AWS, Github and
+ * SwaggerHub. The calls are recorded by the {@link AwsMetricsHandler} of the AWS clients and the
+ * {@link HttpMetricsInterceptor} of the HTTP client, and are aggregated per service and operation. {@link #flush()}
+ * writes one CloudWatch Embedded Metric Format document per operation to the {@link MetricsSink} and starts over; it
+ * is called at the end of each stack action and Lambda invocation.
+ * <p>
+ * Tests can replace the sink with {@link #setSink(MetricsSink)} and restore it with {@link #reset()}.
+ * </p>
+ */
+public final class MetricsRecorder {
+
+    public static final String NAMESPACE = "PipelineBuilder";
+    public static final String SERVICE_DIMENSION = "Service";
+    public static final String OPERATION_DIMENSION = "Operation";
+    public static final String LATENCY = "Latency";
+    public static final String CALLS = "Calls";
+    public static final String ERRORS = "Errors";
+    public static final String RETRIES = "Retries";
+    public static final String THROTTLES = "Throttles";
+    public static final String BYTES_SENT = "BytesSent";
+    public static final String BYTES_RECEIVED = "BytesReceived";
+    /**
+     * The maximum number of values of a metric in one Embedded Metric Format document.
+     */
+    public static final int MAX_VALUES_PER_DOCUMENT = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRecorder.class);
+    private static final MetricsRecorder INSTANCE = new MetricsRecorder();
+    private static final String KEY_SEPARATOR = "/";
+    private static final String MILLISECONDS = "Milliseconds";
+    private static final String COUNT = "Count";
+    private static final String BYTES = "Bytes";
+    private static final String RENDERING_FAILED_MESSAGE = "Could not render the metrics of {}";
+
+    private final transient Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private transient volatile MetricsSink sink = new StdoutMetricsSink();
+
+    private MetricsRecorder() {
+    }
+
+    public static MetricsRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the metrics of an operation, creating them on first use.
+     *
+     * @param service the service, e.g. "AmazonCloudFormation" or "Github"
+     * @param operation the operation, e.g. "CreateStack" or "GET"
+     * @return the metrics of the operation since the last flush
+     */
+    public OperationMetrics operation(String service, String operation) {
+        return operations.computeIfAbsent(service + KEY_SEPARATOR + operation,
+            key -> new OperationMetrics(service, operation));
+    }
+
+    /**
+     * Returns the metrics recorded since the last flush.
+     *
+     * @return the metrics of each operation
+     */
+    public List<OperationMetrics> snapshot() {
+        return new ArrayList<>(operations.values());
+    }
+
+    /**
+     * Publishes the metrics recorded since the last flush and clears them.
+     */
+    public void flush() {
+        for (String key : new ArrayList<>(operations.keySet())) {
+            OperationMetrics metrics = operations.remove(key);
+            if (metrics != null && metrics.getCalls() > 0) {
+                publish(metrics);
+            }
+        }
+    }
+
+    public MetricsRecorder setSink(MetricsSink sink) {
+        this.sink = sink;
+        return this;
+    }
+
+    /**
+     * Discards the recorded metrics and restores the standard output sink.
+     */
+    public void reset() {
+        operations.clear();
+        sink = new StdoutMetricsSink();
+    }
+
+    private void publish(OperationMetrics metrics) {
+        long timestamp = System.currentTimeMillis();
+        List<Long> latencies = metrics.getLatencies();
+        try {
+            for (int start = 0; start < latencies.size(); start += MAX_VALUES_PER_DOCUMENT) {
+                int end = Math.min(latencies.size(), start + MAX_VALUES_PER_DOCUMENT);
+                List<Long> chunk = latencies.subList(start, end);
+                sink.publish(ObjectMappers.JSON.writeValueAsString(document(metrics, chunk, start == 0, timestamp)));
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn(RENDERING_FAILED_MESSAGE, metrics.getOperation(), e);
+        }
+    }
+
+    // the counters are only in the first document of an operation, so that they are not counted twice
+    private ObjectNode document(OperationMetrics metrics, List<Long> latencies, boolean withCounters,
+        long timestamp) {
+        ObjectNode document = ObjectMappers.JSON.createObjectNode();
+        ObjectNode directive = document.putObject("_aws").put("Timestamp", timestamp)
+            .putArray("CloudWatchMetrics").addObject();
+        directive.put("Namespace", NAMESPACE);
+        directive.putArray("Dimensions").addArray().add(SERVICE_DIMENSION).add(OPERATION_DIMENSION);
+        ArrayNode definitions = directive.putArray("Metrics");
+
+        document.put(SERVICE_DIMENSION, metrics.getService());
+        document.put(OPERATION_DIMENSION, metrics.getOperation());
+        addDefinition(definitions, LATENCY, MILLISECONDS);
+        ArrayNode values = document.putArray(LATENCY);
+        latencies.forEach(values::add);
+        if (withCounters) {
+            addMetric(document, definitions, CALLS, COUNT, metrics.getCalls());
+            addMetric(document, definitions, ERRORS, COUNT, metrics.getErrors());
+            addMetric(document, definitions, RETRIES, COUNT, metrics.getRetries());
+            addMetric(document, definitions, THROTTLES, COUNT, metrics.getThrottles());
+            addMetric(document, definitions, BYTES_SENT, BYTES, metrics.getBytesSent());
+            addMetric(document, definitions, BYTES_RECEIVED, BYTES, metrics.getBytesReceived());
+        }
+        return document;
+    }
+
+    private void addMetric(ObjectNode document, ArrayNode definitions, String name, String unit, long value) {
+        addDefinition(definitions, name, unit);
+        document.put(name, value);
+    }
+
+    private void addDefinition(ArrayNode definitions, String name, String unit) {
+        definitions.addObject().put("Name", name).put("Unit", unit);
+    }
+}
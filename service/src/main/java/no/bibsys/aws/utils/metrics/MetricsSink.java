@@ -0,0 +1,15 @@
+package no.bibsys.aws.utils.metrics;
+
+/**
+ * Destination of the metric documents written by the {@link MetricsRecorder}.
+ */
+@FunctionalInterface
+public interface MetricsSink {
+
+    /**
+     * Publishes one document in the CloudWatch Embedded Metric Format.
+     *
+     * @param document the JSON document, on one line
+     */
+    void publish(String document);
+}
@@ -0,0 +1,88 @@
+package no.bibsys.aws.utils.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The metrics of one operation of one service, e.g. CreateStack of CloudFormation, since the last flush.
+ */
+public class OperationMetrics {
+
+    private final transient String service;
+    private final transient String operation;
+    private final transient List<Long> latencies = new ArrayList<>();
+    private transient long calls;
+    private transient long errors;
+    private transient long retries;
+    private transient long throttles;
+    private transient long bytesSent;
+    private transient long bytesReceived;
+
+    public OperationMetrics(String service, String operation) {
+        this.service = service;
+        this.operation = operation;
+    }
+
+    /**
+     * Records a completed call.
+     *
+     * @param latencyMillis the duration of the call including retries
+     * @param failed whether the call ended with an error
+     */
+    public synchronized void recordCall(long latencyMillis, boolean failed) {
+        latencies.add(latencyMillis);
+        calls++;
+        if (failed) {
+            errors++;
+        }
+    }
+
+    public synchronized void recordRetries(long count) {
+        retries += count;
+    }
+
+    public synchronized void recordThrottle() {
+        throttles++;
+    }
+
+    public synchronized void recordBytes(long sent, long received) {
+        bytesSent += Math.max(0, sent);
+        bytesReceived += Math.max(0, received);
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public synchronized List<Long> getLatencies() {
+        return new ArrayList<>(latencies);
+    }
+
+    public synchronized long getCalls() {
+        return calls;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    public synchronized long getRetries() {
+        return retries;
+    }
+
+    public synchronized long getThrottles() {
+        return throttles;
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+}
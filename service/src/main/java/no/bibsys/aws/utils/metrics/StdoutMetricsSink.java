@@ -0,0 +1,14 @@
+package no.bibsys.aws.utils.metrics;
+
+/**
+ * Writes the metric documents to standard output. In AWS Lambda standard output goes to CloudWatch Logs, which
+ * extracts the metrics from lines in the Embedded Metric Format, so no CloudWatch API calls are needed. The documents
+ * are written directly and not through the logger, since the extraction requires the line to be the bare document.
+ */
+public class StdoutMetricsSink implements MetricsSink {
+
+    @Override
+    public void publish(String document) {
+        System.out.println(document);
+    }
+}
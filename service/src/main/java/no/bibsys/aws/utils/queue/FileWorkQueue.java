@@ -0,0 +1,121 @@
+package no.bibsys.aws.utils.queue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link WorkQueue} stored as one JSON file per job in a directory, for local runs. Jobs are received in the
+ * order they were enqueued, by the time of the clock and then by the order within the enqueuing process. A received
+ * job is renamed so that other consumers do not receive it, and deleted when it is acknowledged. Like a message in
+ * SQS, a received job that is not acknowledged within the visibility timeout is returned to the queue and received
+ * again.
+ */
+public class FileWorkQueue implements WorkQueue {
+
+    // the visibility timeout of the SQS queue in template.yml
+    public static final long DEFAULT_VISIBILITY_TIMEOUT_MILLIS = 960_000;
+
+    private static final String JOB_SUFFIX = ".json";
+    private static final String RECEIVED_SUFFIX = ".received";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String JOB_NAME_FORMAT = "%020d-%020d-%s";
+    // orders the jobs that this process enqueues within the same millisecond
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final transient Path directory;
+    private final transient long visibilityTimeoutMillis;
+    private final transient Clock clock;
+
+    public FileWorkQueue(Path directory) throws IOException {
+        this(directory, DEFAULT_VISIBILITY_TIMEOUT_MILLIS, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param directory the directory of the job files
+     * @param visibilityTimeoutMillis how long a received job is hidden from other consumers before it is returned to
+     *     the queue, unless it is acknowledged
+     * @param clock the clock
+     */
+    public FileWorkQueue(Path directory, long visibilityTimeoutMillis, Clock clock) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.visibilityTimeoutMillis = visibilityTimeoutMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public void enqueue(GitEventJob job) throws IOException {
+        String name = String.format(JOB_NAME_FORMAT, clock.millis(), SEQUENCE.incrementAndGet(), UUID.randomUUID());
+        Path temporary = directory.resolve(name + TEMPORARY_SUFFIX);
+        Files.write(temporary, job.toJson().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, directory.resolve(name + JOB_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public List<QueuedJob> receive(int maxJobs) throws IOException {
+        returnExpiredJobs();
+        List<QueuedJob> received = new ArrayList<>();
+        for (Path jobFile : filesWithSuffix(JOB_SUFFIX)) {
+            if (received.size() >= maxJobs) {
+                break;
+            }
+            Path receivedFile = jobFile.resolveSibling(jobFile.getFileName() + RECEIVED_SUFFIX);
+            try {
+                // the time of receipt, from which the visibility timeout is counted. It is set before the move, so
+                // that other consumers never see the received job with the time it was enqueued or returned.
+                Files.setLastModifiedTime(jobFile, FileTime.fromMillis(clock.millis()));
+                Files.move(jobFile, receivedFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                // received by another consumer
+                continue;
+            }
+            String json = new String(Files.readAllBytes(receivedFile), StandardCharsets.UTF_8);
+            received.add(new QueuedJob(GitEventJob.fromJson(json), receivedFile.toString()));
+        }
+        return received;
+    }
+
+    @Override
+    public void acknowledge(QueuedJob queuedJob) throws IOException {
+        Files.deleteIfExists(Paths.get(queuedJob.getReceiptHandle()));
+    }
+
+    private void returnExpiredJobs() throws IOException {
+        long receivedBefore = clock.millis() - visibilityTimeoutMillis;
+        for (Path receivedFile : filesWithSuffix(RECEIVED_SUFFIX)) {
+            try {
+                if (Files.getLastModifiedTime(receivedFile).toMillis() <= receivedBefore) {
+                    String name = receivedFile.getFileName().toString();
+                    Path jobFile = receivedFile.resolveSibling(
+                        name.substring(0, name.length() - RECEIVED_SUFFIX.length()));
+                    Files.move(receivedFile, jobFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (NoSuchFileException e) {
+                // acknowledged or returned by another consumer
+                continue;
+            }
+        }
+    }
+
+    private List<Path> filesWithSuffix(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package no.bibsys.aws.utils.queue;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.utils.json.ObjectMappers;
+
+/**
+ * A queued request to create or delete the stacks of a branch.
+ */
+@JsonInclude(Include.NON_NULL)
+public class GitEventJob extends GitEvent {
+
+    private static final ObjectMapper JSON_PARSER = ObjectMappers.JSON;
+
+    private Action action;
+
+    public GitEventJob() {
+        super();
+    }
+
+    public GitEventJob(GitEvent event, Action action) {
+        super(event.getOwner(), event.getRepository(), event.getBranch());
+        this.action = action;
+    }
+
+    public static GitEventJob fromJson(String json) throws IOException {
+        return JSON_PARSER.readValue(json, GitEventJob.class);
+    }
+
+    public String toJson() throws IOException {
+        return JSON_PARSER.writeValueAsString(this);
+    }
+
+    public String getAction() {
+        return action.toString();
+    }
+
+    public void setAction(String action) {
+        this.action = Action.fromString(action);
+    }
+
+    @JsonIgnore
+    public Action getActionType() {
+        return action;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s/%s:%s", action, getOwner(), getRepository(), getBranch());
+    }
+}
@@ -0,0 +1,53 @@
+package no.bibsys.aws.utils.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A {@link WorkQueue} kept in memory, for tests and local runs.
+ */
+public class InMemoryWorkQueue implements WorkQueue {
+
+    private final transient Queue<GitEventJob> jobs = new ConcurrentLinkedQueue<>();
+    private final transient Map<String, GitEventJob> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public void enqueue(GitEventJob job) {
+        jobs.add(job);
+    }
+
+    @Override
+    public List<QueuedJob> receive(int maxJobs) {
+        List<QueuedJob> received = new ArrayList<>();
+        GitEventJob job = received.size() < maxJobs ? jobs.poll() : null;
+        while (job != null) {
+            String receiptHandle = UUID.randomUUID().toString();
+            inFlight.put(receiptHandle, job);
+            received.add(new QueuedJob(job, receiptHandle));
+            job = received.size() < maxJobs ? jobs.poll() : null;
+        }
+        return received;
+    }
+
+    @Override
+    public void acknowledge(QueuedJob queuedJob) {
+        inFlight.remove(queuedJob.getReceiptHandle());
+    }
+
+    /**
+     * Puts the jobs that have been received but not acknowledged back in the queue.
+     */
+    public void requeueUnacknowledged() {
+        jobs.addAll(inFlight.values());
+        inFlight.clear();
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+}
@@ -0,0 +1,23 @@
+package no.bibsys.aws.utils.queue;
+
+/**
+ * A job received from a {@link WorkQueue}, together with the handle needed for acknowledging it.
+ */
+public class QueuedJob {
+
+    private final transient GitEventJob job;
+    private final transient String receiptHandle;
+
+    public QueuedJob(GitEventJob job, String receiptHandle) {
+        this.job = job;
+        this.receiptHandle = receiptHandle;
+    }
+
+    public GitEventJob getJob() {
+        return job;
+    }
+
+    public String getReceiptHandle() {
+        return receiptHandle;
+    }
+}
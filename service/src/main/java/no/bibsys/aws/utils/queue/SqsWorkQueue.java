@@ -0,0 +1,65 @@
+package no.bibsys.aws.utils.queue;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import no.bibsys.aws.utils.coalescing.BranchActionCoalescer;
+
+/**
+ * A {@link WorkQueue} backed by an SQS queue. A received job becomes visible again when it is not acknowledged
+ * within the visibility timeout of the queue. For a FIFO queue, the jobs of each branch are sent in their own
+ * message group, so that SQS hands out the jobs of a branch one at a time and in order.
+ */
+public class SqsWorkQueue implements WorkQueue {
+
+    public static final int MAX_MESSAGES_PER_RECEIVE = 10;
+    private static final String FIFO_SUFFIX = ".fifo";
+
+    private final transient AmazonSQS sqsClient;
+    private final transient String queueUrl;
+
+    public SqsWorkQueue(AmazonSQS sqsClient, String queueUrl) {
+        this.sqsClient = sqsClient;
+        this.queueUrl = queueUrl;
+    }
+
+    @Override
+    public void enqueue(GitEventJob job) throws IOException {
+        SendMessageRequest request = new SendMessageRequest()
+            .withQueueUrl(queueUrl)
+            .withMessageBody(job.toJson());
+        if (queueUrl.endsWith(FIFO_SUFFIX)) {
+            // every job is a new event, so content based deduplication must not drop repeated actions
+            request.withMessageGroupId(BranchActionCoalescer.branchKey(job))
+                .withMessageDeduplicationId(UUID.randomUUID().toString());
+        }
+        sqsClient.sendMessage(request);
+    }
+
+    @Override
+    public List<QueuedJob> receive(int maxJobs) throws IOException {
+        List<Message> messages = sqsClient.receiveMessage(new ReceiveMessageRequest()
+            .withQueueUrl(queueUrl)
+            .withMaxNumberOfMessages(Math.min(maxJobs, MAX_MESSAGES_PER_RECEIVE))
+            .withWaitTimeSeconds(0))
+            .getMessages();
+        List<QueuedJob> jobs = new ArrayList<>();
+        for (Message message : messages) {
+            jobs.add(new QueuedJob(GitEventJob.fromJson(message.getBody()), message.getReceiptHandle()));
+        }
+        return jobs;
+    }
+
+    @Override
+    public void acknowledge(QueuedJob queuedJob) {
+        sqsClient.deleteMessage(new DeleteMessageRequest()
+            .withQueueUrl(queueUrl)
+            .withReceiptHandle(queuedJob.getReceiptHandle()));
+    }
+}
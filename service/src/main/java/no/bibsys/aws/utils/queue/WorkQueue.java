@@ -0,0 +1,24 @@
+package no.bibsys.aws.utils.queue;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A queue of {@link GitEventJob}s. Received jobs stay in the queue (invisible to other consumers where the
+ * implementation supports it) until they are acknowledged, so that a job whose processing fails is delivered again.
+ */
+public interface WorkQueue {
+
+    void enqueue(GitEventJob job) throws IOException;
+
+    /**
+     * Receives up to {@code maxJobs} jobs without waiting.
+     *
+     * @param maxJobs the maximum number of jobs to receive
+     * @return the received jobs, empty if the queue is empty
+     * @throws IOException when the queue cannot be read
+     */
+    List<QueuedJob> receive(int maxJobs) throws IOException;
+
+    void acknowledge(QueuedJob queuedJob) throws IOException;
+}
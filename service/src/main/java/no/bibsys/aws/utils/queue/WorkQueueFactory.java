@@ -0,0 +1,30 @@
+package no.bibsys.aws.utils.queue;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+
+/**
+ * Creates a {@link WorkQueue} from a queue location: "memory:" for an in-memory queue, a "file:" URI for a
+ * directory-backed queue and any other value for the URL of an SQS queue.
+ */
+public final class WorkQueueFactory {
+
+    private static final String MEMORY_SCHEME = "memory:";
+    private static final String FILE_SCHEME = "file:";
+
+    private WorkQueueFactory() {
+    }
+
+    public static WorkQueue create(String location) throws IOException {
+        if (location.startsWith(MEMORY_SCHEME)) {
+            return new InMemoryWorkQueue();
+        } else if (location.startsWith(FILE_SCHEME)) {
+            return new FileWorkQueue(Paths.get(URI.create(location)));
+        } else {
+            return new SqsWorkQueue(AwsClientRegistry.getInstance().get(AmazonSQS.class), location);
+        }
+    }
+}
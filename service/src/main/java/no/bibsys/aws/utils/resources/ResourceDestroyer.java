@@ -3,10 +3,8 @@ package no.bibsys.aws.utils.resources;
 import com.amazonaws.services.apigateway.AmazonApiGateway;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
 import com.amazonaws.services.route53.AmazonRoute53;
-import com.amazonaws.services.route53.model.ChangeResourceRecordSetsRequest;
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.Optional;
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.git.github.GitInfo;
 import no.bibsys.aws.lambda.deploy.handlers.SwaggerHubUpdater;
@@ -31,6 +29,8 @@ public class ResourceDestroyer extends ResourceManager {
 
     private final transient SwaggerHubUpdater swaggerHubUpdater;
     private final transient Route53Updater route53Updater;
+    private final transient AmazonRoute53 route53Client;
+    private transient Route53ChangeWaiter route53ChangeWaiter;
 
     public ResourceDestroyer(
         String stackName,
@@ -54,14 +54,21 @@ public class ResourceDestroyer extends ResourceManager {
         StaticUrlInfo newStaticUrlInfo = initStaticUrlInfo(staticUrlInfo, gitInfo.getBranch());
         route53Updater = new Route53Updater(newStaticUrlInfo, apiGatewayRestApi, apiGatewayClient,
             route53Client);
+        this.route53Client = route53Client;
+        this.route53ChangeWaiter = new Route53ChangeWaiter(route53Client);
+    }
+
+    public ResourceDestroyer setRoute53ChangeWaiter(Route53ChangeWaiter route53ChangeWaiter) {
+        this.route53ChangeWaiter = route53ChangeWaiter;
+        return this;
     }
 
     public void destroy() throws IOException, URISyntaxException {
         int response = swaggerHubUpdater.deleteApi();
-        Optional<ChangeResourceRecordSetsRequest> request = this.route53Updater
-            .createDeleteRequest();
-        request.ifPresent(route53Updater::executeDeleteRequest);
+        String route53Status = applyRoute53Changes(route53Client, route53ChangeWaiter,
+            Route53ChangeBatches.combine(route53Updater.createDeleteRequest()));
 
         logger.debug("Swagger response" + response);
+        logger.debug("Route53:" + route53Status);
     }
 }
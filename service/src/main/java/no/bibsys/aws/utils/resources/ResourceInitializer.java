@@ -2,6 +2,7 @@ package no.bibsys.aws.utils.resources;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.List;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -11,7 +12,6 @@ import com.amazonaws.services.apigateway.AmazonApiGateway;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
 import com.amazonaws.services.route53.AmazonRoute53;
 import com.amazonaws.services.route53.model.ChangeResourceRecordSetsRequest;
-import com.amazonaws.services.route53.model.ChangeResourceRecordSetsResult;
 
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.git.github.GitInfo;
@@ -35,6 +35,8 @@ public class ResourceInitializer extends ResourceManager {
     private final transient SwaggerHubUpdater swaggerHubUpdater;
     private final transient Route53Updater route53Updater;
     private final transient String certificateArn;
+    private final transient AmazonRoute53 route53Client;
+    private transient Route53ChangeWaiter route53ChangeWaiter;
 
     public ResourceInitializer(String stackName,
         StaticUrlInfo staticUrlInfo,
@@ -60,6 +62,13 @@ public class ResourceInitializer extends ResourceManager {
         route53Updater = new Route53Updater(newStaticUrlInfo, apiGatewayRestApiId, apiGatewayClient,
             route53Client);
         this.certificateArn = certificateArn;
+        this.route53Client = route53Client;
+        this.route53ChangeWaiter = new Route53ChangeWaiter(route53Client);
+    }
+
+    public ResourceInitializer setRoute53ChangeWaiter(Route53ChangeWaiter route53ChangeWaiter) {
+        this.route53ChangeWaiter = route53ChangeWaiter;
+        return this;
     }
 
     public SimpleResponse initializeStacks() throws IOException, URISyntaxException {
@@ -69,16 +78,11 @@ public class ResourceInitializer extends ResourceManager {
         System.out.println("Lambda function started");
         System.out.println("Updating Route 53");
 
-        deletePreviousResources();
-
-        Optional<ChangeResourceRecordSetsRequest> requestOpt = route53Updater
-            .createUpdateRequestForRecordSets(certificateArn);
-
-        Optional<ChangeResourceRecordSetsResult> route53UpdateResult = requestOpt
-            .map(route53Updater::executeUpdateRequest);
-
-        String route53Status = route53UpdateResult.map(result -> result.getChangeInfo().getStatus())
-            .orElse("Server not updated");
+        // the records of the test phase are deleted in the same atomic batch as the new records are created
+        List<ChangeResourceRecordSetsRequest> batches = Route53ChangeBatches.combine(
+            previousResourcesDeleteRequest(),
+            route53Updater.createUpdateRequestForRecordSets(certificateArn));
+        String route53Status = applyRoute53Changes(route53Client, route53ChangeWaiter, batches);
 
         StringBuilder output = new StringBuilder("Swagger:");
         Optional<String> swaggerUpdateResult = swaggerHubUpdater.updateApiDocumentation();
@@ -88,11 +92,9 @@ public class ResourceInitializer extends ResourceManager {
         return new SimpleResponse(output.toString());
     }
 
-    private void deletePreviousResources() throws URISyntaxException, IOException {
+    // the previous API version in SwaggerHub is deleted by the SwaggerHubUpdater, only when the specification changed
+    private Optional<ChangeResourceRecordSetsRequest> previousResourcesDeleteRequest() {
         Route53Updater testPhaseRoute53Updater = route53Updater.copy(Stage.TEST);
-        Optional<ChangeResourceRecordSetsRequest> request = testPhaseRoute53Updater
-            .createDeleteRequest();
-        request.ifPresent(route53Updater::executeDeleteRequest);
-        swaggerHubUpdater.deleteApiVersion();
+        return testPhaseRoute53Updater.createDeleteRequest();
     }
 }
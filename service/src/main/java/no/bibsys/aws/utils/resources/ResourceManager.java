@@ -4,7 +4,13 @@ import com.amazonaws.services.apigateway.AmazonApiGateway;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
 import com.amazonaws.services.cloudformation.model.StackResource;
 import com.amazonaws.services.kms.model.NotFoundException;
+import com.amazonaws.services.route53.AmazonRoute53;
+import com.amazonaws.services.route53.model.ChangeInfo;
+import com.amazonaws.services.route53.model.ChangeResourceRecordSetsRequest;
+import com.amazonaws.services.route53.model.ChangeStatus;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.cloudformation.helpers.ResourceType;
 import no.bibsys.aws.cloudformation.helpers.StackResources;
@@ -23,6 +29,7 @@ public class ResourceManager {
     private static final Logger logger = LoggerFactory.getLogger(ResourceManager.class);
     private static final int RANDOM_STRING_LENGTH = 5;
     protected static final int ADEQUATELY_RANDOM_STRING = RANDOM_STRING_LENGTH;
+    protected static final String ROUTE53_NOT_UPDATED = "Server not updated";
     private final transient AmazonCloudFormation cloudFormation;
 
     public ResourceManager(AmazonCloudFormation cloudFormation) {
@@ -68,4 +75,28 @@ public class ResourceManager {
 
         return newStaticUrlInfo;
     }
+
+    /**
+     * Submits Route53 changes with one ChangeResourceRecordSets call per hosted zone and waits until they are INSYNC.
+     *
+     * @param route53Client the Route53 client
+     * @param waiter the waiter for the submitted changes
+     * @param batches the changes, as combined by {@link Route53ChangeBatches#combine(Optional[])}
+     * @return INSYNC, the status of a change that did not get in sync, or a message when there were no changes
+     */
+    protected String applyRoute53Changes(AmazonRoute53 route53Client, Route53ChangeWaiter waiter,
+        List<ChangeResourceRecordSetsRequest> batches) {
+        if (batches.isEmpty()) {
+            return ROUTE53_NOT_UPDATED;
+        }
+        // all batches are submitted before waiting, so that they propagate at the same time
+        List<ChangeInfo> changes = batches.stream()
+            .map(batch -> route53Client.changeResourceRecordSets(batch).getChangeInfo())
+            .collect(Collectors.toList());
+        return changes.stream()
+            .map(waiter::awaitInSync)
+            .filter(status -> !ChangeStatus.INSYNC.toString().equals(status))
+            .findFirst()
+            .orElse(ChangeStatus.INSYNC.toString());
+    }
 }
@@ -0,0 +1,89 @@
+package no.bibsys.aws.utils.resources;
+
+import com.amazonaws.services.route53.model.Change;
+import com.amazonaws.services.route53.model.ChangeAction;
+import com.amazonaws.services.route53.model.ChangeBatch;
+import com.amazonaws.services.route53.model.ChangeResourceRecordSetsRequest;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Combines Route53 change requests into one request per hosted zone, so that related changes are applied with a
+ * single atomic ChangeResourceRecordSets call.
+ */
+public final class Route53ChangeBatches {
+
+    private static final String TRAILING_DOT = ".";
+
+    private Route53ChangeBatches() {
+    }
+
+    /**
+     * Combines the changes of the requests in their order. A DELETE of a record set that a later change of the same
+     * batch creates or upserts is dropped, because the later change replaces the record set anyway.
+     *
+     * @param requests the requests to combine, empty requests are ignored
+     * @return one request per hosted zone, in the order the zones first appear
+     */
+    @SafeVarargs
+    public static List<ChangeResourceRecordSetsRequest> combine(
+        Optional<ChangeResourceRecordSetsRequest>... requests) {
+        Map<String, List<Change>> changesByZone = new LinkedHashMap<>();
+        Map<String, String> commentsByZone = new LinkedHashMap<>();
+        for (Optional<ChangeResourceRecordSetsRequest> request : requests) {
+            request.ifPresent(present -> {
+                String zone = present.getHostedZoneId();
+                changesByZone.computeIfAbsent(zone, key -> new ArrayList<>())
+                    .addAll(present.getChangeBatch().getChanges());
+                if (present.getChangeBatch().getComment() != null) {
+                    commentsByZone.putIfAbsent(zone, present.getChangeBatch().getComment());
+                }
+            });
+        }
+        return changesByZone.entrySet().stream()
+            .map(entry -> new ChangeResourceRecordSetsRequest()
+                .withHostedZoneId(entry.getKey())
+                .withChangeBatch(new ChangeBatch()
+                    .withComment(commentsByZone.get(entry.getKey()))
+                    .withChanges(withoutReplacedDeletes(entry.getValue()))))
+            .collect(Collectors.toList());
+    }
+
+    private static List<Change> withoutReplacedDeletes(List<Change> changes) {
+        List<Change> result = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            if (!(isDelete(change) && isReplacedLater(change, changes.subList(i + 1, changes.size())))) {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isReplacedLater(Change delete, List<Change> laterChanges) {
+        return laterChanges.stream()
+            .filter(change -> !isDelete(change))
+            .anyMatch(change -> sameRecordSet(delete.getResourceRecordSet(), change.getResourceRecordSet()));
+    }
+
+    private static boolean isDelete(Change change) {
+        return ChangeAction.DELETE.toString().equals(change.getAction());
+    }
+
+    private static boolean sameRecordSet(ResourceRecordSet first, ResourceRecordSet second) {
+        return normalizedName(first).equals(normalizedName(second))
+            && String.valueOf(first.getType()).equals(String.valueOf(second.getType()))
+            && String.valueOf(first.getSetIdentifier()).equals(String.valueOf(second.getSetIdentifier()));
+    }
+
+    private static String normalizedName(ResourceRecordSet recordSet) {
+        String name = String.valueOf(recordSet.getName()).toLowerCase(Locale.ROOT);
+        return name.endsWith(TRAILING_DOT) ? name : name + TRAILING_DOT;
+    }
+}
@@ -0,0 +1,103 @@
+package no.bibsys.aws.utils.resources;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.route53.AmazonRoute53;
+import com.amazonaws.services.route53.model.ChangeInfo;
+import com.amazonaws.services.route53.model.ChangeStatus;
+import com.amazonaws.services.route53.model.GetChangeRequest;
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits until a Route53 change has been propagated to all Route53 DNS servers, i.e. its status is INSYNC. The change
+ * is polled with GetChange, with exponential backoff and jitter between the calls.
+ */
+public class Route53ChangeWaiter {
+
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 2000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 15_000;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(Route53ChangeWaiter.class);
+    private static final List<String> RETRYABLE_ERROR_CODES = Arrays.asList("Throttling", "PriorRequestNotComplete");
+    private static final String INVALID_DELAYS_MESSAGE = "Delays and timeout should be positive numbers";
+    private static final String THROTTLED_MESSAGE = "Reading Route53 change {} was throttled";
+    private static final String CHANGE_STATUS_MESSAGE = "Route53 change {}: {}";
+    private static final String TIMED_OUT_MESSAGE = "Timed out waiting for Route53 change {}";
+
+    private final transient AmazonRoute53 route53Client;
+    private final transient long initialDelayMillis;
+    private final transient long maxDelayMillis;
+    private final transient long timeoutMillis;
+
+    public Route53ChangeWaiter(AmazonRoute53 route53Client) {
+        this(route53Client, DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public Route53ChangeWaiter(AmazonRoute53 route53Client, long initialDelayMillis, long maxDelayMillis,
+        long timeoutMillis) {
+        Preconditions.checkArgument(initialDelayMillis > 0 && maxDelayMillis > 0 && timeoutMillis > 0,
+            INVALID_DELAYS_MESSAGE);
+        this.route53Client = route53Client;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Waits for a change submitted with ChangeResourceRecordSets.
+     *
+     * @param changeInfo the change as returned by ChangeResourceRecordSets
+     * @return the last status of the change, INSYNC unless the waiter timed out
+     */
+    public String awaitInSync(ChangeInfo changeInfo) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        String status = changeInfo.getStatus();
+        int attempt = 0;
+        while (!ChangeStatus.INSYNC.toString().equals(status)) {
+            if (System.currentTimeMillis() >= deadline) {
+                logger.warn(TIMED_OUT_MESSAGE, changeInfo.getId());
+                return status;
+            }
+            sleep(nextDelay(attempt++));
+            status = readStatus(changeInfo.getId(), status);
+        }
+        logger.info(CHANGE_STATUS_MESSAGE, changeInfo.getId(), status);
+        return status;
+    }
+
+    private String readStatus(String changeId, String previousStatus) {
+        try {
+            return route53Client.getChange(new GetChangeRequest().withId(changeId)).getChangeInfo().getStatus();
+        } catch (AmazonServiceException e) {
+            if (RETRYABLE_ERROR_CODES.contains(e.getErrorCode())) {
+                logger.warn(THROTTLED_MESSAGE, changeId);
+                return previousStatus;
+            }
+            throw e;
+        }
+    }
+
+    private long nextDelay(int attempt) {
+        if (attempt == 0) {
+            return initialDelayMillis;
+        }
+        long exponential = initialDelayMillis << Math.min(attempt, Long.numberOfLeadingZeros(initialDelayMillis) - 1);
+        long delay = Math.min(maxDelayMillis, exponential);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package no.bibsys.aws.utils.secrets;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import no.bibsys.aws.secrets.SecretsReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SecretsReader} that caches the secret of another reader.
+ * <p>
+ * A cached secret is returned until its time-to-live expires. When a secret is read during the refresh-ahead window
+ * before the expiry, it is reloaded in the background while the cached value is returned. Concurrent callers that
+ * find no valid secret share a single call to the underlying reader. {@link #invalidate()} drops the cached secret,
+ * e.g. after an authorization failure, unless it was loaded less than the minimum reload interval ago.
+ * </p>
+ */
+public class CachingSecretsReader implements SecretsReader {
+
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+    public static final long DEFAULT_REFRESH_AHEAD_MILLIS = 60 * 1000;
+    public static final long DEFAULT_MIN_RELOAD_INTERVAL_MILLIS = 10 * 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingSecretsReader.class);
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "secrets-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final String INVALID_DURATIONS_MESSAGE = "TTL should be larger than the refresh-ahead window";
+    private static final String REFRESH_FAILED_MESSAGE = "Background refresh of secret failed: {}";
+
+    private final transient SecretsReader delegate;
+    private final transient long ttlMillis;
+    private final transient long refreshAheadMillis;
+    private final transient long minReloadIntervalMillis;
+    private final transient Clock clock;
+    private final transient AtomicReference<CachedSecret> cachedSecret = new AtomicReference<>();
+    private final transient AtomicReference<CompletableFuture<String>> inFlight = new AtomicReference<>();
+
+    public CachingSecretsReader(SecretsReader delegate) {
+        this(delegate, DEFAULT_TTL_MILLIS, DEFAULT_REFRESH_AHEAD_MILLIS, DEFAULT_MIN_RELOAD_INTERVAL_MILLIS,
+            Clock.systemUTC());
+    }
+
+    public CachingSecretsReader(SecretsReader delegate, long ttlMillis, long refreshAheadMillis,
+        long minReloadIntervalMillis, Clock clock) {
+        Preconditions.checkArgument(ttlMillis > refreshAheadMillis && refreshAheadMillis >= 0,
+            INVALID_DURATIONS_MESSAGE);
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.minReloadIntervalMillis = minReloadIntervalMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public String readSecret() throws IOException {
+        CachedSecret cached = cachedSecret.get();
+        long now = clock.millis();
+        if (cached != null && now < cached.expiresAt) {
+            if (now >= cached.expiresAt - refreshAheadMillis) {
+                refreshInBackground();
+            }
+            return cached.value;
+        }
+        return load();
+    }
+
+    /**
+     * Drops the cached secret so that the next read goes to the underlying reader. A secret that was loaded less than
+     * the minimum reload interval ago is kept, so that repeated failures cannot cause a reload per request.
+     */
+    public void invalidate() {
+        CachedSecret cached = cachedSecret.get();
+        if (cached != null && clock.millis() - cached.loadedAt >= minReloadIntervalMillis) {
+            cachedSecret.compareAndSet(cached, null);
+        }
+    }
+
+    private String load() throws IOException {
+        try {
+            return loadShared(false).join();
+        } catch (CompletionException e) {
+            // rethrow the failure of the underlying reader as it was thrown
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void refreshInBackground() {
+        loadShared(true).whenComplete((value, failure) -> {
+            if (failure != null) {
+                logger.warn(REFRESH_FAILED_MESSAGE, failure.getMessage());
+            }
+        });
+    }
+
+    private CompletableFuture<String> loadShared(boolean inBackground) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.updateAndGet(current -> current == null ? future : current);
+        if (existing != future) {
+            return existing;
+        }
+        if (inBackground) {
+            REFRESH_EXECUTOR.execute(() -> fetch(future));
+        } else {
+            fetch(future);
+        }
+        return future;
+    }
+
+    private void fetch(CompletableFuture<String> future) {
+        try {
+            String value = delegate.readSecret();
+            long now = clock.millis();
+            cachedSecret.set(new CachedSecret(value, now, now + ttlMillis));
+            inFlight.set(null);
+            future.complete(value);
+        } catch (IOException | RuntimeException | Error e) {
+            // waiting callers get the failure, and the next read loads the secret again
+            inFlight.set(null);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static class CachedSecret {
+
+        private final transient String value;
+        private final transient long loadedAt;
+        private final transient long expiresAt;
+
+        CachedSecret(String value, long loadedAt, long expiresAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
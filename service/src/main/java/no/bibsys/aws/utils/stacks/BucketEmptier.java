@@ -0,0 +1,191 @@
+package no.bibsys.aws.utils.stacks;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.VersionListing;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Empties S3 buckets using multi-object delete requests. While one page of keys is being deleted the next page is
+ * listed, and up to {@code maxBatchesInFlight} delete requests run at the same time.
+ */
+public class BucketEmptier {
+
+    public static final int DEFAULT_MAX_BATCHES_IN_FLIGHT = 4;
+    public static final int MAX_KEYS_PER_REQUEST = 1000;
+    private static final int MAX_PASSES = 5;
+
+    private static final Logger logger = LoggerFactory.getLogger(BucketEmptier.class);
+    private static final String INVALID_BATCHES_MESSAGE = "Batches in flight should be a positive number";
+    private static final String DELETE_ERROR_MESSAGE = "Could not delete {} (version {}) from bucket {}: {}";
+    private static final String BUCKET_EMPTIED_MESSAGE = "Emptied bucket {}";
+
+    private final transient AmazonS3 s3Client;
+    private final transient int maxBatchesInFlight;
+
+    public BucketEmptier(AmazonS3 s3Client) {
+        this(s3Client, DEFAULT_MAX_BATCHES_IN_FLIGHT);
+    }
+
+    public BucketEmptier(AmazonS3 s3Client, int maxBatchesInFlight) {
+        Preconditions.checkArgument(maxBatchesInFlight > 0, INVALID_BATCHES_MESSAGE);
+        this.s3Client = s3Client;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+    }
+
+    /**
+     * Deletes all object versions, delete markers and objects of a bucket. The bucket is listed again until a pass
+     * finds no keys, so that objects written during the deletion are also removed.
+     *
+     * @param bucketName the bucket to empty
+     * @return the number of deleted keys and bytes
+     */
+    public BucketEmptyingResult emptyBucket(String bucketName) {
+        ExecutorService executor = Executors.newFixedThreadPool(maxBatchesInFlight);
+        Pass totals = new Pass(bucketName, executor);
+        try {
+            for (int passNumber = 0; passNumber < MAX_PASSES; passNumber++) {
+                Pass pass = new Pass(bucketName, executor);
+                pass.deleteVersions();
+                // in a versioned bucket, deleting an object without a version would only add a delete marker
+                pass.awaitBatches();
+                pass.deleteObjects();
+                pass.awaitBatches();
+                totals.add(pass);
+                if (pass.listedKeys.get() == 0 || pass.deletedKeys.get() == 0) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        BucketEmptyingResult result = totals.toResult();
+        logger.info(BUCKET_EMPTIED_MESSAGE, result);
+        return result;
+    }
+
+    private class Pass {
+
+        private final transient String bucketName;
+        private final transient ExecutorService executor;
+        private final transient Semaphore batchesInFlight = new Semaphore(maxBatchesInFlight);
+        private final transient List<CompletableFuture<Void>> batches = new ArrayList<>();
+        private final transient AtomicLong listedKeys = new AtomicLong();
+        private final transient AtomicLong deletedKeys = new AtomicLong();
+        private final transient AtomicLong deletedBytes = new AtomicLong();
+        private final transient AtomicLong failedKeys = new AtomicLong();
+
+        Pass(String bucketName, ExecutorService executor) {
+            this.bucketName = bucketName;
+            this.executor = executor;
+        }
+
+        void deleteVersions() {
+            VersionListing listing = s3Client.listVersions(new ListVersionsRequest().withBucketName(bucketName));
+            submitPage(listing.getVersionSummaries().stream()
+                .map(version -> new SizedKey(version.getKey(), version.getVersionId(), version.getSize()))
+                .collect(Collectors.toList()));
+            while (listing.isTruncated()) {
+                listing = s3Client.listNextBatchOfVersions(listing);
+                submitPage(listing.getVersionSummaries().stream()
+                    .map(version -> new SizedKey(version.getKey(), version.getVersionId(), version.getSize()))
+                    .collect(Collectors.toList()));
+            }
+        }
+
+        void deleteObjects() {
+            ObjectListing listing = s3Client.listObjects(bucketName);
+            submitPage(listing.getObjectSummaries().stream()
+                .map(object -> new SizedKey(object.getKey(), null, object.getSize()))
+                .collect(Collectors.toList()));
+            while (listing.isTruncated()) {
+                listing = s3Client.listNextBatchOfObjects(listing);
+                submitPage(listing.getObjectSummaries().stream()
+                    .map(object -> new SizedKey(object.getKey(), null, object.getSize()))
+                    .collect(Collectors.toList()));
+            }
+        }
+
+        private void submitPage(List<SizedKey> keys) {
+            listedKeys.addAndGet(keys.size());
+            for (List<SizedKey> batch : Lists.partition(keys, MAX_KEYS_PER_REQUEST)) {
+                batchesInFlight.acquireUninterruptibly();
+                batches.add(CompletableFuture.runAsync(() -> deleteBatch(batch), executor)
+                    .whenComplete((ignored, failure) -> batchesInFlight.release()));
+            }
+        }
+
+        private void deleteBatch(List<SizedKey> batch) {
+            DeleteObjectsRequest request = new DeleteObjectsRequest(bucketName)
+                .withQuiet(true)
+                .withKeys(batch.stream()
+                    .map(key -> new KeyVersion(key.key, key.versionId))
+                    .collect(Collectors.toList()));
+            List<SizedKey> failed = new ArrayList<>();
+            try {
+                s3Client.deleteObjects(request);
+            } catch (MultiObjectDeleteException e) {
+                e.getErrors().forEach(this::logError);
+                failed = batch.stream().filter(key -> isFailed(key, e.getErrors())).collect(Collectors.toList());
+            }
+            failedKeys.addAndGet(failed.size());
+            deletedKeys.addAndGet(batch.size() - failed.size());
+            deletedBytes.addAndGet(batch.stream().mapToLong(key -> key.size).sum()
+                - failed.stream().mapToLong(key -> key.size).sum());
+        }
+
+        private boolean isFailed(SizedKey key, List<DeleteError> errors) {
+            return errors.stream().anyMatch(error -> Objects.equals(error.getKey(), key.key)
+                && (error.getVersionId() == null || Objects.equals(error.getVersionId(), key.versionId)));
+        }
+
+        private void logError(DeleteError error) {
+            logger.warn(DELETE_ERROR_MESSAGE, error.getKey(), error.getVersionId(), bucketName, error.getMessage());
+        }
+
+        void awaitBatches() {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        void add(Pass pass) {
+            listedKeys.addAndGet(pass.listedKeys.get());
+            deletedKeys.addAndGet(pass.deletedKeys.get());
+            deletedBytes.addAndGet(pass.deletedBytes.get());
+            failedKeys.set(pass.failedKeys.get());
+        }
+
+        BucketEmptyingResult toResult() {
+            return new BucketEmptyingResult(bucketName, deletedKeys.get(), deletedBytes.get(), failedKeys.get());
+        }
+    }
+
+    private static class SizedKey {
+
+        private final transient String key;
+        private final transient String versionId;
+        private final transient long size;
+
+        SizedKey(String key, String versionId, long size) {
+            this.key = key;
+            this.versionId = versionId;
+            this.size = size;
+        }
+    }
+}
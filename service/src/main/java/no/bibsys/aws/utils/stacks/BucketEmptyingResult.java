@@ -0,0 +1,41 @@
+package no.bibsys.aws.utils.stacks;
+
+/**
+ * Summary of the keys deleted while emptying a bucket.
+ */
+public class BucketEmptyingResult {
+
+    private final transient String bucketName;
+    private final transient long deletedKeys;
+    private final transient long deletedBytes;
+    private final transient long failedKeys;
+
+    public BucketEmptyingResult(String bucketName, long deletedKeys, long deletedBytes, long failedKeys) {
+        this.bucketName = bucketName;
+        this.deletedKeys = deletedKeys;
+        this.deletedBytes = deletedBytes;
+        this.failedKeys = failedKeys;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public long getDeletedKeys() {
+        return deletedKeys;
+    }
+
+    public long getDeletedBytes() {
+        return deletedBytes;
+    }
+
+    public long getFailedKeys() {
+        return failedKeys;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d keys (%d bytes) deleted, %d keys failed", bucketName, deletedKeys,
+            deletedBytes, failedKeys);
+    }
+}
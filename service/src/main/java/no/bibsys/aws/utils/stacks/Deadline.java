@@ -0,0 +1,52 @@
+package no.bibsys.aws.utils.stacks;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+/**
+ * The time by which the waits of one invocation should be over. The waits for stacks run one after the other in an
+ * invocation, so they share one deadline instead of each starting its own timeout.
+ */
+public final class Deadline {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30 * 60 * 1000;
+    public static final long LAMBDA_MARGIN_MILLIS = 30_000;
+
+    private final transient long epochMillis;
+
+    private Deadline(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Returns a deadline some time from now.
+     *
+     * @param timeoutMillis the time from now
+     * @return the deadline
+     */
+    public static Deadline after(long timeoutMillis) {
+        return new Deadline(System.currentTimeMillis() + timeoutMillis);
+    }
+
+    /**
+     * Returns a deadline {@value #LAMBDA_MARGIN_MILLIS} milliseconds before Lambda stops the invocation, leaving time
+     * for reporting a timeout. Without a context, e.g. when run from the command line, the deadline is
+     * {@value #DEFAULT_TIMEOUT_MILLIS} milliseconds from now.
+     *
+     * @param context the context of the invocation, or null
+     * @return the deadline of the invocation
+     */
+    public static Deadline forContext(Context context) {
+        if (context == null) {
+            return after(DEFAULT_TIMEOUT_MILLIS);
+        }
+        return after(Math.max(0, context.getRemainingTimeInMillis() - LAMBDA_MARGIN_MILLIS));
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public boolean hasPassed() {
+        return System.currentTimeMillis() >= epochMillis;
+    }
+}
@@ -0,0 +1,153 @@
+package no.bibsys.aws.utils.stacks;
+
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.logs.model.DeleteLogGroupRequest;
+import com.amazonaws.services.logs.model.DescribeLogGroupsRequest;
+import com.amazonaws.services.logs.model.DescribeLogGroupsResult;
+import com.amazonaws.services.logs.model.LogGroup;
+import com.amazonaws.services.logs.model.PutRetentionPolicyRequest;
+import com.amazonaws.services.logs.model.ResourceNotFoundException;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes the log groups of a pipeline. The log groups are found with prefix queries for the names in
+ * {@link PipelineLogGroups}, reading all pages of each query. They are deleted concurrently, and all calls to
+ * CloudWatch Logs go through a shared rate limiter.
+ * <p>
+ * When a retention period is set, the retention of the log groups is shortened instead of deleting them.
+ * </p>
+ */
+public class LogGroupCleaner {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 4.0;
+    /**
+     * The retention periods accepted by CloudWatch Logs.
+     */
+    public static final List<Integer> VALID_RETENTION_DAYS = Collections.unmodifiableList(
+        Arrays.asList(1, 3, 5, 7, 14, 30, 60, 90, 120, 150, 180, 365, 400, 545, 731, 1827, 3653));
+
+    private static final Logger logger = LoggerFactory.getLogger(LogGroupCleaner.class);
+    private static final String INVALID_SETTINGS_MESSAGE = "Parallelism and request rate should be positive";
+    private static final String INVALID_RETENTION_MESSAGE = "Retention in days should be one of %s";
+    private static final String DELETED_MESSAGE = "Deleted log group {}";
+    private static final String RETENTION_SET_MESSAGE = "Set retention of log group {} to {} days";
+    private static final String MISSING_LOG_GROUP_MESSAGE = "Log group {} does not exist";
+
+    private final transient AWSLogs logsClient;
+    private final transient int parallelism;
+    private final transient RateLimiter rateLimiter;
+    private transient Integer retentionDays;
+
+    public LogGroupCleaner(AWSLogs logsClient) {
+        this(logsClient, DEFAULT_PARALLELISM, DEFAULT_REQUESTS_PER_SECOND);
+    }
+
+    public LogGroupCleaner(AWSLogs logsClient, int parallelism, double requestsPerSecond) {
+        Preconditions.checkArgument(parallelism > 0 && requestsPerSecond > 0, INVALID_SETTINGS_MESSAGE);
+        this.logsClient = logsClient;
+        this.parallelism = parallelism;
+        this.rateLimiter = RateLimiter.create(requestsPerSecond);
+    }
+
+    /**
+     * Makes the cleaner set the retention of the log groups instead of deleting them.
+     *
+     * @param retentionDays the retention in days, or null for deleting the log groups
+     * @return this cleaner
+     */
+    public LogGroupCleaner setRetentionDays(Integer retentionDays) {
+        Preconditions.checkArgument(retentionDays == null || VALID_RETENTION_DAYS.contains(retentionDays),
+            String.format(INVALID_RETENTION_MESSAGE, VALID_RETENTION_DAYS));
+        this.retentionDays = retentionDays;
+        return this;
+    }
+
+    /**
+     * Deletes the log groups of the pipeline, or sets their retention when a retention period is set.
+     *
+     * @param logGroups the log groups of the pipeline
+     * @return the names of the log groups that were deleted or updated
+     */
+    public List<String> cleanUp(PipelineLogGroups logGroups) {
+        List<String> names = findLogGroups(logGroups);
+        if (names.isEmpty()) {
+            return names;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, names.size()));
+        try {
+            List<CompletableFuture<Void>> tasks = names.stream()
+                .map(name -> CompletableFuture.runAsync(() -> cleanUpLogGroup(name), executor))
+                .collect(Collectors.toList());
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+            return names;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the log groups of the pipeline.
+     *
+     * @param logGroups the log groups of the pipeline
+     * @return the names of the existing log groups
+     */
+    public List<String> findLogGroups(PipelineLogGroups logGroups) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String prefix : logGroups.queryPrefixes()) {
+            describeAll(prefix).stream()
+                .map(LogGroup::getLogGroupName)
+                .filter(logGroups::matches)
+                .forEach(names::add);
+        }
+        return new ArrayList<>(names);
+    }
+
+    private List<LogGroup> describeAll(String prefix) {
+        List<LogGroup> logGroups = new ArrayList<>();
+        DescribeLogGroupsRequest request = new DescribeLogGroupsRequest().withLogGroupNamePrefix(prefix);
+        do {
+            rateLimiter.acquire();
+            DescribeLogGroupsResult result = logsClient.describeLogGroups(request);
+            logGroups.addAll(result.getLogGroups());
+            request.setNextToken(result.getNextToken());
+        } while (request.getNextToken() != null);
+        return logGroups;
+    }
+
+    private void cleanUpLogGroup(String logGroupName) {
+        rateLimiter.acquire();
+        try {
+            if (retentionDays == null) {
+                logsClient.deleteLogGroup(new DeleteLogGroupRequest().withLogGroupName(logGroupName));
+                logger.info(DELETED_MESSAGE, logGroupName);
+            } else {
+                logsClient.putRetentionPolicy(new PutRetentionPolicyRequest()
+                    .withLogGroupName(logGroupName)
+                    .withRetentionInDays(retentionDays));
+                logger.info(RETENTION_SET_MESSAGE, logGroupName, retentionDays);
+            }
+        } catch (ResourceNotFoundException e) {
+            logger.warn(MISSING_LOG_GROUP_MESSAGE, logGroupName);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package no.bibsys.aws.utils.stacks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import no.bibsys.aws.cloudformation.CodeBuildConfiguration;
+import no.bibsys.aws.cloudformation.PipelineConfiguration;
+import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
+import no.bibsys.aws.cloudformation.Stage;
+
+/**
+ * The names of the log groups that belong to a pipeline, derived from the names of its Lambda functions, service
+ * stacks and CodeBuild projects. Log groups whose full name is known are matched exactly. Log groups of functions
+ * whose names are generated by CloudFormation are matched by the prefix "{stackName}-".
+ */
+public class PipelineLogGroups {
+
+    public static final String LAMBDA_LOG_GROUP_PREFIX = "/aws/lambda/";
+    public static final String CODEBUILD_LOG_GROUP_PREFIX = "/aws/codebuild/";
+    private static final String NAME_DELIMITER = "-";
+
+    private final transient Set<String> exactNames;
+    private final transient Set<String> namePrefixes;
+
+    public PipelineLogGroups(PipelineStackConfiguration pipelineStackConfiguration) {
+        PipelineConfiguration pipeline = pipelineStackConfiguration.getPipelineConfiguration();
+        CodeBuildConfiguration codeBuild = pipelineStackConfiguration.getCodeBuildConfiguration();
+
+        Set<String> names = new LinkedHashSet<>();
+        Stage.listStages().forEach(stage -> {
+            names.add(LAMBDA_LOG_GROUP_PREFIX
+                + String.join(NAME_DELIMITER, pipeline.getInitLambdaFunctionName(), stage.toString()));
+            names.add(LAMBDA_LOG_GROUP_PREFIX
+                + String.join(NAME_DELIMITER, pipeline.getDestroyLambdaFunctionName(), stage.toString()));
+        });
+        names.add(CODEBUILD_LOG_GROUP_PREFIX + codeBuild.getBuildProjectName());
+        names.add(CODEBUILD_LOG_GROUP_PREFIX + codeBuild.getExecuteTestsProjectName());
+        this.exactNames = Collections.unmodifiableSet(names);
+
+        Set<String> prefixes = new LinkedHashSet<>();
+        Arrays.asList(pipeline.getTestServiceStack(), pipeline.getFinalServiceStack())
+            .forEach(stack -> prefixes.add(LAMBDA_LOG_GROUP_PREFIX + stack + NAME_DELIMITER));
+        this.namePrefixes = Collections.unmodifiableSet(prefixes);
+    }
+
+    /**
+     * The prefixes to query with {@code DescribeLogGroups}. A query by an exact name may also return log groups whose
+     * names start with that name, so the results should be checked with {@link #matches(String)}.
+     *
+     * @return the query prefixes
+     */
+    public List<String> queryPrefixes() {
+        Set<String> prefixes = new LinkedHashSet<>(exactNames);
+        prefixes.addAll(namePrefixes);
+        return new ArrayList<>(prefixes);
+    }
+
+    /**
+     * Checks whether a log group belongs to the pipeline.
+     *
+     * @param logGroupName the name of the log group
+     * @return true if the log group belongs to the pipeline
+     */
+    public boolean matches(String logGroupName) {
+        return exactNames.contains(logGroupName) || namePrefixes.stream().anyMatch(logGroupName::startsWith);
+    }
+}
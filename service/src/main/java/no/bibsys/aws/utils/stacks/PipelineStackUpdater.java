@@ -0,0 +1,214 @@
+package no.bibsys.aws.utils.stacks;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
+import com.amazonaws.services.cloudformation.model.Capability;
+import com.amazonaws.services.cloudformation.model.ChangeSetStatus;
+import com.amazonaws.services.cloudformation.model.ChangeSetType;
+import com.amazonaws.services.cloudformation.model.CreateChangeSetRequest;
+import com.amazonaws.services.cloudformation.model.DeleteChangeSetRequest;
+import com.amazonaws.services.cloudformation.model.DescribeChangeSetRequest;
+import com.amazonaws.services.cloudformation.model.DescribeChangeSetResult;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
+import com.amazonaws.services.cloudformation.model.ExecuteChangeSetRequest;
+import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Updates an existing stack in place by creating and executing a CloudFormation change set. The waits for the change
+ * set and for the update share one {@link Deadline}.
+ */
+public class PipelineStackUpdater {
+
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 2000;
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStackUpdater.class);
+    private static final List<String> UPDATABLE_STATUSES = Arrays.asList(
+        StackStatus.CREATE_COMPLETE.toString(),
+        StackStatus.UPDATE_COMPLETE.toString(),
+        StackStatus.UPDATE_ROLLBACK_COMPLETE.toString());
+    private static final List<String> NO_CHANGES_REASONS = Arrays.asList(
+        "didn't contain changes", "No updates are to be performed");
+    private static final String STACK_DOES_NOT_EXIST_MESSAGE = "does not exist";
+    private static final String CHANGE_SET_NAME_PREFIX = "update-";
+    private static final String CHANGE_SET_FAILED_MESSAGE = "Change set %s for stack %s failed: %s";
+    private static final String UPDATE_FAILED_MESSAGE = "Update of stack %s finished with status %s";
+    private static final String TIMEOUT_MESSAGE = "Timed out waiting for stack %s";
+    private static final String NO_CHANGES_MESSAGE = "Stack {} is up to date";
+    private static final String EXECUTING_CHANGE_SET_MESSAGE = "Executing change set {} for stack {}";
+    private static final String IN_PROGRESS_SUFFIX = "_IN_PROGRESS";
+
+    private final transient AmazonCloudFormation cloudFormationClient;
+    private final transient long pollIntervalMillis;
+    private final transient Deadline deadline;
+
+    public PipelineStackUpdater(AmazonCloudFormation cloudFormationClient) {
+        this(cloudFormationClient, Deadline.after(Deadline.DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    public PipelineStackUpdater(AmazonCloudFormation cloudFormationClient, Deadline deadline) {
+        this(cloudFormationClient, DEFAULT_POLL_INTERVAL_MILLIS, deadline);
+    }
+
+    public PipelineStackUpdater(AmazonCloudFormation cloudFormationClient, long pollIntervalMillis,
+        Deadline deadline) {
+        this.cloudFormationClient = cloudFormationClient;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns the stack if it exists and is in a state where it can be updated.
+     *
+     * @param stackName the name of the stack
+     * @return the stack or empty if it does not exist or cannot be updated
+     */
+    public Optional<Stack> findUpdatableStack(String stackName) {
+        return describeStack(stackName)
+            .filter(stack -> UPDATABLE_STATUSES.contains(stack.getStackStatus()));
+    }
+
+    /**
+     * Creates a change set with the given template and parameters and executes it if it contains changes.
+     *
+     * @param stackName the name of the existing stack
+     * @param templateBody the template of the stack
+     * @param parameters the template parameters
+     * @return true if the stack was updated, false if the stack was already up to date
+     */
+    public boolean applyChangeSet(String stackName, String templateBody, List<Parameter> parameters) {
+        return applyChangeSet(stackName, parameters, new CreateChangeSetRequest().withTemplateBody(templateBody));
+    }
+
+    /**
+     * Like {@link #applyChangeSet(String, String, List)} but with a template that CloudFormation reads from a URL.
+     *
+     * @param stackName the name of the existing stack
+     * @param templateUrl the location of the template, e.g. an object in S3
+     * @param parameters the template parameters
+     * @return true if the stack was updated, false if the stack was already up to date
+     */
+    public boolean applyChangeSetFromUrl(String stackName, String templateUrl, List<Parameter> parameters) {
+        return applyChangeSet(stackName, parameters, new CreateChangeSetRequest().withTemplateURL(templateUrl));
+    }
+
+    private boolean applyChangeSet(String stackName, List<Parameter> parameters, CreateChangeSetRequest template) {
+        String changeSetName = CHANGE_SET_NAME_PREFIX + System.currentTimeMillis();
+        cloudFormationClient.createChangeSet(template
+            .withStackName(stackName)
+            .withChangeSetName(changeSetName)
+            .withChangeSetType(ChangeSetType.UPDATE)
+            .withParameters(parameters)
+            .withCapabilities(Capability.CAPABILITY_NAMED_IAM));
+
+        DescribeChangeSetResult changeSet = awaitChangeSet(stackName, changeSetName);
+        if (ChangeSetStatus.FAILED.toString().equals(changeSet.getStatus())) {
+            deleteChangeSet(stackName, changeSetName);
+            if (containsNoChanges(changeSet.getStatusReason())) {
+                logger.info(NO_CHANGES_MESSAGE, stackName);
+                return false;
+            }
+            throw new IllegalStateException(
+                String.format(CHANGE_SET_FAILED_MESSAGE, changeSetName, stackName, changeSet.getStatusReason()));
+        }
+
+        logger.info(EXECUTING_CHANGE_SET_MESSAGE, changeSetName, stackName);
+        Optional<Stack> stackBeforeUpdate = describeStack(stackName);
+        cloudFormationClient.executeChangeSet(new ExecuteChangeSetRequest()
+            .withStackName(stackName)
+            .withChangeSetName(changeSetName));
+        awaitUpdate(stackName, stackBeforeUpdate.orElse(null));
+        return true;
+    }
+
+    private boolean containsNoChanges(String statusReason) {
+        return statusReason != null && NO_CHANGES_REASONS.stream().anyMatch(statusReason::contains);
+    }
+
+    private DescribeChangeSetResult awaitChangeSet(String stackName, String changeSetName) {
+        DescribeChangeSetRequest request = new DescribeChangeSetRequest()
+            .withStackName(stackName)
+            .withChangeSetName(changeSetName);
+        DescribeChangeSetResult changeSet = cloudFormationClient.describeChangeSet(request);
+        while (!isFinal(changeSet.getStatus())) {
+            sleepUntilNextCheck(stackName);
+            changeSet = cloudFormationClient.describeChangeSet(request);
+        }
+        return changeSet;
+    }
+
+    private boolean isFinal(String changeSetStatus) {
+        return ChangeSetStatus.CREATE_COMPLETE.toString().equals(changeSetStatus)
+            || ChangeSetStatus.FAILED.toString().equals(changeSetStatus);
+    }
+
+    /**
+     * Waits until the update has started and finished. Right after the change set has been executed the stack may
+     * still show its status from before the update, e.g. UPDATE_COMPLETE of the previous update, so a status is only
+     * final once it or the last update time differs from the stack before the update.
+     */
+    private void awaitUpdate(String stackName, Stack stackBeforeUpdate) {
+        Optional<Stack> stack = describeStack(stackName);
+        while (isInProgress(stack) || hasNotStarted(stack, stackBeforeUpdate)) {
+            sleepUntilNextCheck(stackName);
+            stack = describeStack(stackName);
+        }
+        String status = statusOf(stack);
+        if (!StackStatus.UPDATE_COMPLETE.toString().equals(status)) {
+            throw new IllegalStateException(String.format(UPDATE_FAILED_MESSAGE, stackName, status));
+        }
+    }
+
+    private boolean isInProgress(Optional<Stack> stack) {
+        return statusOf(stack).endsWith(IN_PROGRESS_SUFFIX);
+    }
+
+    private boolean hasNotStarted(Optional<Stack> stack, Stack stackBeforeUpdate) {
+        return stackBeforeUpdate != null && stack.isPresent()
+            && Objects.equals(stack.get().getStackStatus(), stackBeforeUpdate.getStackStatus())
+            && Objects.equals(stack.get().getLastUpdatedTime(), stackBeforeUpdate.getLastUpdatedTime());
+    }
+
+    private String statusOf(Optional<Stack> stack) {
+        return stack
+            .map(Stack::getStackStatus)
+            .orElse(StackStatus.DELETE_COMPLETE.toString());
+    }
+
+    private Optional<Stack> describeStack(String stackName) {
+        try {
+            return cloudFormationClient.describeStacks(new DescribeStacksRequest().withStackName(stackName))
+                .getStacks().stream().findFirst();
+        } catch (AmazonCloudFormationException e) {
+            if (e.getMessage() != null && e.getMessage().contains(STACK_DOES_NOT_EXIST_MESSAGE)) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private void deleteChangeSet(String stackName, String changeSetName) {
+        cloudFormationClient.deleteChangeSet(new DeleteChangeSetRequest()
+            .withStackName(stackName)
+            .withChangeSetName(changeSetName));
+    }
+
+    private void sleepUntilNextCheck(String stackName) {
+        if (deadline.hasPassed()) {
+            throw new IllegalStateException(String.format(TIMEOUT_MESSAGE, stackName));
+        }
+        try {
+            Thread.sleep(pollIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format(TIMEOUT_MESSAGE, stackName), e);
+        }
+    }
+}
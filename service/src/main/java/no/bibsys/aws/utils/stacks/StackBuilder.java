@@ -5,28 +5,44 @@ import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException
 import com.amazonaws.services.cloudformation.model.Capability;
 import com.amazonaws.services.cloudformation.model.CreateStackRequest;
 import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
 import com.amazonaws.services.identitymanagement.model.GetRoleRequest;
 import com.amazonaws.services.identitymanagement.model.GetRoleResult;
 import com.amazonaws.services.identitymanagement.model.NoSuchEntityException;
 import java.io.IOException;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.roles.CreateStackRole;
 import no.bibsys.aws.roles.CreateStackRoleImpl;
-import no.bibsys.aws.tools.IoUtils;
 import no.bibsys.aws.utils.github.GithubReader;
+import no.bibsys.aws.utils.templates.TemplatePublisher;
+import no.bibsys.aws.utils.templates.TemplateRegistry;
+import no.bibsys.aws.utils.templates.TemplateStore;
+import no.bibsys.aws.utils.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class StackBuilder {
 
+    public static final String CLOUDFORMATION_TEMPLATE_PARAMETER_GITHUB_OWNER = "GithubOwner";
+    public static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_GITHUB_REPO = "GithubRepo";
+    public static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_PROJECT_BRANCH = "ProjectBranch";
+    public static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_TRACE_ID = "TraceId";
+    public static final String CREATE_STACKS_SPAN = "createStacks";
+    public static final String CREATE_OR_UPDATE_STACKS_SPAN = "createOrUpdateStacks";
+    public static final String WIPE_STACKS_SPAN = "wipeStacks";
+    public static final String CREATE_ROLE_SPAN = "createRole";
+    public static final String TEMPLATE_PARAMETERS_SPAN = "templateParameters";
+    public static final String CREATE_STACK_SPAN = "createStack";
+    public static final String FIND_UPDATABLE_STACK_SPAN = "findUpdatableStack";
+    public static final String UPDATE_ROLE_POLICY_SPAN = "updateRolePolicy";
+    public static final String APPLY_CHANGE_SET_SPAN = "applyChangeSet";
+
     private static final Logger log = LoggerFactory.getLogger(StackBuilder.class);
-    private static final String CLOUDFORMATION_TEMPLATE_PARAMETER_GITHUB_OWNER = "GithubOwner";
-    private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_GITHUB_REPO = "GithubRepo";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_GITHUB_AUTH = "GithubAuth";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_PIPELINE_NAME = "PipelineName";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_PIPELINE_BUCKETNAME =
@@ -35,11 +51,10 @@ public class StackBuilder {
         "PipelineRolename";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_CREATE_STACK_ROLE_ARN =
         "CreateStackRoleArn";
-    private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_CREATE_STACK_ROLE_NAME = "CreateStackRoleName";
+    static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_CREATE_STACK_ROLE_NAME = "CreateStackRoleName";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_SOURCE_STAGE_OUTPUT_ARTIFACT =
         "SourceStageOutputArtifact";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_PROJECT_ID = "ProjectId";
-    private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_PROJECT_BRANCH = "ProjectBranch";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_NORMALIZED_BRANCH_NAME = "NormalizedBranchName";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_CODEBUILD_OUTPUT_ARTIFACT =
         "CodebuildOutputArtifact";
@@ -55,8 +70,7 @@ public class StackBuilder {
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_TEST_PHASE_NAME = "TestPhaseName";
     private static final String CLOUD_FORMATION_TEMPLATE_PARAMETER_FINAL_PHASE_NAME = "FinalPhaseName";
     private static final String STACK_DOES_NOT_EXIST_WARNING = "Stack does not exist";
-    private static final String TEMPLATES_RESOURCE_DIRECTORY = "templates";
-    private static final String PIPELINE_TEMPLATE = "pipelineTemplate.yaml";
+    private static final String UPDATING_STACK_MESSAGE = "Updating existing stack {} in place";
 
     private final transient StackWiper stackWiper;
 
@@ -64,6 +78,9 @@ public class StackBuilder {
     private final transient AmazonCloudFormation cloudFormationClient;
     private final transient AmazonIdentityManagement amazonIdentityManagement;
     private final transient GithubReader githubReader;
+    private final transient PipelineStackUpdater stackUpdater;
+    private transient TemplatePublisher templatePublisher;
+    private transient Tracer tracer;
 
     public StackBuilder(
         StackWiper wiper,
@@ -71,36 +88,138 @@ public class StackBuilder {
         AmazonCloudFormation cloudFormationClient,
         AmazonIdentityManagement amazonIdentityManagement,
         GithubReader githubReader
+    ) {
+        this(wiper, pipelineStackConfiguration, cloudFormationClient, amazonIdentityManagement, githubReader,
+            new PipelineStackUpdater(cloudFormationClient));
+    }
+
+    public StackBuilder(
+        StackWiper wiper,
+        PipelineStackConfiguration pipelineStackConfiguration,
+        AmazonCloudFormation cloudFormationClient,
+        AmazonIdentityManagement amazonIdentityManagement,
+        GithubReader githubReader,
+        PipelineStackUpdater stackUpdater
     ) {
         this.cloudFormationClient = cloudFormationClient;
         this.stackWiper = wiper;
         this.pipelineStackConfiguration = pipelineStackConfiguration;
         this.amazonIdentityManagement = amazonIdentityManagement;
         this.githubReader = githubReader;
+        this.stackUpdater = stackUpdater;
+        this.tracer = Tracer.forBranch(pipelineStackConfiguration.getProjectId(),
+            pipelineStackConfiguration.getNormalizedBranchName());
+    }
+
+    /**
+     * Makes the pipeline stack read its template from a store through a {@code TemplateURL} instead of receiving it
+     * inline. The template is uploaded under a content-addressed key, so it is uploaded only when it has changed.
+     *
+     * @param templateStore the store for the template, or null for sending the template inline
+     * @return this builder
+     */
+    public StackBuilder setTemplateStore(TemplateStore templateStore) {
+        this.templatePublisher = templateStore == null ? null : new TemplatePublisher(templateStore);
+        return this;
+    }
+
+    /**
+     * Records the phases of the creation or update in spans of a trace. The trace id is also passed to the pipeline
+     * stack in the {@code TraceId} parameter.
+     *
+     * @param tracer the tracer of this stack action
+     * @return this builder
+     */
+    public StackBuilder setTracer(Tracer tracer) {
+        this.tracer = tracer;
+        return this;
     }
 
     public void createStacks() throws Exception {
+        tracer.run(CREATE_STACKS_SPAN, () -> {
+            tracer.run(WIPE_STACKS_SPAN, this::wipeStacks);
+            tracer.run(CREATE_ROLE_SPAN,
+                () -> createNewCreateStackRole(pipelineStackConfiguration, this.githubReader));
+            createPipelineStack(pipelineStackConfiguration);
+        });
+    }
+
+    private void wipeStacks() {
         try {
             stackWiper.wipeStacks();
         } catch (AmazonCloudFormationException e) {
             log.warn(STACK_DOES_NOT_EXIST_WARNING);
         }
-        createNewCreateStackRole(pipelineStackConfiguration, this.githubReader);
-        createPipelineStack(pipelineStackConfiguration);
+    }
+
+    /**
+     * Updates the pipeline stack in place with a change set if it already exists in an updatable state. The existing
+     * bucket and create-stack role are kept and nothing is deleted. Otherwise the stacks are wiped and created as in
+     * {@link #createStacks()}.
+     *
+     * @throws Exception when the creation or the update fails
+     */
+    public void createOrUpdateStacks() throws Exception {
+        tracer.run(CREATE_OR_UPDATE_STACKS_SPAN, () -> {
+            Optional<PipelineStackConfiguration> existingConfiguration = tracer.call(FIND_UPDATABLE_STACK_SPAN,
+                () -> stackUpdater.findUpdatableStack(pipelineStackConfiguration.getPipelineStackName()))
+                .flatMap(this::existingStackConfiguration);
+            if (existingConfiguration.isPresent()) {
+                updatePipelineStack(existingConfiguration.get());
+            } else {
+                createStacks();
+            }
+        });
+    }
+
+    private Optional<PipelineStackConfiguration> existingStackConfiguration(Stack stack) {
+        Optional<String> bucketName = parameterValue(stack, CLOUD_FORMATION_TEMPLATE_PARAMETER_PIPELINE_BUCKETNAME);
+        Optional<String> roleName = parameterValue(stack, CLOUD_FORMATION_TEMPLATE_PARAMETER_CREATE_STACK_ROLE_NAME);
+        if (bucketName.isPresent() && roleName.isPresent()) {
+            return Optional.of(new PipelineStackConfiguration(pipelineStackConfiguration.getGithubConf(),
+                bucketName.get(), roleName.get()));
+        }
+        return Optional.empty();
+    }
+
+    private Optional<String> parameterValue(Stack stack, String parameterKey) {
+        return stack.getParameters().stream()
+            .filter(parameter -> parameterKey.equals(parameter.getParameterKey()))
+            .map(Parameter::getParameterValue)
+            .findFirst();
+    }
+
+    private void updatePipelineStack(PipelineStackConfiguration existingConfiguration) throws Exception {
+        log.info(UPDATING_STACK_MESSAGE, existingConfiguration.getPipelineStackName());
+        CreateStackRole createStackRole = new CreateStackRoleImpl(githubReader, existingConfiguration,
+            amazonIdentityManagement);
+        tracer.run(UPDATE_ROLE_POLICY_SPAN, createStackRole::updateRolePolicy);
+        String stackName = existingConfiguration.getPipelineStackName();
+        List<Parameter> parameters = tracer.call(TEMPLATE_PARAMETERS_SPAN,
+            () -> templateParameters(existingConfiguration));
+        tracer.run(APPLY_CHANGE_SET_SPAN, () -> {
+            if (templatePublisher == null) {
+                stackUpdater.applyChangeSet(stackName, pipelineTemplate(), parameters);
+            } else {
+                stackUpdater.applyChangeSetFromUrl(stackName, pipelineTemplateUrl(), parameters);
+            }
+        });
     }
 
     private void createNewCreateStackRole(PipelineStackConfiguration pipelineStackConfiguration,
         GithubReader githubReader) throws Exception {
         CreateStackRole createStackRole
             = new CreateStackRoleImpl(githubReader, pipelineStackConfiguration,
-            amazonIdentityManagement);
+            amazonIdentityManagement).setTracer(tracer);
         createStackRole.createRole();
     }
 
     private void createPipelineStack(PipelineStackConfiguration pipelineStackConfiguration)
-        throws IOException {
-        CreateStackRequest createStackRequest = createStackRequest(pipelineStackConfiguration);
-        cloudFormationClient.createStack(createStackRequest);
+        throws Exception {
+        CreateStackRequest createStackRequest = tracer.call(TEMPLATE_PARAMETERS_SPAN,
+            () -> createStackRequest(pipelineStackConfiguration));
+        tracer.run(CREATE_STACK_SPAN, () -> cloudFormationClient.createStack(createStackRequest));
+        pipelineStackConfiguration.registerResourceNames();
     }
 
     private CreateStackRequest createStackRequest(
@@ -108,8 +227,12 @@ public class StackBuilder {
         throws IOException {
         CreateStackRequest createStackRequest = new CreateStackRequest();
         setBasicStackRequestParameters(createStackRequest, pipelineStackConfiguration);
-        setPipelineStackTemplate(createStackRequest);
-        setTemplateParameters(createStackRequest, pipelineStackConfiguration);
+        if (templatePublisher == null) {
+            createStackRequest.setTemplateBody(pipelineTemplate());
+        } else {
+            createStackRequest.setTemplateURL(pipelineTemplateUrl());
+        }
+        createStackRequest.setParameters(templateParameters(pipelineStackConfiguration));
 
         return createStackRequest;
     }
@@ -120,8 +243,8 @@ public class StackBuilder {
         createStackRequest.withCapabilities(Capability.CAPABILITY_NAMED_IAM);
     }
 
-    private void setTemplateParameters(CreateStackRequest createStackRequest,
-        PipelineStackConfiguration pipelineStack)
+    // package-private for the benchmarks
+    List<Parameter> templateParameters(PipelineStackConfiguration pipelineStack)
         throws IOException {
 
         List<Parameter> parameters = new ArrayList<>();
@@ -146,9 +269,9 @@ public class StackBuilder {
             pipelineStack.getPipelineRoleName()));
 
         parameters.add(newParameter(CLOUD_FORMATION_TEMPLATE_PARAMETER_CREATE_STACK_ROLE_ARN,
-            getCreateStackRoleArn()));
+            getCreateStackRoleArn(pipelineStack.getCreateStackRoleName())));
         parameters.add(newParameter(CLOUD_FORMATION_TEMPLATE_PARAMETER_CREATE_STACK_ROLE_NAME,
-            pipelineStackConfiguration.getCreateStackRoleName()));
+            pipelineStack.getCreateStackRoleName()));
 
         parameters.add(newParameter(CLOUD_FORMATION_TEMPLATE_PARAMETER_SOURCE_STAGE_OUTPUT_ARTIFACT,
             pipelineStack.getPipelineConfiguration().getSourceOutputArtifactName()));
@@ -190,15 +313,18 @@ public class StackBuilder {
             Stage.TEST.toString()));
         parameters.add(newParameter(CLOUD_FORMATION_TEMPLATE_PARAMETER_FINAL_PHASE_NAME,
             Stage.FINAL.toString()));
+        parameters.add(newParameter(CLOUD_FORMATION_TEMPLATE_PARAMETER_TRACE_ID, tracer.getTraceId()));
 
-        createStackRequest.setParameters(parameters);
+        return parameters;
     }
 
-    private void setPipelineStackTemplate(CreateStackRequest createStackRequest)
-        throws IOException {
-        String templateBody = IoUtils
-            .resourceAsString(Paths.get(TEMPLATES_RESOURCE_DIRECTORY, PIPELINE_TEMPLATE));
-        createStackRequest.setTemplateBody(templateBody);
+    private String pipelineTemplate() throws IOException {
+        return TemplateRegistry.getInstance().get(TemplateRegistry.PIPELINE_TEMPLATE).text();
+    }
+
+    private String pipelineTemplateUrl() throws IOException {
+        String name = TemplateRegistry.PIPELINE_TEMPLATE.getFileName().toString();
+        return templatePublisher.publish(name, pipelineTemplate());
     }
 
     private Parameter newParameter(String key, String value) {
@@ -206,8 +332,12 @@ public class StackBuilder {
     }
 
     public String getCreateStackRoleArn() throws NoSuchEntityException {
+        return getCreateStackRoleArn(pipelineStackConfiguration.getCreateStackRoleName());
+    }
+
+    private String getCreateStackRoleArn(String createStackRoleName) throws NoSuchEntityException {
         GetRoleResult getRoleResult = amazonIdentityManagement
-            .getRole(new GetRoleRequest().withRoleName(pipelineStackConfiguration.getCreateStackRoleName()));
+            .getRole(new GetRoleRequest().withRoleName(createStackRoleName));
         return getRoleResult.getRole().getArn();
     }
 }
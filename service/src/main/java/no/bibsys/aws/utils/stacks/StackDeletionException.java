@@ -0,0 +1,12 @@
+package no.bibsys.aws.utils.stacks;
+
+public class StackDeletionException extends RuntimeException {
+
+    public StackDeletionException(String message) {
+        super(message);
+    }
+
+    public StackDeletionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package no.bibsys.aws.utils.stacks;
+
+/**
+ * The result of waiting for the deletion of a CloudFormation stack.
+ */
+public enum StackDeletionOutcome {
+    DELETED, FAILED, TIMED_OUT
+}
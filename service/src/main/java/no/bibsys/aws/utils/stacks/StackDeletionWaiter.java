@@ -0,0 +1,139 @@
+package no.bibsys.aws.utils.stacks;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.google.common.base.Preconditions;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for the deletion of CloudFormation stacks. Each stack is described by name, with exponential backoff and
+ * jitter between the checks. All stacks waited on through the same waiter share one polling thread and one
+ * {@link Deadline}.
+ */
+public class StackDeletionWaiter implements AutoCloseable {
+
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(StackDeletionWaiter.class);
+    private static final String STACK_DOES_NOT_EXIST_MESSAGE = "does not exist";
+    private static final String THROTTLING_ERROR_CODE = "Throttling";
+    private static final String INVALID_DELAYS_MESSAGE = "Delays should be positive numbers";
+    private static final String OUTCOME_MESSAGE = "Deletion of stack {}: {}";
+    private static final String THROTTLED_MESSAGE = "Describing stack {} was throttled";
+
+    private final transient AmazonCloudFormation cloudFormationClient;
+    private final transient long initialDelayMillis;
+    private final transient long maxDelayMillis;
+    private final transient Deadline deadline;
+    private final transient ScheduledExecutorService poller;
+
+    public StackDeletionWaiter(AmazonCloudFormation cloudFormationClient) {
+        this(cloudFormationClient, Deadline.after(Deadline.DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    public StackDeletionWaiter(AmazonCloudFormation cloudFormationClient, Deadline deadline) {
+        this(cloudFormationClient, DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, deadline);
+    }
+
+    public StackDeletionWaiter(AmazonCloudFormation cloudFormationClient, long initialDelayMillis,
+        long maxDelayMillis, Deadline deadline) {
+        Preconditions.checkArgument(initialDelayMillis > 0 && maxDelayMillis > 0, INVALID_DELAYS_MESSAGE);
+        this.cloudFormationClient = cloudFormationClient;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.deadline = deadline;
+        this.poller = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Starts waiting for the deletion of a stack whose deletion has already been requested.
+     *
+     * @param stackName the name of the stack
+     * @return a future completed with the outcome of the deletion
+     */
+    public CompletableFuture<StackDeletionOutcome> awaitDeletion(String stackName) {
+        CompletableFuture<StackDeletionOutcome> outcome = new CompletableFuture<>();
+        schedule(stackName, 0, outcome);
+        outcome.thenAccept(result -> logger.info(OUTCOME_MESSAGE, stackName, result));
+        return outcome;
+    }
+
+    private void schedule(String stackName, int attempt, CompletableFuture<StackDeletionOutcome> outcome) {
+        poller.schedule(() -> check(stackName, attempt, outcome), nextDelay(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    private void check(String stackName, int attempt, CompletableFuture<StackDeletionOutcome> outcome) {
+        try {
+            Optional<StackDeletionOutcome> result = describeOutcome(stackName);
+            if (result.isPresent()) {
+                outcome.complete(result.get());
+            } else if (deadline.hasPassed()) {
+                outcome.complete(StackDeletionOutcome.TIMED_OUT);
+            } else {
+                schedule(stackName, attempt + 1, outcome);
+            }
+        } catch (RuntimeException e) {
+            outcome.completeExceptionally(e);
+        }
+    }
+
+    private Optional<StackDeletionOutcome> describeOutcome(String stackName) {
+        try {
+            Optional<Stack> stack = cloudFormationClient
+                .describeStacks(new DescribeStacksRequest().withStackName(stackName))
+                .getStacks().stream().findFirst();
+            return stack.map(Stack::getStackStatus).flatMap(this::outcomeForStatus);
+        } catch (AmazonCloudFormationException e) {
+            if (e.getMessage() != null && e.getMessage().contains(STACK_DOES_NOT_EXIST_MESSAGE)) {
+                return Optional.of(StackDeletionOutcome.DELETED);
+            }
+            return throttled(stackName, e);
+        } catch (AmazonServiceException e) {
+            return throttled(stackName, e);
+        }
+    }
+
+    private Optional<StackDeletionOutcome> throttled(String stackName, AmazonServiceException e) {
+        if (THROTTLING_ERROR_CODE.equals(e.getErrorCode())) {
+            logger.warn(THROTTLED_MESSAGE, stackName);
+            return Optional.empty();
+        }
+        throw e;
+    }
+
+    private Optional<StackDeletionOutcome> outcomeForStatus(String status) {
+        if (StackStatus.DELETE_COMPLETE.toString().equals(status)) {
+            return Optional.of(StackDeletionOutcome.DELETED);
+        } else if (StackStatus.DELETE_FAILED.toString().equals(status)) {
+            return Optional.of(StackDeletionOutcome.FAILED);
+        }
+        return Optional.empty();
+    }
+
+    private long nextDelay(int attempt) {
+        if (attempt == 0) {
+            return initialDelayMillis;
+        }
+        long exponential = initialDelayMillis << Math.min(attempt, Long.numberOfLeadingZeros(initialDelayMillis) - 1);
+        long delay = Math.min(maxDelayMillis, exponential);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+    }
+}
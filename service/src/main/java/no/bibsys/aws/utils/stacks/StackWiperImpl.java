@@ -1,12 +1,15 @@
 package no.bibsys.aws.utils.stacks;
 
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
 import com.amazonaws.services.cloudformation.model.DeleteStackRequest;
 import com.amazonaws.services.cloudformation.model.DeleteStackResult;
-import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
+import com.amazonaws.services.cloudformation.model.Parameter;
 import com.amazonaws.services.cloudformation.model.StackResource;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
-import com.amazonaws.services.identitymanagement.model.ListRoleTagsRequest;
+import com.amazonaws.services.identitymanagement.model.GetRoleRequest;
+import com.amazonaws.services.identitymanagement.model.NoSuchEntityException;
 import com.amazonaws.services.identitymanagement.model.Role;
 import com.amazonaws.services.identitymanagement.model.Tag;
 import com.amazonaws.services.lambda.AWSLambda;
@@ -15,41 +18,57 @@ import com.amazonaws.services.lambda.model.InvokeRequest;
 import com.amazonaws.services.lambda.model.InvokeResult;
 import com.amazonaws.services.lambda.model.ResourceNotFoundException;
 import com.amazonaws.services.logs.AWSLogs;
-import com.amazonaws.services.logs.model.DeleteLogGroupRequest;
-import com.amazonaws.services.logs.model.LogGroup;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ListVersionsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
-import com.amazonaws.services.s3.model.VersionListing;
-import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import no.bibsys.aws.cloudformation.PipelineConfiguration;
 import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.cloudformation.helpers.ResourceType;
 import no.bibsys.aws.cloudformation.helpers.StackResources;
 import no.bibsys.aws.roles.CreateStackRole;
 import no.bibsys.aws.roles.DeleteRoleHelper;
+import no.bibsys.aws.roles.TaggedRoleFinder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class StackWiperImpl implements StackWiper {
 
+    public static final int DEFAULT_PARALLELISM = 4;
     private static final String LOG_MESSAGE_TEMPLATE = "%s->%s";
     private static final String DESTROYED_STACK_LOG_MESSAGE = "Destroyed Stack status code:{}";
+    static final String DESTROY_FUNCTION_STEP = "invoke-destroy-function";
+    static final String DELETE_SERVICE_STACK_STEP = "delete-service-stack";
+    static final String DELETE_BUCKETS_STEP = "delete-buckets";
+    static final String DELETE_PIPELINE_STACK_STEP = "delete-pipeline-stack";
+    static final String DELETE_LOGS_STEP = "delete-logs";
+    static final String DELETE_CREATE_STACK_ROLE_STEP = "delete-create-stack-role";
     private static final Logger logger = LoggerFactory.getLogger(StackWiperImpl.class);
-    private static final int WAIT_UNTIL_CHECKING_AGAIN = 1000;
-    private static final int MAX_TIMES_TO_CHECK = 100;
+    private static final String STACK_NOT_DELETED_MESSAGE = "Stack %s was not deleted: %s";
     private static final String ARN_BUCKET_NAME_DELIMITER = ":::";
+    private static final String ROOT_PATH = "/";
+    private static final String SEARCHING_LEGACY_ROLE_MESSAGE =
+        "No create-stack role found under path {}, checking role {} with the root path";
+    private static final String LISTING_LEGACY_ROLES_MESSAGE =
+        "No create-stack role found under path {} and no pipeline stack names one, listing the root path";
     private final transient PipelineStackConfiguration pipelineStackConfiguration;
     private final transient AmazonCloudFormation cloudFormationClient;
     private final transient AmazonS3 s3Client;
     private final transient AWSLambda lambdaClient;
     private final transient AWSLogs logsClient;
     private final transient AmazonIdentityManagement amazonIdentityManagement;
+    private final transient int parallelism;
+    private transient Integer logRetentionDays;
+    private transient TaggedRoleFinder roleFinder;
+    private transient Deadline deadline;
 
     public StackWiperImpl(PipelineStackConfiguration pipelineStackConfiguration,
         AmazonCloudFormation acf,
@@ -57,6 +76,20 @@ public class StackWiperImpl implements StackWiper {
         AWSLambda lambdaClient,
         AWSLogs logsClient,
         AmazonIdentityManagement amazonIdentityManagement
+    ) {
+        this(pipelineStackConfiguration, acf, s3Client, lambdaClient, logsClient, amazonIdentityManagement,
+            DEFAULT_PARALLELISM);
+    }
+
+    //long parameter list
+    @SuppressWarnings("PMD")
+    public StackWiperImpl(PipelineStackConfiguration pipelineStackConfiguration,
+        AmazonCloudFormation acf,
+        AmazonS3 s3Client,
+        AWSLambda lambdaClient,
+        AWSLogs logsClient,
+        AmazonIdentityManagement amazonIdentityManagement,
+        int parallelism
     ) {
         this.pipelineStackConfiguration = pipelineStackConfiguration;
         this.cloudFormationClient = acf;
@@ -64,34 +97,114 @@ public class StackWiperImpl implements StackWiper {
         this.lambdaClient = lambdaClient;
         this.logsClient = logsClient;
         this.amazonIdentityManagement = amazonIdentityManagement;
+        this.parallelism = parallelism;
+        this.roleFinder = new TaggedRoleFinder(amazonIdentityManagement);
     }
 
+    /**
+     * Deletes all resources of the pipeline. Steps that do not depend on each other (the destroy functions of the two
+     * stages, the buckets and the two service stacks) run concurrently.
+     */
     @Override
     public void wipeStacks() {
+        try (StackDeletionWaiter waiter = newStackDeletionWaiter()) {
+            createTeardownPlan(waiter).execute();
+        }
+    }
+
+    /**
+     * Makes the wiper set a short retention on the log groups of the pipeline instead of deleting them.
+     *
+     * @param logRetentionDays the retention in days, or null for deleting the log groups
+     * @return this wiper
+     */
+    public StackWiperImpl setLogRetentionDays(Integer logRetentionDays) {
+        this.logRetentionDays = logRetentionDays;
+        return this;
+    }
+
+    /**
+     * Sets the finder of the create-stack roles, e.g. one that shares its role listings with other pipelines.
+     *
+     * @param roleFinder the finder
+     * @return this wiper
+     */
+    public StackWiperImpl setRoleFinder(TaggedRoleFinder roleFinder) {
+        this.roleFinder = roleFinder;
+        return this;
+    }
+
+    /**
+     * Sets the deadline of the invocation, which all waits for the deletion of stacks share.
+     *
+     * @param deadline the deadline, or null for a default timeout from the start of the wipe
+     * @return this wiper
+     */
+    public StackWiperImpl setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    protected StackDeletionWaiter newStackDeletionWaiter() {
+        if (deadline == null) {
+            return new StackDeletionWaiter(cloudFormationClient);
+        }
+        return new StackDeletionWaiter(cloudFormationClient, deadline);
+    }
 
-        Map<Stage, Integer> resourceDestructionStatusCodes =
-            Stage.listStages().stream()
-                .map(stage -> new SimpleEntry<>(stage, invokeDestroyLambdaFunction(stage)))
-                .collect(Collectors.toMap(SimpleEntry::getKey, SimpleEntry::getValue));
+    protected TeardownPlan createTeardownPlan(StackDeletionWaiter waiter) {
+        TeardownPlan plan = new TeardownPlan(parallelism);
+        PipelineConfiguration pipelineConfiguration = pipelineStackConfiguration.getPipelineConfiguration();
 
-        resourceDestructionStatusCodes.entrySet().stream()
-            .map(entry -> String.format(LOG_MESSAGE_TEMPLATE, entry.getKey(), entry.getValue()))
-            .forEach(message -> logger.debug(DESTROYED_STACK_LOG_MESSAGE, message));
+        Stage.listStages().forEach(stage -> plan.addStep(destroyFunctionStep(stage),
+            () -> logDestroyFunctionResult(stage, invokeDestroyLambdaFunction(stage))));
 
+        List<String> createStackRoleDependencies = new ArrayList<>();
         StackResources stackResources = new StackResources(pipelineStackConfiguration.getPipelineStackName(),
             cloudFormationClient);
+        String stackRoleName = null;
         if (stackResources.stackExists()) {
+            // The pipeline stack names its create-stack role, and is gone when the role is deleted
+            stackRoleName = createStackRoleNameOfStack().orElse(null);
             // Delete buckets first because they cannot be deleted automatically when we delete a Stack
-            deleteBuckets();
-            deleteStacks();
-            deleteLogs();
+            plan.addStep(DELETE_BUCKETS_STEP, this::deleteBuckets);
+            Stage.listStages().forEach(stage -> {
+                String stackName = pipelineConfiguration.getCurrentServiceStackName(stage);
+                plan.addStep(deleteServiceStackStep(stage), () -> deleteStack(stackName, waiter),
+                    destroyFunctionStep(stage));
+                createStackRoleDependencies.add(deleteServiceStackStep(stage));
+            });
+            // The destroy functions belong to the pipeline stack, so it is deleted after the service stacks.
+            plan.addStep(DELETE_PIPELINE_STACK_STEP,
+                () -> deleteStack(pipelineStackConfiguration.getPipelineStackName(), waiter),
+                DELETE_BUCKETS_STEP, deleteServiceStackStep(Stage.TEST), deleteServiceStackStep(Stage.FINAL));
+            plan.addStep(DELETE_LOGS_STEP, this::deleteLogs, DELETE_PIPELINE_STACK_STEP);
+            createStackRoleDependencies.add(DELETE_PIPELINE_STACK_STEP);
+        } else {
+            Stage.listStages().stream().map(StackWiperImpl::destroyFunctionStep)
+                .forEach(createStackRoleDependencies::add);
         }
         // should be executed last to allow the deletion of the test and final stack.
-        deleteCreateStackRole();
+        String legacyRoleName = stackRoleName;
+        plan.addStep(DELETE_CREATE_STACK_ROLE_STEP, () -> deleteCreateStackRole(legacyRoleName),
+            createStackRoleDependencies.toArray(new String[0]));
+        return plan;
+    }
+
+    static String destroyFunctionStep(Stage stage) {
+        return String.join("-", DESTROY_FUNCTION_STEP, stage.toString());
+    }
+
+    static String deleteServiceStackStep(Stage stage) {
+        return String.join("-", DELETE_SERVICE_STACK_STEP, stage.toString());
     }
 
-    private void deleteCreateStackRole() {
-        List<Role> rolesToDelete = rolesForDeletion();
+    private void logDestroyFunctionResult(Stage stage, Integer statusCode) {
+        logger.debug(DESTROYED_STACK_LOG_MESSAGE, String.format(LOG_MESSAGE_TEMPLATE, stage, statusCode));
+    }
+
+    private void deleteCreateStackRole(String stackRoleName) {
+        List<Role> rolesToDelete = rolesForDeletion(stackRoleName);
         List<String> roleNames = rolesToDelete.stream().map(Role::getRoleName).collect(Collectors.toList());
         String roleNamesList = String.join(",", roleNames);
         logger.info("Deleting roles:{}", roleNamesList);
@@ -100,15 +213,70 @@ public class StackWiperImpl implements StackWiper {
     }
 
     protected List<Role> rolesForDeletion() {
-        return amazonIdentityManagement
-            .listRoles()
-            .getRoles()
-            .stream()
-            .filter(this::roleHasCorrectTags)
-            .collect(Collectors.toList());
+        return rolesForDeletion(createStackRoleNameOfStack().orElse(null));
+    }
+
+    /**
+     * Finds the create-stack roles of the pipeline. Roles are listed by the path of the pipeline, so the number of IAM
+     * calls depends on the number of roles of the pipeline and not on the size of the account. Roles created before
+     * the path was introduced have the root path, so when no role is found under the pipeline path, the role named by
+     * the pipeline stack is read directly. Without such a name, the roles with the root path are searched by tags.
+     *
+     * @param stackRoleName the create-stack role name of the pipeline stack, or null if it is not known
+     * @return the roles to delete
+     */
+    protected List<Role> rolesForDeletion(String stackRoleName) {
+        Set<Tag> expectedTags = expectedCreateStackRoleTags();
+        List<Role> roles = roleFinder.findRoles(pipelineStackConfiguration.getCreateStackRolePath(), expectedTags);
+        if (!roles.isEmpty()) {
+            return roles;
+        }
+        if (stackRoleName == null) {
+            logger.info(LISTING_LEGACY_ROLES_MESSAGE, pipelineStackConfiguration.getCreateStackRolePath());
+            return roleFinder.findRoles(ROOT_PATH, this::hasRootPath, expectedTags);
+        }
+        logger.info(SEARCHING_LEGACY_ROLE_MESSAGE, pipelineStackConfiguration.getCreateStackRolePath(),
+            stackRoleName);
+        return legacyRole(stackRoleName, expectedTags);
+    }
+
+    private Optional<String> createStackRoleNameOfStack() {
+        try {
+            return cloudFormationClient.describeStacks(new DescribeStacksRequest()
+                .withStackName(pipelineStackConfiguration.getPipelineStackName()))
+                .getStacks().stream()
+                .flatMap(stack -> stack.getParameters().stream())
+                .filter(parameter -> StackBuilder.CLOUD_FORMATION_TEMPLATE_PARAMETER_CREATE_STACK_ROLE_NAME
+                    .equals(parameter.getParameterKey()))
+                .map(Parameter::getParameterValue)
+                .findFirst();
+        } catch (AmazonCloudFormationException e) {
+            return Optional.empty();
+        }
+    }
+
+    private List<Role> legacyRole(String roleName, Set<Tag> expectedTags) {
+        Role role;
+        try {
+            role = amazonIdentityManagement.getRole(new GetRoleRequest().withRoleName(roleName)).getRole();
+        } catch (NoSuchEntityException e) {
+            return Collections.emptyList();
+        }
+        if (role != null && hasRootPath(role) && roleFinder.hasTags(role, expectedTags)) {
+            return Collections.singletonList(role);
+        }
+        return Collections.emptyList();
     }
 
     protected boolean roleHasCorrectTags(Role role) {
+        return roleFinder.hasTags(role, expectedCreateStackRoleTags());
+    }
+
+    private boolean hasRootPath(Role role) {
+        return role.getPath() == null || ROOT_PATH.equals(role.getPath());
+    }
+
+    private Set<Tag> expectedCreateStackRoleTags() {
 
         Tag projectIdTag = new Tag()
             .withKey(PipelineStackConfiguration.TAG_KEY_PROJECT_ID)
@@ -126,10 +294,7 @@ public class StackWiperImpl implements StackWiper {
         expectedTagSet.add(projectIdTag);
         expectedTagSet.add(branchTag);
         expectedTagSet.add(roleTag);
-        List<Tag> tags = amazonIdentityManagement
-            .listRoleTags(new ListRoleTagsRequest().withRoleName(role.getRoleName())).getTags();
-
-        return tags.containsAll(expectedTagSet);
+        return expectedTagSet;
     }
 
     public void deleteBuckets() {
@@ -148,26 +313,37 @@ public class StackWiperImpl implements StackWiper {
         bucketNames.forEach(this::emptyAndDeleteBucket);
     }
 
+    /**
+     * Deletes the test and the final service stacks concurrently and then the pipeline stack.
+     *
+     * @return the results of the delete requests for the test, final and pipeline stacks
+     */
     public List<DeleteStackResult> deleteStacks() {
+        String testStack = pipelineStackConfiguration.getPipelineConfiguration().getTestServiceStack();
+        String finalStack = pipelineStackConfiguration.getPipelineConfiguration().getFinalServiceStack();
+        String pipelineStack = pipelineStackConfiguration.getPipelineStackName();
+
+        Map<String, DeleteStackResult> results = new ConcurrentHashMap<>();
+        try (StackDeletionWaiter waiter = newStackDeletionWaiter()) {
+            new TeardownPlan(parallelism)
+                .addStep(testStack, () -> results.put(testStack, deleteStack(testStack, waiter)))
+                .addStep(finalStack, () -> results.put(finalStack, deleteStack(finalStack, waiter)))
+                .addStep(pipelineStack, () -> results.put(pipelineStack, deleteStack(pipelineStack, waiter)),
+                    testStack, finalStack)
+                .execute();
+        }
 
-        String stack = pipelineStackConfiguration.getPipelineConfiguration().getTestServiceStack();
-        final DeleteStackResult deleteTeckStackResult = cloudFormationClient
-            .deleteStack(new DeleteStackRequest().withStackName(stack));
-        awaitDeleteStack(cloudFormationClient, stack);
-
-        stack = pipelineStackConfiguration.getPipelineConfiguration().getFinalServiceStack();
-        final DeleteStackResult deleteFinalStackResult =
-            cloudFormationClient.deleteStack(new DeleteStackRequest().withStackName(stack));
-        awaitDeleteStack(cloudFormationClient, stack);
-
-        stack = pipelineStackConfiguration.getPipelineStackName();
-
-        final DeleteStackResult deletePipelineStackResult = cloudFormationClient
-            .deleteStack(new DeleteStackRequest().withStackName(stack));
-        awaitDeleteStack(cloudFormationClient, stack);
+        return Arrays.asList(results.get(testStack), results.get(finalStack), results.get(pipelineStack));
+    }
 
-        return Arrays
-            .asList(deleteTeckStackResult, deleteFinalStackResult, deletePipelineStackResult);
+    private DeleteStackResult deleteStack(String stackName, StackDeletionWaiter waiter) {
+        DeleteStackResult result = cloudFormationClient
+            .deleteStack(new DeleteStackRequest().withStackName(stackName));
+        StackDeletionOutcome outcome = waiter.awaitDeletion(stackName).join();
+        if (!StackDeletionOutcome.DELETED.equals(outcome)) {
+            throw new StackDeletionException(String.format(STACK_NOT_DELETED_MESSAGE, stackName, outcome));
+        }
+        return result;
     }
 
     private Integer invokeDestroyLambdaFunction(Stage stage) {
@@ -188,38 +364,9 @@ public class StackWiperImpl implements StackWiper {
     }
 
     private void deleteLogs() {
-
-        List<String> logGroups =
-            logsClient.describeLogGroups().getLogGroups().stream()
-                .map(LogGroup::getLogGroupName)
-                .filter(name -> filterLogGroups(pipelineStackConfiguration, name))
-                .collect(Collectors.toList());
-
-        logGroups.stream().map(group -> new DeleteLogGroupRequest().withLogGroupName(group))
-            .forEach(logsClient::deleteLogGroup);
-    }
-
-    private boolean filterLogGroups(PipelineStackConfiguration conf, String name) {
-        return name.contains(conf.getProjectId()) && name.contains(conf.getNormalizedBranchName());
-    }
-
-    private void awaitDeleteStack(AmazonCloudFormation acf, String stackname) {
-        int counter = 0;
-        List<String> stackNames = acf.describeStacks().getStacks().stream()
-            .map(Stack::getStackName)
-            .collect(Collectors.toList());
-
-        while (stackNames.contains(stackname) && counter < MAX_TIMES_TO_CHECK) {
-            stackNames = acf.describeStacks().getStacks().stream()
-                .map(Stack::getStackName)
-                .collect(Collectors.toList());
-            counter++;
-            try {
-                Thread.sleep(WAIT_UNTIL_CHECKING_AGAIN);
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage());
-            }
-        }
+        new LogGroupCleaner(logsClient, parallelism, LogGroupCleaner.DEFAULT_REQUESTS_PER_SECOND)
+            .setRetentionDays(logRetentionDays)
+            .cleanUp(new PipelineLogGroups(pipelineStackConfiguration));
     }
 
     private String extractBucketName(String physicalId) {
@@ -229,43 +376,7 @@ public class StackWiperImpl implements StackWiper {
 
     @Override
     public void emptyAndDeleteBucket(String bucketName) {
-        emptyBucket(bucketName, s3Client);
+        new BucketEmptier(s3Client).emptyBucket(bucketName);
         s3Client.deleteBucket(bucketName);
     }
-
-    private void emptyBucket(String bucketName, AmazonS3 s3) {
-        VersionListing versionListing = s3
-            .listVersions(new ListVersionsRequest().withBucketName(bucketName));
-
-        while (versionListing.isTruncated()) {
-            deleteVersionBatch(bucketName, s3, versionListing);
-            versionListing = s3.listNextBatchOfVersions(versionListing);
-        }
-        deleteVersionBatch(bucketName, s3, versionListing);
-
-        ObjectListing objectListing = s3.listObjects(bucketName);
-        while (objectListing.isTruncated()) {
-            deleteObjectBatch(bucketName, s3, objectListing);
-            objectListing = s3.listNextBatchOfObjects(objectListing);
-        }
-
-        deleteObjectBatch(bucketName, s3, objectListing);
-
-        // Be sure we have nothing more to delete
-        if (!versionListing.getVersionSummaries().isEmpty() || !objectListing.getObjectSummaries()
-            .isEmpty()) {
-            emptyBucket(bucketName, s3);
-        }
-    }
-
-    private void deleteObjectBatch(String bucketName, AmazonS3 s3, ObjectListing objectListing) {
-        objectListing.getObjectSummaries()
-            .forEach(object -> s3.deleteObject(bucketName, object.getKey()));
-    }
-
-    private void deleteVersionBatch(String bucketName, AmazonS3 s3, VersionListing versionListing) {
-        versionListing.getVersionSummaries()
-            .forEach(
-                version -> s3.deleteVersion(bucketName, version.getKey(), version.getVersionId()));
-    }
 }
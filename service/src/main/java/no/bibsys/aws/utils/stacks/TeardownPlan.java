@@ -0,0 +1,165 @@
+package no.bibsys.aws.utils.stacks;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A dependency graph of teardown steps. Steps whose dependencies have completed run concurrently, using at most as
+ * many threads as the parallelism given in the constructor.
+ * <p>
+ * A step is skipped when one of its dependencies has failed. After all steps have either run or been skipped, the
+ * first failure (in the order the steps were added) is rethrown.
+ * </p>
+ */
+public class TeardownPlan {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeardownPlan.class);
+    private static final String INVALID_PARALLELISM_MESSAGE = "Parallelism should be a positive number";
+    private static final String DUPLICATE_STEP_MESSAGE = "Step %s has already been added";
+    private static final String UNKNOWN_DEPENDENCY_MESSAGE = "Step %s depends on step %s which has not been added";
+    private static final String UNKNOWN_STEP_MESSAGE = "Step %s has not been added";
+    private static final String STEP_STARTED_MESSAGE = "Teardown step {} started";
+    private static final String STEP_FINISHED_MESSAGE = "Teardown step {} finished in {} ms";
+    private static final String STEP_FAILED_MESSAGE = "Teardown step {} failed";
+    private static final String STEP_SKIPPED_MESSAGE = "Teardown step {} skipped because a dependency failed";
+
+    private final transient int parallelism;
+    private final transient Map<String, Step> steps = new LinkedHashMap<>();
+
+    public TeardownPlan(int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, INVALID_PARALLELISM_MESSAGE);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Adds a step to the plan. Dependencies must have been added before the steps that depend on them.
+     *
+     * @param name unique name of the step
+     * @param action the work of the step
+     * @param dependencies names of the steps that should complete before this one starts
+     * @return this plan
+     */
+    public TeardownPlan addStep(String name, Runnable action, String... dependencies) {
+        Preconditions.checkArgument(!steps.containsKey(name), String.format(DUPLICATE_STEP_MESSAGE, name));
+        for (String dependency : dependencies) {
+            Preconditions.checkArgument(steps.containsKey(dependency),
+                String.format(UNKNOWN_DEPENDENCY_MESSAGE, name, dependency));
+        }
+        steps.put(name, new Step(name, action, Arrays.asList(dependencies)));
+        return this;
+    }
+
+    public List<String> getStepNames() {
+        return Collections.unmodifiableList(new ArrayList<>(steps.keySet()));
+    }
+
+    /**
+     * Returns the steps that should complete before the given step starts.
+     *
+     * @param name the name of the step
+     * @return the names of its dependencies, in the order they were given
+     */
+    public List<String> getDependencies(String name) {
+        Preconditions.checkArgument(steps.containsKey(name), String.format(UNKNOWN_STEP_MESSAGE, name));
+        return Collections.unmodifiableList(steps.get(name).dependencies);
+    }
+
+    /**
+     * Runs all steps and blocks until every step has either completed or been skipped. Errors thrown by a step, such as
+     * an {@link AssertionError}, are rethrown as they are, like runtime exceptions.
+     */
+    public void execute() {
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+            for (Step step : steps.values()) {
+                CompletableFuture<?>[] dependencies = step.dependencies.stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture<?>[]::new);
+                CompletableFuture<Void> future = CompletableFuture.allOf(dependencies)
+                    .whenComplete((ignored, dependencyFailure) -> logSkipped(step, dependencyFailure))
+                    .thenRunAsync(() -> runStep(step, failures), executor);
+                futures.put(step.name, future);
+            }
+            futures.values().forEach(this::awaitQuietly);
+        } finally {
+            executor.shutdown();
+        }
+        firstFailure(failures).ifPresent(this::rethrow);
+    }
+
+    // errors are recorded as well, otherwise execute() would return as if the step had succeeded
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void runStep(Step step, Map<String, Throwable> failures) {
+        logger.debug(STEP_STARTED_MESSAGE, step.name);
+        long start = System.currentTimeMillis();
+        try {
+            step.action.run();
+            logger.info(STEP_FINISHED_MESSAGE, step.name, System.currentTimeMillis() - start);
+        } catch (Throwable e) {
+            logger.error(STEP_FAILED_MESSAGE, step.name, e);
+            failures.put(step.name, e);
+            // completes the future of the step exceptionally, so that the steps depending on it are skipped
+            throw new CompletionException(e);
+        }
+    }
+
+    private void logSkipped(Step step, Throwable dependencyFailure) {
+        if (dependencyFailure != null) {
+            logger.warn(STEP_SKIPPED_MESSAGE, step.name);
+        }
+    }
+
+    private void awaitQuietly(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            // failures are recorded per step and rethrown once all steps have finished
+            logger.trace(e.getMessage());
+        }
+    }
+
+    private void rethrow(Throwable failure) {
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    private Optional<Throwable> firstFailure(Map<String, Throwable> failures) {
+        return steps.keySet().stream()
+            .filter(failures::containsKey)
+            .map(failures::get)
+            .findFirst();
+    }
+
+    private static class Step {
+
+        private final transient String name;
+        private final transient Runnable action;
+        private final transient List<String> dependencies;
+
+        Step(String name, Runnable action, List<String> dependencies) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package no.bibsys.aws.utils.templates;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A {@link TemplateStore} in a local directory, for tests and local runs. The keys are paths relative to the
+ * directory.
+ */
+public class FileTemplateStore implements TemplateStore {
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final transient Path directory;
+
+    public FileTemplateStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return Files.exists(directory.resolve(key));
+    }
+
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        Path file = directory.resolve(key);
+        Files.createDirectories(file.getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        Files.write(temporary, content);
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public String url(String key) {
+        return directory.resolve(key).toUri().toString();
+    }
+}
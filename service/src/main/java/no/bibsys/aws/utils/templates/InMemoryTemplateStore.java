@@ -0,0 +1,38 @@
+package no.bibsys.aws.utils.templates;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link TemplateStore} kept in memory, for tests and local runs.
+ */
+public class InMemoryTemplateStore implements TemplateStore {
+
+    private static final String URL_PREFIX = "memory:";
+
+    private final transient Map<String, byte[]> templates = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean contains(String key) {
+        return templates.containsKey(key);
+    }
+
+    @Override
+    public void put(String key, byte[] content) {
+        templates.put(key, content.clone());
+    }
+
+    @Override
+    public String url(String key) {
+        return URL_PREFIX + key;
+    }
+
+    public Optional<byte[]> get(String key) {
+        return Optional.ofNullable(templates.get(key)).map(byte[]::clone);
+    }
+
+    public int size() {
+        return templates.size();
+    }
+}
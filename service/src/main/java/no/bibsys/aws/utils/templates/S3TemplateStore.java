@@ -0,0 +1,40 @@
+package no.bibsys.aws.utils.templates;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import java.io.ByteArrayInputStream;
+
+/**
+ * A {@link TemplateStore} in an S3 bucket. CloudFormation reads the templates with the credentials of the caller, so
+ * the caller needs s3:GetObject on the bucket.
+ */
+public class S3TemplateStore implements TemplateStore {
+
+    private static final String TEMPLATE_CONTENT_TYPE = "text/plain";
+
+    private final transient AmazonS3 s3Client;
+    private final transient String bucketName;
+
+    public S3TemplateStore(AmazonS3 s3Client, String bucketName) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return s3Client.doesObjectExist(bucketName, key);
+    }
+
+    @Override
+    public void put(String key, byte[] content) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        metadata.setContentType(TEMPLATE_CONTENT_TYPE);
+        s3Client.putObject(bucketName, key, new ByteArrayInputStream(content), metadata);
+    }
+
+    @Override
+    public String url(String key) {
+        return s3Client.getUrl(bucketName, key).toString();
+    }
+}
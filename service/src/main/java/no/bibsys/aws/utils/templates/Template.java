@@ -0,0 +1,201 @@
+package no.bibsys.aws.utils.templates;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable resource template. The text is split once into literal segments and placeholders of the form
+ * {@code <NAME>}, so rendering is a single concatenation. For YAML and JSON templates the parsed document is also
+ * kept, together with the locations of the values that contain placeholders, so that a rendered document does not
+ * have to be parsed again.
+ */
+public final class Template {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("<[A-Z][A-Z0-9_]*>");
+    private static final String NOT_A_DOCUMENT_MESSAGE = "Template is not a YAML or JSON document";
+
+    private final transient String text;
+    private final transient List<Segment> segments;
+    private final transient ObjectMapper parser;
+    private transient volatile ParsedDocument document;
+
+    /**
+     * Constructor.
+     *
+     * @param text the content of the template
+     * @param parser the mapper for parsing the template as a document, or null if it is plain text
+     */
+    public Template(String text, ObjectMapper parser) {
+        this.text = text;
+        this.segments = tokenize(text);
+        this.parser = parser;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    /**
+     * Replaces the placeholders in the text. Placeholders without a value are kept as they are.
+     *
+     * @param values values by placeholder, e.g. "&lt;STAGE_PLACEHOLDER&gt;" to "test"
+     * @return the rendered text
+     */
+    public String render(Map<String, String> values) {
+        return render(segments, values, text.length());
+    }
+
+    /**
+     * Returns a copy of the parsed document where the placeholders in text values are replaced. The document is
+     * parsed on first use.
+     *
+     * @param values values by placeholder
+     * @return a new document that the caller may modify
+     */
+    public JsonNode renderDocument(Map<String, String> values) {
+        ParsedDocument parsed = parsedDocument();
+        JsonNode copy = parsed.root.deepCopy();
+        for (Slot slot : parsed.slots) {
+            slot.set(copy, render(slot.segments, values, slot.length));
+        }
+        return copy;
+    }
+
+    private ParsedDocument parsedDocument() {
+        ParsedDocument parsed = document;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = document;
+                if (parsed == null) {
+                    parsed = parse();
+                    document = parsed;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private ParsedDocument parse() {
+        if (parser == null) {
+            throw new IllegalStateException(NOT_A_DOCUMENT_MESSAGE);
+        }
+        try {
+            JsonNode root = parser.readTree(text);
+            List<Slot> slots = new ArrayList<>();
+            collectSlots(root, new ArrayList<>(), slots);
+            return new ParsedDocument(root, slots);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void collectSlots(JsonNode node, List<Object> path, List<Slot> slots) {
+        if (node.isTextual() && !path.isEmpty()) {
+            List<Segment> valueSegments = tokenize(node.textValue());
+            if (valueSegments.stream().anyMatch(segment -> segment.placeholder)) {
+                slots.add(new Slot(new ArrayList<>(path), valueSegments, node.textValue().length()));
+            }
+        } else if (node.isObject()) {
+            Iterator<Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Entry<String, JsonNode> field = fields.next();
+                path.add(field.getKey());
+                collectSlots(field.getValue(), path, slots);
+                path.remove(path.size() - 1);
+            }
+        } else if (node.isArray()) {
+            for (int i = 0; i < node.size(); i++) {
+                path.add(i);
+                collectSlots(node.get(i), path, slots);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    private static List<Segment> tokenize(String text) {
+        List<Segment> segments = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        int start = 0;
+        while (matcher.find()) {
+            if (matcher.start() > start) {
+                segments.add(new Segment(text.substring(start, matcher.start()), false));
+            }
+            segments.add(new Segment(matcher.group(), true));
+            start = matcher.end();
+        }
+        if (start < text.length()) {
+            segments.add(new Segment(text.substring(start), false));
+        }
+        return Collections.unmodifiableList(segments);
+    }
+
+    private static String render(List<Segment> segments, Map<String, String> values, int expectedLength) {
+        StringBuilder result = new StringBuilder(expectedLength);
+        for (Segment segment : segments) {
+            result.append(segment.placeholder ? values.getOrDefault(segment.value, segment.value) : segment.value);
+        }
+        return result.toString();
+    }
+
+    private static class Segment {
+
+        private final transient String value;
+        private final transient boolean placeholder;
+
+        Segment(String value, boolean placeholder) {
+            this.value = value;
+            this.placeholder = placeholder;
+        }
+    }
+
+    // the location of a text value containing placeholders, as field names and array indexes from the root
+    private static class Slot {
+
+        private final transient List<Object> path;
+        private final transient List<Segment> segments;
+        private final transient int length;
+
+        Slot(List<Object> path, List<Segment> segments, int length) {
+            this.path = Collections.unmodifiableList(path);
+            this.segments = segments;
+            this.length = length;
+        }
+
+        void set(JsonNode root, String value) {
+            JsonNode parent = root;
+            for (Object step : path.subList(0, path.size() - 1)) {
+                parent = step instanceof Integer ? parent.get((Integer) step) : parent.get((String) step);
+            }
+            Object last = path.get(path.size() - 1);
+            if (last instanceof Integer) {
+                ((ArrayNode) parent).set((Integer) last, TextNode.valueOf(value));
+            } else {
+                ((ObjectNode) parent).set((String) last, TextNode.valueOf(value));
+            }
+        }
+    }
+
+    private static class ParsedDocument {
+
+        private final transient JsonNode root;
+        private final transient List<Slot> slots;
+
+        ParsedDocument(JsonNode root, List<Slot> slots) {
+            this.root = root;
+            this.slots = Collections.unmodifiableList(slots);
+        }
+    }
+}
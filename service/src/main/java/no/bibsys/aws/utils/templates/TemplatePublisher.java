@@ -0,0 +1,48 @@
+package no.bibsys.aws.utils.templates;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads templates to a {@link TemplateStore} under content-addressed keys, i.e. keys containing the SHA-256 hash of
+ * the template. A template is uploaded only if its key does not exist yet, so an unchanged template is uploaded once
+ * and all stacks created from it share the same object.
+ */
+public class TemplatePublisher {
+
+    public static final String KEY_PREFIX = "templates/";
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplatePublisher.class);
+    private static final String UPLOADED_MESSAGE = "Uploaded template {}";
+
+    private final transient TemplateStore store;
+
+    public TemplatePublisher(TemplateStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Uploads a template unless it has already been uploaded.
+     *
+     * @param name the file name of the template, kept as the last part of the key
+     * @param content the template
+     * @return the URL of the uploaded template
+     * @throws IOException when the store cannot be read or written
+     */
+    public String publish(String name, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String key = key(name, bytes);
+        if (!store.contains(key)) {
+            store.put(key, bytes);
+            logger.info(UPLOADED_MESSAGE, key);
+        }
+        return store.url(key);
+    }
+
+    public static String key(String name, byte[] content) {
+        return KEY_PREFIX + DigestUtils.sha256Hex(content) + "/" + name;
+    }
+}
@@ -0,0 +1,83 @@
+package no.bibsys.aws.utils.templates;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import no.bibsys.aws.tools.IoUtils;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide cache of the templates in the classpath resources. Each resource is read and tokenized once, so warm
+ * Lambda invocations do not read the classpath again.
+ */
+public final class TemplateRegistry {
+
+    public static final Path PIPELINE_TEMPLATE = Paths.get("templates", "pipelineTemplate.yaml");
+    public static final Path CREATE_STACK_ROLE_ASSUME_POLICY = Paths.get("templates",
+        "createStackRoleAssumePolicy.json");
+    public static final Path OPENAPI_TEMPLATE = Paths.get("openapi", "openapi.yml");
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateRegistry.class);
+    private static final TemplateRegistry INSTANCE = new TemplateRegistry();
+    private static final String LOADED_TEMPLATE_MESSAGE = "Loaded template {}";
+    private static final String YAML_EXTENSION = ".yml";
+    private static final String LONG_YAML_EXTENSION = ".yaml";
+    private static final String JSON_EXTENSION = ".json";
+
+    private final transient Map<Path, Template> templates = new ConcurrentHashMap<>();
+
+    private TemplateRegistry() {
+    }
+
+    public static TemplateRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the template stored in a classpath resource, loading it on first use.
+     *
+     * @param resource the path of the resource, e.g. {@link #PIPELINE_TEMPLATE}
+     * @return the template
+     * @throws IOException when the resource cannot be read
+     */
+    public Template get(Path resource) throws IOException {
+        try {
+            return templates.computeIfAbsent(resource, this::load);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Removes all loaded templates. Intended for tests.
+     */
+    public void reset() {
+        templates.clear();
+    }
+
+    private Template load(Path resource) {
+        try {
+            Template template = new Template(IoUtils.resourceAsString(resource), parserFor(resource));
+            logger.debug(LOADED_TEMPLATE_MESSAGE, resource);
+            return template;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ObjectMapper parserFor(Path resource) {
+        String name = resource.getFileName().toString();
+        if (name.endsWith(YAML_EXTENSION) || name.endsWith(LONG_YAML_EXTENSION)) {
+            return ObjectMappers.YAML;
+        } else if (name.endsWith(JSON_EXTENSION)) {
+            return ObjectMappers.JSON;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package no.bibsys.aws.utils.templates;
+
+import java.io.IOException;
+
+/**
+ * An object store for templates that CloudFormation reads through a {@code TemplateURL} instead of receiving them
+ * inline as {@code TemplateBody}.
+ */
+public interface TemplateStore {
+
+    boolean contains(String key) throws IOException;
+
+    void put(String key, byte[] content) throws IOException;
+
+    /**
+     * Returns the location of a stored template.
+     *
+     * @param key the key of the template
+     * @return the URL of the template
+     */
+    String url(String key);
+}
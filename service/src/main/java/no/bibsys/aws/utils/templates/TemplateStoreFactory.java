@@ -0,0 +1,30 @@
+package no.bibsys.aws.utils.templates;
+
+import com.amazonaws.services.s3.AmazonS3;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import no.bibsys.aws.utils.clients.AwsClientRegistry;
+
+/**
+ * Creates a {@link TemplateStore} from a store location: "memory:" for an in-memory store, a "file:" URI for a
+ * directory and any other value for the name of an S3 bucket.
+ */
+public final class TemplateStoreFactory {
+
+    private static final String MEMORY_SCHEME = "memory:";
+    private static final String FILE_SCHEME = "file:";
+
+    private TemplateStoreFactory() {
+    }
+
+    public static TemplateStore create(String location) throws IOException {
+        if (location.startsWith(MEMORY_SCHEME)) {
+            return new InMemoryTemplateStore();
+        } else if (location.startsWith(FILE_SCHEME)) {
+            return new FileTemplateStore(Paths.get(URI.create(location)));
+        } else {
+            return new S3TemplateStore(AwsClientRegistry.getInstance().get(AmazonS3.class), location);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package no.bibsys.aws.utils.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the exported spans in memory. Intended for tests and local runs.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final transient List<Span> spans = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void export(List<Span> spans) {
+        this.spans.addAll(spans);
+    }
+
+    public List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+}
@@ -0,0 +1,59 @@
+package no.bibsys.aws.utils.tracing;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import no.bibsys.aws.utils.json.ObjectMappers;
+
+/**
+ * Appends the spans to a local file, one JSON object per line.
+ */
+public class JsonFileSpanExporter implements SpanExporter {
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final transient Path file;
+
+    public JsonFileSpanExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void export(List<Span> spans) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Span span : spans) {
+            lines.append(ObjectMappers.JSON.writeValueAsString(toJson(span))).append(LINE_SEPARATOR);
+        }
+        synchronized (this) {
+            Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Returns the JSON representation of a span.
+     *
+     * @param span a finished span
+     * @return the span as a JSON object
+     */
+    public static ObjectNode toJson(Span span) {
+        ObjectNode node = ObjectMappers.JSON.createObjectNode();
+        node.put("traceId", span.getTraceId());
+        node.put("id", span.getId());
+        node.put("parentId", span.getParentId());
+        node.put("name", span.getName());
+        node.put("startMillis", span.getStartMillis());
+        node.put("endMillis", span.getEndMillis());
+        node.put("durationMillis", span.getDurationMillis());
+        if (span.isFailed()) {
+            node.put("error", span.getError());
+        }
+        ObjectNode annotations = node.putObject("annotations");
+        span.getAnnotations().forEach(annotations::put);
+        return node;
+    }
+}
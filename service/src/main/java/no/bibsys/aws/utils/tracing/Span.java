@@ -0,0 +1,100 @@
+package no.bibsys.aws.utils.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed phase of a trace, e.g. the wiping of the old stacks or the creation of the pipeline stack. A span is
+ * started by {@link Tracer#startSpan(String)} and ended by {@link #close()}.
+ */
+public class Span implements AutoCloseable {
+
+    private final transient Tracer tracer;
+    private final transient String name;
+    private final transient String id;
+    private final transient String parentId;
+    private final transient long startMillis;
+    private final transient Map<String, String> annotations = new LinkedHashMap<>();
+    private transient long endMillis;
+    private transient String error;
+
+    Span(Tracer tracer, String name, String parentId) {
+        this.tracer = tracer;
+        this.name = name;
+        this.id = TraceIds.newSpanId();
+        this.parentId = parentId;
+        this.startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds a key-value pair that is exported with the span.
+     *
+     * @param key the key
+     * @param value the value
+     * @return this span
+     */
+    public Span annotate(String key, String value) {
+        annotations.put(key, value);
+        return this;
+    }
+
+    /**
+     * Marks the span as failed.
+     *
+     * @param cause the failure
+     * @return this span
+     */
+    public Span fail(Throwable cause) {
+        this.error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (endMillis == 0) {
+            endMillis = System.currentTimeMillis();
+            tracer.finish(this);
+        }
+    }
+
+    public String getTraceId() {
+        return tracer.getTraceId();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getParentId() {
+        return parentId;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    public long getDurationMillis() {
+        return endMillis - startMillis;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Map<String, String> getAnnotations() {
+        return Collections.unmodifiableMap(annotations);
+    }
+}
@@ -0,0 +1,19 @@
+package no.bibsys.aws.utils.tracing;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the finished spans of a trace.
+ */
+@FunctionalInterface
+public interface SpanExporter {
+
+    /**
+     * Discards the spans. They are still logged by the {@link Tracer}.
+     */
+    SpanExporter NONE = spans -> {
+    };
+
+    void export(List<Span> spans) throws IOException;
+}
@@ -0,0 +1,30 @@
+package no.bibsys.aws.utils.tracing;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+/**
+ * Creates a {@link SpanExporter} from an export location: "memory:" for keeping the spans in memory, "xray:" or
+ * "xray:host:port" for the X-Ray daemon, and a "file:" URI or a path for a local file of JSON lines.
+ */
+public final class SpanExporterFactory {
+
+    private static final String MEMORY_SCHEME = "memory:";
+    private static final String XRAY_SCHEME = "xray:";
+    private static final String FILE_SCHEME = "file:";
+
+    private SpanExporterFactory() {
+    }
+
+    public static SpanExporter create(String location) {
+        if (location.startsWith(MEMORY_SCHEME)) {
+            return new InMemorySpanExporter();
+        } else if (location.startsWith(XRAY_SCHEME)) {
+            return XRaySpanExporter.forAddress(location.substring(XRAY_SCHEME.length()));
+        } else if (location.startsWith(FILE_SCHEME)) {
+            return new JsonFileSpanExporter(Paths.get(URI.create(location)));
+        } else {
+            return new JsonFileSpanExporter(Paths.get(location));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package no.bibsys.aws.utils.tracing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Trace and span identifiers in the X-Ray format. A trace id is "1-", the start time of the trace in epoch seconds as
+ * 8 hex digits, "-" and 24 hex digits. The 24 digits are a hash of the project id and the normalized branch name, so
+ * the builder, the pipeline and the deploy-time Lambda functions of a branch derive ids with the same suffix and
+ * their logs can be tied together even when the full id was not passed on.
+ */
+public final class TraceIds {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "-";
+    private static final String KEY_SEPARATOR = "/";
+    private static final int BRANCH_HASH_LENGTH = 24;
+    private static final String INVALID_TRACE_ID_MESSAGE = "Not a trace id: %s";
+
+    private TraceIds() {
+    }
+
+    /**
+     * Returns a new trace id for a branch, starting now.
+     *
+     * @param projectId the project id of the pipeline
+     * @param normalizedBranch the normalized branch name
+     * @return the trace id
+     */
+    public static String newTraceId(String projectId, String normalizedBranch) {
+        return newTraceId(projectId, normalizedBranch, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+    }
+
+    public static String newTraceId(String projectId, String normalizedBranch, long epochSeconds) {
+        return VERSION + SEPARATOR + String.format("%08x", epochSeconds) + SEPARATOR
+            + branchHash(projectId, normalizedBranch);
+    }
+
+    /**
+     * Returns the part of the trace id that is derived from the branch.
+     *
+     * @param traceId a trace id
+     * @return the last 24 hex digits of the trace id
+     */
+    public static String branchHash(String traceId) {
+        int separator = traceId.lastIndexOf(SEPARATOR);
+        if (separator < 0 || traceId.length() - separator - 1 != BRANCH_HASH_LENGTH) {
+            throw new IllegalArgumentException(String.format(INVALID_TRACE_ID_MESSAGE, traceId));
+        }
+        return traceId.substring(separator + 1);
+    }
+
+    static String branchHash(String projectId, String normalizedBranch) {
+        String key = projectId + KEY_SEPARATOR + normalizedBranch;
+        return DigestUtils.sha256Hex(key.getBytes(StandardCharsets.UTF_8)).substring(0, BRANCH_HASH_LENGTH);
+    }
+
+    static String newSpanId() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+}
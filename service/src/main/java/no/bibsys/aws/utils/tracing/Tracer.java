@@ -0,0 +1,133 @@
+package no.bibsys.aws.utils.tracing;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the phases of one stack action as nested {@link Span}s of a single trace. A span started while another is
+ * open becomes its child. Every finished span is logged with the trace id, and when the outermost span ends the spans
+ * are handed to the {@link SpanExporter}.
+ * <p>
+ * A tracer belongs to one action on one thread; concurrent actions use tracers of their own.
+ * </p>
+ */
+public class Tracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+    private static final String FINISHED_SPAN_MESSAGE = "Trace {} span {} took {} ms{}";
+    private static final String FAILED_SUFFIX = " and failed";
+    private static final String EXPORT_FAILED_MESSAGE = "Could not export the spans of trace {}";
+
+    private final transient String traceId;
+    private final transient Deque<Span> openSpans = new ArrayDeque<>();
+    private final transient List<Span> finishedSpans = new ArrayList<>();
+    private transient SpanExporter exporter;
+
+    public Tracer(String traceId, SpanExporter exporter) {
+        this.traceId = traceId;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Returns a tracer with a new trace id for a branch that only logs its spans.
+     *
+     * @param projectId the project id of the pipeline
+     * @param normalizedBranch the normalized branch name
+     * @return the tracer
+     */
+    public static Tracer forBranch(String projectId, String normalizedBranch) {
+        return new Tracer(TraceIds.newTraceId(projectId, normalizedBranch), SpanExporter.NONE);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public Tracer setExporter(SpanExporter exporter) {
+        this.exporter = exporter;
+        return this;
+    }
+
+    /**
+     * Starts a span as a child of the innermost open span.
+     *
+     * @param name the name of the phase
+     * @return the started span, to be closed when the phase ends
+     */
+    public synchronized Span startSpan(String name) {
+        Span parent = openSpans.peek();
+        Span span = new Span(this, name, parent == null ? null : parent.getId());
+        openSpans.push(span);
+        return span;
+    }
+
+    /**
+     * Runs a phase in a span, marking the span as failed when the phase throws.
+     *
+     * @param name the name of the phase
+     * @param phase the phase
+     * @throws Exception when the phase fails
+     */
+    public void run(String name, Phase phase) throws Exception {
+        call(name, () -> {
+            phase.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a phase with a result in a span, marking the span as failed when the phase throws.
+     *
+     * @param name the name of the phase
+     * @param phase the phase
+     * @param <T> the type of the result
+     * @return the result of the phase
+     * @throws Exception when the phase fails
+     */
+    public <T> T call(String name, Callable<T> phase) throws Exception {
+        try (Span span = startSpan(name)) {
+            try {
+                return phase.call();
+            } catch (Exception e) {
+                span.fail(e);
+                throw e;
+            }
+        }
+    }
+
+    synchronized void finish(Span span) {
+        openSpans.remove(span);
+        finishedSpans.add(span);
+        logger.info(FINISHED_SPAN_MESSAGE, traceId, span.getName(), span.getDurationMillis(),
+            span.isFailed() ? FAILED_SUFFIX : "");
+        if (openSpans.isEmpty()) {
+            export();
+        }
+    }
+
+    private void export() {
+        List<Span> spans = new ArrayList<>(finishedSpans);
+        finishedSpans.clear();
+        try {
+            exporter.export(spans);
+        } catch (IOException | RuntimeException e) {
+            // tracing must not fail the action
+            logger.warn(EXPORT_FAILED_MESSAGE, traceId, e);
+        }
+    }
+
+    /**
+     * A phase without a result.
+     */
+    @FunctionalInterface
+    public interface Phase {
+
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,95 @@
+package no.bibsys.aws.utils.tracing;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map.Entry;
+import no.bibsys.aws.utils.json.ObjectMappers;
+
+/**
+ * Sends the spans as X-Ray segment documents to the X-Ray daemon over UDP. Spans without a parent become segments
+ * and the other spans independent subsegments of their parent.
+ */
+public class XRaySpanExporter implements SpanExporter {
+
+    public static final InetSocketAddress DEFAULT_DAEMON_ADDRESS = new InetSocketAddress("127.0.0.1", 2000);
+    /**
+     * Address of the daemon set by Lambda when active tracing is enabled.
+     */
+    public static final String DAEMON_ADDRESS_VARIABLE = "AWS_XRAY_DAEMON_ADDRESS";
+
+    private static final String HEADER = "{\"format\": \"json\", \"version\": 1}\n";
+    private static final String SUBSEGMENT_TYPE = "subsegment";
+    private static final String INVALID_ANNOTATION_KEY_CHARACTERS = "[^A-Za-z0-9_]";
+    private static final String ANNOTATION_KEY_REPLACEMENT = "_";
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private final transient InetSocketAddress daemonAddress;
+
+    public XRaySpanExporter(InetSocketAddress daemonAddress) {
+        this.daemonAddress = daemonAddress;
+    }
+
+    /**
+     * Reads the daemon address from a "host:port" value.
+     *
+     * @param address the address, or null or empty for the {@link #DAEMON_ADDRESS_VARIABLE} variable or the default
+     * @return the exporter
+     */
+    public static XRaySpanExporter forAddress(String address) {
+        if (address == null || address.isEmpty()) {
+            String variable = System.getenv(DAEMON_ADDRESS_VARIABLE);
+            return variable == null || variable.isEmpty() ? new XRaySpanExporter(DEFAULT_DAEMON_ADDRESS)
+                : forAddress(variable);
+        }
+        int separator = address.lastIndexOf(':');
+        return new XRaySpanExporter(new InetSocketAddress(address.substring(0, separator),
+            Integer.parseInt(address.substring(separator + 1))));
+    }
+
+    @Override
+    public void export(List<Span> spans) throws IOException {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            for (Span span : spans) {
+                byte[] packet = (HEADER + ObjectMappers.JSON.writeValueAsString(segmentDocument(span)))
+                    .getBytes(StandardCharsets.UTF_8);
+                socket.send(new DatagramPacket(packet, packet.length, daemonAddress));
+            }
+        }
+    }
+
+    /**
+     * Returns the X-Ray segment document of a span.
+     *
+     * @param span a finished span
+     * @return the segment, or subsegment when the span has a parent
+     */
+    public static ObjectNode segmentDocument(Span span) {
+        ObjectNode segment = ObjectMappers.JSON.createObjectNode();
+        segment.put("name", span.getName());
+        segment.put("id", span.getId());
+        segment.put("trace_id", span.getTraceId());
+        segment.put("start_time", span.getStartMillis() / MILLIS_PER_SECOND);
+        segment.put("end_time", span.getEndMillis() / MILLIS_PER_SECOND);
+        if (span.getParentId() != null) {
+            segment.put("type", SUBSEGMENT_TYPE);
+            segment.put("parent_id", span.getParentId());
+        }
+        if (span.isFailed()) {
+            segment.put("fault", true);
+            segment.putObject("metadata").put("error", span.getError());
+        }
+        if (!span.getAnnotations().isEmpty()) {
+            ObjectNode annotations = segment.putObject("annotations");
+            for (Entry<String, String> annotation : span.getAnnotations().entrySet()) {
+                annotations.put(annotation.getKey().replaceAll(INVALID_ANNOTATION_KEY_CHARACTERS,
+                    ANNOTATION_KEY_REPLACEMENT), annotation.getValue());
+            }
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,87 @@
+package no.bibsys.aws.cloudformation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class NamingRegistryTest extends ConfigurationTests {
+
+    private static final String SOME_BUCKET = "someBucket";
+    private static final String SOME_ROLE = "someRole";
+
+    private final transient NamingRegistry registry = NamingRegistry.getInstance();
+
+    @AfterEach
+    public void tearDown() {
+        registry.reset();
+    }
+
+    @Test
+    public void namesShouldBeDerivedOncePerRepositoryAndBranch() {
+        BranchNames names = registry.names(repoName, BRANCH_NAME_WITH_NOT_ALLOWED_CHARS);
+        assertThat(registry.names(repoName, BRANCH_NAME_WITH_NOT_ALLOWED_CHARS), is(sameInstance(names)));
+
+        PipelineStackConfiguration configuration = new PipelineStackConfiguration(githubConfWithProblematicBranch);
+        assertThat(configuration.getNames(), is(sameInstance(names)));
+        assertThat(configuration.getPipelineConfiguration().getNames(), is(sameInstance(names)));
+        assertThat(configuration.getCodeBuildConfiguration().getNames(), is(sameInstance(names)));
+    }
+
+    @Test
+    public void namesShouldMatchTheNamesOfTheConfigurations() {
+        PipelineStackConfiguration configuration = new PipelineStackConfiguration(githubConfWithProblematicBranch);
+        BranchNames names = registry.names(repoName, BRANCH_NAME_WITH_NOT_ALLOWED_CHARS);
+
+        assertThat(names.getProjectId(), is(equalTo(projectId)));
+        assertThat(names.getNormalizedBranchName(), is(equalTo(normalizedBranch)));
+        assertThat(names.getPipelineStackName(), is(equalTo(projectId + "-" + normalizedBranch + "-pipelineStack")));
+        assertThat(names.getTestServiceStack(),
+            is(equalTo(configuration.getPipelineConfiguration().getCurrentServiceStackName(Stage.TEST))));
+        assertThat(names.getCreateStackRolePath(),
+            is(equalTo("/pipeline/" + projectId + "/" + normalizedBranch + "/")));
+    }
+
+    @Test
+    public void findShouldReturnTheBranchOfDerivedNames() {
+        PipelineStackConfiguration configuration = new PipelineStackConfiguration(githubConfWithProblematicBranch);
+        BranchNames names = configuration.getNames();
+
+        assertThat(registry.find(configuration.getPipelineStackName()).get(), is(sameInstance(names)));
+        assertThat(registry.find(configuration.getPipelineConfiguration().getInitLambdaFunctionName()).get(),
+            is(sameInstance(names)));
+        assertThat(registry.find(configuration.getPipelineRoleName()).get(), is(sameInstance(names)));
+        assertThat(registry.find("unknown-stack").isPresent(), is(false));
+    }
+
+    @Test
+    public void findShouldReturnTheBranchOfAdoptedNames() {
+        PipelineStackConfiguration configuration =
+            new PipelineStackConfiguration(githubConfWithProblematicBranch, SOME_BUCKET, SOME_ROLE);
+
+        assertThat(registry.find(SOME_BUCKET).get(), is(sameInstance(configuration.getNames())));
+        assertThat(registry.find(SOME_ROLE).get(), is(sameInstance(configuration.getNames())));
+    }
+
+    @Test
+    public void findShouldReturnTheRandomNamesOfANewPipelineOnlyOnceTheyAreRegistered() {
+        PipelineStackConfiguration configuration = new PipelineStackConfiguration(githubConfWithProblematicBranch);
+        assertThat(registry.find(configuration.getBucketName()).isPresent(), is(false));
+        assertThat(registry.find(configuration.getCreateStackRoleName()).isPresent(), is(false));
+
+        configuration.registerResourceNames();
+
+        assertThat(registry.find(configuration.getBucketName()).get(), is(sameInstance(configuration.getNames())));
+        assertThat(registry.find(configuration.getCreateStackRoleName()).get(),
+            is(sameInstance(configuration.getNames())));
+    }
+
+    @Test
+    public void namesShouldFailForBranchesWithoutLettersOrDigits() {
+        assertThrows(IllegalArgumentException.class, () -> registry.names(repoName, "--"));
+    }
+}
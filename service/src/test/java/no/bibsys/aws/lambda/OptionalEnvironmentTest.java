@@ -0,0 +1,41 @@
+package no.bibsys.aws.lambda;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import no.bibsys.aws.tools.Environment;
+import org.junit.jupiter.api.Test;
+
+public class OptionalEnvironmentTest {
+
+    private static final String SOME_VARIABLE = "SOME_VARIABLE";
+    private static final String SOME_VALUE = "someValue";
+
+    private final transient Environment environment = mock(Environment.class);
+
+    @Test
+    public void readShouldReturnTheValueOfASetVariable() {
+        when(environment.readEnv(anyString())).thenReturn(SOME_VALUE);
+
+        assertThat(OptionalEnvironment.read(environment, SOME_VARIABLE), is(equalTo(Optional.of(SOME_VALUE))));
+    }
+
+    @Test
+    public void readShouldReturnEmptyForAVariableThatIsNotSet() {
+        when(environment.readEnv(anyString())).thenThrow(new IllegalStateException(SOME_VARIABLE));
+
+        assertThat(OptionalEnvironment.read(environment, SOME_VARIABLE), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    public void readShouldReturnEmptyForAnEmptyVariable() {
+        when(environment.readEnv(anyString())).thenReturn("");
+
+        assertThat(OptionalEnvironment.read(environment, SOME_VARIABLE), is(equalTo(Optional.empty())));
+    }
+}
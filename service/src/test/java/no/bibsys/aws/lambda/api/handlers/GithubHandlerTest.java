@@ -11,9 +11,14 @@ import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 import no.bibsys.aws.lambda.api.requests.SimplePullRequest;
+import no.bibsys.aws.lambda.api.utils.Action;
 import no.bibsys.aws.secrets.GithubSignatureChecker;
 import no.bibsys.aws.testtutils.LocalStackTest;
 import no.bibsys.aws.tools.IoUtils;
+import no.bibsys.aws.utils.deliveries.DeliveryDeduplicator;
+import no.bibsys.aws.utils.deliveries.InMemoryDeliveryStore;
+import no.bibsys.aws.utils.queue.InMemoryWorkQueue;
+import no.bibsys.aws.utils.queue.QueuedJob;
 import org.junit.jupiter.api.Test;
 
 public class GithubHandlerTest extends LocalStackTest {
@@ -28,6 +33,7 @@ public class GithubHandlerTest extends LocalStackTest {
     private static final String VALID_SIGNATURE_HEADER_VALUE = "sha1=9a56fd503f28caa0f65b7d341589ed7edb379024";
     private static final String FALSE_SIGNATURE = "sha1=586242134c853931b8df12ac69352f26e6d52453";
     private static final String ARBITRARY_REQUEST = "something";
+    private static final String DELIVERY_ID = "72d3162e-cc78-11e3-81ab-4c9367dc0958";
 
     @Test
     public void processInput_closePRrequest_actionClose() throws Exception {
@@ -98,6 +104,63 @@ public class GithubHandlerTest extends LocalStackTest {
         assertThat(response, is(equalTo(SimplePullRequest.ACTION_REOPEN)));
     }
 
+    @Test
+    public void processInput_closePRrequestWithWorkQueue_jobQueued() throws Exception {
+        GithubSignatureChecker signatureChecker = new GithubSignatureChecker(
+            mockSecretsReader(APPROVE_ALL_KEYS));
+        InMemoryWorkQueue workQueue = new InMemoryWorkQueue();
+        GithubHandler githubHandler = new GithubHandler(
+            mockEnvironment(),
+            mockCloudFormationWithStack(),
+            mockS3Client(),
+            mockLambdaClient(),
+            mockLogsClient(),
+            signatureChecker,
+            mockSecretsReader(),
+            mockSecretsReader(),
+            mockIdentityManagement(pipelineStackConfiguration, createWellFormedRole()),
+            mockGithubReader()
+        ).setWorkQueue(workQueue);
+        String githubCloseRequest = IoUtils.resourceAsString(Paths.get(GITHUB_RESOURCES_FOLDER,
+            CLOSE_PULLREQUEST_JSON));
+
+        String response = githubHandler.processInput(githubCloseRequest, new HashMap<>(), null);
+        QueuedJob queuedJob = workQueue.receive(1).get(0);
+
+        assertThat(response, is(equalTo(String.format(GithubHandler.ACCEPTED_MESSAGE,
+            SimplePullRequest.ACTION_CLOSE))));
+        assertThat(queuedJob.getJob().getActionType(), is(equalTo(Action.DELETE)));
+    }
+
+    @Test
+    public void processInput_duplicateDelivery_jobQueuedOnce() throws Exception {
+        GithubSignatureChecker signatureChecker = new GithubSignatureChecker(
+            mockSecretsReader(APPROVE_ALL_KEYS));
+        InMemoryWorkQueue workQueue = new InMemoryWorkQueue();
+        GithubHandler githubHandler = new GithubHandler(
+            mockEnvironment(),
+            mockCloudFormationWithStack(),
+            mockS3Client(),
+            mockLambdaClient(),
+            mockLogsClient(),
+            signatureChecker,
+            mockSecretsReader(),
+            mockSecretsReader(),
+            mockIdentityManagement(pipelineStackConfiguration, createWellFormedRole()),
+            mockGithubReader()
+        ).setWorkQueue(workQueue).setDeliveryStore(new InMemoryDeliveryStore());
+        String githubOpenRequest = IoUtils.resourceAsString(Paths.get(GITHUB_RESOURCES_FOLDER,
+            OPEN_PULLREQUEST_JSON));
+        Map<String, String> headers = new HashMap<>();
+        headers.put(DeliveryDeduplicator.DELIVERY_HEADER, DELIVERY_ID);
+
+        String first = githubHandler.processInput(githubOpenRequest, headers, null);
+        String second = githubHandler.processInput(githubOpenRequest, headers, null);
+
+        assertThat(second, is(equalTo(first)));
+        assertThat(workQueue.size(), is(equalTo(1)));
+    }
+
     @Test()
     public void handleRequest_falseSignature_UnauthorizedException() throws IOException {
         GithubHandler githubHandler = getGithubHandlerWithMockSecretsReader(mockEnvironment());
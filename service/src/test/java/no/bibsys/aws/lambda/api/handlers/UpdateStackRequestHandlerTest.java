@@ -9,17 +9,22 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.apigateway.model.UnauthorizedException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import no.bibsys.aws.lambda.EnvironmentConstants;
+import no.bibsys.aws.lambda.api.requests.BatchUpdateStackRequest;
 import no.bibsys.aws.lambda.api.requests.UpdateStackRequest;
 import no.bibsys.aws.lambda.api.utils.Action;
 import no.bibsys.aws.testtutils.LocalStackTest;
 import no.bibsys.aws.tools.Environment;
 import no.bibsys.aws.tools.JsonUtils;
+import no.bibsys.aws.utils.batch.BatchItemResult;
+import no.bibsys.aws.utils.queue.InMemoryWorkQueue;
 import org.junit.jupiter.api.Test;
 
 public class UpdateStackRequestHandlerTest extends LocalStackTest {
@@ -81,6 +86,58 @@ public class UpdateStackRequestHandlerTest extends LocalStackTest {
         assertThat(response, is(equalTo(json)));
     }
 
+    @Test
+    public void processInput_batchRequest_oneResultLinePerRequest() throws Exception {
+        UpdateStackRequestHandler handler = new UpdateStackRequestHandler(mockEnvironment(),
+            mockCloudFormationWithStack(),
+            mockS3Client(), mockLambdaClient(),
+            mockLogsClient(),
+            mockSecretsReader(),
+            mockSecretsReader(),
+            mockIdentityManagement(pipelineStackConfiguration, createWellFormedRole()),
+            mockGithubReader()
+        );
+        BatchUpdateStackRequest batch = new BatchUpdateStackRequest(Arrays.asList(
+            new UpdateStackRequest(SOME_OWNER, SOME_REPO, SOME_BRANCH, Action.CREATE.toString()),
+            new UpdateStackRequest(SOME_OWNER, SOME_REPO, SOME_BRANCH, Action.DELETE.toString())));
+        String key = mockSecretsReader().readSecret();
+        Map<String, String> headersMap = Collections.singletonMap(
+            UpdateStackRequestHandler.API_KEY_HEADER, key);
+
+        String response = handler.processInput(JsonUtils.jsonParser.writeValueAsString(batch), headersMap, null);
+
+        Map<Integer, String> statuses = new HashMap<>();
+        for (String line : response.split("\n")) {
+            JsonNode result = JsonUtils.jsonParser.readTree(line);
+            statuses.put(result.get("index").asInt(), result.get("status").asText());
+        }
+        assertThat(statuses.get(0), is(equalTo(BatchItemResult.Status.SUPERSEDED.toString())));
+        assertThat(statuses.get(1), is(equalTo(BatchItemResult.Status.SUCCEEDED.toString())));
+    }
+
+    @Test
+    public void processInput_batchRequestWithWorkQueue_queuesTheRequests() throws Exception {
+        InMemoryWorkQueue workQueue = new InMemoryWorkQueue();
+        UpdateStackRequestHandler handler = newHandlerWithMockSecretsReader().setWorkQueue(workQueue);
+        BatchUpdateStackRequest batch = new BatchUpdateStackRequest(Arrays.asList(
+            new UpdateStackRequest(SOME_OWNER, SOME_REPO, SOME_BRANCH, Action.CREATE.toString()),
+            new UpdateStackRequest(SOME_OWNER, SOME_REPO, SOME_BRANCH, Action.DELETE.toString())));
+        Map<String, String> headersMap = Collections.singletonMap(
+            UpdateStackRequestHandler.API_KEY_HEADER, mockSecretsReader().readSecret());
+
+        String response = handler.processInput(JsonUtils.jsonParser.writeValueAsString(batch), headersMap, null);
+
+        Map<Integer, String> statuses = new HashMap<>();
+        for (String line : response.split("\n")) {
+            JsonNode result = JsonUtils.jsonParser.readTree(line);
+            statuses.put(result.get("index").asInt(), result.get("status").asText());
+        }
+        assertThat(statuses.get(0), is(equalTo(BatchItemResult.Status.SUPERSEDED.toString())));
+        assertThat(statuses.get(1), is(equalTo(BatchItemResult.Status.ACCEPTED.toString())));
+        assertThat(workQueue.size(), is(equalTo(1)));
+        assertThat(workQueue.receive(1).get(0).getJob().getActionType(), is(equalTo(Action.DELETE)));
+    }
+
     private String deleteStackRequest() throws JsonProcessingException {
         UpdateStackRequest request = new UpdateStackRequest(SOME_OWNER, SOME_REPO, SOME_BRANCH,
             Action.DELETE.toString());
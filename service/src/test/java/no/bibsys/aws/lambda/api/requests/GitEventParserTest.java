@@ -0,0 +1,101 @@
+package no.bibsys.aws.lambda.api.requests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Optional;
+import no.bibsys.aws.tools.IoUtils;
+import org.junit.jupiter.api.Test;
+
+public class GitEventParserTest {
+
+    private static final String PULL_REQUEST_PAYLOAD = "github_close_pull_request_payload.json";
+    private static final String PUSH_PAYLOAD = "pushEvent.json";
+    private static final String OWNER = "BIBSYSDEV";
+    private static final String REPOSITORY = "authority-registry-infrastructure";
+    private static final String PUSHED_BRANCH = "autreg-61-bugfix-lambdatrustrole";
+
+    @Test
+    public void parseShouldReadTheFieldsOfAPullRequest() throws IOException {
+        GitEvent event = GitEventParser.parse(resource("github", PULL_REQUEST_PAYLOAD),
+            GitEventParser.PULL_REQUEST_EVENT).get();
+
+        assertThat(event, is(instanceOf(SimplePullRequest.class)));
+        assertThat(((SimplePullRequest) event).getAction(), is(equalTo(SimplePullRequest.ACTION_CLOSE)));
+        assertThat(event.getOwner(), is(equalTo("Codertocat")));
+        assertThat(event.getRepository(), is(equalTo("Hello-World")));
+        assertThat(event.getBranch(), is(equalTo("changes")));
+    }
+
+    @Test
+    public void parseShouldStopOnceAllFieldsOfAPullRequestHaveBeenRead() throws IOException {
+        String truncated = "{\"action\": \"opened\", \"pull_request\": {\"user\": {\"login\": \"x\"},"
+            + " \"head\": {\"ref\": \"feature\", \"repo\": {}}}, \"repository\": {\"name\": \"repo\","
+            + " \"owner\": {\"login\": \"owner\"}}, \"sender\": {";
+
+        SimplePullRequest event = (SimplePullRequest) GitEventParser.parse(truncated).get();
+
+        assertThat(event.getAction(), is(equalTo(SimplePullRequest.ACTION_OPEN)));
+        assertThat(event.getOwner(), is(equalTo("owner")));
+        assertThat(event.getBranch(), is(equalTo("feature")));
+    }
+
+    @Test
+    public void parseShouldReturnEmptyForPayloadsWithoutAPullRequest() throws IOException {
+        assertThat(GitEventParser.parse(resource("requests", PUSH_PAYLOAD)), is(equalTo(Optional.empty())));
+        assertThat(GitEventParser.parse("[]"), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    public void parseShouldReadTheBranchOfAPush() throws IOException {
+        PushEvent event = (PushEvent) GitEventParser.parse(resource("requests", PUSH_PAYLOAD),
+            GitEventParser.PUSH_EVENT).get();
+
+        assertThat(event.getOwner(), is(equalTo(OWNER)));
+        assertThat(event.getRepository(), is(equalTo(REPOSITORY)));
+        assertThat(event.getBranch(), is(equalTo(PUSHED_BRANCH)));
+        assertThat(event.isCreated(), is(true));
+        assertThat(event.isDeleted(), is(false));
+    }
+
+    @Test
+    public void parseShouldNotSetABranchForTagPushes() throws IOException {
+        String payload = "{\"ref\": \"refs/tags/v1\", \"deleted\": true,"
+            + " \"repository\": {\"name\": \"repo\", \"owner\": {\"name\": \"owner\"}}}";
+
+        PushEvent event = (PushEvent) GitEventParser.parse(payload, GitEventParser.PUSH_EVENT).get();
+
+        assertThat(event.getBranch(), is(nullValue()));
+        assertThat(event.getOwner(), is(equalTo("owner")));
+        assertThat(event.isDeleted(), is(true));
+    }
+
+    @Test
+    public void parseShouldReadCreatedAndDeletedBranches() throws IOException {
+        String payload = "{\"ref\": \"feature\", \"ref_type\": \"branch\", \"master_branch\": \"master\","
+            + " \"repository\": {\"name\": \"repo\", \"owner\": {\"login\": \"owner\"}}}";
+
+        RefEvent created = (RefEvent) GitEventParser.parse(payload, GitEventParser.CREATE_EVENT).get();
+        RefEvent deleted = (RefEvent) GitEventParser.parse(payload, GitEventParser.DELETE_EVENT).get();
+
+        assertThat(created.isCreated(), is(true));
+        assertThat(created.getBranch(), is(equalTo("feature")));
+        assertThat(created.getRepository(), is(equalTo("repo")));
+        assertThat(deleted.isCreated(), is(false));
+        assertThat(deleted.getOwner(), is(equalTo("owner")));
+    }
+
+    @Test
+    public void parseShouldReturnEmptyForUnsupportedEvents() throws IOException {
+        assertThat(GitEventParser.parse("{\"zen\": \"Keep it simple\"}", "ping"), is(equalTo(Optional.empty())));
+    }
+
+    private static String resource(String folder, String name) throws IOException {
+        return IoUtils.resourceAsString(Paths.get(folder, name));
+    }
+}
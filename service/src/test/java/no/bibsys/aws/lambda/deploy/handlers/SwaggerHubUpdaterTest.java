@@ -5,11 +5,28 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.apigateway.AmazonApiGateway;
+import com.amazonaws.services.apigateway.model.GetTagsResult;
+import com.amazonaws.services.apigateway.model.TagResourceRequest;
+import com.amazonaws.services.apigateway.model.TagResourceResult;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.git.github.BranchInfo;
+import no.bibsys.aws.lambda.deploy.handlers.utils.PublishedSpecHash;
 import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
 import no.bibsys.aws.testtutils.LocalStackTest;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 public class SwaggerHubUpdaterTest extends LocalStackTest {
@@ -18,6 +35,41 @@ public class SwaggerHubUpdaterTest extends LocalStackTest {
     private static final String API_VERSION = "apiVersion";
     private static final String SWAGGER_ORG = "swaggerOrg";
     private static final String STACK_NAME = "stackName";
+    private static final String REST_API_ID = "restApiId";
+    private static final String REGION = "eu-west-1";
+    private static final int UPDATE_AND_READ_REQUESTS = 2;
+
+    @AfterEach
+    public void resetSharedHttpClient() {
+        SharedHttpClient.getInstance().reset();
+    }
+
+    @Test
+    public void updateApiDocumentationShouldNotCallSwaggerHubWhenSpecificationIsUnchanged()
+        throws IOException, URISyntaxException {
+        mockSharedHttpClient();
+        CloseableHttpClient httpClient = SharedHttpClient.getInstance().getHttpClient();
+        AmazonApiGateway apiGateway = initializeAmazonApiGateway();
+        Map<String, String> tags = new ConcurrentHashMap<>();
+        when(apiGateway.getTags(any())).thenAnswer(invocation -> new GetTagsResult().withTags(tags));
+        when(apiGateway.tagResource(any())).thenAnswer(invocation -> {
+            TagResourceRequest request = invocation.getArgument(0);
+            tags.putAll(request.getTags());
+            return new TagResourceResult();
+        });
+        SwaggerHubInfo swaggerHubInfo = new SwaggerHubInfo(API_ID, API_VERSION, SWAGGER_ORG,
+            mockSecretsReader());
+        SwaggerHubUpdater swaggerHubUpdater = new SwaggerHubUpdater(apiGateway, REST_API_ID, swaggerHubInfo,
+            mockSecretsReader(), Stage.FINAL, STACK_NAME, new BranchInfo(null, "master"))
+            .setPublishedSpecHash(new PublishedSpecHash(apiGateway, REST_API_ID, REGION));
+
+        swaggerHubUpdater.updateApiDocumentation();
+        Optional<String> unchanged = swaggerHubUpdater.updateApiDocumentation();
+
+        verify(httpClient, times(UPDATE_AND_READ_REQUESTS)).execute(any());
+        assertThat(unchanged.isPresent(), is(true));
+        assertThat(tags.containsKey(PublishedSpecHash.HASH_TAG_KEY), is(true));
+    }
 
     @Test
     public void swaggerHubUpdater_notMasterBranch_restApiWithStackName() throws IOException {
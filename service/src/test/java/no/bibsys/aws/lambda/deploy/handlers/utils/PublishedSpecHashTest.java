@@ -0,0 +1,45 @@
+package no.bibsys.aws.lambda.deploy.handlers.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+
+import java.io.IOException;
+import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
+import org.junit.jupiter.api.Test;
+
+public class PublishedSpecHashTest {
+
+    private static final String SPECIFICATION =
+        "{\"openapi\":\"3.0.1\",\"info\":{\"title\":\"api\",\"version\":\"1\"}}";
+    private static final String REORDERED_SPECIFICATION =
+        "{ \"info\": { \"version\": \"1\", \"title\": \"api\" },\n \"openapi\": \"3.0.1\" }";
+    private static final String CHANGED_SPECIFICATION =
+        "{\"openapi\":\"3.0.1\",\"info\":{\"title\":\"api\",\"version\":\"2\"}}";
+    private static final String API_ID = "apiId";
+    private static final String API_VERSION = "apiVersion";
+    private static final String SWAGGER_ORG = "swaggerOrg";
+
+    private final transient SwaggerHubInfo swaggerHubInfo = new SwaggerHubInfo(API_ID, API_VERSION, SWAGGER_ORG,
+        () -> "secret");
+
+    @Test
+    public void computeShouldIgnoreFieldOrderAndWhitespace() throws IOException {
+        assertThat(PublishedSpecHash.compute(REORDERED_SPECIFICATION, swaggerHubInfo),
+            is(equalTo(PublishedSpecHash.compute(SPECIFICATION, swaggerHubInfo))));
+    }
+
+    @Test
+    public void computeShouldChangeWhenSpecificationChanges() throws IOException {
+        assertThat(PublishedSpecHash.compute(CHANGED_SPECIFICATION, swaggerHubInfo),
+            is(not(equalTo(PublishedSpecHash.compute(SPECIFICATION, swaggerHubInfo)))));
+    }
+
+    @Test
+    public void computeShouldChangeWhenSwaggerHubApiChanges() throws IOException {
+        SwaggerHubInfo otherVersion = new SwaggerHubInfo(API_ID, "otherVersion", SWAGGER_ORG, () -> "secret");
+        assertThat(PublishedSpecHash.compute(SPECIFICATION, otherVersion),
+            is(not(equalTo(PublishedSpecHash.compute(SPECIFICATION, swaggerHubInfo)))));
+    }
+}
@@ -0,0 +1,108 @@
+package no.bibsys.aws.lambda.queue.handlers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import no.bibsys.aws.lambda.api.handlers.GitEventProcessor;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.utils.queue.GitEventJob;
+import no.bibsys.aws.utils.queue.InMemoryWorkQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WorkQueueHandlerTest {
+
+    private static final String OWNER = "owner";
+    private static final String REPOSITORY = "repository";
+    private static final String BRANCH = "branch";
+    private static final String FAILING_BRANCH = "failing";
+
+    private final transient GitEventProcessor processor = mock(GitEventProcessor.class);
+    private final transient InMemoryWorkQueue workQueue = new InMemoryWorkQueue();
+    private final transient WorkQueueHandler handler = new WorkQueueHandler(processor, workQueue);
+
+    @BeforeEach
+    public void init() {
+        when(processor.withDeadline(any())).thenReturn(processor);
+    }
+
+    @Test
+    public void handleRequestShouldProcessAndAcknowledgeQueuedJobs() throws Exception {
+        workQueue.enqueue(newJob(BRANCH, Action.CREATE));
+
+        String result = handler.handleRequest(new HashMap<>(), null);
+
+        assertThat(result, is(equalTo(String.format("Processed %d jobs", 1))));
+        verify(processor).process(argThat(event -> BRANCH.equals(event.getBranch())), eq(Action.CREATE));
+        workQueue.requeueUnacknowledged();
+        assertThat(workQueue.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void handleRequestShouldNotAcknowledgeFailedJobs() throws Exception {
+        doThrow(new IllegalStateException(FAILING_BRANCH)).when(processor)
+            .process(argThat(event -> FAILING_BRANCH.equals(event.getBranch())), any());
+        workQueue.enqueue(newJob(FAILING_BRANCH, Action.DELETE));
+        workQueue.enqueue(newJob(BRANCH, Action.DELETE));
+
+        String result = handler.handleRequest(new HashMap<>(), null);
+
+        assertThat(result, is(equalTo(String.format("Processed %d jobs", 1))));
+        workQueue.requeueUnacknowledged();
+        assertThat(workQueue.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void handleRequestShouldProcessOnlyLatestJobOfBranch() throws Exception {
+        workQueue.enqueue(newJob(BRANCH, Action.CREATE));
+        workQueue.enqueue(newJob(BRANCH, Action.DELETE));
+
+        handler.handleRequest(new HashMap<>(), null);
+
+        verify(processor, times(1)).process(any(), any());
+        verify(processor).process(any(), eq(Action.DELETE));
+        workQueue.requeueUnacknowledged();
+        assertThat(workQueue.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void handleRequestShouldProcessSqsRecords() throws Exception {
+        Map<String, Object> record = new HashMap<>();
+        record.put("body", newJob(BRANCH, Action.DELETE).toJson());
+        Map<String, Object> event = new HashMap<>();
+        event.put("Records", Collections.singletonList(record));
+
+        handler.handleRequest(event, null);
+
+        verify(processor).process(argThat(job -> BRANCH.equals(job.getBranch())), eq(Action.DELETE));
+    }
+
+    @Test
+    public void handleRequestShouldRethrowFailureOfSqsRecord() throws Exception {
+        doThrow(new IllegalStateException(FAILING_BRANCH)).when(processor).process(any(), any());
+        Map<String, Object> record = new HashMap<>();
+        record.put("body", newJob(FAILING_BRANCH, Action.CREATE).toJson());
+        Map<String, Object> event = new HashMap<>();
+        event.put("Records", Collections.singletonList(record));
+
+        assertThrows(IllegalStateException.class, () -> handler.handleRequest(event, null));
+    }
+
+    private GitEventJob newJob(String branch, Action action) {
+        return new GitEventJob(new GitEvent(OWNER, REPOSITORY, branch), action);
+    }
+}
@@ -0,0 +1,124 @@
+package no.bibsys.aws.roles;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.identitymanagement.model.ListRoleTagsRequest;
+import com.amazonaws.services.identitymanagement.model.ListRoleTagsResult;
+import com.amazonaws.services.identitymanagement.model.ListRolesRequest;
+import com.amazonaws.services.identitymanagement.model.ListRolesResult;
+import com.amazonaws.services.identitymanagement.model.Role;
+import com.amazonaws.services.identitymanagement.model.Tag;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class TaggedRoleFinderTest {
+
+    private static final String SOME_PATH = "/pipeline/someProject/someBranch/";
+    private static final String SECOND_PAGE_MARKER = "secondPage";
+    private static final String MATCHING_ROLE = "matchingRole";
+    private static final String OTHER_MATCHING_ROLE = "otherMatchingRole";
+    private static final String OTHER_ROLE = "otherRole";
+    private static final String THROTTLING_ERROR_CODE = "Throttling";
+    private static final Tag EXPECTED_TAG = new Tag().withKey("role").withValue("CreateStackRole");
+    private static final Tag OTHER_TAG = new Tag().withKey("role").withValue("other");
+    private static final int PARALLELISM = 2;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long DELAY_MILLIS = 1;
+
+    private final transient AmazonIdentityManagement iam = mock(AmazonIdentityManagement.class);
+    private final transient List<ListRolesRequest> listRolesRequests = new CopyOnWriteArrayList<>();
+    private final transient TaggedRoleFinder finder = new TaggedRoleFinder(iam, PARALLELISM, MAX_ATTEMPTS,
+        DELAY_MILLIS, DELAY_MILLIS);
+
+    @Test
+    public void findRolesShouldReadAllPagesOfRolesUnderThePath() {
+        mockTwoPagesOfRoles();
+        when(iam.listRoleTags(any())).thenAnswer(invocation -> tagsOf(invocation.getArgument(0)));
+
+        List<Role> roles = finder.findRoles(SOME_PATH, Collections.singleton(EXPECTED_TAG));
+
+        assertThat(roleNames(roles), containsInAnyOrder(MATCHING_ROLE, OTHER_MATCHING_ROLE));
+        assertThat(listRolesRequests.size(), is(equalTo(2)));
+        assertThat(listRolesRequests.get(0).getPathPrefix(), is(equalTo(SOME_PATH)));
+        assertThat(listRolesRequests.get(1).getMarker(), is(equalTo(SECOND_PAGE_MARKER)));
+    }
+
+    @Test
+    public void cachingFinderShouldListRolesUnderAPathOnlyOnce() {
+        mockTwoPagesOfRoles();
+        TaggedRoleFinder cachingFinder = new TaggedRoleFinder(iam).cacheListings();
+
+        List<Role> first = cachingFinder.listRoles(SOME_PATH);
+        List<Role> second = cachingFinder.listRoles(SOME_PATH);
+
+        assertThat(roleNames(second), is(equalTo(roleNames(first))));
+        assertThat(listRolesRequests.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void findRolesShouldRetryThrottledTagRequests() {
+        mockTwoPagesOfRoles();
+        AtomicInteger calls = new AtomicInteger();
+        when(iam.listRoleTags(any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                throw throttlingException();
+            }
+            return tagsOf(invocation.getArgument(0));
+        });
+
+        List<Role> roles = finder.findRoles(SOME_PATH, Collections.singleton(EXPECTED_TAG));
+
+        assertThat(roleNames(roles), containsInAnyOrder(MATCHING_ROLE, OTHER_MATCHING_ROLE));
+    }
+
+    @Test
+    public void findRolesShouldFailWhenThrottledMoreThanMaxAttempts() {
+        mockTwoPagesOfRoles();
+        when(iam.listRoleTags(any())).thenThrow(throttlingException());
+
+        assertThrows(AmazonServiceException.class,
+            () -> finder.findRoles(SOME_PATH, Collections.singleton(EXPECTED_TAG)));
+    }
+
+    private void mockTwoPagesOfRoles() {
+        when(iam.listRoles(any())).thenAnswer(invocation -> {
+            ListRolesRequest request = invocation.getArgument(0);
+            listRolesRequests.add(request.clone());
+            if (request.getMarker() == null) {
+                return new ListRolesResult().withRoles(new Role().withRoleName(MATCHING_ROLE),
+                    new Role().withRoleName(OTHER_ROLE)).withIsTruncated(true).withMarker(SECOND_PAGE_MARKER);
+            }
+            return new ListRolesResult().withRoles(new Role().withRoleName(OTHER_MATCHING_ROLE))
+                .withIsTruncated(false);
+        });
+    }
+
+    private ListRoleTagsResult tagsOf(ListRoleTagsRequest request) {
+        Tag tag = OTHER_ROLE.equals(request.getRoleName()) ? OTHER_TAG : EXPECTED_TAG;
+        return new ListRoleTagsResult().withTags(tag).withIsTruncated(false);
+    }
+
+    private AmazonServiceException throttlingException() {
+        AmazonServiceException exception = new AmazonServiceException(THROTTLING_ERROR_CODE);
+        exception.setErrorCode(THROTTLING_ERROR_CODE);
+        return exception;
+    }
+
+    private Set<String> roleNames(List<Role> roles) {
+        return roles.stream().map(Role::getRoleName).collect(Collectors.toSet());
+    }
+}
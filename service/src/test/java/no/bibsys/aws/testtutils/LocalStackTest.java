@@ -19,6 +19,7 @@ import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException
 import com.amazonaws.services.cloudformation.model.DeleteStackResult;
 import com.amazonaws.services.cloudformation.model.DescribeStackResourcesRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStackResourcesResult;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
 import com.amazonaws.services.cloudformation.model.ListStacksResult;
 import com.amazonaws.services.cloudformation.model.Stack;
@@ -39,9 +40,14 @@ import com.amazonaws.services.lambda.model.InvokeResult;
 import com.amazonaws.services.logs.AWSLogs;
 import com.amazonaws.services.logs.model.DescribeLogGroupsResult;
 import com.amazonaws.services.route53.AmazonRoute53;
+import com.amazonaws.services.route53.model.ChangeInfo;
+import com.amazonaws.services.route53.model.ChangeResourceRecordSetsResult;
+import com.amazonaws.services.route53.model.ChangeStatus;
+import com.amazonaws.services.route53.model.GetChangeResult;
 import com.amazonaws.services.route53.model.HostedZone;
 import com.amazonaws.services.route53.model.ListHostedZonesResult;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.S3VersionSummary;
@@ -64,8 +70,11 @@ import no.bibsys.aws.tools.Environment;
 import no.bibsys.aws.tools.IoUtils;
 import no.bibsys.aws.tools.JsonUtils;
 import no.bibsys.aws.utils.github.GithubReader;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import no.bibsys.aws.utils.resources.Route53ChangeWaiter;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -73,11 +82,13 @@ import org.mockito.stubbing.Answer;
 public class LocalStackTest extends GithubTestUtilities {
 
     public static final String SOME_MESSAGE = "some message";
+    private static final String EMPTY_JSON_OBJECT = "{}";
     protected static final String APPROVE_ALL_KEYS = null;
     protected static final String TEST_STACK = "testStack";
     private static final Region ARBITRARY_REGION = Region.getRegion(Regions.EU_WEST_1);
     private static final int ENV_VARIABLE_NAME = 0;
     private static final String ARBITRARY_SECRET_KEY = "secretKey";
+    private static final String STACK_DOES_NOT_EXIST_MESSAGE = "Stack with id stack does not exist";
     private static final String SOME_REPO_OWNER = "owner";
     private static final String SOME_REPO = "repo";
     private static final String SOME_GIT_BRANCH = "branch";
@@ -90,6 +101,7 @@ public class LocalStackTest extends GithubTestUtilities {
     private static final String REST_API_PHYSICAL_ID = "aws:::RestAPI";
     private static final String MOCK_REGIONAL_URL = "regional";
     private static final String MOCK_HOSTED_ZONE_ID = "mock.hosted.zone";
+    private static final String MOCK_CHANGE_ID = "mock.change";
     private static final String CALLER_ID = "callerId";
     private static final String MOCK_REST_API_ID = "mockRestApiID";
     private static final String MOCK_BASEPATH_PREFIX = "basepath.for.";
@@ -156,7 +168,7 @@ public class LocalStackTest extends GithubTestUtilities {
             .thenReturn(new GetRoleResult().withRole(new Role()
                 .withRoleName(pipelineStackConfiguration.getCreateStackRoleName())));
 
-        when(mockAmazonIdentityManagement.listRoles())
+        when(mockAmazonIdentityManagement.listRoles(any()))
             .thenReturn(new ListRolesResult()
                 .withRoles(new Role().withRoleName(pipelineStackConfiguration.getCreateStackRoleName())));
 
@@ -213,9 +225,17 @@ public class LocalStackTest extends GithubTestUtilities {
     protected AmazonRoute53 initializeRoute53Client(String zoneName) {
         AmazonRoute53 route53 = mock(AmazonRoute53.class);
         when(route53.listHostedZones()).thenReturn(listHostedZonesResult(zoneName));
+        when(route53.changeResourceRecordSets(any())).thenReturn(new ChangeResourceRecordSetsResult()
+            .withChangeInfo(new ChangeInfo().withId(MOCK_CHANGE_ID).withStatus(ChangeStatus.PENDING)));
+        when(route53.getChange(any())).thenReturn(new GetChangeResult()
+            .withChangeInfo(new ChangeInfo().withId(MOCK_CHANGE_ID).withStatus(ChangeStatus.INSYNC)));
         return route53;
     }
 
+    protected Route53ChangeWaiter fastRoute53ChangeWaiter(AmazonRoute53 route53) {
+        return new Route53ChangeWaiter(route53, 1, 1, 1000);
+    }
+
     private ListHostedZonesResult listHostedZonesResult(String zoneName) {
 
         HostedZone hostedZone = new HostedZone(MOCK_HOSTED_ZONE_ID,
@@ -233,7 +253,7 @@ public class LocalStackTest extends GithubTestUtilities {
 
     protected AWSLogs mockLogsClient() {
         AWSLogs logsClient = mock(AWSLogs.class);
-        when(logsClient.describeLogGroups()).thenReturn(new DescribeLogGroupsResult()
+        when(logsClient.describeLogGroups(any())).thenReturn(new DescribeLogGroupsResult()
             .withLogGroups(Collections.emptyList()));
         return logsClient;
     }
@@ -244,6 +264,8 @@ public class LocalStackTest extends GithubTestUtilities {
         when(cloudFormation.listStacks()).thenReturn(listWithStackSummaries());
         when(cloudFormation.describeStacks()).thenReturn(describeStackResults());
         when(cloudFormation.deleteStack(any())).then(invocation -> new DeleteStackResult());
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenThrow(new AmazonCloudFormationException(STACK_DOES_NOT_EXIST_MESSAGE));
         when(cloudFormation.describeStackResources(any()))
             .then(describeStackResourcesResultAnswer());
 
@@ -300,9 +322,24 @@ public class LocalStackTest extends GithubTestUtilities {
         when(s3.listObjects(anyString()))
             .then((Answer<ObjectListing>) invocation -> objectListingAnswer())
             .thenReturn(new ObjectListing());
+        when(s3.deleteObjects(any())).thenReturn(new DeleteObjectsResult(Collections.emptyList()));
         return s3;
     }
 
+    /**
+     * Makes the {@link SharedHttpClient} answer all requests with "200 OK" until {@link SharedHttpClient#reset()} is
+     * called.
+     */
+    protected void mockSharedHttpClient() throws IOException {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+
+        when(httpClient.execute(any())).thenReturn(response);
+        when(response.getStatusLine()).thenReturn(STATUS_LINE_OK);
+        when(response.getEntity()).thenAnswer(invocation -> new StringEntity(EMPTY_JSON_OBJECT));
+        SharedHttpClient.getInstance().override(httpClient);
+    }
+
     protected CloseableHttpClient mockHttpClientReturningNotFound() throws IOException {
         CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
         CloseableHttpResponse response = mock(CloseableHttpResponse.class);
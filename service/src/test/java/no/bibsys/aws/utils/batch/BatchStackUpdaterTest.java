@@ -0,0 +1,125 @@
+package no.bibsys.aws.utils.batch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import no.bibsys.aws.lambda.api.requests.UpdateStackRequest;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.utils.batch.BatchItemResult.Status;
+import org.junit.jupiter.api.Test;
+
+public class BatchStackUpdaterTest {
+
+    private static final String OWNER = "owner";
+    private static final String REPOSITORY = "repository";
+    private static final String CREATE = "create";
+    private static final String DELETE = "delete";
+
+    private final transient List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void applyShouldApplyOnlyTheLastRequestOfEachBranch() {
+        BatchStackUpdater updater = new BatchStackUpdater(
+            (branch, action) -> applied.add(action + " " + branch.getBranch()), 2);
+        List<UpdateStackRequest> requests = Arrays.asList(
+            request("first", CREATE),
+            request("second", CREATE),
+            request("first", DELETE));
+
+        List<BatchItemResult> results = updater.apply(requests, result -> { });
+
+        assertThat(statuses(results), is(equalTo(Arrays.asList(Status.SUPERSEDED, Status.SUCCEEDED,
+            Status.SUCCEEDED))));
+        assertThat(applied.size(), is(equalTo(2)));
+        assertThat(applied.contains("delete first"), is(true));
+        assertThat(applied.contains("create second"), is(true));
+    }
+
+    @Test
+    public void applyShouldNotDeduplicateRequestsOfDifferentOwners() {
+        BatchStackUpdater updater = new BatchStackUpdater(
+            (branch, action) -> applied.add(branch.getOwner() + " " + branch.getBranch()), 2);
+        List<UpdateStackRequest> requests = Arrays.asList(
+            request("first", CREATE),
+            new UpdateStackRequest("other-owner", REPOSITORY, "first", CREATE));
+
+        List<BatchItemResult> results = updater.apply(requests, result -> { });
+
+        assertThat(statuses(results), is(equalTo(Arrays.asList(Status.SUCCEEDED, Status.SUCCEEDED))));
+        assertThat(applied.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void applyShouldReportFailuresAndInvalidRequestsWithoutStoppingTheBatch() {
+        BatchStackUpdater updater = new BatchStackUpdater((branch, action) -> {
+            if (Action.DELETE.equals(action)) {
+                throw new IllegalStateException("failure");
+            }
+            applied.add(branch.getBranch());
+        });
+        UpdateStackRequest withoutBranch = request(null, CREATE);
+        List<UpdateStackRequest> requests = Arrays.asList(request("first", DELETE), withoutBranch,
+            request("second", CREATE));
+
+        List<BatchItemResult> results = updater.apply(requests, result -> { });
+
+        assertThat(statuses(results), is(equalTo(Arrays.asList(Status.FAILED, Status.INVALID, Status.SUCCEEDED))));
+        assertThat(results.get(0).getError(), is(equalTo("failure")));
+        assertThat(applied, is(equalTo(Collections.singletonList("second"))));
+    }
+
+    @Test
+    public void applyShouldPassEachResultToTheListener() {
+        BatchStackUpdater updater = new BatchStackUpdater((branch, action) -> { });
+        List<UpdateStackRequest> requests = Arrays.asList(request("first", CREATE), request("second", DELETE));
+        List<Integer> streamed = Collections.synchronizedList(new ArrayList<>());
+
+        updater.apply(requests, result -> streamed.add(result.getIndex()));
+
+        assertThat(streamed.stream().sorted().collect(Collectors.toList()), is(equalTo(Arrays.asList(0, 1))));
+    }
+
+    @Test
+    public void applyShouldNotRunMoreRequestsAtTheSameTimeThanTheParallelism() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        BatchStackUpdater updater = new BatchStackUpdater((branch, action) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            started.await(1, TimeUnit.SECONDS);
+            running.decrementAndGet();
+        }, 2);
+        List<UpdateStackRequest> requests = Arrays.asList(request("a", CREATE), request("b", CREATE),
+            request("c", CREATE), request("d", CREATE));
+
+        List<BatchItemResult> results = updater.apply(requests, result -> { });
+
+        assertThat(maxRunning.get(), is(equalTo(2)));
+        assertThat(results.stream().allMatch(result -> Status.SUCCEEDED.equals(result.getStatus())), is(true));
+    }
+
+    @Test
+    public void constructorShouldRejectParallelismAboveTheMaximum() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new BatchStackUpdater((branch, action) -> { }, BatchStackUpdater.MAX_PARALLELISM + 1));
+    }
+
+    private UpdateStackRequest request(String branch, String action) {
+        return new UpdateStackRequest(OWNER, REPOSITORY, branch, action);
+    }
+
+    private List<Status> statuses(List<BatchItemResult> results) {
+        return results.stream().map(BatchItemResult::getStatus).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,64 @@
+package no.bibsys.aws.utils.clients;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.route53.AmazonRoute53;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class AwsClientRegistryTest {
+
+    private static final String SOME_REGION = "eu-west-1";
+    private static final String OTHER_REGION = "eu-north-1";
+
+    private final transient AwsClientRegistry registry = AwsClientRegistry.getInstance();
+
+    @AfterEach
+    public void resetRegistry() {
+        registry.reset();
+    }
+
+    @Test
+    public void getShouldReturnSameClientForSameTypeAndRegion() {
+        AmazonCloudFormation first = registry.get(AmazonCloudFormation.class, SOME_REGION);
+        AmazonCloudFormation second = registry.get(AmazonCloudFormation.class, SOME_REGION);
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    public void getShouldReturnDifferentClientsForDifferentRegions() {
+        AmazonCloudFormation first = registry.get(AmazonCloudFormation.class, SOME_REGION);
+        AmazonCloudFormation second = registry.get(AmazonCloudFormation.class, OTHER_REGION);
+        assertThat(second, not(sameInstance(first)));
+    }
+
+    @Test
+    public void getShouldReturnOverrideForAllRegions() {
+        AmazonCloudFormation mockClient = mock(AmazonCloudFormation.class);
+        registry.override(AmazonCloudFormation.class, mockClient);
+
+        assertThat(registry.get(AmazonCloudFormation.class, SOME_REGION), sameInstance(mockClient));
+        assertThat(registry.get(AmazonCloudFormation.class, OTHER_REGION), sameInstance(mockClient));
+    }
+
+    @Test
+    public void resetShouldRemoveOverrides() {
+        AmazonCloudFormation mockClient = mock(AmazonCloudFormation.class);
+        registry.override(AmazonCloudFormation.class, mockClient);
+        registry.reset();
+
+        assertThat(registry.get(AmazonCloudFormation.class, SOME_REGION), not(sameInstance(mockClient)));
+    }
+
+    @Test
+    public void getShouldUseRegisteredFactory() {
+        AmazonRoute53 mockClient = mock(AmazonRoute53.class);
+        registry.registerFactory(AmazonRoute53.class, region -> mockClient);
+
+        assertThat(registry.get(AmazonRoute53.class, SOME_REGION), sameInstance(mockClient));
+    }
+}
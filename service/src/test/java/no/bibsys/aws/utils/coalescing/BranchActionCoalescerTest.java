@@ -0,0 +1,124 @@
+package no.bibsys.aws.utils.coalescing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.utils.coalescing.BranchActionCoalescer.ActionRunner;
+import no.bibsys.aws.utils.coalescing.BranchActionCoalescer.Outcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class BranchActionCoalescerTest {
+
+    private static final int WAITING_TIME_IN_SECONDS = 5;
+
+    private final transient BranchActionCoalescer coalescer = new BranchActionCoalescer();
+    private final transient GitEvent event = new GitEvent("owner", "repository", "feature/branch");
+    private final transient List<Action> appliedActions = new CopyOnWriteArrayList<>();
+    private final transient List<GitEvent> appliedEvents = new CopyOnWriteArrayList<>();
+    private final transient CountDownLatch started = new CountDownLatch(1);
+    private final transient CountDownLatch release = new CountDownLatch(1);
+    private final transient ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void submitShouldApplySequentialActions() throws Exception {
+        coalescer.submit(event, Action.CREATE, this::record);
+        coalescer.submit(event, Action.DELETE, this::record);
+
+        assertThat(appliedActions, is(equalTo(Arrays.asList(Action.CREATE, Action.DELETE))));
+    }
+
+    @Test
+    public void submitShouldHandOverActionToRunningThread() throws Exception {
+        Future<Outcome> first = submitBlockingCreate();
+
+        Outcome second = coalescer.submit(event, Action.DELETE, this::record);
+        release.countDown();
+
+        assertThat(second, is(equalTo(Outcome.COALESCED)));
+        assertThat(first.get(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS), is(equalTo(Outcome.APPLIED)));
+        assertThat(appliedActions, is(equalTo(Arrays.asList(Action.CREATE, Action.DELETE))));
+    }
+
+    @Test
+    public void submitShouldCollapseIntermediateActions() throws Exception {
+        Future<Outcome> first = submitBlockingCreate();
+
+        coalescer.submit(event, Action.DELETE, this::record);
+        coalescer.submit(event, Action.CREATE, this::record);
+        release.countDown();
+        first.get(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(appliedActions, is(equalTo(Collections.singletonList(Action.CREATE))));
+    }
+
+    @Test
+    public void submitShouldRethrowFailureOfLastAction() {
+        ActionRunner failingRunner = (branch, action) -> {
+            throw new IllegalStateException(action.toString());
+        };
+        assertThrows(IllegalStateException.class, () -> coalescer.submit(event, Action.CREATE, failingRunner));
+    }
+
+    @Test
+    public void branchKeyShouldBeEqualForBranchesWithEqualOwnersAndStackNames() {
+        GitEvent sameBranch = new GitEvent("Owner", "repository", "feature/branch");
+        assertThat(BranchActionCoalescer.branchKey(sameBranch), is(equalTo(BranchActionCoalescer.branchKey(event))));
+    }
+
+    @Test
+    public void branchKeyShouldDifferForBranchesOfDifferentOwners() {
+        GitEvent otherOwner = new GitEvent("other-owner", "repository", "feature/branch");
+        assertThat(BranchActionCoalescer.branchKey(otherOwner),
+            is(not(equalTo(BranchActionCoalescer.branchKey(event)))));
+    }
+
+    @Test
+    public void submitShouldRunTheCoalescedActionWithItsOwnEvent() throws Exception {
+        Future<Outcome> first = submitBlockingCreate();
+        GitEvent laterEvent = new GitEvent("owner", "repository", "feature/branch");
+
+        coalescer.submit(laterEvent, Action.DELETE, this::record);
+        release.countDown();
+        first.get(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(appliedEvents.size(), is(equalTo(2)));
+        assertThat(appliedEvents.get(1), is(sameInstance(laterEvent)));
+    }
+
+    private void record(GitEvent branch, Action action) {
+        appliedEvents.add(branch);
+        appliedActions.add(action);
+    }
+
+    private Future<Outcome> submitBlockingCreate() throws InterruptedException {
+        ActionRunner blockingRunner = (branch, action) -> {
+            record(branch, action);
+            started.countDown();
+            release.await(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS);
+        };
+        Future<Outcome> future = executor.submit(() -> coalescer.submit(event, Action.CREATE, blockingRunner));
+        started.await(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS);
+        return future;
+    }
+}
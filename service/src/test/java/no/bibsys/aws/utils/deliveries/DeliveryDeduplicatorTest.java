@@ -0,0 +1,111 @@
+package no.bibsys.aws.utils.deliveries;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import org.junit.jupiter.api.Test;
+
+public class DeliveryDeduplicatorTest {
+
+    private static final String DELIVERY_ID = "72d3162e-cc78-11e3-81ab-4c9367dc0958";
+    private static final String OTHER_DELIVERY_ID = "8a9f8a8e-cc78-11e3-81ab-4c9367dc0958";
+    private static final String ACTION = "opened";
+    private static final String RESULT_PREFIX = "result";
+    private static final long TTL = 1000;
+    private static final Clock FIXED_CLOCK = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
+
+    private final transient GitEvent event = new GitEvent("owner", "repository", "branch");
+    private final transient AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    public void processShouldReturnOriginalResultForDuplicateDelivery() throws Exception {
+        DeliveryDeduplicator deduplicator = new DeliveryDeduplicator(new InMemoryDeliveryStore());
+
+        String first = deduplicator.process(DELIVERY_ID, event, ACTION, this::countedWork);
+        String second = deduplicator.process(DELIVERY_ID, event, ACTION, this::countedWork);
+
+        assertThat(second, is(equalTo(first)));
+        assertThat(runs.get(), is(equalTo(1)));
+    }
+
+    @Test
+    public void processShouldRunWorkForDifferentDeliveries() throws Exception {
+        DeliveryDeduplicator deduplicator = new DeliveryDeduplicator(new InMemoryDeliveryStore());
+
+        deduplicator.process(DELIVERY_ID, event, ACTION, this::countedWork);
+        deduplicator.process(OTHER_DELIVERY_ID, event, ACTION, this::countedWork);
+
+        assertThat(runs.get(), is(equalTo(2)));
+    }
+
+    @Test
+    public void processShouldRunWorkAgainAfterFailure() throws Exception {
+        DeliveryDeduplicator deduplicator = new DeliveryDeduplicator(new InMemoryDeliveryStore());
+
+        assertThrows(IllegalStateException.class, () -> deduplicator.process(DELIVERY_ID, event, ACTION, () -> {
+            throw new IllegalStateException(ACTION);
+        }));
+        String result = deduplicator.process(DELIVERY_ID, event, ACTION, this::countedWork);
+
+        assertThat(result, is(equalTo(RESULT_PREFIX + 1)));
+    }
+
+    @Test
+    public void processShouldReturnInProgressMessageWhileOriginalIsRunning() throws Exception {
+        InMemoryDeliveryStore store = new InMemoryDeliveryStore();
+        DeliveryDeduplicator deduplicator = new DeliveryDeduplicator(store);
+        store.claim(DeliveryDeduplicator.deliveryKey(DELIVERY_ID, event, ACTION));
+
+        String result = deduplicator.process(DELIVERY_ID, event, ACTION, this::countedWork);
+
+        assertThat(result, is(equalTo(String.format(DeliveryDeduplicator.IN_PROGRESS_MESSAGE, DELIVERY_ID))));
+        assertThat(runs.get(), is(equalTo(0)));
+    }
+
+    @Test
+    public void claimShouldFailWithinTtl() {
+        InMemoryDeliveryStore store = new InMemoryDeliveryStore(TTL, FIXED_CLOCK);
+
+        assertThat(store.claim(DELIVERY_ID), is(true));
+        assertThat(store.claim(DELIVERY_ID), is(false));
+    }
+
+    @Test
+    public void claimShouldSucceedAfterTtlExpires() {
+        InMemoryDeliveryStore store = new InMemoryDeliveryStore(0, FIXED_CLOCK);
+
+        store.claim(DELIVERY_ID);
+
+        assertThat(store.claim(DELIVERY_ID), is(true));
+    }
+
+    @Test
+    public void claimShouldSucceedAfterLeaseExpiresForDeliveryThatWasNotCompleted() {
+        InMemoryDeliveryStore store = new InMemoryDeliveryStore(TTL, 0, FIXED_CLOCK);
+
+        store.claim(DELIVERY_ID);
+
+        assertThat(store.claim(DELIVERY_ID), is(true));
+    }
+
+    @Test
+    public void completeShouldKeepTheDeliveryForTheTtl() {
+        InMemoryDeliveryStore store = new InMemoryDeliveryStore(TTL, 0, FIXED_CLOCK);
+
+        store.claim(DELIVERY_ID);
+        store.complete(DELIVERY_ID, RESULT_PREFIX);
+
+        assertThat(store.claim(DELIVERY_ID), is(false));
+    }
+
+    private String countedWork() {
+        return RESULT_PREFIX + runs.incrementAndGet();
+    }
+}
@@ -0,0 +1,103 @@
+package no.bibsys.aws.utils.deliveries;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class DynamoDbDeliveryStoreTest {
+
+    private static final String TABLE_NAME = "deliveries";
+    private static final String DELIVERY_KEY = "delivery/owner/repository/branch/opened";
+    private static final String RESULT = "opened";
+    private static final long TTL = 60_000;
+    private static final long LEASE = 10_000;
+    private static final long NOW_IN_SECONDS = 1_000_000;
+
+    private final transient AmazonDynamoDB dynamoDb = mock(AmazonDynamoDB.class);
+    private final transient DynamoDbDeliveryStore store = new DynamoDbDeliveryStore(dynamoDb, TABLE_NAME, TTL, LEASE,
+        Clock.fixed(Instant.ofEpochSecond(NOW_IN_SECONDS), ZoneOffset.UTC));
+
+    @Test
+    public void claimShouldReturnTrueWhenConditionalPutSucceeds() {
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenReturn(new PutItemResult());
+        assertThat(store.claim(DELIVERY_KEY), is(true));
+    }
+
+    @Test
+    public void claimShouldExpireAfterTheLeaseAndCompleteAfterTheTtl() {
+        ArgumentCaptor<PutItemRequest> claim = ArgumentCaptor.forClass(PutItemRequest.class);
+        ArgumentCaptor<UpdateItemRequest> completion = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(dynamoDb.putItem(claim.capture())).thenReturn(new PutItemResult());
+        when(dynamoDb.updateItem(completion.capture())).thenReturn(new UpdateItemResult());
+
+        store.claim(DELIVERY_KEY);
+        store.complete(DELIVERY_KEY, RESULT);
+
+        assertThat(claim.getValue().getItem().get(DynamoDbDeliveryStore.EXPIRES_AT).getN(),
+            is(equalTo(Long.toString(NOW_IN_SECONDS + LEASE / 1000))));
+        assertThat(completion.getValue().getExpressionAttributeValues().get(":expiresAt").getN(),
+            is(equalTo(Long.toString(NOW_IN_SECONDS + TTL / 1000))));
+    }
+
+    @Test
+    public void claimShouldUseTheShortDefaultLeaseOfTheDeduplicator() {
+        ArgumentCaptor<PutItemRequest> claim = ArgumentCaptor.forClass(PutItemRequest.class);
+        when(dynamoDb.putItem(claim.capture())).thenReturn(new PutItemResult());
+        Clock clock = Clock.fixed(Instant.ofEpochSecond(NOW_IN_SECONDS), ZoneOffset.UTC);
+        DynamoDbDeliveryStore defaultLeaseStore = new DynamoDbDeliveryStore(dynamoDb, TABLE_NAME,
+            DeliveryDeduplicator.DEFAULT_TTL_MILLIS, clock);
+
+        defaultLeaseStore.claim(DELIVERY_KEY);
+
+        assertThat(claim.getValue().getItem().get(DynamoDbDeliveryStore.EXPIRES_AT).getN(), is(equalTo(
+            Long.toString(NOW_IN_SECONDS + DeliveryDeduplicator.DEFAULT_CLAIM_LEASE_MILLIS / 1000))));
+    }
+
+    @Test
+    public void claimShouldReturnFalseWhenDeliveryHasBeenClaimed() {
+        when(dynamoDb.putItem(any(PutItemRequest.class)))
+            .thenThrow(new ConditionalCheckFailedException(DELIVERY_KEY));
+        assertThat(store.claim(DELIVERY_KEY), is(false));
+    }
+
+    @Test
+    public void findResultShouldReturnStoredResult() {
+        mockItem(NOW_IN_SECONDS + 1);
+        assertThat(store.findResult(DELIVERY_KEY), is(equalTo(Optional.of(RESULT))));
+    }
+
+    @Test
+    public void findResultShouldIgnoreExpiredItem() {
+        mockItem(NOW_IN_SECONDS);
+        assertThat(store.findResult(DELIVERY_KEY), is(equalTo(Optional.empty())));
+    }
+
+    private void mockItem(long expiresAt) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(DynamoDbDeliveryStore.DELIVERY_KEY, new AttributeValue().withS(DELIVERY_KEY));
+        item.put(DynamoDbDeliveryStore.RESULT, new AttributeValue().withS(RESULT));
+        item.put(DynamoDbDeliveryStore.EXPIRES_AT, new AttributeValue().withN(Long.toString(expiresAt)));
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(new GetItemResult().withItem(item));
+    }
+}
@@ -0,0 +1,224 @@
+package no.bibsys.aws.utils.fleet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import no.bibsys.aws.cloudformation.Configurable;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+import no.bibsys.aws.utils.fleet.ReconciliationAction.Status;
+import no.bibsys.aws.utils.github.GithubPullRequestLister;
+import org.apache.http.HttpStatus;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.Test;
+
+public class FleetReconcilerTest {
+
+    private static final RepositoryRef REPOSITORY = new RepositoryRef("owner", "repository");
+    private static final RepositoryRef OTHER_REPOSITORY = new RepositoryRef("owner", "other");
+    private static final String OPEN_BRANCH = "open";
+    private static final String CLOSED_BRANCH = "closed";
+    private static final String MASTER = "master";
+    private static final String STACK_COMPLETE = "CREATE_COMPLETE";
+
+    private final transient List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void reconcileShouldCreatePipelinesOfOpenBranchesWithoutPipeline() {
+        FleetReconciler reconciler = newReconciler(Collections.emptyList(), Collections.emptyList(),
+            Collections.singleton(OPEN_BRANCH));
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), false);
+
+        assertThat(actions(report), is(equalTo(Collections.singletonList("create " + OPEN_BRANCH))));
+        assertThat(report.count(Status.APPLIED), is(equalTo(1L)));
+        assertThat(applied, is(equalTo(Collections.singletonList("create " + OPEN_BRANCH))));
+    }
+
+    @Test
+    public void reconcileShouldRecreateBrokenPipelinesAndKeepHealthyOnes() {
+        List<ExistingPipeline> pipelines = Arrays.asList(
+            new ExistingPipeline(REPOSITORY, OPEN_BRANCH, "stack1", "ROLLBACK_COMPLETE"),
+            new ExistingPipeline(REPOSITORY, "healthy", "stack2", STACK_COMPLETE));
+        FleetReconciler reconciler = newReconciler(pipelines, Collections.emptyList(),
+            new HashSet<>(Arrays.asList(OPEN_BRANCH, "healthy")));
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), true);
+
+        assertThat(actions(report), is(equalTo(Collections.singletonList("create " + OPEN_BRANCH))));
+    }
+
+    @Test
+    public void reconcileShouldDeletePipelinesOfClosedBranchesButNotOfMaster() {
+        List<ExistingPipeline> pipelines = Arrays.asList(
+            new ExistingPipeline(REPOSITORY, CLOSED_BRANCH, "stack1", STACK_COMPLETE),
+            new ExistingPipeline(REPOSITORY, MASTER, "stack2", STACK_COMPLETE));
+        FleetReconciler reconciler = newReconciler(pipelines, Collections.emptyList(), Collections.emptySet());
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), false);
+
+        assertThat(actions(report), is(equalTo(Collections.singletonList("delete " + CLOSED_BRANCH))));
+    }
+
+    @Test
+    public void reconcileShouldKeepPipelinesOfExistingBranchesWithoutOpenPullRequest() {
+        String apiBranch = "created-through-api";
+        List<ExistingPipeline> pipelines = Arrays.asList(
+            new ExistingPipeline(REPOSITORY, apiBranch, "stack1", STACK_COMPLETE),
+            new ExistingPipeline(REPOSITORY, CLOSED_BRANCH, "stack2", STACK_COMPLETE));
+        FleetReconciler reconciler = newReconciler(pipelines, Collections.emptyList(), Collections.emptySet(),
+            Collections.singleton(apiBranch));
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), true);
+
+        assertThat(actions(report), is(equalTo(Collections.singletonList("delete " + CLOSED_BRANCH))));
+    }
+
+    @Test
+    public void reconcileShouldDeleteOrphanedCreateStackRolesOfClosedBranches() {
+        Configurable closed = new Configurable(REPOSITORY.getRepository(), CLOSED_BRANCH);
+        Configurable open = new Configurable(REPOSITORY.getRepository(), OPEN_BRANCH);
+        List<ExistingCreateStackRole> roles = Arrays.asList(
+            new ExistingCreateStackRole("role1", closed.getProjectId(), closed.getNormalizedBranchName(),
+                CLOSED_BRANCH),
+            new ExistingCreateStackRole("role2", open.getProjectId(), open.getNormalizedBranchName(), OPEN_BRANCH));
+        List<ExistingPipeline> pipelines = Collections.singletonList(
+            new ExistingPipeline(REPOSITORY, OPEN_BRANCH, "stack", STACK_COMPLETE));
+        FleetReconciler reconciler = newReconciler(pipelines, roles, Collections.singleton(OPEN_BRANCH));
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), true);
+
+        assertThat(actions(report), is(equalTo(Collections.singletonList("delete " + CLOSED_BRANCH))));
+    }
+
+    @Test
+    public void dryRunShouldNotApplyActions() {
+        FleetReconciler reconciler = newReconciler(Collections.emptyList(), Collections.emptyList(),
+            Collections.singleton(OPEN_BRANCH));
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), true);
+
+        assertThat(report.count(Status.PLANNED), is(equalTo(1L)));
+        assertThat(applied.isEmpty(), is(true));
+    }
+
+    @Test
+    public void reconcileShouldSkipRepositoriesWhoseBranchesCannotBeRead() {
+        List<ExistingPipeline> pipelines = Collections.singletonList(
+            new ExistingPipeline(OTHER_REPOSITORY, CLOSED_BRANCH, "stack", STACK_COMPLETE));
+        OpenBranchSource failingSource = new OpenBranchSource() {
+            @Override
+            public Set<String> openBranches(RepositoryRef repository) throws IOException {
+                throw new IOException("unavailable");
+            }
+
+            @Override
+            public Set<String> existingBranches(RepositoryRef repository) throws IOException {
+                throw new IOException("unavailable");
+            }
+        };
+        FleetReconciler reconciler = new FleetReconciler(inventory(pipelines, Collections.emptyList()),
+            failingSource, this::record);
+        ReconciliationReport report = reconciler.reconcileAll(Collections.emptyList(), false);
+
+        assertThat(report.getActions().isEmpty(), is(true));
+        assertThat(report.getErrors().get(OTHER_REPOSITORY.toString()), is(equalTo("unavailable")));
+        assertThat(applied.isEmpty(), is(true));
+    }
+
+    @Test
+    public void reconcileShouldNotDeletePipelinesWhenGithubAnswersWithAnError() throws IOException {
+        List<ExistingPipeline> pipelines = Arrays.asList(
+            new ExistingPipeline(REPOSITORY, CLOSED_BRANCH, "stack1", STACK_COMPLETE),
+            new ExistingPipeline(REPOSITORY, MASTER, "stack2", STACK_COMPLETE));
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        when(httpClient.execute(any())).thenReturn(response);
+        when(response.getStatusLine()).thenReturn(
+            new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), HttpStatus.SC_FORBIDDEN, "Forbidden"));
+        when(response.getEntity()).thenReturn(new StringEntity("{\"message\":\"API rate limit exceeded\"}"));
+        OpenBranchSource githubSource = new GithubBranchSource(
+            new GithubPullRequestLister(httpClient, () -> "secret"));
+        FleetReconciler reconciler = new FleetReconciler(inventory(pipelines, Collections.emptyList()),
+            githubSource, this::record);
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), true);
+
+        assertThat(report.getActions().isEmpty(), is(true));
+        assertThat(report.getErrors().containsKey(REPOSITORY.toString()), is(true));
+    }
+
+    @Test
+    public void failedActionsShouldBeReportedWithoutStoppingOthers() {
+        List<ExistingPipeline> pipelines = Collections.singletonList(
+            new ExistingPipeline(REPOSITORY, CLOSED_BRANCH, "stack", STACK_COMPLETE));
+        BranchActionExecutor executor = (branch, action) -> {
+            if (Action.CREATE.equals(action)) {
+                throw new IllegalStateException("failure");
+            }
+            record(branch.getBranch(), action);
+        };
+        FleetReconciler reconciler = new FleetReconciler(inventory(pipelines, Collections.emptyList()),
+            branchSource(Collections.singleton(OPEN_BRANCH), Collections.emptySet()), executor);
+        ReconciliationReport report = reconciler.reconcile(Collections.singletonList(REPOSITORY), false);
+
+        assertThat(report.count(Status.FAILED), is(equalTo(1L)));
+        assertThat(report.count(Status.APPLIED), is(equalTo(1L)));
+        assertThat(applied, is(equalTo(Collections.singletonList("delete " + CLOSED_BRANCH))));
+    }
+
+    private FleetReconciler newReconciler(List<ExistingPipeline> pipelines, List<ExistingCreateStackRole> roles,
+        Set<String> openBranches) {
+        return newReconciler(pipelines, roles, openBranches, Collections.emptySet());
+    }
+
+    private FleetReconciler newReconciler(List<ExistingPipeline> pipelines, List<ExistingCreateStackRole> roles,
+        Set<String> openBranches, Set<String> otherBranches) {
+        return new FleetReconciler(inventory(pipelines, roles), branchSource(openBranches, otherBranches),
+            this::record);
+    }
+
+    private OpenBranchSource branchSource(Set<String> openBranches, Set<String> otherBranches) {
+        return new OpenBranchSource() {
+            @Override
+            public Set<String> openBranches(RepositoryRef repository) {
+                return openBranches;
+            }
+
+            @Override
+            public Set<String> existingBranches(RepositoryRef repository) {
+                return otherBranches;
+            }
+        };
+    }
+
+    private PipelineInventory inventory(List<ExistingPipeline> pipelines, List<ExistingCreateStackRole> roles) {
+        PipelineInventory inventory = mock(PipelineInventory.class);
+        when(inventory.pipelines()).thenReturn(pipelines);
+        when(inventory.createStackRoles()).thenReturn(roles);
+        return inventory;
+    }
+
+    private void record(GitEvent branch, Action action) {
+        record(branch.getBranch(), action);
+    }
+
+    private void record(String branch, Action action) {
+        applied.add(action + " " + branch);
+    }
+
+    private List<String> actions(ReconciliationReport report) {
+        return report.getActions().stream()
+            .map(action -> action.getAction() + " " + action.getBranch())
+            .collect(Collectors.toList());
+    }
+}
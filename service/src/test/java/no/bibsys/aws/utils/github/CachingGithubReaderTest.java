@@ -0,0 +1,111 @@
+package no.bibsys.aws.utils.github;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import no.bibsys.aws.git.github.GithubConf;
+import no.bibsys.aws.testtutils.LocalStackTest;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.Test;
+
+public class CachingGithubReaderTest extends LocalStackTest {
+
+    private static final Path FILE_PATH = Paths.get("folder", "file");
+    private static final String ETAG = "\"abc123\"";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String CONTENT = "file content";
+
+    private final transient GithubConf githubConf = new GithubConf("owner", "repository", "branch",
+        MOCK_SECRETS_READER);
+    private final transient List<HttpGet> requests = new ArrayList<>();
+
+    @Test
+    public void readFileShouldReturnCachedContentWhenFileIsNotModified() throws Exception {
+        CloseableHttpClient httpClient = mockHttpClient(HttpStatus.SC_OK, HttpStatus.SC_NOT_MODIFIED);
+        GithubReader githubReader = new CachingGithubReader(httpClient, new GithubFileCache())
+            .setGitHubConf(githubConf);
+
+        String first = githubReader.readFile(FILE_PATH);
+        String second = githubReader.readFile(FILE_PATH);
+
+        assertThat(second, is(equalTo(first)));
+        assertThat(ifNoneMatch(requests.get(0)), is(nullValue()));
+        assertThat(ifNoneMatch(requests.get(1)), is(equalTo(ETAG)));
+    }
+
+    @Test
+    public void readFileShouldUseDiskCacheOfPreviousReader() throws Exception {
+        Path directory = Files.createTempDirectory("github-cache");
+        GithubReader firstReader = new CachingGithubReader(mockHttpClient(HttpStatus.SC_OK),
+            new GithubFileCache(GithubFileCache.DEFAULT_MAX_ENTRIES, directory)).setGitHubConf(githubConf);
+        firstReader.readFile(FILE_PATH);
+
+        GithubReader secondReader = new CachingGithubReader(mockHttpClient(HttpStatus.SC_NOT_MODIFIED),
+            new GithubFileCache(GithubFileCache.DEFAULT_MAX_ENTRIES, directory)).setGitHubConf(githubConf);
+
+        assertThat(secondReader.readFile(FILE_PATH), is(equalTo(CONTENT)));
+        assertThat(ifNoneMatch(requests.get(1)), is(equalTo(ETAG)));
+    }
+
+    @Test
+    public void readFileShouldThrowExceptionWhenCachedFileHasBeenRemoved() throws Exception {
+        CloseableHttpClient httpClient = mockHttpClient(HttpStatus.SC_OK, HttpStatus.SC_NOT_FOUND);
+        GithubReader githubReader = new CachingGithubReader(httpClient, new GithubFileCache())
+            .setGitHubConf(githubConf);
+
+        githubReader.readFile(FILE_PATH);
+
+        assertThrows(NotFoundException.class, () -> githubReader.readFile(FILE_PATH));
+    }
+
+    private CloseableHttpClient mockHttpClient(int... statusCodes) throws IOException {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        List<CloseableHttpResponse> responses = new ArrayList<>();
+        for (int statusCode : statusCodes) {
+            responses.add(mockResponse(statusCode));
+        }
+        when(httpClient.execute(any())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            return responses.remove(0);
+        });
+        return httpClient;
+    }
+
+    private CloseableHttpResponse mockResponse(int statusCode) {
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(PROTOCOL_VERSION, statusCode, null));
+        if (statusCode == HttpStatus.SC_OK) {
+            BasicHttpEntity entity = new BasicHttpEntity();
+            entity.setContent(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)));
+            when(response.getEntity()).thenReturn(entity);
+            when(response.getFirstHeader("ETag")).thenReturn(new BasicHeader("ETag", ETAG));
+        }
+        return response;
+    }
+
+    private String ifNoneMatch(HttpGet request) {
+        Header header = request.getFirstHeader(IF_NONE_MATCH);
+        return header == null ? null : header.getValue();
+    }
+}
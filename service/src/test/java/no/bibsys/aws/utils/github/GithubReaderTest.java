@@ -12,10 +12,18 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import no.bibsys.aws.git.github.GithubConf;
 import no.bibsys.aws.secrets.SecretsReader;
 import no.bibsys.aws.testtutils.LocalStackTest;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.junit.jupiter.api.Test;
 
@@ -29,6 +37,11 @@ public class GithubReaderTest extends LocalStackTest {
     private static final transient String urlTemplate = "https://api.github.com/"
         + "repos/%1$s/%2$s/contents/%4$s?ref=%3$s";
     private static final SecretsReader SECRETS_READER = () -> "secret";
+    private static final String POLICY_PATH = "config/policy.json";
+    private static final String POLICY_SHA = "a1b2";
+    private static final String TEMPLATE_PATH = "config/templates/pipeline.yml";
+    private static final String TEMPLATE_SHA = "c3d4";
+    private static final String HEAD_SHA = "e5f6";
     private static final GithubConf githubConf = new GithubConf(OWNER, REPO, BRANCH,
         SECRETS_READER);
 
@@ -78,4 +91,79 @@ public class GithubReaderTest extends LocalStackTest {
 
         assertThat(exceptionMessage, containsString(ARBITRARY_PATH.toString()));
     }
+
+    @Test
+    public void readFilesShouldReturnContentOfEachPath() throws Exception {
+        GithubReader githubReader = new GithubReader(mockTreeHttpClient()).setGitHubConf(githubConf);
+
+        Map<Path, String> files = githubReader.readFiles(Arrays.asList(Paths.get(POLICY_PATH),
+            Paths.get(TEMPLATE_PATH)));
+
+        assertThat(files.get(Paths.get(POLICY_PATH)), is(equalTo(POLICY_SHA)));
+        assertThat(files.get(Paths.get(TEMPLATE_PATH)), is(equalTo(TEMPLATE_SHA)));
+    }
+
+    @Test
+    public void readFilesShouldThrowExceptionForPathMissingInTree() throws IOException {
+        GithubReader githubReader = new GithubReader(mockTreeHttpClient()).setGitHubConf(githubConf);
+
+        assertThrows(NotFoundException.class,
+            () -> githubReader.readFiles(Collections.singletonList(ARBITRARY_PATH)));
+    }
+
+    @Test
+    public void readDirectoryShouldReturnAllFilesUnderDirectory() throws Exception {
+        GithubReader githubReader = new GithubReader(mockTreeHttpClient()).setGitHubConf(githubConf);
+
+        Map<Path, String> files = githubReader.readDirectory(Paths.get("config"));
+
+        assertThat(files.keySet(), is(equalTo(new HashSet<>(Arrays.asList(Paths.get(POLICY_PATH),
+            Paths.get(TEMPLATE_PATH))))));
+    }
+
+    @Test
+    public void readFilesShouldReadTreeOfHeadCommitResolvedThroughEncodedRef() throws Exception {
+        List<String> urls = new ArrayList<>();
+        GithubConf conf = new GithubConf(OWNER, REPO, "feature/50% off#2", SECRETS_READER);
+        GithubReader githubReader = new GithubReader(mockTreeHttpClient(urls)).setGitHubConf(conf);
+
+        githubReader.readFiles(Collections.singletonList(Paths.get(POLICY_PATH)));
+
+        assertThat(urls.get(0), is(equalTo(
+            "https://api.github.com/repos/ownername/reponame/git/ref/heads/feature/50%25%20off%232")));
+        assertThat(urls.get(1), is(equalTo(
+            "https://api.github.com/repos/ownername/reponame/git/trees/" + HEAD_SHA + "?recursive=1")));
+    }
+
+    private CloseableHttpClient mockTreeHttpClient() throws IOException {
+        return mockTreeHttpClient(new ArrayList<>());
+    }
+
+    // answers a ref request with the head commit, a tree request with a tree of two files, and a blob request
+    // with the SHA of the blob, recording the requested urls
+    private CloseableHttpClient mockTreeHttpClient(List<String> urls) throws IOException {
+        String tree = String.format("{\"sha\":\"tree\",\"truncated\":false,\"tree\":["
+                + "{\"path\":\"config\",\"type\":\"tree\",\"sha\":\"dir\"},"
+                + "{\"path\":\"%s\",\"type\":\"blob\",\"sha\":\"%s\"},"
+                + "{\"path\":\"%s\",\"type\":\"blob\",\"sha\":\"%s\"}]}",
+            POLICY_PATH, POLICY_SHA, TEMPLATE_PATH, TEMPLATE_SHA);
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        when(httpClient.execute(any())).thenAnswer(invocation -> {
+            String url = ((HttpGet) invocation.getArgument(0)).getURI().toString();
+            urls.add(url);
+            String body;
+            if (url.contains("/git/ref/heads/")) {
+                body = String.format("{\"ref\":\"refs/heads/branch\",\"object\":{\"sha\":\"%s\"}}", HEAD_SHA);
+            } else if (url.contains("/git/trees/" + HEAD_SHA)) {
+                body = tree;
+            } else {
+                body = url.substring(url.lastIndexOf('/') + 1);
+            }
+            CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+            when(response.getStatusLine()).thenReturn(STATUS_LINE_OK);
+            when(response.getEntity()).thenReturn(new StringEntity(body));
+            return response;
+        });
+        return httpClient;
+    }
 }
@@ -0,0 +1,78 @@
+package no.bibsys.aws.utils.http;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.http.HttpStatus;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SharedHttpClientTest {
+
+    private static final String URL = "https://api.github.com";
+    private static final String BODY = "body";
+
+    private final transient SharedHttpClient sharedHttpClient = SharedHttpClient.getInstance();
+    private final transient BasicHttpEntity entity = new BasicHttpEntity();
+    private final transient CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+    private final transient AtomicBoolean contentClosed = new AtomicBoolean();
+
+    @AfterEach
+    public void resetSharedHttpClient() {
+        sharedHttpClient.reset();
+    }
+
+    @Test
+    public void executeShouldConsumeEntityAndCloseResponse() throws IOException {
+        overrideWithResponse(HttpStatus.SC_ACCEPTED);
+
+        int statusCode = sharedHttpClient.execute(new HttpGet(URL));
+
+        assertThat(statusCode, is(equalTo(HttpStatus.SC_ACCEPTED)));
+        assertThat(contentClosed.get(), is(true));
+        verify(response).close();
+    }
+
+    @Test
+    public void executeForBodyShouldReturnBodyAndCloseResponse() throws IOException {
+        overrideWithResponse(HttpStatus.SC_OK);
+
+        assertThat(sharedHttpClient.executeForBody(new HttpGet(URL)), is(equalTo(BODY)));
+        verify(response).close();
+    }
+
+    @Test
+    public void getPoolStatsShouldReportConfiguredPoolSize() {
+        assertThat(sharedHttpClient.getPoolStats().getMax(), is(equalTo(SharedHttpClient.MAX_CONNECTIONS)));
+    }
+
+    private void overrideWithResponse(int statusCode) throws IOException {
+        entity.setContent(new ByteArrayInputStream(BODY.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                contentClosed.set(true);
+            }
+        });
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        when(httpClient.execute(any())).thenReturn(response);
+        when(response.getStatusLine())
+            .thenReturn(new BasicStatusLine(new ProtocolVersion("http", 1, 1), statusCode, null));
+        when(response.getEntity()).thenReturn(entity);
+        sharedHttpClient.override(httpClient);
+    }
+}
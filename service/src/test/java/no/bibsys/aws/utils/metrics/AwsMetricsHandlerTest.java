@@ -0,0 +1,66 @@
+package no.bibsys.aws.utils.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.services.cloudformation.model.CreateStackRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AwsMetricsHandlerTest {
+
+    private static final String SERVICE = "AmazonCloudFormation";
+    private static final String OPERATION = "CreateStack";
+
+    private final transient MetricsRecorder recorder = MetricsRecorder.getInstance();
+    private final transient AwsMetricsHandler handler = new AwsMetricsHandler(recorder);
+
+    @BeforeEach
+    public void init() {
+        recorder.reset();
+        recorder.setSink(new InMemoryMetricsSink());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        recorder.reset();
+    }
+
+    @Test
+    public void handlerShouldRecordThrottledAttemptsAsRetries() {
+        Request<?> request = new DefaultRequest<>(new CreateStackRequest(), SERVICE);
+        handler.beforeRequest(request);
+        AmazonServiceException throttling = new AmazonServiceException("Rate exceeded");
+        throttling.setErrorCode("Throttling");
+        handler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request).withException(throttling)
+            .build());
+        handler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request).build());
+        handler.afterResponse(request, null);
+
+        OperationMetrics metrics = recorder.operation(SERVICE, OPERATION);
+        assertThat(metrics.getCalls(), is(equalTo(1L)));
+        assertThat(metrics.getErrors(), is(equalTo(0L)));
+        assertThat(metrics.getRetries(), is(equalTo(1L)));
+        assertThat(metrics.getThrottles(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void handlerShouldRecordFailedCallsAsErrors() {
+        Request<?> request = new DefaultRequest<>(new CreateStackRequest(), SERVICE);
+        handler.beforeRequest(request);
+        handler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request)
+            .withException(new AmazonServiceException("failure")).build());
+        handler.afterError(request, null, new AmazonServiceException("failure"));
+
+        OperationMetrics metrics = recorder.operation(SERVICE, OPERATION);
+        assertThat(metrics.getCalls(), is(equalTo(1L)));
+        assertThat(metrics.getErrors(), is(equalTo(1L)));
+        assertThat(metrics.getThrottles(), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,68 @@
+package no.bibsys.aws.utils.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpCoreContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class HttpMetricsInterceptorTest {
+
+    private static final String GITHUB_HOST = "api.github.com";
+    private static final String GET = "GET";
+
+    private final transient MetricsRecorder recorder = MetricsRecorder.getInstance();
+    private final transient HttpMetricsInterceptor interceptor = new HttpMetricsInterceptor(recorder);
+
+    @BeforeEach
+    public void init() {
+        recorder.reset();
+        recorder.setSink(new InMemoryMetricsSink());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        recorder.reset();
+    }
+
+    @Test
+    public void interceptorShouldRecordGithubCallsWithTheirSize() throws Exception {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new StringEntity("content"));
+        execute(response);
+
+        OperationMetrics metrics = recorder.operation(HttpMetricsInterceptor.GITHUB_SERVICE, GET);
+        assertThat(metrics.getCalls(), is(equalTo(1L)));
+        assertThat(metrics.getErrors(), is(equalTo(0L)));
+        assertThat(metrics.getBytesReceived(), is(equalTo((long) "content".length())));
+    }
+
+    @Test
+    public void interceptorShouldCountExhaustedRateLimitsAsThrottles() {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 403, "Forbidden");
+        response.setHeader("X-RateLimit-Remaining", "0");
+        execute(response);
+
+        OperationMetrics metrics = recorder.operation(HttpMetricsInterceptor.GITHUB_SERVICE, GET);
+        assertThat(metrics.getErrors(), is(equalTo(1L)));
+        assertThat(metrics.getThrottles(), is(equalTo(1L)));
+    }
+
+    private void execute(HttpResponse response) {
+        HttpGet request = new HttpGet("https://" + GITHUB_HOST + "/repos/owner/repository");
+        HttpCoreContext context = HttpCoreContext.create();
+        context.setTargetHost(new HttpHost(GITHUB_HOST, 443, "https"));
+        context.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+        interceptor.process(request, context);
+        interceptor.process(response, context);
+    }
+}
@@ -0,0 +1,100 @@
+package no.bibsys.aws.utils.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.List;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MetricsRecorderTest {
+
+    private static final String SERVICE = "AmazonCloudFormation";
+    private static final String OPERATION = "CreateStack";
+
+    private final transient InMemoryMetricsSink sink = new InMemoryMetricsSink();
+    private final transient MetricsRecorder recorder = MetricsRecorder.getInstance();
+
+    @BeforeEach
+    public void init() {
+        recorder.reset();
+        recorder.setSink(sink);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        recorder.reset();
+    }
+
+    @Test
+    public void flushShouldWriteOneEmbeddedMetricDocumentPerOperation() throws IOException {
+        OperationMetrics metrics = recorder.operation(SERVICE, OPERATION);
+        metrics.recordCall(120, false);
+        metrics.recordCall(80, true);
+        metrics.recordRetries(2);
+        metrics.recordThrottle();
+        metrics.recordBytes(10, 200);
+        recorder.operation("Github", "GET").recordCall(30, false);
+
+        recorder.flush();
+
+        List<String> documents = sink.getDocuments();
+        assertThat(documents.size(), is(equalTo(2)));
+        JsonNode document = documentOf(documents, SERVICE);
+        JsonNode directive = document.get("_aws").get("CloudWatchMetrics").get(0);
+        assertThat(directive.get("Namespace").asText(), is(equalTo(MetricsRecorder.NAMESPACE)));
+        assertThat(directive.get("Dimensions").get(0).size(), is(equalTo(2)));
+        assertThat(document.get(MetricsRecorder.OPERATION_DIMENSION).asText(), is(equalTo(OPERATION)));
+        assertThat(document.get(MetricsRecorder.LATENCY).size(), is(equalTo(2)));
+        assertThat(document.get(MetricsRecorder.CALLS).asLong(), is(equalTo(2L)));
+        assertThat(document.get(MetricsRecorder.ERRORS).asLong(), is(equalTo(1L)));
+        assertThat(document.get(MetricsRecorder.RETRIES).asLong(), is(equalTo(2L)));
+        assertThat(document.get(MetricsRecorder.THROTTLES).asLong(), is(equalTo(1L)));
+        assertThat(document.get(MetricsRecorder.BYTES_RECEIVED).asLong(), is(equalTo(200L)));
+    }
+
+    @Test
+    public void flushShouldSplitLatenciesIntoDocumentsOfAtMostTheMaximumNumberOfValues() throws IOException {
+        OperationMetrics metrics = recorder.operation(SERVICE, OPERATION);
+        int calls = MetricsRecorder.MAX_VALUES_PER_DOCUMENT + 1;
+        for (int i = 0; i < calls; i++) {
+            metrics.recordCall(i, false);
+        }
+
+        recorder.flush();
+
+        List<String> documents = sink.getDocuments();
+        assertThat(documents.size(), is(equalTo(2)));
+        JsonNode first = ObjectMappers.JSON.readTree(documents.get(0));
+        JsonNode second = ObjectMappers.JSON.readTree(documents.get(1));
+        assertThat(first.get(MetricsRecorder.LATENCY).size(), is(equalTo(MetricsRecorder.MAX_VALUES_PER_DOCUMENT)));
+        assertThat(first.get(MetricsRecorder.CALLS).asLong(), is(equalTo((long) calls)));
+        assertThat(second.get(MetricsRecorder.LATENCY).size(), is(equalTo(1)));
+        assertThat(second.has(MetricsRecorder.CALLS), is(false));
+    }
+
+    @Test
+    public void flushShouldClearTheRecordedMetrics() {
+        recorder.operation(SERVICE, OPERATION).recordCall(1, false);
+        recorder.flush();
+        recorder.flush();
+
+        assertThat(sink.getDocuments().size(), is(equalTo(1)));
+        assertThat(recorder.snapshot().isEmpty(), is(true));
+    }
+
+    private JsonNode documentOf(List<String> documents, String service) throws IOException {
+        for (String document : documents) {
+            JsonNode node = ObjectMappers.JSON.readTree(document);
+            if (service.equals(node.get(MetricsRecorder.SERVICE_DIMENSION).asText())) {
+                return node;
+            }
+        }
+        throw new AssertionError("No document for " + service);
+    }
+}
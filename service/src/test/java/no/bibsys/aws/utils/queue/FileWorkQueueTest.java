@@ -0,0 +1,113 @@
+package no.bibsys.aws.utils.queue;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import no.bibsys.aws.lambda.api.requests.GitEvent;
+import no.bibsys.aws.lambda.api.utils.Action;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FileWorkQueueTest {
+
+    private static final String OWNER = "owner";
+    private static final String REPOSITORY = "repository";
+    private static final String FIRST_BRANCH = "first";
+    private static final String SECOND_BRANCH = "second";
+    private static final int NUMBER_OF_JOBS = 20;
+
+    private transient FileWorkQueue workQueue;
+    private transient Path directory;
+
+    @BeforeEach
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("work-queue");
+        workQueue = new FileWorkQueue(directory);
+    }
+
+    @Test
+    public void receiveShouldReturnJobsInEnqueueOrder() throws IOException {
+        workQueue.enqueue(newJob(FIRST_BRANCH, Action.CREATE));
+        workQueue.enqueue(newJob(SECOND_BRANCH, Action.DELETE));
+
+        List<QueuedJob> jobs = workQueue.receive(SqsWorkQueue.MAX_MESSAGES_PER_RECEIVE);
+
+        assertThat(branches(jobs), is(equalTo(Arrays.asList(FIRST_BRANCH, SECOND_BRANCH))));
+        assertThat(jobs.get(1).getJob().getActionType(), is(equalTo(Action.DELETE)));
+    }
+
+    @Test
+    public void receiveShouldReturnJobsEnqueuedWithinTheSameMillisecondInEnqueueOrder() throws IOException {
+        Clock fixedClock = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+        FileWorkQueue fixedClockQueue = new FileWorkQueue(directory, FileWorkQueue.DEFAULT_VISIBILITY_TIMEOUT_MILLIS,
+            fixedClock);
+        List<String> enqueued = IntStream.range(0, NUMBER_OF_JOBS).mapToObj(Integer::toString)
+            .collect(Collectors.toList());
+        for (String branch : enqueued) {
+            fixedClockQueue.enqueue(newJob(branch, Action.CREATE));
+        }
+
+        List<QueuedJob> jobs = fixedClockQueue.receive(NUMBER_OF_JOBS);
+
+        assertThat(branches(jobs), is(equalTo(enqueued)));
+    }
+
+    @Test
+    public void receiveShouldNotReturnJobsThatHaveAlreadyBeenReceived() throws IOException {
+        workQueue.enqueue(newJob(FIRST_BRANCH, Action.CREATE));
+        workQueue.enqueue(newJob(SECOND_BRANCH, Action.CREATE));
+
+        List<QueuedJob> first = workQueue.receive(1);
+        List<QueuedJob> second = workQueue.receive(1);
+
+        assertThat(branches(first), is(equalTo(Collections.singletonList(FIRST_BRANCH))));
+        assertThat(branches(second), is(equalTo(Collections.singletonList(SECOND_BRANCH))));
+        assertThat(workQueue.receive(1).isEmpty(), is(true));
+    }
+
+    @Test
+    public void acknowledgeShouldRemoveJobFromDirectory() throws IOException {
+        workQueue.enqueue(newJob(FIRST_BRANCH, Action.CREATE));
+
+        QueuedJob job = workQueue.receive(1).get(0);
+        workQueue.acknowledge(job);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count(), is(equalTo(0L)));
+        }
+    }
+
+    @Test
+    public void receiveShouldReturnJobsThatWereNotAcknowledgedWithinTheVisibilityTimeout() throws IOException {
+        FileWorkQueue expiringQueue = new FileWorkQueue(directory, 0, Clock.systemUTC());
+        expiringQueue.enqueue(newJob(FIRST_BRANCH, Action.CREATE));
+
+        QueuedJob first = expiringQueue.receive(1).get(0);
+        QueuedJob second = expiringQueue.receive(1).get(0);
+        expiringQueue.acknowledge(second);
+
+        assertThat(second.getJob().getBranch(), is(equalTo(first.getJob().getBranch())));
+        assertThat(expiringQueue.receive(1).isEmpty(), is(true));
+    }
+
+    private GitEventJob newJob(String branch, Action action) {
+        return new GitEventJob(new GitEvent(OWNER, REPOSITORY, branch), action);
+    }
+
+    private List<String> branches(List<QueuedJob> jobs) {
+        return jobs.stream().map(job -> job.getJob().getBranch()).collect(Collectors.toList());
+    }
+}
@@ -1,5 +1,6 @@
 package no.bibsys.aws.utils.resources;
 
+import com.amazonaws.services.route53.AmazonRoute53;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import no.bibsys.aws.cloudformation.Stage;
@@ -8,6 +9,9 @@ import no.bibsys.aws.git.github.GithubConf;
 import no.bibsys.aws.route53.StaticUrlInfo;
 import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
 import no.bibsys.aws.testtutils.LocalStackTest;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 class ResourceDestroyerTest extends LocalStackTest {
@@ -19,6 +23,16 @@ class ResourceDestroyerTest extends LocalStackTest {
     private static final String GIT_REPOSITORY = "gitRepository";
     private static final String BRANCH = "branch";
 
+    @BeforeEach
+    public void init() throws IOException {
+        mockSharedHttpClient();
+    }
+
+    @AfterEach
+    public void resetSharedHttpClient() {
+        SharedHttpClient.getInstance().reset();
+    }
+
     @Test
     public void destory_stack_noException() throws IOException, URISyntaxException {
         StaticUrlInfo staticUrlInfo = new StaticUrlInfo(ZONE_NAME, RECORD_SET_NAME, Stage.TEST);
@@ -28,6 +42,7 @@ class ResourceDestroyerTest extends LocalStackTest {
             "swaggerOrg",
             mockSecretsReader());
         GitInfo gitInfo = new GithubConf(GIT_OWNER, GIT_REPOSITORY, BRANCH, mockSecretsReader());
+        AmazonRoute53 route53 = initializeRoute53Client(staticUrlInfo.getZoneName());
         ResourceDestroyer destroyer = new ResourceDestroyer(
             STACK_NAME,
             staticUrlInfo,
@@ -36,9 +51,9 @@ class ResourceDestroyerTest extends LocalStackTest {
             gitInfo,
             mockCloudFormationWithStack(),
             initializeAmazonApiGateway(),
-            initializeRoute53Client(staticUrlInfo.getZoneName())
+            route53
 
         );
-        destroyer.destroy();
+        destroyer.setRoute53ChangeWaiter(fastRoute53ChangeWaiter(route53)).destroy();
     }
 }
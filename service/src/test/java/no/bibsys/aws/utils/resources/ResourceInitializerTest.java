@@ -1,5 +1,13 @@
 package no.bibsys.aws.utils.resources;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringEndsWith.endsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.services.route53.AmazonRoute53;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import no.bibsys.aws.cloudformation.Stage;
@@ -8,6 +16,9 @@ import no.bibsys.aws.git.github.GithubConf;
 import no.bibsys.aws.route53.StaticUrlInfo;
 import no.bibsys.aws.swaggerhub.SwaggerHubInfo;
 import no.bibsys.aws.testtutils.LocalStackTest;
+import no.bibsys.aws.utils.http.SharedHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 class ResourceInitializerTest extends LocalStackTest {
@@ -20,16 +31,45 @@ class ResourceInitializerTest extends LocalStackTest {
     private static final String BRANCH = "branch";
     private static final String AWS_CERTIFCATE_ARN = "aws:::certifcateARN";
 
+    @BeforeEach
+    public void init() throws IOException {
+        mockSharedHttpClient();
+    }
+
+    @AfterEach
+    public void resetSharedHttpClient() {
+        SharedHttpClient.getInstance().reset();
+    }
+
     @Test
     public void initializeStacks_stackInfo_noException() throws IOException, URISyntaxException {
         StaticUrlInfo staticUrlInfo = new StaticUrlInfo(ZONE_NAME, RECORD_SET_NAME, Stage.TEST);
+        AmazonRoute53 route53 = initializeRoute53Client(staticUrlInfo.getZoneName());
+        newInitializer(staticUrlInfo, route53).initializeStacks();
+    }
+
+    @Test
+    public void initializeStacks_stackInfo_submitsOneRoute53BatchAndWaitsForInSync()
+        throws IOException, URISyntaxException {
+        StaticUrlInfo staticUrlInfo = new StaticUrlInfo(ZONE_NAME, RECORD_SET_NAME, Stage.TEST);
+        AmazonRoute53 route53 = initializeRoute53Client(staticUrlInfo.getZoneName());
+
+        String output = newInitializer(staticUrlInfo, route53).initializeStacks().getMessage();
+
+        verify(route53, times(1)).changeResourceRecordSets(any());
+        verify(route53, times(1)).getChange(any());
+        assertThat(output, endsWith("Route53:INSYNC"));
+    }
+
+    private ResourceInitializer newInitializer(StaticUrlInfo staticUrlInfo, AmazonRoute53 route53)
+        throws IOException {
         SwaggerHubInfo swaggerHubInfo = new SwaggerHubInfo(
             "apiId",
             "apiVersion",
             "swaggerOrg",
             mockSecretsReader());
         GitInfo gitInfo = new GithubConf(GIT_OWNER, GIT_REPOSITORY, BRANCH, mockSecretsReader());
-        ResourceInitializer initializer = new ResourceInitializer(
+        return new ResourceInitializer(
             STACK_NAME,
             staticUrlInfo,
             AWS_CERTIFCATE_ARN,
@@ -38,9 +78,7 @@ class ResourceInitializerTest extends LocalStackTest {
             gitInfo,
             mockCloudFormationWithStack(),
             initializeAmazonApiGateway(),
-            initializeRoute53Client(staticUrlInfo.getZoneName())
-
-        );
-        initializer.initializeStacks();
+            route53
+        ).setRoute53ChangeWaiter(fastRoute53ChangeWaiter(route53));
     }
 }
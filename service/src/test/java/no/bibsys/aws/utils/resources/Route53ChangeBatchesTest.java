@@ -0,0 +1,69 @@
+package no.bibsys.aws.utils.resources;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import com.amazonaws.services.route53.model.Change;
+import com.amazonaws.services.route53.model.ChangeAction;
+import com.amazonaws.services.route53.model.ChangeBatch;
+import com.amazonaws.services.route53.model.ChangeResourceRecordSetsRequest;
+import com.amazonaws.services.route53.model.RRType;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class Route53ChangeBatchesTest {
+
+    private static final String ZONE = "zone";
+    private static final String OTHER_ZONE = "otherZone";
+    private static final String RECORD = "api.example.org.";
+    private static final String TEST_RECORD = "test.api.example.org.";
+
+    @Test
+    public void combineShouldPutTheChangesOfOneZoneInOneRequest() {
+        List<ChangeResourceRecordSetsRequest> batches = Route53ChangeBatches.combine(
+            request(ZONE, ChangeAction.DELETE, TEST_RECORD),
+            Optional.empty(),
+            request(ZONE, ChangeAction.UPSERT, RECORD));
+
+        assertThat(batches.size(), is(equalTo(1)));
+        assertThat(actions(batches.get(0)), is(equalTo("DELETE test.api.example.org.,UPSERT api.example.org.")));
+    }
+
+    @Test
+    public void combineShouldDropADeleteOfARecordSetThatIsUpsertedLater() {
+        List<ChangeResourceRecordSetsRequest> batches = Route53ChangeBatches.combine(
+            request(ZONE, ChangeAction.DELETE, "API.example.org"),
+            request(ZONE, ChangeAction.UPSERT, RECORD));
+
+        assertThat(actions(batches.get(0)), is(equalTo("UPSERT api.example.org.")));
+    }
+
+    @Test
+    public void combineShouldKeepZonesApart() {
+        List<ChangeResourceRecordSetsRequest> batches = Route53ChangeBatches.combine(
+            request(ZONE, ChangeAction.DELETE, TEST_RECORD),
+            request(OTHER_ZONE, ChangeAction.UPSERT, RECORD));
+
+        assertThat(batches.size(), is(equalTo(2)));
+        assertThat(batches.get(1).getHostedZoneId(), is(equalTo(OTHER_ZONE)));
+    }
+
+    private static Optional<ChangeResourceRecordSetsRequest> request(String zone, ChangeAction action,
+        String recordName) {
+        return Optional.of(new ChangeResourceRecordSetsRequest()
+            .withHostedZoneId(zone)
+            .withChangeBatch(new ChangeBatch().withChanges(new Change()
+                .withAction(action)
+                .withResourceRecordSet(new ResourceRecordSet().withName(recordName).withType(RRType.CNAME)))));
+    }
+
+    private static String actions(ChangeResourceRecordSetsRequest request) {
+        return request.getChangeBatch().getChanges().stream()
+            .map(change -> change.getAction() + " " + change.getResourceRecordSet().getName())
+            .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,55 @@
+package no.bibsys.aws.utils.resources;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.route53.AmazonRoute53;
+import com.amazonaws.services.route53.model.ChangeInfo;
+import com.amazonaws.services.route53.model.ChangeStatus;
+import com.amazonaws.services.route53.model.GetChangeResult;
+import org.junit.jupiter.api.Test;
+
+public class Route53ChangeWaiterTest {
+
+    private static final String CHANGE_ID = "change";
+
+    @Test
+    public void awaitInSyncShouldPollUntilTheChangeIsInSyncAndRetryThrottling() {
+        AmazonRoute53 route53 = mock(AmazonRoute53.class);
+        AmazonServiceException throttling = new AmazonServiceException("Rate exceeded");
+        throttling.setErrorCode("Throttling");
+        when(route53.getChange(any()))
+            .thenReturn(changeResult(ChangeStatus.PENDING))
+            .thenThrow(throttling)
+            .thenReturn(changeResult(ChangeStatus.INSYNC));
+        Route53ChangeWaiter waiter = new Route53ChangeWaiter(route53, 1, 1, 1000);
+
+        String status = waiter.awaitInSync(new ChangeInfo().withId(CHANGE_ID).withStatus(ChangeStatus.PENDING));
+
+        assertThat(status, is(equalTo(ChangeStatus.INSYNC.toString())));
+        verify(route53, times(3)).getChange(any());
+    }
+
+    @Test
+    public void awaitInSyncShouldNotPollAChangeThatIsAlreadyInSync() {
+        AmazonRoute53 route53 = mock(AmazonRoute53.class);
+        Route53ChangeWaiter waiter = new Route53ChangeWaiter(route53, 1, 1, 1000);
+
+        String status = waiter.awaitInSync(new ChangeInfo().withId(CHANGE_ID).withStatus(ChangeStatus.INSYNC));
+
+        assertThat(status, is(equalTo(ChangeStatus.INSYNC.toString())));
+        verify(route53, never()).getChange(any());
+    }
+
+    private static GetChangeResult changeResult(ChangeStatus status) {
+        return new GetChangeResult().withChangeInfo(new ChangeInfo().withId(CHANGE_ID).withStatus(status));
+    }
+}
@@ -0,0 +1,176 @@
+package no.bibsys.aws.utils.secrets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.bibsys.aws.secrets.SecretsReader;
+import org.junit.jupiter.api.Test;
+
+public class CachingSecretsReaderTest {
+
+    private static final long TTL = 1000;
+    private static final long REFRESH_AHEAD = 200;
+    private static final long MIN_RELOAD_INTERVAL = 100;
+    private static final String SECRET_PREFIX = "secret";
+    private static final int CONCURRENT_CALLERS = 8;
+    private static final int WAITING_TIME_IN_SECONDS = 5;
+
+    private final transient MutableClock clock = new MutableClock();
+    private final transient AtomicInteger reads = new AtomicInteger();
+    private final transient SecretsReader countingReader = () -> SECRET_PREFIX + reads.incrementAndGet();
+
+    @Test
+    public void readSecretShouldReturnCachedSecretWithinTtl() throws IOException {
+        CachingSecretsReader reader = newReader(countingReader);
+
+        String first = reader.readSecret();
+        clock.advance(TTL / 2);
+        String second = reader.readSecret();
+
+        assertThat(second, is(equalTo(first)));
+        assertThat(reads.get(), is(equalTo(1)));
+    }
+
+    @Test
+    public void readSecretShouldReloadSecretAfterTtl() throws IOException {
+        CachingSecretsReader reader = newReader(countingReader);
+
+        reader.readSecret();
+        clock.advance(TTL);
+
+        assertThat(reader.readSecret(), is(equalTo(SECRET_PREFIX + 2)));
+    }
+
+    @Test
+    public void readSecretShouldRefreshInBackgroundBeforeExpiry() throws IOException, InterruptedException {
+        CachingSecretsReader reader = newReader(countingReader);
+
+        reader.readSecret();
+        clock.advance(TTL - REFRESH_AHEAD / 2);
+
+        assertThat(reader.readSecret(), is(equalTo(SECRET_PREFIX + 1)));
+        awaitReads(2);
+        assertThat(reader.readSecret(), is(equalTo(SECRET_PREFIX + 2)));
+    }
+
+    @Test
+    public void readSecretShouldShareOneLoadBetweenConcurrentCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SecretsReader blockingReader = () -> {
+            awaitQuietly(release);
+            return countingReader.readSecret();
+        };
+        CachingSecretsReader reader = newReader(blockingReader);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CALLERS; i++) {
+            results.add(executor.submit(reader::readSecret));
+        }
+        Thread.sleep(MIN_RELOAD_INTERVAL);
+        release.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS), is(equalTo(SECRET_PREFIX + 1)));
+        }
+        executor.shutdown();
+
+        assertThat(reads.get(), is(equalTo(1)));
+    }
+
+    @Test
+    public void invalidateShouldCauseReloadWhenSecretIsOlderThanMinReloadInterval() throws IOException {
+        CachingSecretsReader reader = newReader(countingReader);
+
+        reader.readSecret();
+        clock.advance(MIN_RELOAD_INTERVAL);
+        reader.invalidate();
+
+        assertThat(reader.readSecret(), is(equalTo(SECRET_PREFIX + 2)));
+    }
+
+    @Test
+    public void invalidateShouldKeepSecretYoungerThanMinReloadInterval() throws IOException {
+        CachingSecretsReader reader = newReader(countingReader);
+
+        reader.readSecret();
+        reader.invalidate();
+
+        assertThat(reader.readSecret(), is(equalTo(SECRET_PREFIX + 1)));
+    }
+
+    @Test
+    public void readSecretShouldPropagateIoException() {
+        CachingSecretsReader reader = newReader(() -> {
+            throw new IOException(SECRET_PREFIX);
+        });
+        assertThrows(IOException.class, reader::readSecret);
+    }
+
+    @Test
+    public void readSecretShouldPropagateRuntimeExceptionWithItsOwnType() {
+        CachingSecretsReader reader = newReader(() -> {
+            throw new IllegalStateException(SECRET_PREFIX);
+        });
+        assertThrows(IllegalStateException.class, reader::readSecret);
+    }
+
+    private CachingSecretsReader newReader(SecretsReader delegate) {
+        return new CachingSecretsReader(delegate, TTL, REFRESH_AHEAD, MIN_RELOAD_INTERVAL, clock);
+    }
+
+    private void awaitReads(int expectedReads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAITING_TIME_IN_SECONDS);
+        while (reads.get() < expectedReads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // the cached value is replaced right after the read count is incremented
+        Thread.sleep(50);
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private final transient AtomicInteger offset = new AtomicInteger();
+
+        void advance(long millis) {
+            offset.addAndGet((int) millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(offset.get());
+        }
+    }
+}
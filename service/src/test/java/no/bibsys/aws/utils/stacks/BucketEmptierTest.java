@@ -0,0 +1,116 @@
+package no.bibsys.aws.utils.stacks;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class BucketEmptierTest {
+
+    private static final String SOME_BUCKET = "someBucket";
+    private static final String SOME_VERSION = "v1";
+    private static final String FAILED_KEY = "key0";
+    private static final long KEY_SIZE = 10;
+    private static final int PAGE_SIZE = 1500;
+    private static final int BATCHES_PER_PAGE = 2;
+    private static final int PAGES = 2;
+
+    @Test
+    public void emptyBucketShouldDeleteAllListedVersionsInBatchesOfAtMostOneThousandKeys() {
+        AmazonS3 s3 = mockS3WithTwoPagesOfVersions();
+        when(s3.deleteObjects(any())).thenReturn(new DeleteObjectsResult(Collections.emptyList()));
+
+        BucketEmptyingResult result = new BucketEmptier(s3).emptyBucket(SOME_BUCKET);
+
+        verify(s3, times(PAGES * BATCHES_PER_PAGE)).deleteObjects(any(DeleteObjectsRequest.class));
+        assertThat(result.getDeletedKeys(), is(equalTo((long) PAGES * PAGE_SIZE)));
+        assertThat(result.getDeletedBytes(), is(equalTo(PAGES * PAGE_SIZE * KEY_SIZE)));
+        assertThat(result.getFailedKeys(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void emptyBucketShouldNotCountKeysThatCouldNotBeDeleted() {
+        AmazonS3 s3 = mockS3WithTwoPagesOfVersions();
+        DeleteError error = new DeleteError();
+        error.setKey(FAILED_KEY);
+        error.setVersionId(SOME_VERSION);
+        MultiObjectDeleteException exception = new MultiObjectDeleteException(Collections.singletonList(error),
+            Collections.emptyList());
+        when(s3.deleteObjects(any()))
+            .thenThrow(exception)
+            .thenReturn(new DeleteObjectsResult(Collections.emptyList()));
+
+        BucketEmptyingResult result = new BucketEmptier(s3, 1).emptyBucket(SOME_BUCKET);
+
+        assertThat(result.getDeletedKeys(), is(equalTo((long) PAGES * PAGE_SIZE - 1)));
+        assertThat(result.getDeletedBytes(), is(equalTo((PAGES * PAGE_SIZE - 1) * KEY_SIZE)));
+    }
+
+    @Test
+    public void emptyBucketShouldListObjectsOnlyAfterTheVersionsHaveBeenDeleted() {
+        AmazonS3 s3 = mockS3WithTwoPagesOfVersions();
+        AtomicInteger deletedBatches = new AtomicInteger();
+        when(s3.deleteObjects(any())).thenAnswer(invocation -> {
+            deletedBatches.incrementAndGet();
+            return new DeleteObjectsResult(Collections.emptyList());
+        });
+        List<Integer> batchesDeletedBeforeListing = new ArrayList<>();
+        when(s3.listObjects(anyString())).thenAnswer(invocation -> {
+            batchesDeletedBeforeListing.add(deletedBatches.get());
+            return new ObjectListing();
+        });
+
+        new BucketEmptier(s3).emptyBucket(SOME_BUCKET);
+
+        assertThat(batchesDeletedBeforeListing.get(0), is(equalTo(PAGES * BATCHES_PER_PAGE)));
+    }
+
+    private AmazonS3 mockS3WithTwoPagesOfVersions() {
+        AmazonS3 s3 = mock(AmazonS3.class);
+        VersionListing firstPage = versionListing(true);
+        VersionListing lastPage = versionListing(false);
+        when(s3.listVersions(any())).thenReturn(firstPage).thenReturn(new VersionListing());
+        when(s3.listNextBatchOfVersions(any(VersionListing.class))).thenReturn(lastPage);
+        when(s3.listObjects(anyString())).thenReturn(new ObjectListing());
+        return s3;
+    }
+
+    private VersionListing versionListing(boolean truncated) {
+        List<S3VersionSummary> versions = IntStream.range(0, PAGE_SIZE)
+            .mapToObj(this::versionSummary)
+            .collect(Collectors.toList());
+        VersionListing listing = new VersionListing();
+        listing.setTruncated(truncated);
+        listing.setVersionSummaries(versions);
+        return listing;
+    }
+
+    private S3VersionSummary versionSummary(int index) {
+        S3VersionSummary summary = new S3VersionSummary();
+        summary.setKey("key" + index);
+        summary.setVersionId(SOME_VERSION);
+        summary.setSize(KEY_SIZE);
+        return summary;
+    }
+}
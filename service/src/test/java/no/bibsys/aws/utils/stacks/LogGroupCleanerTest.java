@@ -0,0 +1,126 @@
+package no.bibsys.aws.utils.stacks;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.logs.model.DeleteLogGroupRequest;
+import com.amazonaws.services.logs.model.DeleteLogGroupResult;
+import com.amazonaws.services.logs.model.DescribeLogGroupsRequest;
+import com.amazonaws.services.logs.model.DescribeLogGroupsResult;
+import com.amazonaws.services.logs.model.LogGroup;
+import com.amazonaws.services.logs.model.PutRetentionPolicyRequest;
+import com.amazonaws.services.logs.model.PutRetentionPolicyResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import no.bibsys.aws.cloudformation.Stage;
+import no.bibsys.aws.testtutils.LocalStackTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LogGroupCleanerTest extends LocalStackTest {
+
+    private static final int PARALLELISM = 2;
+    private static final double REQUESTS_PER_SECOND = 1000;
+    private static final int PAGE_SIZE = 1;
+    private static final int RETENTION_DAYS = 3;
+    private static final int INVALID_RETENTION_DAYS = 2;
+    private static final String OTHER_LOG_GROUP = "/aws/lambda/other-function";
+
+    private final transient AWSLogs logsClient = mock(AWSLogs.class);
+    private final transient Set<String> deletedLogGroups = ConcurrentHashMap.newKeySet();
+    private final transient Set<String> retainedLogGroups = ConcurrentHashMap.newKeySet();
+    private transient List<String> existingLogGroups;
+    private transient PipelineLogGroups pipelineLogGroups;
+
+    @BeforeEach
+    public void init() {
+        pipelineLogGroups = new PipelineLogGroups(pipelineStackConfiguration);
+        String testStackLogGroup = PipelineLogGroups.LAMBDA_LOG_GROUP_PREFIX
+            + pipelineStackConfiguration.getPipelineConfiguration().getTestServiceStack() + "-handler-ABC";
+        String buildLogGroup = PipelineLogGroups.CODEBUILD_LOG_GROUP_PREFIX
+            + pipelineStackConfiguration.getCodeBuildConfiguration().getBuildProjectName();
+        String otherBranchBuildLogGroup = buildLogGroup + "-other";
+        existingLogGroups = Arrays.asList(testStackLogGroup, buildLogGroup, otherBranchBuildLogGroup,
+            OTHER_LOG_GROUP);
+
+        when(logsClient.describeLogGroups(any())).thenAnswer(invocation -> describe(invocation.getArgument(0)));
+        when(logsClient.deleteLogGroup(any())).thenAnswer(invocation -> {
+            DeleteLogGroupRequest request = invocation.getArgument(0);
+            deletedLogGroups.add(request.getLogGroupName());
+            return new DeleteLogGroupResult();
+        });
+        when(logsClient.putRetentionPolicy(any())).thenAnswer(invocation -> {
+            PutRetentionPolicyRequest request = invocation.getArgument(0);
+            assertThat(request.getRetentionInDays(), is(equalTo(RETENTION_DAYS)));
+            retainedLogGroups.add(request.getLogGroupName());
+            return new PutRetentionPolicyResult();
+        });
+    }
+
+    @Test
+    public void cleanUpShouldDeleteOnlyTheLogGroupsOfThePipeline() {
+        List<String> cleaned = newCleaner().cleanUp(pipelineLogGroups);
+
+        List<String> expected = existingLogGroups.subList(0, 2);
+        assertThat(cleaned, containsInAnyOrder(expected.toArray()));
+        assertThat(deletedLogGroups, containsInAnyOrder(expected.toArray()));
+        assertThat(retainedLogGroups, is(empty()));
+    }
+
+    @Test
+    public void cleanUpShouldSetRetentionInsteadOfDeletingWhenRetentionIsSet() {
+        newCleaner().setRetentionDays(RETENTION_DAYS).cleanUp(pipelineLogGroups);
+
+        assertThat(retainedLogGroups, containsInAnyOrder(existingLogGroups.subList(0, 2).toArray()));
+        assertThat(deletedLogGroups, is(empty()));
+    }
+
+    @Test
+    public void cleanUpShouldDeleteTheLogGroupsOfTheInitFunctionsOfAllStages() {
+        String initFunctionName = pipelineStackConfiguration.getPipelineConfiguration().getInitLambdaFunctionName();
+        List<String> initLogGroups = Stage.listStages().stream()
+            .map(stage -> PipelineLogGroups.LAMBDA_LOG_GROUP_PREFIX + initFunctionName + "-" + stage)
+            .collect(Collectors.toList());
+        existingLogGroups = new ArrayList<>(initLogGroups);
+        existingLogGroups.add(OTHER_LOG_GROUP);
+
+        List<String> cleaned = newCleaner().cleanUp(pipelineLogGroups);
+
+        assertThat(cleaned, containsInAnyOrder(initLogGroups.toArray()));
+        assertThat(deletedLogGroups, containsInAnyOrder(initLogGroups.toArray()));
+    }
+
+    @Test
+    public void setRetentionDaysShouldRejectRetentionNotSupportedByCloudWatch() {
+        assertThrows(IllegalArgumentException.class, () -> newCleaner().setRetentionDays(INVALID_RETENTION_DAYS));
+    }
+
+    private LogGroupCleaner newCleaner() {
+        return new LogGroupCleaner(logsClient, PARALLELISM, REQUESTS_PER_SECOND);
+    }
+
+    // returns the matching log groups in pages of PAGE_SIZE, using the index of the next group as token
+    private DescribeLogGroupsResult describe(DescribeLogGroupsRequest request) {
+        List<String> matching = existingLogGroups.stream()
+            .filter(name -> name.startsWith(request.getLogGroupNamePrefix()))
+            .collect(Collectors.toList());
+        int start = request.getNextToken() == null ? 0 : Integer.parseInt(request.getNextToken());
+        int end = Math.min(matching.size(), start + PAGE_SIZE);
+        List<LogGroup> page = new ArrayList<>();
+        matching.subList(start, end).forEach(name -> page.add(new LogGroup().withLogGroupName(name)));
+        String nextToken = end < matching.size() ? Integer.toString(end) : null;
+        return new DescribeLogGroupsResult().withLogGroups(page).withNextToken(nextToken);
+    }
+}
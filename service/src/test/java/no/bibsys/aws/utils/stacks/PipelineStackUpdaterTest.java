@@ -0,0 +1,164 @@
+package no.bibsys.aws.utils.stacks;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
+import com.amazonaws.services.cloudformation.model.ChangeSetStatus;
+import com.amazonaws.services.cloudformation.model.DeleteChangeSetRequest;
+import com.amazonaws.services.cloudformation.model.DescribeChangeSetResult;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
+import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
+import com.amazonaws.services.cloudformation.model.ExecuteChangeSetRequest;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import java.util.Collections;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+
+public class PipelineStackUpdaterTest {
+
+    private static final String SOME_STACK = "someStack";
+    private static final String SOME_TEMPLATE = "someTemplate";
+    private static final String NO_CHANGES_REASON = "The submitted information didn't contain changes. "
+        + "Submit different information to create a change set.";
+    private static final String SOME_FAILURE_REASON = "Template format error";
+    private static final String STACK_DOES_NOT_EXIST_MESSAGE = "Stack with id someStack does not exist";
+    private static final long POLL_INTERVAL = 1;
+    private static final long TIMEOUT = 1000;
+    private static final long SHORT_TIMEOUT = 50;
+    private static final Date PREVIOUS_UPDATE = new Date(1_000_000L);
+    private static final Date THIS_UPDATE = new Date(2_000_000L);
+
+    private final transient AmazonCloudFormation cloudFormation = mock(AmazonCloudFormation.class);
+    private final transient PipelineStackUpdater updater = new PipelineStackUpdater(cloudFormation, POLL_INTERVAL,
+        Deadline.after(TIMEOUT));
+
+    @Test
+    public void findUpdatableStackShouldReturnStackInStableState() {
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_COMPLETE));
+
+        assertThat(updater.findUpdatableStack(SOME_STACK).isPresent(), is(equalTo(true)));
+    }
+
+    @Test
+    public void findUpdatableStackShouldReturnEmptyForStackThatCannotBeUpdated() {
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.ROLLBACK_COMPLETE));
+
+        assertThat(updater.findUpdatableStack(SOME_STACK).isPresent(), is(equalTo(false)));
+    }
+
+    @Test
+    public void findUpdatableStackShouldReturnEmptyForMissingStack() {
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenThrow(new AmazonCloudFormationException(STACK_DOES_NOT_EXIST_MESSAGE));
+
+        assertThat(updater.findUpdatableStack(SOME_STACK).isPresent(), is(equalTo(false)));
+    }
+
+    @Test
+    public void applyChangeSetShouldDeleteChangeSetAndSkipUpdateWhenNothingChanged() {
+        when(cloudFormation.describeChangeSet(any()))
+            .thenReturn(changeSetWithStatus(ChangeSetStatus.CREATE_PENDING, null))
+            .thenReturn(changeSetWithStatus(ChangeSetStatus.FAILED, NO_CHANGES_REASON));
+
+        boolean updated = updater.applyChangeSet(SOME_STACK, SOME_TEMPLATE, Collections.emptyList());
+
+        assertThat(updated, is(equalTo(false)));
+        verify(cloudFormation).deleteChangeSet(any(DeleteChangeSetRequest.class));
+        verify(cloudFormation, never()).executeChangeSet(any(ExecuteChangeSetRequest.class));
+    }
+
+    @Test
+    public void applyChangeSetShouldExecuteChangeSetAndWaitForUpdate() {
+        when(cloudFormation.describeChangeSet(any()))
+            .thenReturn(changeSetWithStatus(ChangeSetStatus.CREATE_COMPLETE, null));
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_COMPLETE, PREVIOUS_UPDATE))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_IN_PROGRESS, THIS_UPDATE))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_COMPLETE, THIS_UPDATE));
+
+        boolean updated = updater.applyChangeSet(SOME_STACK, SOME_TEMPLATE, Collections.emptyList());
+
+        assertThat(updated, is(equalTo(true)));
+        verify(cloudFormation).executeChangeSet(any(ExecuteChangeSetRequest.class));
+    }
+
+    @Test
+    public void applyChangeSetShouldThrowExceptionWhenUpdateIsRolledBack() {
+        when(cloudFormation.describeChangeSet(any()))
+            .thenReturn(changeSetWithStatus(ChangeSetStatus.CREATE_COMPLETE, null));
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_COMPLETE, PREVIOUS_UPDATE))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_ROLLBACK_COMPLETE, THIS_UPDATE));
+
+        assertThrows(IllegalStateException.class,
+            () -> updater.applyChangeSet(SOME_STACK, SOME_TEMPLATE, Collections.emptyList()));
+    }
+
+    @Test
+    public void applyChangeSetShouldWaitUntilTheUpdateHasStarted() {
+        when(cloudFormation.describeChangeSet(any()))
+            .thenReturn(changeSetWithStatus(ChangeSetStatus.CREATE_COMPLETE, null));
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_COMPLETE, PREVIOUS_UPDATE))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_COMPLETE, PREVIOUS_UPDATE))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_IN_PROGRESS, THIS_UPDATE))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_ROLLBACK_COMPLETE, THIS_UPDATE));
+
+        assertThrows(IllegalStateException.class,
+            () -> updater.applyChangeSet(SOME_STACK, SOME_TEMPLATE, Collections.emptyList()));
+        verify(cloudFormation, times(4)).describeStacks(any(DescribeStacksRequest.class));
+    }
+
+    @Test
+    public void applyChangeSetShouldThrowExceptionWhenChangeSetFails() {
+        when(cloudFormation.describeChangeSet(any()))
+            .thenReturn(changeSetWithStatus(ChangeSetStatus.FAILED, SOME_FAILURE_REASON));
+
+        assertThrows(IllegalStateException.class,
+            () -> updater.applyChangeSet(SOME_STACK, SOME_TEMPLATE, Collections.emptyList()));
+        verify(cloudFormation).deleteChangeSet(any(DeleteChangeSetRequest.class));
+    }
+
+    @Test
+    public void applyChangeSetShouldNotStartANewTimeoutForTheUpdate() {
+        Deadline deadline = Deadline.after(SHORT_TIMEOUT);
+        PipelineStackUpdater shortUpdater = new PipelineStackUpdater(cloudFormation, POLL_INTERVAL, deadline);
+        when(cloudFormation.describeChangeSet(any())).thenAnswer(invocation -> deadline.hasPassed()
+            ? changeSetWithStatus(ChangeSetStatus.CREATE_COMPLETE, null)
+            : changeSetWithStatus(ChangeSetStatus.CREATE_IN_PROGRESS, null));
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.UPDATE_IN_PROGRESS));
+
+        assertThrows(IllegalStateException.class,
+            () -> shortUpdater.applyChangeSet(SOME_STACK, SOME_TEMPLATE, Collections.emptyList()));
+        // once before executing the change set and once for the update
+        verify(cloudFormation, times(2)).describeStacks(any(DescribeStacksRequest.class));
+    }
+
+    private DescribeStacksResult stackWithStatus(StackStatus status) {
+        return new DescribeStacksResult()
+            .withStacks(new Stack().withStackName(SOME_STACK).withStackStatus(status));
+    }
+
+    private DescribeStacksResult stackWithStatus(StackStatus status, Date lastUpdatedTime) {
+        return new DescribeStacksResult().withStacks(new Stack().withStackName(SOME_STACK).withStackStatus(status)
+            .withLastUpdatedTime(lastUpdatedTime));
+    }
+
+    private DescribeChangeSetResult changeSetWithStatus(ChangeSetStatus status, String reason) {
+        return new DescribeChangeSetResult().withStatus(status).withStatusReason(reason);
+    }
+}
@@ -3,21 +3,43 @@ package no.bibsys.aws.utils.stacks;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.ChangeSetStatus;
+import com.amazonaws.services.cloudformation.model.CreateStackRequest;
+import com.amazonaws.services.cloudformation.model.DescribeChangeSetResult;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
+import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
+import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
 import com.amazonaws.services.identitymanagement.model.GetRoleRequest;
 import com.amazonaws.services.identitymanagement.model.GetRoleResult;
 import com.amazonaws.services.identitymanagement.model.NoSuchEntityException;
 import com.amazonaws.services.identitymanagement.model.Role;
 import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import no.bibsys.aws.cloudformation.NamingRegistry;
 import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
 import no.bibsys.aws.testtutils.LocalStackTest;
+import no.bibsys.aws.utils.templates.InMemoryTemplateStore;
+import no.bibsys.aws.utils.tracing.InMemorySpanExporter;
+import no.bibsys.aws.utils.tracing.Span;
+import no.bibsys.aws.utils.tracing.Tracer;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -25,6 +47,10 @@ public class StackBuilderTest extends LocalStackTest {
 
     public static final String MOCKED_ERROR_MESSAGE = "A Role with name %s does not exist";
     public static final String NON_EXISTING_ROLENAME = "notExistingRolename";
+    private static final String EXISTING_BUCKET_NAME = "existingBucket";
+    private static final String NO_CHANGES_REASON = "The submitted information didn't contain changes.";
+    private static final long POLL_INTERVAL = 1;
+    private static final long TIMEOUT = 1000;
     private final transient AmazonIdentityManagement mockAmazonIdentityManagement;
     private final transient AmazonCloudFormation cloudFormationWithStack;
     private final transient StackWiper wiper;
@@ -100,6 +126,22 @@ public class StackBuilderTest extends LocalStackTest {
         stackBuilder.createStacks();
     }
 
+    @Test
+    public void createStacks_newPipeline_registersBucketAndRoleNamesOnceTheStackIsCreated() throws Exception {
+        AmazonIdentityManagement mockIam = mockIdentityManagement(pipelineStackConfiguration, createWellFormedRole());
+        StackWiper wiper = new StackWiperImpl(pipelineStackConfiguration, cloudFormationWithStack, mockS3Client(),
+            mockLambdaClient(), mockLogsClient(), mockIam);
+        StackBuilder stackBuilder = new StackBuilder(wiper, pipelineStackConfiguration, cloudFormationWithStack,
+            mockIam, mockGithubReader().setGitHubConf(mockGithubConf()));
+        NamingRegistry registry = NamingRegistry.getInstance();
+        assertThat(registry.find(pipelineStackConfiguration.getBucketName()).isPresent(), is(false));
+
+        stackBuilder.createStacks();
+
+        assertThat(registry.find(pipelineStackConfiguration.getBucketName()).isPresent(), is(true));
+        assertThat(registry.find(pipelineStackConfiguration.getCreateStackRoleName()).isPresent(), is(true));
+    }
+
     @Test
     public void createStacks_existingStack_noException() throws Exception {
         AmazonIdentityManagement mockIam = mockIdentityManagement(pipelineStackConfiguration, createWellFormedRole());
@@ -113,4 +155,90 @@ public class StackBuilderTest extends LocalStackTest {
 
         stackBuilder.createStacks();
     }
+
+    @Test
+    public void createStacks_templateStore_uploadsTemplateOnceAndPassesTemplateUrl() throws Exception {
+        AmazonIdentityManagement mockIam = mockIdentityManagement(pipelineStackConfiguration, createWellFormedRole());
+        StackWiper wiper = new StackWiperImpl(pipelineStackConfiguration, cloudFormationWithStack, mockS3Client(),
+            mockLambdaClient(), mockLogsClient(), mockIam);
+        InMemoryTemplateStore templateStore = new InMemoryTemplateStore();
+        StackBuilder stackBuilder = new StackBuilder(
+            wiper, pipelineStackConfiguration, cloudFormationWithStack,
+            mockIam,
+            mockGithubReader().setGitHubConf(mockGithubConf()))
+            .setTemplateStore(templateStore);
+
+        stackBuilder.createStacks();
+        stackBuilder.createStacks();
+
+        ArgumentCaptor<CreateStackRequest> requests = ArgumentCaptor.forClass(CreateStackRequest.class);
+        verify(cloudFormationWithStack, times(2)).createStack(requests.capture());
+        CreateStackRequest request = requests.getValue();
+        assertThat(request.getTemplateBody(), is(nullValue()));
+        assertThat(request.getTemplateURL().startsWith("memory:templates/"), is(true));
+        assertThat(requests.getAllValues().get(0).getTemplateURL(), is(equalTo(request.getTemplateURL())));
+        assertThat(templateStore.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void createStacks_tracer_recordsPhasesAndPassesTraceId() throws Exception {
+        AmazonIdentityManagement mockIam = mockIdentityManagement(pipelineStackConfiguration, createWellFormedRole());
+        StackWiper wiper = new StackWiperImpl(pipelineStackConfiguration, cloudFormationWithStack, mockS3Client(),
+            mockLambdaClient(), mockLogsClient(), mockIam);
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        Tracer tracer = new Tracer("1-5c000000-0123456789abcdef01234567", exporter);
+        StackBuilder stackBuilder = new StackBuilder(
+            wiper, pipelineStackConfiguration, cloudFormationWithStack,
+            mockIam,
+            mockGithubReader().setGitHubConf(mockGithubConf()))
+            .setTracer(tracer);
+
+        stackBuilder.createStacks();
+
+        List<String> names = exporter.getSpans().stream().map(Span::getName).collect(Collectors.toList());
+        assertThat(names.get(names.size() - 1), is(equalTo(StackBuilder.CREATE_STACKS_SPAN)));
+        assertThat(names.contains(StackBuilder.WIPE_STACKS_SPAN), is(true));
+        assertThat(names.contains(StackBuilder.CREATE_ROLE_SPAN), is(true));
+        assertThat(names.contains(StackBuilder.TEMPLATE_PARAMETERS_SPAN), is(true));
+        assertThat(names.contains(StackBuilder.CREATE_STACK_SPAN), is(true));
+        ArgumentCaptor<CreateStackRequest> request = ArgumentCaptor.forClass(CreateStackRequest.class);
+        verify(cloudFormationWithStack).createStack(request.capture());
+        assertThat(request.getValue().getParameters().stream()
+            .filter(parameter -> StackBuilder.CLOUD_FORMATION_TEMPLATE_PARAMETER_TRACE_ID
+                .equals(parameter.getParameterKey()))
+            .map(Parameter::getParameterValue)
+            .findFirst().get(), is(equalTo(tracer.getTraceId())));
+    }
+
+    @Test
+    public void createOrUpdateStacks_existingStack_updatesRolePolicyWithoutWipingStacks() throws Exception {
+        AmazonCloudFormation cloudFormation = mock(AmazonCloudFormation.class);
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(existingPipelineStack());
+        when(cloudFormation.describeChangeSet(any()))
+            .thenReturn(new DescribeChangeSetResult().withStatus(ChangeSetStatus.FAILED)
+                .withStatusReason(NO_CHANGES_REASON));
+        StackWiper mockWiper = mock(StackWiper.class);
+        StackBuilder stackBuilder = new StackBuilder(
+            mockWiper, pipelineStackConfiguration, cloudFormation,
+            mockAmazonIdentityManagement,
+            mockGithubReader().setGitHubConf(mockGithubConf()),
+            new PipelineStackUpdater(cloudFormation, POLL_INTERVAL, Deadline.after(TIMEOUT)));
+
+        stackBuilder.createOrUpdateStacks();
+
+        verify(mockWiper, never()).wipeStacks();
+        verify(mockAmazonIdentityManagement).putRolePolicy(argThat(request -> pipelineStackConfiguration
+            .getCreateStackRoleName().equals(request.getRoleName())));
+    }
+
+    private DescribeStacksResult existingPipelineStack() {
+        return new DescribeStacksResult().withStacks(new Stack()
+            .withStackName(pipelineStackConfiguration.getPipelineStackName())
+            .withStackStatus(StackStatus.CREATE_COMPLETE)
+            .withParameters(
+                new Parameter().withParameterKey("PipelineBucketname").withParameterValue(EXISTING_BUCKET_NAME),
+                new Parameter().withParameterKey("CreateStackRoleName")
+                    .withParameterValue(pipelineStackConfiguration.getCreateStackRoleName())));
+    }
 }
@@ -0,0 +1,101 @@
+package no.bibsys.aws.utils.stacks;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
+import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
+import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import org.junit.jupiter.api.Test;
+
+public class StackDeletionWaiterTest {
+
+    private static final String SOME_STACK = "someStack";
+    private static final String STACK_DOES_NOT_EXIST_MESSAGE = "Stack with id someStack does not exist";
+    private static final String THROTTLING_ERROR_CODE = "Throttling";
+    private static final long INITIAL_DELAY = 1;
+    private static final long MAX_DELAY = 4;
+    private static final long TIMEOUT = 50;
+
+    @Test
+    public void awaitDeletionShouldReturnDeletedWhenStackNoLongerExists() {
+        AmazonCloudFormation cloudFormation = mock(AmazonCloudFormation.class);
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.DELETE_IN_PROGRESS))
+            .thenThrow(new AmazonCloudFormationException(STACK_DOES_NOT_EXIST_MESSAGE));
+
+        assertThat(awaitDeletion(cloudFormation), is(equalTo(StackDeletionOutcome.DELETED)));
+        verify(cloudFormation, times(2)).describeStacks(any(DescribeStacksRequest.class));
+    }
+
+    @Test
+    public void awaitDeletionShouldReturnFailedWhenDeletionFails() {
+        AmazonCloudFormation cloudFormation = mock(AmazonCloudFormation.class);
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.DELETE_FAILED));
+
+        assertThat(awaitDeletion(cloudFormation), is(equalTo(StackDeletionOutcome.FAILED)));
+    }
+
+    @Test
+    public void awaitDeletionShouldReturnTimedOutWhenStackIsNotDeletedInTime() {
+        AmazonCloudFormation cloudFormation = mock(AmazonCloudFormation.class);
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.DELETE_IN_PROGRESS));
+
+        assertThat(awaitDeletion(cloudFormation), is(equalTo(StackDeletionOutcome.TIMED_OUT)));
+    }
+
+    @Test
+    public void awaitDeletionShouldNotStartANewTimeoutForEachStack() {
+        AmazonCloudFormation cloudFormation = mock(AmazonCloudFormation.class);
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenReturn(stackWithStatus(StackStatus.DELETE_IN_PROGRESS));
+
+        try (StackDeletionWaiter waiter = new StackDeletionWaiter(cloudFormation, INITIAL_DELAY, MAX_DELAY,
+            Deadline.after(TIMEOUT))) {
+            assertThat(waiter.awaitDeletion(SOME_STACK).join(), is(equalTo(StackDeletionOutcome.TIMED_OUT)));
+            verify(cloudFormation, atLeast(2)).describeStacks(any(DescribeStacksRequest.class));
+            clearInvocations(cloudFormation);
+
+            assertThat(waiter.awaitDeletion(SOME_STACK).join(), is(equalTo(StackDeletionOutcome.TIMED_OUT)));
+            verify(cloudFormation, times(1)).describeStacks(any(DescribeStacksRequest.class));
+        }
+    }
+
+    @Test
+    public void awaitDeletionShouldRetryWhenThrottled() {
+        AmazonCloudFormation cloudFormation = mock(AmazonCloudFormation.class);
+        AmazonServiceException throttling = new AmazonCloudFormationException(THROTTLING_ERROR_CODE);
+        throttling.setErrorCode(THROTTLING_ERROR_CODE);
+        when(cloudFormation.describeStacks(any(DescribeStacksRequest.class)))
+            .thenThrow(throttling)
+            .thenReturn(stackWithStatus(StackStatus.DELETE_COMPLETE));
+
+        assertThat(awaitDeletion(cloudFormation), is(equalTo(StackDeletionOutcome.DELETED)));
+    }
+
+    private StackDeletionOutcome awaitDeletion(AmazonCloudFormation cloudFormation) {
+        try (StackDeletionWaiter waiter = new StackDeletionWaiter(cloudFormation, INITIAL_DELAY, MAX_DELAY,
+            Deadline.after(TIMEOUT))) {
+            return waiter.awaitDeletion(SOME_STACK).join();
+        }
+    }
+
+    private DescribeStacksResult stackWithStatus(StackStatus status) {
+        return new DescribeStacksResult()
+            .withStacks(new Stack().withStackName(SOME_STACK).withStackStatus(status));
+    }
+}
@@ -3,22 +3,34 @@ package no.bibsys.aws.utils.stacks;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
 import com.amazonaws.services.cloudformation.model.DeleteStackResult;
+import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
+import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
 import com.amazonaws.services.identitymanagement.model.DeleteRolePolicyResult;
 import com.amazonaws.services.identitymanagement.model.DeleteRoleRequest;
 import com.amazonaws.services.identitymanagement.model.DeleteRoleResult;
+import com.amazonaws.services.identitymanagement.model.GetRoleResult;
 import com.amazonaws.services.identitymanagement.model.ListRolePoliciesResult;
 import com.amazonaws.services.identitymanagement.model.ListRoleTagsRequest;
 import com.amazonaws.services.identitymanagement.model.ListRoleTagsResult;
 import com.amazonaws.services.identitymanagement.model.ListRolesResult;
+import com.amazonaws.services.identitymanagement.model.NoSuchEntityException;
 import com.amazonaws.services.identitymanagement.model.Role;
 import com.amazonaws.services.identitymanagement.model.Tag;
 import com.amazonaws.services.lambda.AWSLambda;
@@ -29,6 +41,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import no.bibsys.aws.cloudformation.PipelineStackConfiguration;
+import no.bibsys.aws.cloudformation.Stage;
 import no.bibsys.aws.roles.CreateStackRole;
 import no.bibsys.aws.testtutils.LocalStackTest;
 import org.junit.jupiter.api.Test;
@@ -43,6 +56,7 @@ public class StackWiperImplTest extends LocalStackTest {
     private static final String SOME_ROLE_TAG = "someRoleTag";
     private static final String SOME_BRANCH = "someBranch";
     private static final String SOME_PROJECT = "someProject";
+    private static final String LEGACY_ROLE_NAME = "legacyCreateStackRole";
     private static final int LIST_ROLES_LIST_ROLE_TAGS_LIST_ROLE_POLICIES_DELETE_ROLE_POLICIES_DELETE_ROLE = 5;
     private static final int CALLED_LIST_POLICIES = 1;
     private static final int CALLED_LIST_ROLES = 0;
@@ -152,7 +166,7 @@ public class StackWiperImplTest extends LocalStackTest {
         AmazonIdentityManagement mockIam = mock(AmazonIdentityManagement.class);
 
         HashMap<String, Role> roles = createTestRoles();
-        when(mockIam.listRoles()).thenReturn(new ListRolesResult().withRoles(roles.values()));
+        when(mockIam.listRoles(any())).thenReturn(new ListRolesResult().withRoles(roles.values()));
 
         when(mockIam.listRoleTags(any())).thenAnswer(invocation -> {
             ListRoleTagsRequest request = invocation.getArgument(INVOCATION_ARGUMENT);
@@ -168,6 +182,106 @@ public class StackWiperImplTest extends LocalStackTest {
         assertThat(stackWiper.rolesForDeletion(), not(contains(filteredOutRole)));
     }
 
+    @Test
+    public void rolesForDeletionShouldReadTheRoleNamedByThePipelineStackWhenNoRoleIsUnderThePipelinePath() {
+        AmazonIdentityManagement mockIam = mock(AmazonIdentityManagement.class);
+        Role legacyRole = createWellFormedRole().withRoleName(LEGACY_ROLE_NAME).withPath("/");
+        when(mockIam.listRoles(any())).thenReturn(new ListRolesResult());
+        when(mockIam.getRole(argThat(request -> LEGACY_ROLE_NAME.equals(request.getRoleName()))))
+            .thenReturn(new GetRoleResult().withRole(legacyRole));
+        when(mockIam.listRoleTags(any())).thenReturn(new ListRoleTagsResult().withTags(legacyRole.getTags()));
+
+        StackWiperImpl stackWiper = createStackWiperWithLegacyRoleParameter(mockIam);
+
+        assertThat(stackWiper.rolesForDeletion(), contains(legacyRole));
+        verify(mockIam, times(1)).listRoles(any());
+    }
+
+    @Test
+    public void rolesForDeletionShouldNotListTheRootPathWhenTheRoleNamedByThePipelineStackDoesNotExist() {
+        AmazonIdentityManagement mockIam = mock(AmazonIdentityManagement.class);
+        when(mockIam.listRoles(any())).thenReturn(new ListRolesResult());
+        when(mockIam.getRole(argThat(request -> LEGACY_ROLE_NAME.equals(request.getRoleName()))))
+            .thenThrow(new NoSuchEntityException("no role"));
+
+        StackWiperImpl stackWiper = createStackWiperWithLegacyRoleParameter(mockIam);
+
+        assertThat(stackWiper.rolesForDeletion(), is(empty()));
+        verify(mockIam, times(1)).listRoles(any());
+        verify(mockIam, never()).listRoleTags(any());
+    }
+
+    @Test
+    public void rolesForDeletionShouldSearchTheRootPathByTagsWhenThePipelineStackNamesNoRole() {
+        AmazonIdentityManagement mockIam = mock(AmazonIdentityManagement.class);
+        Role legacyRole = createWellFormedRole().withRoleName(LEGACY_ROLE_NAME).withPath("/");
+        when(mockIam.listRoles(any())).thenReturn(new ListRolesResult());
+        when(mockIam.listRoles(argThat(request -> request != null && "/".equals(request.getPathPrefix()))))
+            .thenReturn(new ListRolesResult().withRoles(legacyRole));
+        when(mockIam.listRoleTags(any())).thenReturn(new ListRoleTagsResult().withTags(legacyRole.getTags()));
+
+        StackWiperImpl stackWiper = createStackWiper(mockIam);
+
+        assertThat(stackWiper.rolesForDeletion(), contains(legacyRole));
+        verify(mockIam, never()).getRole(any());
+    }
+
+    private StackWiperImpl createStackWiperWithLegacyRoleParameter(AmazonIdentityManagement mockIam) {
+        AmazonCloudFormation acf = mockCloudFormationWithStack();
+        Stack pipelineStack = new Stack().withStackName(pipelineStackConfiguration.getPipelineStackName())
+            .withParameters(new Parameter().withParameterKey("CreateStackRoleName")
+                .withParameterValue(LEGACY_ROLE_NAME));
+        when(acf.describeStacks(argThat(request -> request != null
+            && pipelineStackConfiguration.getPipelineStackName().equals(request.getStackName()))))
+            .thenReturn(new DescribeStacksResult().withStacks(pipelineStack));
+        return new StackWiperImpl(pipelineStackConfiguration, acf, mockS3Client(), mockLambdaClient(),
+            mockLogsClient(), mockIam);
+    }
+
+    @Test
+    public void createTeardownPlanShouldDeleteEachServiceStackOnlyAfterItsDestroyFunction() {
+        StackWiperImpl stackWiper = createStackWiper(mockIdentityManagement(pipelineStackConfiguration));
+        try (StackDeletionWaiter waiter = new StackDeletionWaiter(mockCloudFormationWithStack())) {
+            TeardownPlan plan = stackWiper.createTeardownPlan(waiter);
+
+            for (Stage stage : Stage.listStages()) {
+                assertThat(plan.getDependencies(StackWiperImpl.deleteServiceStackStep(stage)),
+                    contains(StackWiperImpl.destroyFunctionStep(stage)));
+            }
+        }
+    }
+
+    @Test
+    public void createTeardownPlanShouldDeleteThePipelineStackAfterTheBucketsAndTheServiceStacks() {
+        StackWiperImpl stackWiper = createStackWiper(mockIdentityManagement(pipelineStackConfiguration));
+        try (StackDeletionWaiter waiter = new StackDeletionWaiter(mockCloudFormationWithStack())) {
+            TeardownPlan plan = stackWiper.createTeardownPlan(waiter);
+
+            assertThat(plan.getDependencies(StackWiperImpl.DELETE_PIPELINE_STACK_STEP),
+                containsInAnyOrder(StackWiperImpl.DELETE_BUCKETS_STEP,
+                    StackWiperImpl.deleteServiceStackStep(Stage.TEST),
+                    StackWiperImpl.deleteServiceStackStep(Stage.FINAL)));
+            assertThat(plan.getDependencies(StackWiperImpl.DELETE_LOGS_STEP),
+                contains(StackWiperImpl.DELETE_PIPELINE_STACK_STEP));
+            assertThat(plan.getDependencies(StackWiperImpl.DELETE_CREATE_STACK_ROLE_STEP),
+                hasItem(StackWiperImpl.DELETE_PIPELINE_STACK_STEP));
+        }
+    }
+
+    @Test
+    public void createTeardownPlanShouldDeleteTheRoleAfterTheDestroyFunctionsWhenThereIsNoPipelineStack() {
+        StackWiperImpl stackWiper = new StackWiperImpl(pipelineStackConfiguration, mockCloudFormationwithNoStack(),
+            mockS3Client(), mockLambdaClient(), mockLogsClient(), mockIdentityManagement(pipelineStackConfiguration));
+        try (StackDeletionWaiter waiter = new StackDeletionWaiter(mockCloudFormationwithNoStack())) {
+            TeardownPlan plan = stackWiper.createTeardownPlan(waiter);
+
+            assertThat(plan.getStepNames(), not(hasItem(StackWiperImpl.DELETE_PIPELINE_STACK_STEP)));
+            assertThat(plan.getDependencies(StackWiperImpl.DELETE_CREATE_STACK_ROLE_STEP),
+                containsInAnyOrder(StackWiperImpl.destroyFunctionStep(Stage.TEST),
+                    StackWiperImpl.destroyFunctionStep(Stage.FINAL)));
+        }
+    }
+
     @Test
     public void deleteCreateStackRoleShouldMakeCallsToDeleteARoleAndItsPolicies() {
 
@@ -201,7 +315,7 @@ public class StackWiperImplTest extends LocalStackTest {
 
         HashMap<String, Role> roles = createTestRoles();
 
-        when(iam.listRoles()).thenReturn(new ListRolesResult().withRoles(roles.values()));
+        when(iam.listRoles(any())).thenReturn(new ListRolesResult().withRoles(roles.values()));
 
         when(iam.listRolePolicies(any())).thenReturn(new ListRolePoliciesResult().withPolicyNames(SOME_POLICIES));
 
@@ -318,7 +432,7 @@ public class StackWiperImplTest extends LocalStackTest {
     }
 
     private AmazonIdentityManagement setUpListRoles(AmazonIdentityManagement mockIam, boolean[] calledApisList) {
-        when(mockIam.listRoles()).thenAnswer(invocation -> {
+        when(mockIam.listRoles(any())).thenAnswer(invocation -> {
             calledApisList[CALLED_LIST_ROLES] = true;
             return new ListRolesResult()
                 .withRoles(createWellFormedRole());
@@ -0,0 +1,130 @@
+package no.bibsys.aws.utils.stacks;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class TeardownPlanTest {
+
+    private static final String FIRST_STEP = "first";
+    private static final String SECOND_STEP = "second";
+    private static final String THIRD_STEP = "third";
+    private static final String FAILURE_MESSAGE = "failure";
+    private static final String OTHER_FAILURE_MESSAGE = "otherFailure";
+    private static final int PARALLELISM = 2;
+    private static final int WAITING_TIME_IN_SECONDS = 5;
+
+    @Test
+    public void executeShouldRunIndependentStepsConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicBoolean concurrent = new AtomicBoolean(true);
+        Runnable awaitOther = () -> {
+            bothStarted.countDown();
+            concurrent.compareAndSet(true, await(bothStarted));
+        };
+
+        new TeardownPlan(PARALLELISM)
+            .addStep(FIRST_STEP, awaitOther)
+            .addStep(SECOND_STEP, awaitOther)
+            .execute();
+
+        assertThat(concurrent.get(), is(equalTo(true)));
+    }
+
+    @Test
+    public void executeShouldRunStepAfterItsDependencies() {
+        List<String> executedSteps = new CopyOnWriteArrayList<>();
+
+        new TeardownPlan(PARALLELISM)
+            .addStep(FIRST_STEP, () -> executedSteps.add(FIRST_STEP))
+            .addStep(SECOND_STEP, () -> executedSteps.add(SECOND_STEP), FIRST_STEP)
+            .addStep(THIRD_STEP, () -> executedSteps.add(THIRD_STEP), SECOND_STEP)
+            .execute();
+
+        assertThat(executedSteps, contains(FIRST_STEP, SECOND_STEP, THIRD_STEP));
+    }
+
+    @Test
+    public void executeShouldSkipStepsDependingOnFailedStep() {
+        List<String> executedSteps = new CopyOnWriteArrayList<>();
+        TeardownPlan plan = new TeardownPlan(PARALLELISM)
+            .addStep(FIRST_STEP, this::fail)
+            .addStep(SECOND_STEP, () -> executedSteps.add(SECOND_STEP), FIRST_STEP)
+            .addStep(THIRD_STEP, () -> executedSteps.add(THIRD_STEP));
+
+        assertThrows(IllegalStateException.class, plan::execute);
+        assertThat(executedSteps, contains(THIRD_STEP));
+    }
+
+    @Test
+    public void executeShouldRethrowFirstFailureInInsertionOrder() {
+        TeardownPlan plan = new TeardownPlan(PARALLELISM)
+            .addStep(FIRST_STEP, this::fail)
+            .addStep(SECOND_STEP, () -> {
+                throw new IllegalArgumentException(OTHER_FAILURE_MESSAGE);
+            });
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, plan::execute);
+        assertThat(exception.getMessage(), is(equalTo(FAILURE_MESSAGE)));
+    }
+
+    @Test
+    public void executeShouldRethrowAnErrorOfAStepAndSkipTheStepsDependingOnIt() {
+        List<String> executedSteps = new CopyOnWriteArrayList<>();
+        TeardownPlan plan = new TeardownPlan(PARALLELISM)
+            .addStep(FIRST_STEP, () -> {
+                throw new AssertionError(FAILURE_MESSAGE);
+            })
+            .addStep(SECOND_STEP, () -> executedSteps.add(SECOND_STEP), FIRST_STEP);
+
+        AssertionError error = assertThrows(AssertionError.class, plan::execute);
+        assertThat(error.getMessage(), is(equalTo(FAILURE_MESSAGE)));
+        assertThat(executedSteps, is(empty()));
+    }
+
+    @Test
+    public void getDependenciesShouldReturnTheDependenciesOfAStep() {
+        TeardownPlan plan = new TeardownPlan(PARALLELISM)
+            .addStep(FIRST_STEP, () -> { })
+            .addStep(SECOND_STEP, () -> { })
+            .addStep(THIRD_STEP, () -> { }, FIRST_STEP, SECOND_STEP);
+
+        assertThat(plan.getDependencies(THIRD_STEP), contains(FIRST_STEP, SECOND_STEP));
+        assertThat(plan.getDependencies(FIRST_STEP), is(empty()));
+    }
+
+    @Test
+    public void addStepShouldThrowExceptionForUnknownDependency() {
+        TeardownPlan plan = new TeardownPlan(PARALLELISM);
+        assertThrows(IllegalArgumentException.class, () -> plan.addStep(FIRST_STEP, () -> { }, SECOND_STEP));
+    }
+
+    @Test
+    public void addStepShouldThrowExceptionForDuplicateStep() {
+        TeardownPlan plan = new TeardownPlan(PARALLELISM).addStep(FIRST_STEP, () -> { });
+        assertThrows(IllegalArgumentException.class, () -> plan.addStep(FIRST_STEP, () -> { }));
+    }
+
+    private void fail() {
+        throw new IllegalStateException(FAILURE_MESSAGE);
+    }
+
+    private boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(WAITING_TIME_IN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package no.bibsys.aws.utils.templates;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+public class TemplatePublisherTest {
+
+    private static final String TEMPLATE_NAME = "template.yaml";
+    private static final String TEMPLATE = "Resources: {}\n";
+    private static final String CHANGED_TEMPLATE = "Resources:\n  Bucket:\n    Type: AWS::S3::Bucket\n";
+
+    @Test
+    public void publishShouldUploadTheSameTemplateOnce() throws IOException {
+        InMemoryTemplateStore store = spy(new InMemoryTemplateStore());
+        TemplatePublisher publisher = new TemplatePublisher(store);
+
+        String firstUrl = publisher.publish(TEMPLATE_NAME, TEMPLATE);
+        String secondUrl = publisher.publish(TEMPLATE_NAME, TEMPLATE);
+
+        assertThat(secondUrl, is(equalTo(firstUrl)));
+        verify(store, times(1)).put(anyString(), any());
+    }
+
+    @Test
+    public void publishShouldUseANewKeyWhenTheTemplateChanges() throws IOException {
+        InMemoryTemplateStore store = new InMemoryTemplateStore();
+        TemplatePublisher publisher = new TemplatePublisher(store);
+
+        String firstUrl = publisher.publish(TEMPLATE_NAME, TEMPLATE);
+        String changedUrl = publisher.publish(TEMPLATE_NAME, CHANGED_TEMPLATE);
+
+        assertThat(changedUrl, is(not(equalTo(firstUrl))));
+        assertThat(store.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void keyShouldContainTheHashOfTheContent() {
+        byte[] content = TEMPLATE.getBytes(StandardCharsets.UTF_8);
+        assertThat(TemplatePublisher.key(TEMPLATE_NAME, content), is(equalTo(
+            TemplatePublisher.KEY_PREFIX + DigestUtils.sha256Hex(content) + "/" + TEMPLATE_NAME)));
+    }
+
+    @Test
+    public void fileStoreUrlShouldPointToTheUploadedTemplate() throws IOException {
+        Path directory = Files.createTempDirectory("templates");
+        TemplatePublisher publisher = new TemplatePublisher(new FileTemplateStore(directory));
+
+        String url = publisher.publish(TEMPLATE_NAME, TEMPLATE);
+
+        byte[] uploaded = Files.readAllBytes(Paths.get(URI.create(url)));
+        assertThat(new String(uploaded, StandardCharsets.UTF_8), is(equalTo(TEMPLATE)));
+    }
+}
@@ -0,0 +1,80 @@
+package no.bibsys.aws.utils.templates;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import no.bibsys.aws.utils.json.ObjectMappers;
+import org.junit.jupiter.api.Test;
+
+public class TemplateTest {
+
+    private static final String SERVER_PLACEHOLDER = "<SERVER_PLACEHOLDER>";
+    private static final String STAGE_PLACEHOLDER = "<STAGE_PLACEHOLDER>";
+    private static final String YAML_TEMPLATE = "servers:\n"
+        + "- url: '<SERVER_PLACEHOLDER>/api'\n"
+        + "  variables:\n"
+        + "    basePath:\n"
+        + "      default: '<STAGE_PLACEHOLDER>'\n";
+
+    @Test
+    public void renderShouldReplaceAllOccurrencesOfPlaceholders() {
+        Template template = new Template("<A>-<B>-<A>", null);
+        Map<String, String> values = new HashMap<>();
+        values.put("<A>", "a");
+        values.put("<B>", "b");
+        assertThat(template.render(values), is(equalTo("a-b-a")));
+    }
+
+    @Test
+    public void renderShouldKeepPlaceholdersWithoutValue() {
+        Template template = new Template("x<A>y<B>", null);
+        assertThat(template.render(Collections.singletonMap("<A>", "a")), is(equalTo("xay<B>")));
+    }
+
+    @Test
+    public void renderDocumentShouldReplacePlaceholdersInValues() {
+        Template template = new Template(YAML_TEMPLATE, ObjectMappers.YAML);
+        Map<String, String> values = new HashMap<>();
+        values.put(SERVER_PLACEHOLDER, "https://example.org");
+        values.put(STAGE_PLACEHOLDER, "test");
+        JsonNode document = template.renderDocument(values);
+
+        JsonNode server = document.get("servers").get(0);
+        assertThat(server.get("url").asText(), is(equalTo("https://example.org/api")));
+        assertThat(server.get("variables").get("basePath").get("default").asText(), is(equalTo("test")));
+    }
+
+    @Test
+    public void renderDocumentShouldReturnIndependentCopies() {
+        Template template = new Template(YAML_TEMPLATE, ObjectMappers.YAML);
+        JsonNode first = template.renderDocument(Collections.singletonMap(SERVER_PLACEHOLDER, "first"));
+        ((ObjectNode) first.get("servers").get(0)).remove("variables");
+        JsonNode second = template.renderDocument(Collections.singletonMap(SERVER_PLACEHOLDER, "second"));
+
+        JsonNode server = second.get("servers").get(0);
+        assertThat(server.get("url").asText(), is(equalTo("second/api")));
+        assertThat(server.has("variables"), is(true));
+    }
+
+    @Test
+    public void renderDocumentShouldFailForPlainTextTemplates() {
+        Template template = new Template("<A>", null);
+        assertThrows(IllegalStateException.class, () -> template.renderDocument(Collections.emptyMap()));
+    }
+
+    @Test
+    public void registryShouldReturnTheSameTemplateForTheSameResource() throws IOException {
+        TemplateRegistry registry = TemplateRegistry.getInstance();
+        Template template = registry.get(TemplateRegistry.CREATE_STACK_ROLE_ASSUME_POLICY);
+        assertThat(registry.get(TemplateRegistry.CREATE_STACK_ROLE_ASSUME_POLICY), is(sameInstance(template)));
+    }
+}
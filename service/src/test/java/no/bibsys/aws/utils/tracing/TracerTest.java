@@ -0,0 +1,111 @@
+package no.bibsys.aws.utils.tracing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TracerTest {
+
+    private static final String PROJECT_ID = "project";
+    private static final String BRANCH = "branch";
+    private static final String TRACE_ID = TraceIds.newTraceId(PROJECT_ID, BRANCH, 0x5c000000L);
+
+    @Test
+    public void newTraceIdShouldHaveTheXrayFormatAndABranchHashThatDependsOnlyOnTheBranch() {
+        String first = TraceIds.newTraceId(PROJECT_ID, BRANCH, 1);
+        String second = TraceIds.newTraceId(PROJECT_ID, BRANCH, 2);
+
+        assertThat(first.matches("1-[0-9a-f]{8}-[0-9a-f]{24}"), is(true));
+        assertThat(first, is(not(equalTo(second))));
+        assertThat(TraceIds.branchHash(first), is(equalTo(TraceIds.branchHash(second))));
+        assertThat(TraceIds.branchHash(TraceIds.newTraceId(PROJECT_ID, "other", 1)),
+            is(not(equalTo(TraceIds.branchHash(first)))));
+    }
+
+    @Test
+    public void spansShouldBeExportedWithTheirParentsWhenTheOutermostSpanEnds() throws Exception {
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        Tracer tracer = new Tracer(TRACE_ID, exporter);
+
+        tracer.run("root", () -> {
+            tracer.run("first", () -> {
+            });
+            assertThat(exporter.getSpans().isEmpty(), is(true));
+            tracer.run("second", () -> {
+            });
+        });
+
+        List<Span> spans = exporter.getSpans();
+        assertThat(spans.size(), is(equalTo(3)));
+        Span root = spans.get(2);
+        assertThat(root.getName(), is(equalTo("root")));
+        assertThat(root.getParentId(), is(nullValue()));
+        assertThat(spans.get(0).getParentId(), is(equalTo(root.getId())));
+        assertThat(spans.get(1).getParentId(), is(equalTo(root.getId())));
+        assertThat(spans.get(0).getTraceId(), is(equalTo(TRACE_ID)));
+    }
+
+    @Test
+    public void runShouldMarkTheSpanAsFailedAndRethrow() {
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        Tracer tracer = new Tracer(TRACE_ID, exporter);
+
+        assertThrows(IOException.class, () -> tracer.run("failing", () -> {
+            throw new IOException("failure");
+        }));
+
+        Span span = exporter.getSpans().get(0);
+        assertThat(span.isFailed(), is(true));
+        assertThat(span.getError(), is(equalTo("IOException: failure")));
+    }
+
+    @Test
+    public void exportFailuresShouldNotFailTheTracedPhase() throws Exception {
+        Tracer tracer = new Tracer(TRACE_ID, spans -> {
+            throw new IOException("unavailable");
+        });
+
+        assertThat(tracer.call("phase", () -> "result"), is(equalTo("result")));
+    }
+
+    @Test
+    public void jsonFileExporterShouldAppendOneLinePerSpan() throws Exception {
+        Path file = Files.createTempDirectory("traces").resolve("spans.json");
+        Tracer tracer = new Tracer(TRACE_ID, SpanExporterFactory.create(file.toUri().toString()));
+
+        tracer.run("root", () -> tracer.run("child", () -> {
+        }));
+        tracer.run("next", () -> {
+        });
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines.size(), is(equalTo(3)));
+        assertThat(lines.get(0).contains("\"name\":\"child\""), is(true));
+    }
+
+    @Test
+    public void segmentDocumentShouldMakeChildSpansSubsegments() throws Exception {
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        Tracer tracer = new Tracer(TRACE_ID, exporter);
+        tracer.run("root", () -> tracer.startSpan("child").annotate("stack-name", "stack").close());
+
+        Span child = exporter.getSpans().get(0);
+        Span root = exporter.getSpans().get(1);
+        assertThat(XRaySpanExporter.segmentDocument(root).has("type"), is(false));
+        assertThat(XRaySpanExporter.segmentDocument(child).get("type").asText(), is(equalTo("subsegment")));
+        assertThat(XRaySpanExporter.segmentDocument(child).get("parent_id").asText(), is(equalTo(root.getId())));
+        assertThat(XRaySpanExporter.segmentDocument(child).get("trace_id").asText(), is(equalTo(TRACE_ID)));
+        assertThat(XRaySpanExporter.segmentDocument(child).get("annotations").get("stack_name").asText(),
+            is(equalTo("stack")));
+    }
+}